@@ -22,6 +22,8 @@ import java.io.File;
 import java.io.InputStream;
 import java.io.StringWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
 import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -35,6 +37,7 @@ import java.util.HashSet;
 
 import org.apache.avro.Schema.Field;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -214,7 +217,7 @@ public class Protocol extends JsonProperties {
 
   private Schema.Names types = new Schema.Names();
   private Map<String,Message> messages = new LinkedHashMap<>();
-  private byte[] md5;
+  private volatile byte[] md5;
 
   /** An error that can be thrown by any message. */
   public static final Schema SYSTEM_ERROR = Schema.create(Schema.Type.STRING);
@@ -277,6 +280,7 @@ public class Protocol extends JsonProperties {
     types = new Schema.Names();
     for (Schema s : newTypes)
       types.add(s);
+    md5 = null;
   }
 
   /** The messages of this protocol. */
@@ -388,16 +392,38 @@ public class Protocol extends JsonProperties {
     gen.writeEndObject();
   }
 
-  /** Return the MD5 hash of the text of this protocol. */
+  /** Return the MD5 hash of the text of this protocol.  The text is hashed
+   * as it is generated, and the result is memoized until props are added or
+   * types are set. */
   public byte[] getMD5() {
-    if (md5 == null)
+    byte[] result = md5;
+    if (result == null)
       try {
-        md5 = MessageDigest.getInstance("MD5")
-          .digest(this.toString().getBytes("UTF-8"));
+        MessageDigest digest = MessageDigest.getInstance("MD5");
+        JsonGenerator gen = Schema.FACTORY.createGenerator(
+            new DigestOutputStream(NULL_OUTPUT, digest), JsonEncoding.UTF8);
+        toJson(gen);
+        gen.flush();
+        md5 = result = digest.digest();
       } catch (Exception e) {
         throw new AvroRuntimeException(e);
       }
-    return md5;
+    return result;
+  }
+
+  private static final OutputStream NULL_OUTPUT = new OutputStream() {
+    @Override public void write(int b) {}
+    @Override public void write(byte[] b, int off, int len) {}
+  };
+
+  @Override public void addProp(String name, String value) {
+    super.addProp(name, value);
+    md5 = null;
+  }
+
+  @Override public void addProp(String name, Object value) {
+    super.addProp(name, value);
+    md5 = null;
   }
 
   /** Read a protocol from a Json file. */
@@ -138,14 +138,28 @@ public abstract class Schema extends JsonProperties {
 
   int hashCode = NO_HASHCODE;
 
+  // memoized by SchemaNormalization; cleared whenever hashCode is
+  volatile String parsingForm;
+  volatile Long parsingFingerprint64;
+  volatile byte[] parsingMD5;
+  volatile byte[] parsingSHA256;
+
   @Override public void addProp(String name, String value) {
     super.addProp(name, value);
-    hashCode = NO_HASHCODE;
+    invalidateCachedForms();
   }
 
   @Override public void addProp(String name, Object value) {
     super.addProp(name, value);
+    invalidateCachedForms();
+  }
+
+  void invalidateCachedForms() {
     hashCode = NO_HASHCODE;
+    parsingForm = null;
+    parsingFingerprint64 = null;
+    parsingMD5 = null;
+    parsingSHA256 = null;
   }
 
   public LogicalType getLogicalType() {
@@ -730,7 +744,7 @@ public abstract class Schema extends JsonProperties {
         ff.add(f);
       }
       this.fields = ff.lock();
-      this.hashCode = NO_HASHCODE;
+      invalidateCachedForms();
     }
     public boolean equals(Object o) {
       if (o == this) return true;
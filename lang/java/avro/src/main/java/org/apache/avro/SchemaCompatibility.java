@@ -60,10 +60,36 @@ public class SchemaCompatibility {
       final Schema reader,
       final Schema writer
   ) {
-    final SchemaCompatibilityResult compatibility =
-        new ReaderWriterCompatibilityChecker()
-            .getCompatibility(reader, writer);
+    return pairCompatibility(
+        checkCompatibility(reader, writer, null),
+        reader,
+        writer);
+  }
+
+  /**
+   * Determines the compatibility of a reader/writer schema pair, reusing and recording the
+   * results of record schema pairs in a cache.
+   *
+   * @param reader schema to check.
+   * @param writer schema to check.
+   * @param cache where compatible record schema pairs are remembered, or null.
+   * @return the compatibility of the reader/writer schema pair.
+   */
+  static SchemaCompatibilityResult checkCompatibility(
+      final Schema reader,
+      final Schema writer,
+      final SchemaCompatibilityCache.Check cache
+  ) {
+    return new ReaderWriterCompatibilityChecker(cache)
+        .getCompatibility(reader, writer);
+  }
 
+  /** Describes the result of checking a reader/writer schema pair. */
+  static SchemaPairCompatibility pairCompatibility(
+      final SchemaCompatibilityResult compatibility,
+      final Schema reader,
+      final Schema writer
+  ) {
     final String message;
     switch (compatibility.getCompatibility()) {
       case INCOMPATIBLE: {
@@ -193,11 +219,24 @@ public class SchemaCompatibility {
    * Determines the compatibility of a reader/writer schema pair.
    *
    * <p> Provides memoization to handle recursive schemas. </p>
+   *
+   * <p> Pairs in progress are assumed compatible when reached again.  A result that relies on
+   * no such assumption but its own is final, and final compatible record pairs are recorded
+   * in the cache, if any. </p>
    */
   private static final class ReaderWriterCompatibilityChecker {
     private static final String ROOT_REFERENCE_TOKEN = "";
     private final Map<ReaderWriter, SchemaCompatibilityResult> mMemoizeMap =
         new HashMap<>();
+    /** Depth of each pair in progress. */
+    private final Map<ReaderWriter, Integer> mInProgress = new HashMap<>();
+    /** Least depth of the pairs in progress assumed compatible by the current pair. */
+    private int mLowestAssumption = Integer.MAX_VALUE;
+    private final SchemaCompatibilityCache.Check mCache;
+
+    ReaderWriterCompatibilityChecker(final SchemaCompatibilityCache.Check cache) {
+      mCache = cache;
+    }
 
     /**
      * Reports the compatibility of a reader/writer schema pair.
@@ -234,17 +273,44 @@ public class SchemaCompatibility {
       LOG.debug("Checking compatibility of reader {} with writer {}", reader, writer);
       final ReaderWriter pair = new ReaderWriter(reader, writer);
       SchemaCompatibilityResult result = mMemoizeMap.get(pair);
+      final boolean cacheable = mCache != null
+          && reader.getType() == Type.RECORD && writer.getType() == Type.RECORD;
       if (result != null) {
         if (result.getCompatibility() == SchemaCompatibilityType.RECURSION_IN_PROGRESS) {
           // Break the recursion here.
           // schemas are compatible unless proven incompatible:
           result = SchemaCompatibilityResult.compatible();
+          if (mCache != null) {
+            mLowestAssumption = Math.min(mLowestAssumption, mInProgress.get(pair));
+          }
         }
-      } else {
+      } else if (cacheable && mCache.isCompatible(reader, writer)) {
+        result = SchemaCompatibilityResult.compatible();
+        mMemoizeMap.put(pair, result);
+      } else if (mCache == null) {
         // Mark this reader/writer pair as "in progress":
         mMemoizeMap.put(pair, SchemaCompatibilityResult.recursionInProgress());
         result = calculateCompatibility(reader, writer, location);
         mMemoizeMap.put(pair, result);
+      } else {
+        // As above, also tracking the pairs in progress that are assumed compatible:
+        mMemoizeMap.put(pair, SchemaCompatibilityResult.recursionInProgress());
+        final int depth = mInProgress.size();
+        mInProgress.put(pair, depth);
+        final int outerLowestAssumption = mLowestAssumption;
+        mLowestAssumption = Integer.MAX_VALUE;
+        result = calculateCompatibility(reader, writer, location);
+        mInProgress.remove(pair);
+        if (mLowestAssumption >= depth) {
+          // Relies on no pair still in progress:
+          mLowestAssumption = outerLowestAssumption;
+          if (cacheable && result.getCompatibility() == SchemaCompatibilityType.COMPATIBLE) {
+            mCache.putCompatible(reader, writer);
+          }
+        } else {
+          mLowestAssumption = Math.min(mLowestAssumption, outerLowestAssumption);
+        }
+        mMemoizeMap.put(pair, result);
       }
       location.removeFirst();
       return result;
@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.apache.avro.SchemaCompatibility.SchemaCompatibilityResult;
+import org.apache.avro.SchemaCompatibility.SchemaCompatibilityType;
+import org.apache.avro.SchemaCompatibility.SchemaPairCompatibility;
+
+/**
+ * A bounded cache of the results of
+ * {@link SchemaCompatibility#checkReaderWriterCompatibility(Schema, Schema)}.
+ * <p/>
+ * Results are keyed by the complete JSON of the reader's and writer's
+ * schemas, including defaults and aliases, so equal schemas parsed separately
+ * share a result.  The record schemas nested in a checked pair that are found
+ * compatible are also remembered, and are not checked again when another pair
+ * contains them, as successive versions of a schema usually do.  The least
+ * recently used results are evicted once the cache is full.
+ * <p/>
+ * This class is thread-safe, and {@link #checkReader(Schema, Collection)} and
+ * {@link #checkWriter(Schema, Collection)} check many schemas in parallel.
+ */
+public class SchemaCompatibilityCache {
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  private final int maxSize;
+  private final Map<Key,SchemaCompatibilityResult> results;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /** Construct a cache holding up to {@value #DEFAULT_MAX_SIZE} results. */
+  public SchemaCompatibilityCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /** Construct a cache holding at most <i>maxSize</i> results. */
+  public SchemaCompatibilityCache(int maxSize) {
+    if (maxSize < 1)
+      throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+    this.maxSize = maxSize;
+    this.results = new LinkedHashMap<Key,SchemaCompatibilityResult>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<Key,SchemaCompatibilityResult> eldest) {
+        if (size() <= SchemaCompatibilityCache.this.maxSize)
+          return false;
+        evictions++;
+        return true;
+      }
+    };
+  }
+
+  /** Returns whether <i>reader</i> can read data written with <i>writer</i>,
+   * using a cached result if there is one.
+   * @see SchemaCompatibility#checkReaderWriterCompatibility(Schema, Schema) */
+  public SchemaPairCompatibility check(Schema reader, Schema writer) {
+    Check check = new Check();
+    Key key;
+    try {
+      key = check.key(reader, writer);
+    } catch (SchemaParseException e) {
+      // a schema holding distinct records of the same name can't be written
+      return SchemaCompatibility.checkReaderWriterCompatibility(reader, writer);
+    }
+    SchemaCompatibilityResult result;
+    synchronized (this) {
+      result = results.get(key);
+      if (result != null)
+        hits++;
+      else
+        misses++;
+    }
+    if (result == null) {
+      // checked outside the lock: racing threads may each check it once
+      result = SchemaCompatibility.checkCompatibility(reader, writer, check);
+      synchronized (this) {
+        results.put(key, result);
+      }
+    }
+    return SchemaCompatibility.pairCompatibility(result, reader, writer);
+  }
+
+  /** Returns whether <i>reader</i> can read data written with each of
+   * <i>writers</i>, such as the previous versions of a schema, in the order
+   * of <i>writers</i>.  The writers are checked in parallel. */
+  public List<SchemaPairCompatibility> checkReader(Schema reader,
+                                                   Collection<Schema> writers) {
+    return writers.parallelStream()
+      .map(writer -> check(reader, writer))
+      .collect(Collectors.toList());
+  }
+
+  /** Returns whether each of <i>readers</i>, such as the previous versions of
+   * a schema, can read data written with <i>writer</i>, in the order of
+   * <i>readers</i>.  The readers are checked in parallel. */
+  public List<SchemaPairCompatibility> checkWriter(Schema writer,
+                                                   Collection<Schema> readers) {
+    return readers.parallelStream()
+      .map(reader -> check(reader, writer))
+      .collect(Collectors.toList());
+  }
+
+  /** The number of checks that found a cached result. */
+  public synchronized long getHitCount() { return hits; }
+
+  /** The number of checks that computed a result. */
+  public synchronized long getMissCount() { return misses; }
+
+  /** The number of results evicted to bound the size of the cache. */
+  public synchronized long getEvictionCount() { return evictions; }
+
+  /** The number of results currently cached, including those of nested
+   * records. */
+  public synchronized int size() { return results.size(); }
+
+  /** Discard all cached results. */
+  public synchronized void clear() { results.clear(); }
+
+  /** A single check of a schema pair.  The JSON of each schema is written
+   * once per check, since schemas may be changed between checks. */
+  final class Check {
+    private final Map<Schema,JsonForm> forms = new IdentityHashMap<>();
+
+    private Key key(Schema reader, Schema writer) {
+      return new Key(jsonForm(reader), jsonForm(writer));
+    }
+
+    private JsonForm jsonForm(Schema schema) {
+      JsonForm form = forms.get(schema);
+      if (form == null) {
+        form = new JsonForm(schema.toString());
+        forms.put(schema, form);
+      }
+      return form;
+    }
+
+    /** Whether a nested reader record is known to read a writer record. */
+    boolean isCompatible(Schema reader, Schema writer) {
+      Key key = key(reader, writer);
+      SchemaCompatibilityResult result;
+      synchronized (SchemaCompatibilityCache.this) {
+        result = results.get(key);
+      }
+      return result != null
+        && result.getCompatibility() == SchemaCompatibilityType.COMPATIBLE;
+    }
+
+    /** Remembers that a nested reader record can read a writer record. */
+    void putCompatible(Schema reader, Schema writer) {
+      Key key = key(reader, writer);
+      synchronized (SchemaCompatibilityCache.this) {
+        results.put(key, SchemaCompatibilityResult.compatible());
+      }
+    }
+  }
+
+  /** The JSON of a schema and its fingerprint. */
+  private static final class JsonForm {
+    private final String json;
+    private final long fingerprint;
+
+    JsonForm(String json) {
+      this.json = json;
+      this.fingerprint = SchemaNormalization.fingerprint64(
+          json.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /** A reader's and writer's JSON.  Keys are hashed by the fingerprints of
+   * the JSON but compared in full, so that a pair colliding with another
+   * pair's fingerprints does not get its result. */
+  private static final class Key {
+    private final JsonForm reader;
+    private final JsonForm writer;
+
+    Key(JsonForm reader, JsonForm writer) {
+      this.reader = reader;
+      this.writer = writer;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key that = (Key)o;
+      return reader.fingerprint == that.reader.fingerprint
+        && writer.fingerprint == that.writer.fingerprint
+        && reader.json.equals(that.reader.json)
+        && writer.json.equals(that.writer.json);
+    }
+
+    @Override
+    public int hashCode() {
+      return Long.hashCode(reader.fingerprint) * 31
+        + Long.hashCode(writer.fingerprint);
+    }
+  }
+}
@@ -20,7 +20,6 @@ package org.apache.avro;
 import java.util.Map;
 import java.util.HashMap;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -33,15 +32,20 @@ public class SchemaNormalization {
   private SchemaNormalization() {}
 
   /** Returns "Parsing Canonical Form" of a schema as defined by Avro
-    * spec. */
+    * spec.  The result is memoized on the schema. */
   public static String toParsingForm(Schema s) {
-    try {
-      Map<String,String> env = new HashMap<>();
-      return build(env, s, new StringBuilder()).toString();
-    } catch (IOException e) {
-      // Shouldn't happen, b/c StringBuilder can't throw IOException
-      throw new RuntimeException(e);
+    String form = s.parsingForm;
+    if (form == null) {
+      try {
+        Map<String,String> env = new HashMap<>();
+        form = build(env, s, new StringBuilder()).toString();
+      } catch (IOException e) {
+        // Shouldn't happen, b/c StringBuilder can't throw IOException
+        throw new RuntimeException(e);
+      }
+      s.parsingForm = form;
     }
+    return form;
   }
 
   /** Returns a fingerprint of a string of bytes.  This string is
@@ -61,15 +65,8 @@ public class SchemaNormalization {
   public static byte[] fingerprint(String fpName, byte[] data)
     throws NoSuchAlgorithmException
   {
-    if (fpName.equals("CRC-64-AVRO")) {
-      long fp = fingerprint64(data);
-      byte[] result = new byte[8];
-      for (int i = 0; i < 8; i++) {
-        result[i] = (byte)fp;
-        fp >>= 8;
-      }
-      return result;
-    }
+    if (fpName.equals("CRC-64-AVRO"))
+      return toLittleEndian(fingerprint64(data));
 
     MessageDigest md = MessageDigest.getInstance(fpName);
     return md.digest(data);
@@ -85,18 +82,76 @@ public class SchemaNormalization {
   }
 
   /** Returns {@link #fingerprint} applied to the parsing canonical form
-    * of the supplied schema. */
+    * of the supplied schema.  The canonical form is fingerprinted as it is
+    * generated, and <code>"CRC-64-AVRO"</code>, <code>"MD5"</code> and
+    * <code>"SHA-256"</code> fingerprints are memoized on the schema. */
   public static byte[] parsingFingerprint(String fpName, Schema s)
     throws NoSuchAlgorithmException
   {
-    return fingerprint(fpName,
-        toParsingForm(s).getBytes(StandardCharsets.UTF_8));
+    byte[] fp;
+    switch (fpName) {
+    case "CRC-64-AVRO":
+      return toLittleEndian(parsingFingerprint64(s));
+    case "MD5":
+      fp = s.parsingMD5;
+      if (fp == null)
+        s.parsingMD5 = fp = digest(fpName, s);
+      break;
+    case "SHA-256":
+      fp = s.parsingSHA256;
+      if (fp == null)
+        s.parsingSHA256 = fp = digest(fpName, s);
+      break;
+    default:
+      return digest(fpName, s);
+    }
+    return fp.clone();
   }
 
   /** Returns {@link #fingerprint64} applied to the parsing canonical form
-    * of the supplied schema. */
+    * of the supplied schema.  The canonical form is fingerprinted as it is
+    * generated, and the result is memoized on the schema. */
   public static long parsingFingerprint64(Schema s) {
-    return fingerprint64(toParsingForm(s).getBytes(StandardCharsets.UTF_8));
+    Long fp = s.parsingFingerprint64;
+    if (fp == null) {
+      Rabin64 sink = new Rabin64();
+      writeParsingForm(s, sink);
+      s.parsingFingerprint64 = fp = sink.fp;
+    }
+    return fp;
+  }
+
+  private static byte[] digest(String fpName, Schema s)
+    throws NoSuchAlgorithmException
+  {
+    Digest sink = new Digest(MessageDigest.getInstance(fpName));
+    writeParsingForm(s, sink);
+    return sink.md.digest();
+  }
+
+  /** Writes the UTF-8 parsing canonical form of a schema to a sink, without
+    * building it as a string unless it is already memoized. */
+  private static void writeParsingForm(Schema s, Utf8Sink sink) {
+    String form = s.parsingForm;
+    try {
+      if (form != null)
+        sink.append(form);
+      else
+        build(new HashMap<>(), s, sink);
+    } catch (IOException e) {
+      // Shouldn't happen, b/c sinks can't throw IOException
+      throw new RuntimeException(e);
+    }
+    sink.finish();
+  }
+
+  private static byte[] toLittleEndian(long fp) {
+    byte[] result = new byte[8];
+    for (int i = 0; i < 8; i++) {
+      result[i] = (byte)fp;
+      fp >>= 8;
+    }
+    return result;
   }
 
   private static Appendable build(Map<String,String> env, Schema s,
@@ -151,6 +206,108 @@ public class SchemaNormalization {
     }
   }
 
+  /** An {@link Appendable} that passes the UTF-8 encoding of the text
+    * appended to it to {@link #update(int)}.  Like
+    * {@link String#getBytes(java.nio.charset.Charset)}, it replaces unpaired
+    * surrogates with <code>'?'</code>. */
+  private static abstract class Utf8Sink implements Appendable {
+    private char highSurrogate;               // awaiting its pair, or 0
+
+    abstract void update(int b);
+
+    /** Called once all text is appended. */
+    void finish() {
+      if (highSurrogate != 0) {
+        highSurrogate = 0;
+        update('?');
+      }
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) {
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) {
+      for (int i = start; i < end; i++)
+        append(csq.charAt(i));
+      return this;
+    }
+
+    @Override
+    public Appendable append(char c) {
+      if (c < 0x80 && highSurrogate == 0) {
+        update(c);
+      } else if (Character.isHighSurrogate(c)) {
+        finish();
+        highSurrogate = c;
+      } else if (Character.isLowSurrogate(c) && highSurrogate != 0) {
+        encode(Character.toCodePoint(highSurrogate, c));
+        highSurrogate = 0;
+      } else {
+        finish();
+        encode(Character.isLowSurrogate(c) ? '?' : c);
+      }
+      return this;
+    }
+
+    private void encode(int cp) {
+      if (cp < 0x80) {
+        update(cp);
+      } else if (cp < 0x800) {
+        update(0xc0 | (cp >> 6));
+        update(0x80 | (cp & 0x3f));
+      } else if (cp < 0x10000) {
+        update(0xe0 | (cp >> 12));
+        update(0x80 | ((cp >> 6) & 0x3f));
+        update(0x80 | (cp & 0x3f));
+      } else {
+        update(0xf0 | (cp >> 18));
+        update(0x80 | ((cp >> 12) & 0x3f));
+        update(0x80 | ((cp >> 6) & 0x3f));
+        update(0x80 | (cp & 0x3f));
+      }
+    }
+  }
+
+  /** Computes {@link #fingerprint64} of the text appended. */
+  private static class Rabin64 extends Utf8Sink {
+    private long fp = EMPTY64;
+
+    @Override
+    void update(int b) {
+      fp = (fp >>> 8) ^ FP64.FP_TABLE[(int)(fp ^ b) & 0xff];
+    }
+  }
+
+  /** Computes a {@link MessageDigest} of the text appended. */
+  private static class Digest extends Utf8Sink {
+    private final MessageDigest md;
+    private final byte[] buf = new byte[64];
+    private int count;
+
+    Digest(MessageDigest md) {
+      this.md = md;
+    }
+
+    @Override
+    void update(int b) {
+      if (count == buf.length) {
+        md.update(buf, 0, count);
+        count = 0;
+      }
+      buf[count++] = (byte)b;
+    }
+
+    @Override
+    void finish() {
+      super.finish();
+      md.update(buf, 0, count);
+      count = 0;
+    }
+  }
+
   final static long EMPTY64 = 0xc15d213aa4d7a795L;
 
   /* An inner class ensures that FP_TABLE initialized only when needed. */
@@ -17,9 +17,8 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
@@ -31,8 +30,6 @@ public class BZip2Codec extends Codec {
   public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
   private final byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
 
-  private ByteArrayOutputStream outputBuffer;
-
   static class Option extends CodecFactory {
     @Override
     protected Codec createInstance() {
@@ -45,27 +42,42 @@ public class BZip2Codec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer uncompressedData) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(uncompressedData.remaining());
+    return compress(uncompressedData, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
+    return decompress(compressedData, null);
+  }
 
-    try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(baos)) {
+  @Override
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer output)
+    throws IOException {
+    uncompressedData = arrayBacked(uncompressedData, null);
+    BufferOutputStream out =
+      new BufferOutputStream(output, uncompressedData.remaining());
+
+    try (BZip2CompressorOutputStream outputStream = new BZip2CompressorOutputStream(out)) {
         outputStream.write(uncompressedData.array(), computeOffset(uncompressedData), uncompressedData.remaining());
     }
 
-    return ByteBuffer.wrap(baos.toByteArray());
+    return out.getBuffer();
   }
 
   @Override
-  public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-    ByteArrayInputStream bais = new ByteArrayInputStream(compressedData.array(), computeOffset(compressedData), compressedData.remaining());
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer output)
+    throws IOException {
+    InputStream bais = new BufferInputStream(compressedData);
     try(BZip2CompressorInputStream inputStream = new BZip2CompressorInputStream(bais)) {
-      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      BufferOutputStream out =
+        new BufferOutputStream(output, compressedData.remaining() << 2);
 
       int readCount = -1;
-      while ((readCount = inputStream.read(buffer, compressedData.position(), buffer.length)) > 0) {
-        baos.write(buffer, 0, readCount);
+      while ((readCount = inputStream.read(buffer, 0, buffer.length)) > 0) {
+        out.write(buffer, 0, readCount);
       }
 
-      return ByteBuffer.wrap(baos.toByteArray());
+      return out.getBuffer();
     }
   }
 
@@ -79,13 +91,4 @@ public class BZip2Codec extends Codec {
       return false;
     return true;
   }
-
-  //get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
 }
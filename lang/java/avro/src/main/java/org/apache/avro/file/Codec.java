@@ -18,6 +18,8 @@
 package org.apache.avro.file;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 
 /**
@@ -33,6 +35,36 @@ public abstract class Codec {
   public abstract ByteBuffer compress(ByteBuffer uncompressedData) throws IOException;
   /** Decompress the data  */
   public abstract ByteBuffer decompress(ByteBuffer compressedData) throws IOException;
+
+  /**
+   * Compresses the input data, storing the result in <i>output</i> when
+   * possible.  Returns a buffer whose remaining bytes are the compressed data.
+   * This is either <i>output</i> or, when that is null or too small, a newly
+   * allocated buffer that callers should pass on their next call so that its
+   * storage is reused.  The input may be returned as-is by codecs that do not
+   * transform data.
+   * <p/>
+   * The default implementation ignores <i>output</i> and calls
+   * {@link #compress(ByteBuffer)}.
+   */
+  public ByteBuffer compress(ByteBuffer uncompressedData, ByteBuffer output)
+    throws IOException {
+    return compress(uncompressedData);
+  }
+
+  /**
+   * Decompresses the input data, storing the result in <i>output</i> when
+   * possible.  Returns a buffer whose remaining bytes are the decompressed
+   * data, with the same reuse contract as
+   * {@link #compress(ByteBuffer, ByteBuffer)}.
+   * <p/>
+   * The default implementation ignores <i>output</i> and calls
+   * {@link #decompress(ByteBuffer)}.
+   */
+  public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer output)
+    throws IOException {
+    return decompress(compressedData);
+  }
   /**
    * Codecs must implement an equals() method.  Two codecs, A and B are equal
    * if: the result of A and B decompressing content compressed by A is the same
@@ -57,4 +89,137 @@ public abstract class Codec {
   protected static int computeOffset(ByteBuffer data) {
       return data.arrayOffset() + data.position();
   }
+
+  /** Returns <i>data</i> if it is backed by an accessible array, and
+   * otherwise a heap copy of its remaining bytes, stored in <i>reuse</i> when
+   * possible.  The position of <i>data</i> is not modified. */
+  protected static ByteBuffer arrayBacked(ByteBuffer data, ByteBuffer reuse) {
+    if (data.hasArray()) {
+      return data;
+    }
+    ByteBuffer copy = reuseBuffer(reuse, data.remaining());
+    copy.put(data.duplicate());
+    copy.flip();
+    return copy;
+  }
+
+  /** Returns a cleared heap buffer of at least <i>capacity</i> bytes, which
+   * is <i>reuse</i> if that is suitable. */
+  protected static ByteBuffer reuseBuffer(ByteBuffer reuse, int capacity) {
+    if (isReusable(reuse) && reuse.capacity() >= capacity) {
+      reuse.clear();
+      return reuse;
+    }
+    return ByteBuffer.allocate(capacity);
+  }
+
+  /** Returns <i>reuse</i> cleared if it is a heap buffer, to be grown with
+   * {@link #growBuffer(ByteBuffer, int)} as needed, or otherwise a new heap
+   * buffer of <i>suggestedCapacity</i> bytes. */
+  protected static ByteBuffer growableBuffer(ByteBuffer reuse,
+                                             int suggestedCapacity) {
+    if (isReusable(reuse)) {
+      reuse.clear();
+      return reuse;
+    }
+    return ByteBuffer.allocate(suggestedCapacity);
+  }
+
+  private static boolean isReusable(ByteBuffer buffer) {
+    return buffer != null && buffer.hasArray() && buffer.arrayOffset() == 0
+      && !buffer.isReadOnly();
+  }
+
+  /** Returns a heap buffer with room for at least <i>needed</i> more bytes
+   * after the position of <i>buffer</i>, copying the bytes before that
+   * position when a new buffer must be allocated. */
+  protected static ByteBuffer growBuffer(ByteBuffer buffer, int needed) {
+    if (buffer.remaining() >= needed) {
+      return buffer;
+    }
+    int minCapacity = buffer.position() + needed;
+    if (minCapacity < 0) {
+      throw new OutOfMemoryError("Required buffer size too large");
+    }
+    int capacity = Math.max(minCapacity, buffer.capacity() << 1);
+    if (capacity < 0) {
+      capacity = Integer.MAX_VALUE - 8;
+    }
+    ByteBuffer result = ByteBuffer.allocate(capacity);
+    buffer.flip();
+    result.put(buffer);
+    return result;
+  }
+
+  /** An input stream over the remaining bytes of a buffer, which may be
+   * direct, for use by codecs built on stream-based compression libraries. */
+  protected static class BufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    /** Reads from a view of <i>buffer</i>, leaving its position unchanged. */
+    public BufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int n = Math.min(len, buffer.remaining());
+      buffer.get(b, off, n);
+      return n;
+    }
+
+    @Override
+    public long skip(long n) {
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      return buffer.remaining();
+    }
+  }
+
+  /** An output stream that writes into a growable heap buffer, for use by
+   * codecs built on stream-based compression libraries. */
+  protected static class BufferOutputStream extends OutputStream {
+    private ByteBuffer buffer;
+
+    /** Writes into <i>reuse</i> when it is suitable, and otherwise into a
+     * new buffer of <i>suggestedCapacity</i> bytes. */
+    public BufferOutputStream(ByteBuffer reuse, int suggestedCapacity) {
+      this.buffer = growableBuffer(reuse, Math.max(suggestedCapacity, 64));
+    }
+
+    @Override
+    public void write(int b) {
+      buffer = growBuffer(buffer, 1);
+      buffer.put((byte)b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buffer = growBuffer(buffer, len);
+      buffer.put(b, off, len);
+    }
+
+    /** Returns the written bytes, from position zero to the limit.  No
+     * further writes may be made once this is called. */
+    public ByteBuffer getBuffer() {
+      buffer.flip();
+      return buffer;
+    }
+  }
 }
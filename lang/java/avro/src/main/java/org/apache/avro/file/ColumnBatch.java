@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.util.Utf8;
+
+/** The values of selected fields of the records in a block of a data file,
+ * stored in a column for each field.  Read by {@link DataFileColumnReader}.
+ * <p/>
+ * Values are stored as they are encoded, without logical type conversions:
+ * <ul>
+ * <li>int, long, boolean and enum values in a {@link LongColumn}, booleans
+ * as 0 or 1 and enums as the index of their symbol;</li>
+ * <li>float and double values in a {@link DoubleColumn};</li>
+ * <li>string, bytes and fixed values in a {@link BytesColumn}.</li>
+ * </ul>
+ * Fields that are a union of null and one of these types are also stored,
+ * with null values marked in the column's null bitmap.
+ */
+public class ColumnBatch {
+  private final DataFileColumnReader reader;
+  private final Column[] columns;
+  private int size;
+
+  ColumnBatch(DataFileColumnReader reader, Column[] columns) {
+    this.reader = reader;
+    this.columns = columns;
+  }
+
+  /** The number of records in this batch. */
+  public int size() { return size; }
+
+  /** The number of columns in this batch. */
+  public int getColumnCount() { return columns.length; }
+
+  /** Returns the <i>i</i>th column, in the order the fields were selected. */
+  public Column getColumn(int i) { return columns[i]; }
+
+  /** Returns the column of the named field. */
+  public Column getColumn(String name) {
+    for (Column column : columns)
+      if (column.getField().name().equals(name))
+        return column;
+    throw new AvroRuntimeException("No column for field: " + name);
+  }
+
+  DataFileColumnReader getReader() { return reader; }
+
+  Column[] columns() { return columns; }
+
+  /** Prepares to read <i>size</i> records. */
+  void reset(int size) {
+    this.size = size;
+    for (Column column : columns)
+      column.reset(size);
+  }
+
+  /** Returns whether a field of a schema can be read into a column. */
+  static boolean isSupported(Schema schema) {
+    return valueSchema(schema) != null;
+  }
+
+  /** Returns a column for a field. */
+  static Column newColumn(Field field) {
+    Schema value = valueSchema(field.schema());
+    if (value == null)
+      throw new AvroRuntimeException("Field can't be read as a column: "
+                                     + field.name() + " " + field.schema());
+    int nullIndex = -1;
+    if (field.schema().getType() == Schema.Type.UNION)
+      nullIndex = field.schema().getTypes().get(0) == value ? 1 : 0;
+    switch (value.getType()) {
+    case INT: case LONG: case BOOLEAN: case ENUM:
+      return new LongColumn(field, value, nullIndex);
+    case FLOAT: case DOUBLE:
+      return new DoubleColumn(field, value, nullIndex);
+    default:
+      return new BytesColumn(field, value, nullIndex);
+    }
+  }
+
+  /** The schema of the non-null values of a field, or null if it is not
+   * supported. */
+  private static Schema valueSchema(Schema schema) {
+    if (schema.getType() == Schema.Type.UNION) {
+      if (schema.getTypes().size() != 2)
+        return null;
+      Schema first = schema.getTypes().get(0);
+      Schema second = schema.getTypes().get(1);
+      if (first.getType() == Schema.Type.NULL)
+        schema = second;
+      else if (second.getType() == Schema.Type.NULL)
+        schema = first;
+      else
+        return null;
+    }
+    switch (schema.getType()) {
+    case INT: case LONG: case BOOLEAN: case ENUM:
+    case FLOAT: case DOUBLE:
+    case STRING: case BYTES: case FIXED:
+      return schema;
+    default:
+      return null;
+    }
+  }
+
+  /** The values of a field.  Null values are marked in a bitmap and hold
+   * zero or empty values in the column. */
+  public abstract static class Column {
+    private final Field field;
+    final Schema.Type type;
+    private final int nullIndex;
+    private long[] nulls;
+
+    Column(Field field, Schema value, int nullIndex) {
+      this.field = field;
+      this.type = value.getType();
+      this.nullIndex = nullIndex;
+      if (nullIndex >= 0)
+        nulls = new long[0];
+    }
+
+    /** The field whose values this holds. */
+    public Field getField() { return field; }
+
+    /** Whether this field is a union with null. */
+    public boolean isNullable() { return nulls != null; }
+
+    /** Whether the value in a row is null. */
+    public boolean isNull(int row) {
+      return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /** The bitmap of null values, with bit <i>row % 64</i> of element
+     * <i>row / 64</i> set for each null row, or null if this field is not
+     * nullable. */
+    public long[] getNulls() { return nulls; }
+
+    void reset(int size) {
+      if (nulls != null) {
+        int words = (size + 63) >>> 6;
+        if (nulls.length < words)
+          nulls = new long[words];
+        else
+          Arrays.fill(nulls, 0, words, 0L);
+      }
+    }
+
+    /** Reads the value of this field for a row. */
+    final void read(Decoder in, int row) throws IOException {
+      if (nullIndex >= 0 && in.readIndex() == nullIndex) {
+        nulls[row >>> 6] |= 1L << row;
+        readNull(row);
+      } else {
+        readValue(in, row);
+      }
+    }
+
+    abstract void readValue(Decoder in, int row) throws IOException;
+
+    abstract void readNull(int row);
+  }
+
+  /** The values of an int, long, boolean or enum field. */
+  public static class LongColumn extends Column {
+    private long[] values = new long[0];
+
+    LongColumn(Field field, Schema value, int nullIndex) {
+      super(field, value, nullIndex);
+    }
+
+    /** Returns the value in a row. */
+    public long get(int row) { return values[row]; }
+
+    /** The values of this column, indexed by row.  The array may be longer
+     * than the batch. */
+    public long[] getValues() { return values; }
+
+    @Override
+    void reset(int size) {
+      super.reset(size);
+      if (values.length < size)
+        values = new long[size];
+    }
+
+    @Override
+    void readValue(Decoder in, int row) throws IOException {
+      switch (type) {
+      case INT:     values[row] = in.readInt();               break;
+      case LONG:    values[row] = in.readLong();              break;
+      case BOOLEAN: values[row] = in.readBoolean() ? 1 : 0;   break;
+      default:      values[row] = in.readEnum();              break;
+      }
+    }
+
+    @Override
+    void readNull(int row) { values[row] = 0; }
+  }
+
+  /** The values of a float or double field. */
+  public static class DoubleColumn extends Column {
+    private double[] values = new double[0];
+
+    DoubleColumn(Field field, Schema value, int nullIndex) {
+      super(field, value, nullIndex);
+    }
+
+    /** Returns the value in a row. */
+    public double get(int row) { return values[row]; }
+
+    /** The values of this column, indexed by row.  The array may be longer
+     * than the batch. */
+    public double[] getValues() { return values; }
+
+    @Override
+    void reset(int size) {
+      super.reset(size);
+      if (values.length < size)
+        values = new double[size];
+    }
+
+    @Override
+    void readValue(Decoder in, int row) throws IOException {
+      values[row] = type == Schema.Type.FLOAT ? in.readFloat() : in.readDouble();
+    }
+
+    @Override
+    void readNull(int row) { values[row] = 0; }
+  }
+
+  /** The values of a string, bytes or fixed field.  The bytes of all rows
+   * are held in a single array, the value of a row starting at its offset
+   * and ending at the offset of the next row. */
+  public static class BytesColumn extends Column {
+    private final int fixedSize;
+    private int[] offsets = new int[1];
+    private byte[] data = new byte[0];
+
+    BytesColumn(Field field, Schema value, int nullIndex) {
+      super(field, value, nullIndex);
+      this.fixedSize = type == Schema.Type.FIXED ? value.getFixedSize() : -1;
+    }
+
+    /** The offsets of the rows' values in {@link #getData()}, with one more
+     * element than the batch has rows. */
+    public int[] getOffsets() { return offsets; }
+
+    /** The bytes of the values of this column. */
+    public byte[] getData() { return data; }
+
+    /** Returns the length in bytes of the value in a row. */
+    public int getLength(int row) { return offsets[row + 1] - offsets[row]; }
+
+    /** Returns a copy of the bytes of the value in a row. */
+    public byte[] getBytes(int row) {
+      return Arrays.copyOfRange(data, offsets[row], offsets[row + 1]);
+    }
+
+    /** Returns the value in a row decoded as a UTF-8 string. */
+    public String getString(int row) {
+      return new String(data, offsets[row], getLength(row),
+                        StandardCharsets.UTF_8);
+    }
+
+    /** Returns the value in a row as a {@link Utf8}, reusing <i>reuse</i>
+     * if it is not null. */
+    public Utf8 getUtf8(int row, Utf8 reuse) {
+      Utf8 result = reuse != null ? reuse : new Utf8();
+      int length = getLength(row);
+      result.setByteLength(length);
+      System.arraycopy(data, offsets[row], result.getBytes(), 0, length);
+      return result;
+    }
+
+    @Override
+    void reset(int size) {
+      super.reset(size);
+      if (offsets.length < size + 1)
+        offsets = new int[size + 1];
+    }
+
+    @Override
+    void readValue(Decoder in, int row) throws IOException {
+      int start = offsets[row];
+      int length;
+      if (fixedSize >= 0) {
+        length = fixedSize;
+      } else {
+        long l = in.readLong();
+        if (l < 0 || l > Integer.MAX_VALUE - start)
+          throw new AvroRuntimeException("Malformed data. Length is " + l);
+        length = (int)l;
+      }
+      int end = start + length;
+      if (end > data.length)
+        data = Arrays.copyOf(data, Math.max(end, (int)Math.min(
+            Integer.MAX_VALUE - 8, 2L * data.length)));
+      in.readFixed(data, start, length);
+      offsets[row + 1] = end;
+    }
+
+    @Override
+    void readNull(int row) { offsets[row + 1] = offsets[row]; }
+  }
+}
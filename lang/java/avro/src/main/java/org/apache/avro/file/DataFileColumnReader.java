@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.file.ColumnBatch.Column;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+
+/** Reads the records of a file written by {@link DataFileWriter} a block at a
+ * time, decoding selected fields into a {@link ColumnBatch} without creating
+ * an object for each record.  Fields that are not selected are skipped.
+ * <p/>
+ * The file's schema must be a record, and the selected fields must be of the
+ * types supported by {@link ColumnBatch}.  Fields are read with the schema
+ * they were written with.
+ * @see DataFileStream
+ */
+public class DataFileColumnReader implements Closeable {
+  private final DataFileStream<?> stream;
+  private final List<Field> selected = new ArrayList<>();
+  /** The column for each field of the file's schema, or null to skip it. */
+  private final Column[] plan;
+  private final Schema[] fieldSchemas;
+  /** Whether every record takes at least one byte of a block. */
+  private final boolean rowsHaveBytes;
+  private BinaryDecoder in;
+
+  /** Construct a reader for a file that reads the named fields, or all fields
+   * if none are named. */
+  public DataFileColumnReader(File file, String... fields) throws IOException {
+    this(new DataFileReader<>(file, new GenericDatumReader<Void>()), fields,
+         true);
+  }
+
+  /** Construct a reader for an input stream that reads the named fields, or
+   * all fields if none are named. */
+  public DataFileColumnReader(InputStream in, String... fields)
+    throws IOException {
+    this(new DataFileStream<>(in, new GenericDatumReader<Void>()), fields,
+         true);
+  }
+
+  /** Construct a reader for the remaining blocks of a stream that reads the
+   * named fields, or all fields if none are named.  The stream must be at
+   * the start of a block, and is closed when this reader is closed. */
+  public DataFileColumnReader(DataFileStream<?> stream, String... fields) {
+    this(stream, fields, false);
+  }
+
+  private DataFileColumnReader(DataFileStream<?> stream, String[] fields,
+                               boolean closeOnError) {
+    this.stream = stream;
+    Schema schema = stream.getSchema();
+    try {
+      select(schema, fields);
+    } catch (RuntimeException e) {
+      if (closeOnError) {
+        try {
+          stream.close();
+        } catch (IOException closeError) {
+          e.addSuppressed(closeError);
+        }
+      }
+      throw e;
+    }
+    this.plan = new Column[schema.getFields().size()];
+    this.fieldSchemas = new Schema[plan.length];
+    boolean rowsHaveBytes = false;
+    for (Field field : schema.getFields()) {
+      fieldSchemas[field.pos()] = field.schema();
+      rowsHaveBytes |= hasBytes(field.schema());
+    }
+    this.rowsHaveBytes = rowsHaveBytes;
+  }
+
+  /** Whether every value of a schema is written as at least one byte.
+   * Records are assumed not to be, rather than checking their fields. */
+  private static boolean hasBytes(Schema schema) {
+    switch (schema.getType()) {
+    case NULL: case RECORD:
+      return false;
+    case FIXED:
+      return schema.getFixedSize() > 0;
+    default:
+      return true;
+    }
+  }
+
+  private void select(Schema schema, String[] fields) {
+    if (schema.getType() != Schema.Type.RECORD)
+      throw new AvroRuntimeException("Not a record: " + schema);
+    if (fields.length == 0) {
+      selected.addAll(schema.getFields());
+    } else {
+      for (String name : fields) {
+        Field field = schema.getField(name);
+        if (field == null)
+          throw new AvroRuntimeException("No field named " + name
+                                         + " in " + schema.getFullName());
+        if (selected.contains(field))
+          throw new AvroRuntimeException("Field selected twice: " + name);
+        selected.add(field);
+      }
+    }
+    for (Field field : selected)
+      if (!ColumnBatch.isSupported(field.schema()))
+        throw new AvroRuntimeException("Field can't be read as a column: "
+                                       + field.name() + " " + field.schema());
+  }
+
+  /** Return the schema of the file. */
+  public Schema getSchema() { return stream.getSchema(); }
+
+  /** The fields read, in the order of the columns of each batch. */
+  public List<Field> getFields() { return selected; }
+
+  /** True if more blocks remain in the file. */
+  public boolean hasNext() { return stream.hasNext(); }
+
+  /** Read the next block of the file into a new batch.
+   * @throws NoSuchElementException if no more remain in the file.
+   */
+  public ColumnBatch next() throws IOException {
+    return next(null);
+  }
+
+  /** Read the next block of the file.
+   * @param reuse a batch previously returned by this reader to reuse, or null.
+   * @throws NoSuchElementException if no more remain in the file.
+   */
+  public ColumnBatch next(ColumnBatch reuse) throws IOException {
+    if (reuse == null) {
+      Column[] columns = new Column[selected.size()];
+      for (int i = 0; i < columns.length; i++)
+        columns[i] = ColumnBatch.newColumn(selected.get(i));
+      reuse = new ColumnBatch(this, columns);
+    } else if (reuse.getReader() != this) {
+      throw new IllegalArgumentException("Batch not read by this reader");
+    }
+    ByteBuffer block = stream.nextBlock();
+    long count = stream.getBlockCount();
+    // columns are sized by the count, so don't trust it beyond the block
+    if (count > Integer.MAX_VALUE
+        || (rowsHaveBytes && count > block.remaining()))
+      throw new IOException("Block count too large: " + count);
+    int size = (int)count;
+
+    Column[] columns = reuse.columns();
+    for (int i = 0; i < columns.length; i++)
+      plan[selected.get(i).pos()] = columns[i];
+    reuse.reset(size);
+    in = DecoderFactory.get().binaryDecoder(block, in);
+    for (int row = 0; row < size; row++) {
+      for (int i = 0; i < plan.length; i++) {
+        Column column = plan[i];
+        if (column != null)
+          column.read(in, row);
+        else
+          GenericDatumReader.skip(fieldSchemas[i], in);
+      }
+    }
+    if (!in.isEnd())
+      throw new IOException("Block read partially, the data may be corrupt");
+    return reuse;
+  }
+
+  /** Close this reader and its stream. */
+  @Override
+  public void close() throws IOException {
+    stream.close();
+  }
+}
@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.io.EOFException;
 import java.io.InputStream;
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 import org.apache.avro.InvalidAvroMagicException;
@@ -177,6 +178,17 @@ public class DataFileReader<D>
       return;
   }
 
+  @Override
+  ByteBuffer readBlockView(int size) throws IOException {
+    if (!(sin.in instanceof SeekableMappedFileInput))
+      return null;
+    // the decoder may have read ahead of the block start
+    long start = sin.tell() - vin.inputStream().available();
+    ByteBuffer view = ((SeekableMappedFileInput)sin.in).slice(start, size);
+    vin.skipFixed(size);
+    return view;
+  }
+
   @Override
   protected void blockFinished() throws IOException {
     blockStart = sin.tell() - vin.inputStream().available();
@@ -243,14 +255,16 @@ public class DataFileReader<D>
 
     @Override
     public long skip(long skip) throws IOException {
+      if (skip <= 0)
+        return 0;
       long position = in.tell();
       long length = in.length();
       long remaining = length - position;
       if (remaining > skip) {
-        in.seek(skip);
+        in.seek(position + skip);
         return in.tell() - position;
       } else {
-        in.seek(remaining);
+        in.seek(length);
         return in.tell() - position;
     }
   }
@@ -193,11 +193,8 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
         }
         if (hasNextBlock()) {
           block = nextRawBlock(block);
-          block.decompressUsing(codec);
-          blockBuffer = block.getAsByteBuffer();
-          datumIn = DecoderFactory.get().binaryDecoder(
-              blockBuffer.array(), blockBuffer.arrayOffset() +
-              blockBuffer.position(), blockBuffer.remaining(), datumIn);
+          blockBuffer = block.decompressInto(codec, blockBuffer);
+          datumIn = DecoderFactory.get().binaryDecoder(blockBuffer, datumIn);
         }
       }
       return blockRemaining != 0;
@@ -234,7 +231,9 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return result;
   }
 
-  /** Expert: Return the next block in the file, as binary-encoded data. */
+  /** Expert: Return the next block in the file, as binary-encoded data.
+   * The returned buffer's storage is reused by subsequent reads, so it is
+   * only valid until the next call to {@link #hasNext()}. */
   public ByteBuffer nextBlock() throws IOException {
     if (!hasNext())
       throw new NoSuchElementException();
@@ -280,14 +279,21 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     if (!hasNextBlock()) {
       throw new NoSuchElementException();
     }
-    if (reuse == null || reuse.data.length < (int) blockSize) {
-      reuse = new DataBlock(blockRemaining, (int) blockSize);
+    ByteBuffer view = readBlockView((int) blockSize);
+    if (view != null) {
+      reuse = new DataBlock(view, blockRemaining);
     } else {
-      reuse.numEntries = blockRemaining;
-      reuse.blockSize = (int)blockSize;
+      if (reuse == null || reuse.data == null
+          || reuse.data.length < (int) blockSize) {
+        reuse = new DataBlock(blockRemaining, (int) blockSize);
+      } else {
+        reuse.numEntries = blockRemaining;
+        reuse.blockSize = (int)blockSize;
+        reuse.offset = 0;
+      }
+      // throws if it can't read the size requested
+      vin.readFixed(reuse.data, 0, reuse.blockSize);
     }
-    // throws if it can't read the size requested
-    vin.readFixed(reuse.data, 0, reuse.blockSize);
     vin.readFixed(syncBuffer);
     availableBlock = false;
     if (!Arrays.equals(syncBuffer, header.sync))
@@ -295,6 +301,12 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     return reuse;
   }
 
+  /** Returns the next <i>size</i> bytes of input without copying them, and
+   * advances past them, or returns null if the input does not support this. */
+  ByteBuffer readBlockView(int size) throws IOException {
+    return null;
+  }
+
   /** Not supported. */
   @Override
   public void remove() { throw new UnsupportedOperationException(); }
@@ -307,6 +319,7 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
 
   static class DataBlock {
     private byte[] data;
+    private ByteBuffer view;                    // used when data is not an array
     private long numEntries;
     private int blockSize;
     private int offset = 0;
@@ -318,12 +331,23 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     DataBlock(ByteBuffer block, long numEntries) {
-      this.data = block.array();
-      this.blockSize = block.remaining();
-      this.offset = block.arrayOffset() + block.position();
+      setData(block);
       this.numEntries = numEntries;
     }
 
+    private void setData(ByteBuffer block) {
+      if (block.hasArray()) {
+        this.data = block.array();
+        this.offset = block.arrayOffset() + block.position();
+        this.view = null;
+      } else {
+        this.data = null;
+        this.offset = 0;
+        this.view = block.slice();
+      }
+      this.blockSize = block.remaining();
+    }
+
     byte[] getData() {
       return data;
     }
@@ -345,25 +369,46 @@ public class DataFileStream<D> implements Iterator<D>, Iterable<D>, Closeable {
     }
 
     ByteBuffer getAsByteBuffer() {
+      if (view != null) {
+        return view.duplicate();
+      }
       return ByteBuffer.wrap(data, offset, blockSize);
     }
 
-    void decompressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.decompress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+    /** Decompress this block's data, leaving the block unchanged.  The
+     * output is stored in <i>reuse</i> when possible, and the result may be
+     * passed as <i>reuse</i> for the next block. */
+    ByteBuffer decompressInto(Codec c, ByteBuffer reuse) throws IOException {
+      return c.decompress(getAsByteBuffer(), safeReuse(reuse));
+    }
+
+    /** Compress this block's data, storing the output in <i>reuse</i> when
+     * possible.  Returns the buffer that now backs this block, which may be
+     * passed as <i>reuse</i> once this block has been written. */
+    ByteBuffer compressUsing(Codec c, ByteBuffer reuse) throws IOException {
+      ByteBuffer result = c.compress(getAsByteBuffer(), safeReuse(reuse));
+      setData(result);
+      return result;
     }
 
-    void compressUsing(Codec c) throws IOException {
-      ByteBuffer result = c.compress(getAsByteBuffer());
-      data = result.array();
-      blockSize = result.remaining();
+    // codecs that pass data through return their input, so never let them
+    // write their output over this block's own data
+    private ByteBuffer safeReuse(ByteBuffer reuse) {
+      if (reuse != null && data != null && reuse.hasArray()
+          && reuse.array() == data) {
+        return null;
+      }
+      return reuse;
     }
 
     void writeBlockTo(BinaryEncoder e, byte[] sync) throws IOException {
       e.writeLong(this.numEntries);
       e.writeLong(this.blockSize);
-      e.writeFixed(this.data, offset, this.blockSize);
+      if (view != null) {
+        e.writeFixed(view.duplicate());
+      } else {
+        e.writeFixed(this.data, offset, this.blockSize);
+      }
       e.writeFixed(sync);
       if (flushOnWrite) {
         e.flush();
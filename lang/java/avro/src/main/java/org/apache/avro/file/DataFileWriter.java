@@ -24,14 +24,22 @@ import java.io.File;
 import java.io.FilterOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.Schema;
@@ -71,9 +79,20 @@ public class DataFileWriter<D> implements Closeable, Flushable {
 
   private boolean isOpen;
   private Codec codec;
+  private CodecFactory codecFactory;
 
   private boolean flushOnEveryBlock = true;
 
+  private ExecutorService compressionExecutor;   // null unless asynchronous
+  private boolean ownsCompressionExecutor;
+  private int maxPendingBlocks;
+  private final Queue<Codec> compressionCodecs = new ConcurrentLinkedQueue<>();
+  private final Queue<ByteBuffer> compressionBuffers =
+    new ConcurrentLinkedQueue<>();
+  private ByteBuffer compressed;                 // reused codec output
+  private ByteBuffer decompressed;               // reused for recompression
+  private final Queue<Future<DataBlock>> pendingBlocks = new ArrayDeque<>();
+
   /** Construct a writer, not yet open. */
   public DataFileWriter(DatumWriter<D> dout) {
     this.dout = dout;
@@ -92,11 +111,58 @@ public class DataFileWriter<D> implements Closeable, Flushable {
    */
   public DataFileWriter<D> setCodec(CodecFactory c) {
     assertNotOpen();
+    this.codecFactory = c;
     this.codec = c.createInstance();
     setMetaInternal(DataFileConstants.CODEC, codec.getName());
     return this;
   }
 
+  /**
+   * Configures this writer to compress blocks asynchronously on a pool of
+   * <i>threads</i> background threads.  Blocks are still written to the
+   * output in the order they were filled, and at most twice as many blocks as
+   * threads are held in memory awaiting compression.  The pool is shut down
+   * when this writer is closed.
+   * May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setCompressionThreads(int threads) {
+    assertNotOpen();                              // before creating the pool
+    if (threads < 1) {
+      throw new IllegalArgumentException("Invalid thread count: " + threads);
+    }
+    setCompressionExecutor(Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "avro-block-compressor");
+      t.setDaemon(true);
+      return t;
+    }), 2 * threads);
+    this.ownsCompressionExecutor = true;
+    return this;
+  }
+
+  /**
+   * Configures this writer to compress blocks asynchronously using the
+   * given executor.  Blocks are still written to the output in the order they
+   * were filled.  When <i>maxPendingBlocks</i> blocks are awaiting compression,
+   * {@link #append(Object)} blocks until the oldest of them is written.  The
+   * executor is not shut down when this writer is closed.
+   * May not be reset after writes have begun.
+   */
+  public DataFileWriter<D> setCompressionExecutor(ExecutorService executor,
+                                                  int maxPendingBlocks) {
+    assertNotOpen();
+    if (maxPendingBlocks < 1) {
+      throw new IllegalArgumentException("Invalid maxPendingBlocks value: "
+                                         + maxPendingBlocks);
+    }
+    if (ownsCompressionExecutor) {
+      compressionExecutor.shutdown();
+    }
+    this.compressionExecutor = executor;
+    this.ownsCompressionExecutor = false;
+    this.maxPendingBlocks = maxPendingBlocks;
+    return this;
+  }
+
   /**
    * Set the synchronization interval for this file, in bytes.
    * Valid values range from 32 to 2^30
@@ -225,10 +291,11 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     byte[] codecBytes = this.meta.get(DataFileConstants.CODEC);
     if (codecBytes != null) {
       String strCodec = new String(codecBytes, "UTF-8");
-      this.codec = CodecFactory.fromString(strCodec).createInstance();
+      this.codecFactory = CodecFactory.fromString(strCodec);
     } else {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
     }
+    this.codec = codecFactory.createInstance();
 
     init(out);
 
@@ -245,7 +312,8 @@ public class DataFileWriter<D> implements Closeable, Flushable {
         Math.min((int)(syncInterval * 1.25), Integer.MAX_VALUE/2 -1));
     this.bufOut = efactory.binaryEncoder(buffer, null);
     if (this.codec == null) {
-      this.codec = CodecFactory.nullCodec().createInstance();
+      this.codecFactory = CodecFactory.nullCodec();
+      this.codec = codecFactory.createInstance();
     }
     this.isOpen = true;
   }
@@ -374,6 +442,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
     // flush anything written so far
     writeBlock();
+    writePendingBlocks(0);
     Codec otherCodec = otherFile.resolveCodec();
     DataBlock nextBlockRaw = null;
     if (codec.equals(otherCodec) && !recompress) {
@@ -385,9 +454,11 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     } else {
       while(otherFile.hasNextBlock()) {
         nextBlockRaw = otherFile.nextRawBlock(nextBlockRaw);
-        nextBlockRaw.decompressUsing(otherCodec);
-        nextBlockRaw.compressUsing(codec);
-        nextBlockRaw.writeBlockTo(vout, sync);
+        decompressed = nextBlockRaw.decompressInto(otherCodec, decompressed);
+        DataBlock block =
+          new DataBlock(decompressed, nextBlockRaw.getNumEntries());
+        compressed = block.compressUsing(codec, compressed);
+        block.writeBlockTo(vout, sync);
       }
     }
   }
@@ -396,10 +467,14 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     if (blockCount > 0) {
       try {
         bufOut.flush();
+        if (compressionExecutor != null) {
+          writeBlockAsync();
+          return;
+        }
         ByteBuffer uncompressed = buffer.getByteArrayAsByteBuffer();
         DataBlock block = new DataBlock(uncompressed, blockCount);
         block.setFlushOnWrite(flushOnEveryBlock);
-        block.compressUsing(codec);
+        compressed = block.compressUsing(codec, compressed);
         block.writeBlockTo(vout, sync);
       } finally {
         buffer.reset();
@@ -408,6 +483,52 @@ public class DataFileWriter<D> implements Closeable, Flushable {
     }
   }
 
+  // copy the filled buffer into a block, queue it for compression, and write
+  // out any blocks that are ready, blocking when too many are in flight.
+  private void writeBlockAsync() throws IOException {
+    final DataBlock block =
+      new DataBlock(ByteBuffer.wrap(buffer.toByteArray()), blockCount);
+    block.setFlushOnWrite(flushOnEveryBlock);
+    pendingBlocks.add(compressionExecutor.submit(() -> {
+      Codec c = compressionCodecs.poll();
+      if (c == null) {
+        c = codecFactory.createInstance();
+      }
+      try {
+        block.compressUsing(c, compressionBuffers.poll());
+      } finally {
+        compressionCodecs.add(c);
+      }
+      return block;
+    }));
+    writePendingBlocks(maxPendingBlocks);
+  }
+
+  // write compressed blocks in order, waiting for them until no more than
+  // maxPending are still in flight.
+  private void writePendingBlocks(int maxPending) throws IOException {
+    Future<DataBlock> next;
+    while ((next = pendingBlocks.peek()) != null
+           && (pendingBlocks.size() > maxPending || next.isDone())) {
+      DataBlock block;
+      try {
+        block = next.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted awaiting compression");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException) {
+          throw (IOException)cause;
+        }
+        throw new AvroRuntimeException(cause);
+      }
+      pendingBlocks.remove();
+      block.writeBlockTo(vout, sync);
+      compressionBuffers.add(block.getAsByteBuffer());
+    }
+  }
+
   /** Return the current position as a value that may be passed to {@link
    * DataFileReader#seek(long)}.  Forces the end of the current block,
    * emitting a synchronization marker. By default, this will also flush the
@@ -421,6 +542,7 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   public long sync() throws IOException {
     assertOpen();
     writeBlock();
+    writePendingBlocks(0);
     return out.tell();
   }
 
@@ -452,9 +574,15 @@ public class DataFileWriter<D> implements Closeable, Flushable {
   @Override
   public void close() throws IOException {
     if (isOpen) {
-      flush();
-      out.close();
-      isOpen = false;
+      try {
+        flush();
+        out.close();
+      } finally {
+        isOpen = false;
+        if (ownsCompressionExecutor) {
+          compressionExecutor.shutdownNow();
+        }
+      }
     }
   }
 
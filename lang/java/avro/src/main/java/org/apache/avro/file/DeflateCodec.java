@@ -17,14 +17,11 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
-import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterOutputStream;
 
 /**
  * Implements DEFLATE (RFC1951) compression and decompression.
@@ -51,8 +48,8 @@ public class DeflateCodec extends Codec {
     }
   }
 
-  private ByteArrayOutputStream outputBuffer;
   private Deflater deflater;
+  private ByteBuffer inputBuffer;                 // copy of non-array input
   private Inflater inflater;
   //currently only do 'nowrap' -- RFC 1951, not zlib
   private boolean nowrap = true;
@@ -69,20 +66,56 @@ public class DeflateCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try(OutputStream outputStream = new DeflaterOutputStream(baos, getDeflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return compress(data, null);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try(OutputStream outputStream = new InflaterOutputStream(baos, getInflater())) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
+    return decompress(data, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer output)
+    throws IOException {
+    if (!data.hasArray()) {
+      data = inputBuffer = arrayBacked(data, inputBuffer);
     }
-    return ByteBuffer.wrap(baos.toByteArray());
+    Deflater deflater = getDeflater();
+    deflater.setInput(data.array(), computeOffset(data), data.remaining());
+    deflater.finish();
+    ByteBuffer out = growableBuffer(output, (data.remaining() >> 1) + 64);
+    while (!deflater.finished()) {
+      out = growBuffer(out, 1);
+      int n = deflater.deflate(out.array(), out.position(), out.remaining());
+      out.position(out.position() + n);
+    }
+    out.flip();
+    return out;
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer output)
+    throws IOException {
+    if (!data.hasArray()) {
+      data = inputBuffer = arrayBacked(data, inputBuffer);
+    }
+    Inflater inflater = getInflater();
+    inflater.setInput(data.array(), computeOffset(data), data.remaining());
+    ByteBuffer out = growableBuffer(output, (data.remaining() << 1) + 64);
+    try {
+      while (!inflater.finished()) {
+        out = growBuffer(out, 1);
+        int n = inflater.inflate(out.array(), out.position(), out.remaining());
+        out.position(out.position() + n);
+        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;                                  // no more output possible
+        }
+      }
+    } catch (DataFormatException e) {
+      throw new IOException(e);
+    }
+    out.flip();
+    return out;
   }
 
   // get and initialize the inflater for use.
@@ -103,15 +136,6 @@ public class DeflateCodec extends Codec {
     return deflater;
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
-    }
-    outputBuffer.reset();
-    return outputBuffer;
-  }
-
   @Override
   public int hashCode() {
     return nowrap ? 0 : 1;
@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream.DataBlock;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+
+/** Streaming access to files written by {@link DataFileWriter} that
+ * decompresses and decodes blocks on a pool of worker threads.
+ * <p/>
+ * Raw blocks are read sequentially from the input on the calling thread, up
+ * to <i>prefetch</i> blocks ahead of the block currently being consumed.
+ * Each block is then decompressed and decoded on the executor, and its
+ * entries are returned by {@link #next()} in file order.
+ * <p/>
+ * Since decoding happens on other threads, each worker uses its own
+ * {@link DatumReader}, obtained from the supplied factory, and its own
+ * {@link Codec} instance.
+ * @see DataFileStream
+ */
+public class ParallelDataFileReader<D>
+  implements Iterator<D>, Iterable<D>, Closeable {
+
+  private final DataFileStream<D> stream;
+  private final Supplier<? extends DatumReader<D>> readerFactory;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+  private final int prefetch;
+
+  /** Per-worker decoding state, returned to the pool after each block. */
+  private final Queue<BlockDecoder> decoders = new ConcurrentLinkedQueue<>();
+  /** Blocks in flight, in file order. */
+  private final Queue<Future<Object[]>> pending = new ArrayDeque<>();
+
+  private Object[] current;
+  private int currentIndex;
+  private boolean exhausted;
+
+  /** Construct a reader for a file, decoding on <i>threads</i> workers. */
+  public ParallelDataFileReader(File file,
+                                Supplier<? extends DatumReader<D>> readerFactory,
+                                int threads) throws IOException {
+    this(open(file, threads), readerFactory, threads);
+  }
+
+  /** Construct a reader for an input stream, decoding on <i>threads</i>
+   * workers.  The worker pool is shut down when this reader is closed. */
+  public ParallelDataFileReader(InputStream in,
+                                Supplier<? extends DatumReader<D>> readerFactory,
+                                int threads) throws IOException {
+    this(in, readerFactory, newExecutor(threads), 2 * threads, true);
+  }
+
+  /** Construct a reader for an input stream, decoding on a caller-supplied
+   * executor with at most <i>prefetch</i> blocks in flight.  The executor is
+   * not shut down when this reader is closed. */
+  public ParallelDataFileReader(InputStream in,
+                                Supplier<? extends DatumReader<D>> readerFactory,
+                                ExecutorService executor,
+                                int prefetch) throws IOException {
+    this(in, readerFactory, executor, prefetch, false);
+  }
+
+  private ParallelDataFileReader(InputStream in,
+                                 Supplier<? extends DatumReader<D>> readerFactory,
+                                 ExecutorService executor,
+                                 int prefetch,
+                                 boolean ownsExecutor) throws IOException {
+    if (prefetch < 1)
+      throw new IllegalArgumentException("Invalid prefetch: " + prefetch);
+    this.readerFactory = readerFactory;
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.prefetch = prefetch;
+    try {
+      this.stream = new DataFileStream<>(in, readerFactory.get());
+    } catch (IOException | RuntimeException e) {
+      if (ownsExecutor)
+        executor.shutdownNow();
+      in.close();
+      throw e;
+    }
+  }
+
+  /** Checks <i>threads</i> before opening, so that a bad count can't leak
+   * the file. */
+  private static InputStream open(File file, int threads) throws IOException {
+    checkThreads(threads);
+    return new FileInputStream(file);
+  }
+
+  private static ExecutorService newExecutor(int threads) {
+    checkThreads(threads);
+    return Executors.newFixedThreadPool(threads, r -> {
+      Thread t = new Thread(r, "avro-parallel-reader");
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  private static void checkThreads(int threads) {
+    if (threads < 1)
+      throw new IllegalArgumentException("Invalid thread count: " + threads);
+  }
+
+  /** Return the schema used in this file. */
+  public Schema getSchema() { return stream.getSchema(); }
+
+  /** A handle to the header of the underlying stream. */
+  public DataFileStream.Header getHeader() { return stream.getHeader(); }
+
+  /** Return the value of a metadata property. */
+  public byte[] getMeta(String key) { return stream.getMeta(key); }
+
+  /** Return the value of a metadata property. */
+  public String getMetaString(String key) { return stream.getMetaString(key); }
+
+  /** Returns an iterator over entries in this file.  Note that this iterator
+   * is shared with other users of the file. */
+  @Override
+  public Iterator<D> iterator() { return this; }
+
+  /** True if more entries remain in this file. */
+  @Override
+  public boolean hasNext() {
+    try {
+      while (current == null || currentIndex == current.length) {
+        fill();
+        Future<Object[]> next = pending.poll();
+        if (next == null)
+          return false;
+        current = next.get();
+        currentIndex = 0;
+      }
+      return true;
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AvroRuntimeException)
+        throw (AvroRuntimeException)cause;
+      throw new AvroRuntimeException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AvroRuntimeException(e);
+    } catch (IOException e) {
+      throw new AvroRuntimeException(e);
+    }
+  }
+
+  /** Read the next datum in the file.
+   * @throws NoSuchElementException if no more remain in the file.
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public D next() {
+    if (!hasNext())
+      throw new NoSuchElementException();
+    D result = (D)current[currentIndex];
+    current[currentIndex++] = null;               // release for GC
+    return result;
+  }
+
+  // read raw blocks and schedule them until prefetch blocks are in flight
+  private void fill() throws IOException {
+    while (!exhausted && pending.size() < prefetch) {
+      if (!stream.hasNextBlock()) {
+        exhausted = true;
+        break;
+      }
+      final DataBlock block = stream.nextRawBlock(null);
+      pending.add(executor.submit(new Callable<Object[]>() {
+        @Override
+        public Object[] call() throws IOException {
+          BlockDecoder decoder = decoders.poll();
+          if (decoder == null)
+            decoder = new BlockDecoder();
+          try {
+            return decoder.decode(block);
+          } finally {
+            decoders.add(decoder);
+          }
+        }
+      }));
+    }
+  }
+
+  /** Not supported. */
+  @Override
+  public void remove() { throw new UnsupportedOperationException(); }
+
+  /** Close this reader, discarding any blocks still in flight. */
+  @Override
+  public void close() throws IOException {
+    for (Future<Object[]> f : pending)
+      f.cancel(true);
+    pending.clear();
+    current = null;
+    if (ownsExecutor)
+      executor.shutdownNow();
+    stream.close();
+  }
+
+  private class BlockDecoder {
+    private final Codec codec = stream.resolveCodec();
+    private final DatumReader<D> reader = readerFactory.get();
+    private BinaryDecoder in;
+    private ByteBuffer decompressed;
+
+    BlockDecoder() {
+      reader.setSchema(stream.getSchema());
+    }
+
+    Object[] decode(DataBlock block) throws IOException {
+      long count = block.getNumEntries();
+      if (count > Integer.MAX_VALUE)
+        throw new IOException("Block count too large for this "
+            + "implementation: " + count);
+      ByteBuffer buf = block.decompressInto(codec, decompressed);
+      decompressed = buf;
+      in = DecoderFactory.get().binaryDecoder(buf, in);
+      Object[] result = new Object[(int)count];
+      for (int i = 0; i < result.length; i++)
+        result[i] = reader.read(null, in);
+      if (!in.isEnd())
+        throw new IOException("Block read partially, the data may be corrupt");
+      return result;
+    }
+  }
+}
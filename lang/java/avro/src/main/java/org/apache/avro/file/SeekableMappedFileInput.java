@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/** A {@link SeekableInput} over a memory-mapped file.
+ * <p/>
+ * Files larger than a single mapping allows are mapped in several chunks.
+ * When read through {@link DataFileReader}, blocks that lie within a single
+ * chunk are decoded directly from the mapping without being copied.
+ * <p/>
+ * Mappings are released when this object is garbage collected, not when it
+ * is closed.
+ */
+public class SeekableMappedFileInput extends InputStream
+  implements SeekableInput {
+  static final long MAX_CHUNK_SIZE = 1L << 30;
+
+  private final long length;
+  private final long chunkSize;
+  private ByteBuffer[] chunks;
+  private long position;
+
+  public SeekableMappedFileInput(File file) throws IOException {
+    this(file, MAX_CHUNK_SIZE);
+  }
+
+  SeekableMappedFileInput(File file, long chunkSize) throws IOException {
+    this.chunkSize = chunkSize;
+    try (FileChannel channel =
+           FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      this.length = channel.size();
+      int count = (int) ((length + chunkSize - 1) / chunkSize);
+      this.chunks = new ByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * chunkSize;
+        chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                                Math.min(chunkSize, length - start));
+      }
+    }
+  }
+
+  @Override
+  public void seek(long p) throws IOException {
+    if (p < 0)
+      throw new IOException("Illegal seek: " + p);
+    position = p;
+  }
+
+  @Override
+  public long tell() throws IOException { return position; }
+
+  @Override
+  public long length() throws IOException { return length; }
+
+  @Override
+  public int read() throws IOException {
+    if (position >= length)
+      return -1;
+    ByteBuffer chunk = chunks()[(int) (position / chunkSize)];
+    return chunk.get((int) (position++ % chunkSize)) & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0)
+      return 0;
+    if (position >= length)
+      return -1;
+    len = (int) Math.min(len, length - position);
+    copy(position, b, off, len);
+    position += len;
+    return len;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = Math.max(0, Math.min(n, length - position));
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() throws IOException {
+    return (int) Math.max(0, Math.min(Integer.MAX_VALUE, length - position));
+  }
+
+  /** Return the <i>size</i> bytes starting at <i>start</i>.  This is a view
+   * of the mapping when they lie within a single chunk, and otherwise a copy.
+   * @throws EOFException if the range extends past the end of the file. */
+  ByteBuffer slice(long start, int size) throws IOException {
+    if (start < 0 || start + size > length)
+      throw new EOFException();
+    ByteBuffer chunk = chunks()[(int) (start / chunkSize)];
+    int offset = (int) (start % chunkSize);
+    if (offset + size <= chunk.limit()) {
+      ByteBuffer view = chunk.duplicate();
+      view.position(offset);
+      view.limit(offset + size);
+      return view.slice();
+    }
+    byte[] copy = new byte[size];
+    copy(start, copy, 0, size);
+    return ByteBuffer.wrap(copy);
+  }
+
+  private void copy(long start, byte[] b, int off, int len) throws IOException {
+    ByteBuffer[] chunks = chunks();
+    while (len > 0) {
+      ByteBuffer view = chunks[(int) (start / chunkSize)].duplicate();
+      view.position((int) (start % chunkSize));
+      int n = Math.min(len, view.remaining());
+      view.get(b, off, n);
+      start += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  private ByteBuffer[] chunks() throws IOException {
+    if (chunks == null)
+      throw new IOException("Stream closed");
+    return chunks;
+  }
+
+  @Override
+  public void close() throws IOException {
+    chunks = null;
+  }
+}
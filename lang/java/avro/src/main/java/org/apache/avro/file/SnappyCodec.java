@@ -26,6 +26,7 @@ import org.xerial.snappy.Snappy;
 /** * Implements Snappy compression and decompression. */
 public class SnappyCodec extends Codec {
   private CRC32 crc32 = new CRC32();
+  private ByteBuffer inputBuffer;                 // copy of non-array input
 
   static class Option extends CodecFactory {
     static {
@@ -45,9 +46,23 @@ public class SnappyCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer in) throws IOException {
+    return compress(in, null);
+  }
+
+  @Override
+  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+    return decompress(in, null);
+  }
+
+  @Override
+  public ByteBuffer compress(ByteBuffer in, ByteBuffer output)
+    throws IOException {
+    if (!in.hasArray()) {
+      in = inputBuffer = arrayBacked(in, inputBuffer);
+    }
     int offset = computeOffset(in);
     ByteBuffer out =
-      ByteBuffer.allocate(Snappy.maxCompressedLength(in.remaining())+4);
+      reuseBuffer(output, Snappy.maxCompressedLength(in.remaining())+4);
     int size = Snappy.compress(in.array(), offset, in.remaining(),
                                out.array(), 0);
     crc32.reset();
@@ -60,10 +75,14 @@ public class SnappyCodec extends Codec {
   }
 
   @Override
-  public ByteBuffer decompress(ByteBuffer in) throws IOException {
+  public ByteBuffer decompress(ByteBuffer in, ByteBuffer output)
+    throws IOException {
+    if (!in.hasArray()) {
+      in = inputBuffer = arrayBacked(in, inputBuffer);
+    }
     int offset = computeOffset(in);
-    ByteBuffer out = ByteBuffer.allocate
-      (Snappy.uncompressedLength(in.array(), offset, in.remaining()-4));
+    ByteBuffer out = reuseBuffer
+      (output, Snappy.uncompressedLength(in.array(), offset, in.remaining()-4));
     int size = Snappy.uncompress(in.array(), offset, in.remaining()-4,
                                  out.array(), 0);
     out.limit(size);
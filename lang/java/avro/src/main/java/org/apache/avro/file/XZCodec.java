@@ -17,8 +17,6 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -45,7 +43,6 @@ public class XZCodec extends Codec {
       }
     }
 
-  private ByteArrayOutputStream outputBuffer;
   private int compressionLevel;
 
   public XZCodec(int compressionLevel) {
@@ -59,34 +56,36 @@ public class XZCodec extends Codec {
 
   @Override
   public ByteBuffer compress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    try (OutputStream outputStream = new XZCompressorOutputStream(baos, compressionLevel)) {
-      outputStream.write(data.array(), computeOffset(data), data.remaining());
-    }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return compress(data, null);
   }
 
   @Override
   public ByteBuffer decompress(ByteBuffer data) throws IOException {
-    ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-    InputStream bytesIn = new ByteArrayInputStream(
-      data.array(),
-      computeOffset(data),
-      data.remaining());
+    return decompress(data, null);
+  }
 
-    try (InputStream ios = new XZCompressorInputStream(bytesIn)) {
-      IOUtils.copy(ios, baos);
+  @Override
+  public ByteBuffer compress(ByteBuffer data, ByteBuffer output)
+    throws IOException {
+    data = arrayBacked(data, null);
+    BufferOutputStream out = new BufferOutputStream(output, data.remaining());
+    try (OutputStream outputStream = new XZCompressorOutputStream(out, compressionLevel)) {
+      outputStream.write(data.array(), computeOffset(data), data.remaining());
     }
-    return ByteBuffer.wrap(baos.toByteArray());
+    return out.getBuffer();
   }
 
-  // get and initialize the output buffer for use.
-  private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-    if (null == outputBuffer) {
-      outputBuffer = new ByteArrayOutputStream(suggestedLength);
+  @Override
+  public ByteBuffer decompress(ByteBuffer data, ByteBuffer output)
+    throws IOException {
+    BufferOutputStream out =
+      new BufferOutputStream(output, data.remaining() << 1);
+    InputStream bytesIn = new BufferInputStream(data);
+
+    try (InputStream ios = new XZCompressorInputStream(bytesIn)) {
+      IOUtils.copy(ios, out);
     }
-    outputBuffer.reset();
-    return outputBuffer;
+    return out.getBuffer();
   }
 
   @Override
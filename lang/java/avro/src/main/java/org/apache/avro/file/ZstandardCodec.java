@@ -17,8 +17,6 @@
  */
 package org.apache.avro.file;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -38,8 +36,6 @@ public class ZstandardCodec extends Codec {
         }
       }
 
-    private ByteArrayOutputStream outputBuffer;
-
     @Override
     public String getName() {
         return DataFileConstants.ZSTANDARD_CODEC;
@@ -47,33 +43,33 @@ public class ZstandardCodec extends Codec {
 
     @Override
     public ByteBuffer compress(ByteBuffer data) throws IOException {
-        ByteArrayOutputStream baos = getOutputBuffer(data.remaining());
-        try (OutputStream outputStream = new ZstdCompressorOutputStream(baos)) {
-           outputStream.write(data.array(), computeOffset(data), data.remaining());
-        }
-        return ByteBuffer.wrap(baos.toByteArray());
+        return compress(data, null);
     }
 
     @Override
     public ByteBuffer decompress(ByteBuffer compressedData) throws IOException {
-        ByteArrayOutputStream baos = getOutputBuffer(compressedData.remaining());
-        InputStream bytesIn = new ByteArrayInputStream(
-          compressedData.array(),
-          computeOffset(compressedData),
-          compressedData.remaining());
-        try (InputStream ios = new ZstdCompressorInputStream(bytesIn)) {
-            IOUtils.copy(ios, baos);
+        return decompress(compressedData, null);
+    }
+
+    @Override
+    public ByteBuffer compress(ByteBuffer data, ByteBuffer output) throws IOException {
+        data = arrayBacked(data, null);
+        BufferOutputStream out = new BufferOutputStream(output, data.remaining());
+        try (OutputStream outputStream = new ZstdCompressorOutputStream(out)) {
+           outputStream.write(data.array(), computeOffset(data), data.remaining());
         }
-        return ByteBuffer.wrap(baos.toByteArray());
+        return out.getBuffer();
     }
 
-    // get and initialize the output buffer for use.
-    private ByteArrayOutputStream getOutputBuffer(int suggestedLength) {
-      if (outputBuffer == null) {
-        outputBuffer = new ByteArrayOutputStream(suggestedLength);
-      }
-      outputBuffer.reset();
-      return outputBuffer;
+    @Override
+    public ByteBuffer decompress(ByteBuffer compressedData, ByteBuffer output) throws IOException {
+        BufferOutputStream out =
+          new BufferOutputStream(output, compressedData.remaining() << 1);
+        InputStream bytesIn = new BufferInputStream(compressedData);
+        try (InputStream ios = new ZstdCompressorInputStream(bytesIn)) {
+            IOUtils.copy(ios, out);
+        }
+        return out.getBuffer();
     }
 
     @Override
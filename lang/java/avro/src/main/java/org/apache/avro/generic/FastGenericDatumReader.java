@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+
+/** A {@link GenericDatumReader} that decodes binary data with readers
+ * compiled for its schema pair by {@link FastReaderBuilder}.  Data from other
+ * decoders, and schema pairs that cannot be compiled, are read by the
+ * superclass.
+ */
+public class FastGenericDatumReader<D> extends GenericDatumReader<D> {
+  private final FastReaderBuilder builder = new FastReaderBuilder(this);
+
+  public FastGenericDatumReader() {
+    this(null, null, GenericData.get());
+  }
+
+  /** Construct where the writer's and reader's schemas are the same. */
+  public FastGenericDatumReader(Schema schema) {
+    this(schema, schema, GenericData.get());
+  }
+
+  /** Construct given writer's and reader's schema. */
+  public FastGenericDatumReader(Schema writer, Schema reader) {
+    this(writer, reader, GenericData.get());
+  }
+
+  public FastGenericDatumReader(Schema writer, Schema reader,
+                                GenericData data) {
+    super(writer, reader, data);
+  }
+
+  protected FastGenericDatumReader(GenericData data) {
+    super(data);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public D read(D reuse, Decoder in) throws IOException {
+    if (in instanceof BinaryDecoder) {
+      FastReaderBuilder.CompiledReader reader =
+        builder.getCompiledReader(getSchema(), getExpected());
+      if (reader != null)
+        return (D)reader.read(this, reuse, in);
+    }
+    return super.read(reuse, in);
+  }
+}
@@ -0,0 +1,557 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Field;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.util.Utf8;
+
+/** Compiles a writer's and reader's schema into a tree of readers that
+ * decode data directly, without interpreting a resolving grammar for each
+ * datum.
+ * <p/>
+ * Compiled readers are cached by each {@link GenericData} per schema pair,
+ * and shared between threads.  A model's cache holds the most recently used
+ * pairs, and is discarded when a conversion is added to the model, since
+ * conversions are applied as readers are compiled.  Pairs that cannot be
+ * compiled, including those that do not resolve, yield
+ * no reader, so that callers can fall back to {@link ResolvingDecoder},
+ * which reports resolution errors as the data is read.
+ * <p/>
+ * Compiled readers construct records, fixed values and defaults through the
+ * {@link GenericData} model, and call back into the {@link
+ * GenericDatumReader} for enums, arrays, maps, bytes and strings.  Other read
+ * hooks, such as {@link GenericDatumReader#readRecord}, are bypassed.
+ * @see FastGenericDatumReader
+ */
+public class FastReaderBuilder {
+  private static final int MAX_CACHE_SIZE = 1000;
+  private static final Object UNSUPPORTED = new Object();
+
+  /** A reader compiled for a schema pair. */
+  public interface CompiledReader {
+    /** Read a datum, calling back into <i>reader</i> for its hooks. */
+    Object read(GenericDatumReader<?> reader, Object reuse, Decoder in)
+      throws IOException;
+  }
+
+  private interface FieldStep {
+    void read(GenericDatumReader<?> reader, Object record, Object state,
+              boolean reuse, Decoder in) throws IOException;
+  }
+
+  private final GenericDatumReader<?> reader;
+  private final GenericData data;
+  private volatile Compiled last;
+
+  /** Construct a builder for readers used by <i>reader</i>. */
+  public FastReaderBuilder(GenericDatumReader<?> reader) {
+    this.reader = reader;
+    this.data = reader.getData();
+  }
+
+  /** Return the {@link GenericData} implementation. */
+  public GenericData getData() { return data; }
+
+  /** Return a reader for data written with <i>writer</i> and read as
+   * <i>expected</i>, or null if the pair cannot be compiled. */
+  public CompiledReader getCompiledReader(Schema writer, Schema expected) {
+    CompiledReaders cache = data.compiledReaders;
+    Compiled c = last;                            // usually the same pair
+    if (c != null && c.cache == cache
+        && c.writer == writer && c.expected == expected)
+      return c.reader;
+    CacheKey key = new CacheKey(getClass(), reader.getClass(),
+                                writer, expected);
+    Object compiled = cache.get(key);
+    if (compiled == null) {
+      try {
+        compiled = compile(Schema.applyAliases(writer, expected), expected,
+                           new HashMap<>());
+      } catch (AvroRuntimeException e) {
+        compiled = UNSUPPORTED;
+      }
+      cache.put(key, compiled);
+    }
+    CompiledReader result =
+      compiled == UNSUPPORTED ? null : (CompiledReader)compiled;
+    last = new Compiled(cache, writer, expected, result);
+    return result;
+  }
+
+  /** Called to find the conversion applied to a field of a record.  By
+   * default this is the model's conversion for the field's schema. */
+  protected Conversion<?> getFieldConversion(Schema record, Field field) {
+    return getConversion(field.schema());
+  }
+
+  private Conversion<?> getConversion(Schema schema) {
+    LogicalType logicalType = schema.getLogicalType();
+    return logicalType == null ? null : data.getConversionFor(logicalType);
+  }
+
+  private CompiledReader compile(Schema w, Schema r,
+                                 Map<SchemaPair,RecordReader> seen) {
+    return withConversion(compileWithoutConversion(w, r, seen),
+                          r, getConversion(r));
+  }
+
+  private static CompiledReader withConversion(CompiledReader raw, Schema r,
+                                               Conversion<?> conversion) {
+    if (conversion == null)
+      return raw;
+    LogicalType logicalType = r.getLogicalType();
+    return (reader, reuse, in) -> Conversions.convertToLogicalType(
+        raw.read(reader, reuse, in), r, logicalType, conversion);
+  }
+
+  private CompiledReader compileWithoutConversion(
+      Schema w, Schema r, Map<SchemaPair,RecordReader> seen) {
+    Schema.Type wt = w.getType();
+    Schema.Type rt = r.getType();
+    if (wt == Schema.Type.UNION)
+      return writerUnion(w, r, seen);
+    if (rt == Schema.Type.UNION)
+      return compile(w, r.getTypes().get(firstMatchingBranch(w, r)), seen);
+
+    if (wt == rt) {
+      switch (wt) {
+      case NULL:    return (reader, reuse, in) -> { in.readNull(); return null; };
+      case BOOLEAN: return (reader, reuse, in) -> in.readBoolean();
+      case INT:     return (reader, reuse, in) -> in.readInt();
+      case LONG:    return (reader, reuse, in) -> in.readLong();
+      case FLOAT:   return (reader, reuse, in) -> in.readFloat();
+      case DOUBLE:  return (reader, reuse, in) -> in.readDouble();
+      case STRING:  return stringReader(r);
+      case BYTES:   return (reader, reuse, in) -> reader.readBytes(reuse, r, in);
+      case FIXED:   return fixedReader(w, r);
+      case ENUM:    return enumReader(w, r);
+      case ARRAY:   return arrayReader(w, r, seen);
+      case MAP:     return mapReader(w, r, seen);
+      case RECORD:  return recordReader(w, r, seen);
+      default:
+      }
+    } else {
+      switch (rt) {
+      case LONG:
+        if (wt == Schema.Type.INT)
+          return (reader, reuse, in) -> (long)in.readInt();
+        break;
+      case FLOAT:
+        if (wt == Schema.Type.INT)
+          return (reader, reuse, in) -> (float)in.readInt();
+        if (wt == Schema.Type.LONG)
+          return (reader, reuse, in) -> (float)in.readLong();
+        break;
+      case DOUBLE:
+        if (wt == Schema.Type.INT)
+          return (reader, reuse, in) -> (double)in.readInt();
+        if (wt == Schema.Type.LONG)
+          return (reader, reuse, in) -> (double)in.readLong();
+        if (wt == Schema.Type.FLOAT)
+          return (reader, reuse, in) -> (double)in.readFloat();
+        break;
+      case BYTES:
+        if (wt == Schema.Type.STRING)
+          return (reader, reuse, in) -> {
+            Utf8 s = in.readString(null);
+            return ByteBuffer.wrap(s.getBytes(), 0, s.getByteLength());
+          };
+        break;
+      case STRING:
+        if (wt == Schema.Type.BYTES)
+          return bytesAsStringReader(r);
+        break;
+      default:
+      }
+    }
+    throw new AvroTypeException("Found " + w.getFullName()
+                                + ", expecting " + r.getFullName());
+  }
+
+  private CompiledReader writerUnion(Schema w, Schema r,
+                                     Map<SchemaPair,RecordReader> seen) {
+    List<Schema> types = w.getTypes();
+    CompiledReader[] branches = new CompiledReader[types.size()];
+    for (int i = 0; i < branches.length; i++)
+      branches[i] = compile(types.get(i), r, seen);
+    return (reader, reuse, in) -> {
+      int index = in.readIndex();
+      if (index < 0 || index >= branches.length)
+        throw new AvroTypeException("Union index out of range: " + index);
+      return branches[index].read(reader, reuse, in);
+    };
+  }
+
+  /** The reader's branch for a non-union writer's schema, matching the
+   * choice made by {@link ResolvingDecoder}.  Records that only match by
+   * structure are not supported. */
+  private static int firstMatchingBranch(Schema w, Schema r) {
+    Schema.Type wt = w.getType();
+    List<Schema> branches = r.getTypes();
+    boolean namedRecord = false;
+    for (int j = 0; j < branches.size(); j++) {
+      Schema b = branches.get(j);
+      if (wt != b.getType())
+        continue;
+      switch (wt) {
+      case RECORD:
+        namedRecord = true;
+        // fall through
+      case ENUM:
+      case FIXED:
+        if (w.getFullName() != null && w.getFullName().equals(b.getFullName()))
+          return j;
+        break;
+      default:
+        return j;
+      }
+    }
+    if (namedRecord)
+      throw new AvroTypeException("Cannot compile structural match for "
+                                  + w.getFullName());
+    for (int j = 0; j < branches.size(); j++) {
+      Schema.Type bt = branches.get(j).getType();
+      switch (wt) {
+      case INT:
+        if (bt == Schema.Type.LONG || bt == Schema.Type.FLOAT
+            || bt == Schema.Type.DOUBLE)
+          return j;
+        break;
+      case LONG:
+        if (bt == Schema.Type.FLOAT || bt == Schema.Type.DOUBLE)
+          return j;
+        break;
+      case FLOAT:
+        if (bt == Schema.Type.DOUBLE)
+          return j;
+        break;
+      case STRING:
+        if (bt == Schema.Type.BYTES)
+          return j;
+        break;
+      case BYTES:
+        if (bt == Schema.Type.STRING)
+          return j;
+        break;
+      default:
+      }
+    }
+    throw new AvroTypeException("Found " + w.getFullName()
+                                + ", expecting " + r);
+  }
+
+  private CompiledReader stringReader(Schema r) {
+    if (reader.getStringDictionarySize(r) > 0)  // each reader's dictionary
+      return (reader, reuse, in) -> reader.readString(reuse, r, in);
+    Class<?> stringClass = reader.findStringClass(r);
+    if (stringClass == String.class)
+      return (reader, reuse, in) -> in.readString();
+    if (stringClass == CharSequence.class)
+      return (reader, reuse, in) -> reader.readString(reuse, in);
+    return (reader, reuse, in) ->
+      reader.newInstanceFromString(stringClass, in.readString());
+  }
+
+  private CompiledReader bytesAsStringReader(Schema r) {
+    Class<?> stringClass = reader.findStringClass(r);
+    return (reader, reuse, in) -> {
+      ByteBuffer buffer = in.readBytes(null);
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      if (stringClass == CharSequence.class)
+        return new Utf8(bytes);
+      String s = new String(bytes, StandardCharsets.UTF_8);
+      if (stringClass == String.class)
+        return s;
+      return reader.newInstanceFromString(stringClass, s);
+    };
+  }
+
+  private CompiledReader fixedReader(Schema w, Schema r) {
+    if (!w.getFullName().equals(r.getFullName())
+        || w.getFixedSize() != r.getFixedSize())
+      throw new AvroTypeException("Found " + w.getFullName()
+                                  + ", expecting " + r.getFullName());
+    int size = r.getFixedSize();
+    return (reader, reuse, in) -> {
+      GenericFixed fixed = (GenericFixed)data.createFixed(reuse, r);
+      in.readFixed(fixed.bytes(), 0, size);
+      return fixed;
+    };
+  }
+
+  private CompiledReader enumReader(Schema w, Schema r) {
+    if (w.getFullName() != null && !w.getFullName().equals(r.getFullName()))
+      throw new AvroTypeException("Found " + w.getFullName()
+                                  + ", expecting " + r.getFullName());
+    List<String> writerSymbols = w.getEnumSymbols();
+    List<String> readerSymbols = r.getEnumSymbols();
+    String[] symbols = new String[writerSymbols.size()];
+    for (int i = 0; i < symbols.length; i++) {
+      int j = readerSymbols.indexOf(writerSymbols.get(i));
+      if (j == -1 && r.getEnumDefault() != null)
+        j = readerSymbols.indexOf(r.getEnumDefault());
+      if (j == -1)
+        throw new AvroTypeException("No match for " + writerSymbols.get(i));
+      symbols[i] = readerSymbols.get(j);
+    }
+    return (reader, reuse, in) -> {
+      int index = in.readEnum();
+      if (index < 0 || index >= symbols.length)
+        throw new AvroTypeException("Enumeration out of range: max is "
+                                    + symbols.length + " but received "
+                                    + index);
+      return reader.createEnum(symbols[index], r);
+    };
+  }
+
+  private CompiledReader arrayReader(Schema w, Schema r,
+                                     Map<SchemaPair,RecordReader> seen) {
+    CompiledReader element =
+      compile(w.getElementType(), r.getElementType(), seen);
+    // unboxed elements can be read directly unless they need promotion
+    boolean unboxed = w.getElementType().getType() == r.getElementType().getType();
+    return (reader, reuse, in) -> {
+      long l = in.readArrayStart();
+      Object array = reader.newArray(reuse, (int)l, r);
+      if (unboxed && array instanceof PrimitivesArrays.PrimitiveArray
+          && ((PrimitivesArrays.PrimitiveArray<?>)array).matches(r)) {
+        for (; l > 0; l = in.arrayNext())
+          ((PrimitivesArrays.PrimitiveArray<?>)array).read(in, l);
+        return array;
+      }
+      long base = 0;
+      for (; l > 0; l = in.arrayNext()) {
+        for (long i = 0; i < l; i++)
+          reader.addToArray(array, base + i,
+                            element.read(reader, reader.peekArray(array), in));
+        base += l;
+      }
+      if (array instanceof GenericArray)
+        ((GenericArray<?>)array).prune();
+      return array;
+    };
+  }
+
+  private CompiledReader mapReader(Schema w, Schema r,
+                                   Map<SchemaPair,RecordReader> seen) {
+    CompiledReader key = stringReader(r);
+    CompiledReader value = compile(w.getValueType(), r.getValueType(), seen);
+    return (reader, reuse, in) -> {
+      long l = in.readMapStart();
+      Object map = reader.newMap(reuse, (int)l);
+      for (; l > 0; l = in.mapNext())
+        for (long i = 0; i < l; i++)
+          reader.addToMap(map, key.read(reader, null, in),
+                          value.read(reader, null, in));
+      return map;
+    };
+  }
+
+  private CompiledReader recordReader(Schema w, Schema r,
+                                      Map<SchemaPair,RecordReader> seen) {
+    SchemaPair pair = new SchemaPair(w, r);
+    RecordReader result = seen.get(pair);
+    if (result != null)
+      return result;
+    result = new RecordReader(r);
+    seen.put(pair, result);
+
+    List<FieldStep> steps = new ArrayList<>();
+    for (Field wf : w.getFields()) {
+      Field rf = r.getField(wf.name());
+      if (rf == null) {
+        steps.add(skipStep(wf.schema()));
+        continue;
+      }
+      CompiledReader value = withConversion(
+          compileWithoutConversion(wf.schema(), rf.schema(), seen),
+          rf.schema(), getFieldConversion(r, rf));
+      String name = rf.name();
+      int pos = rf.pos();
+      steps.add((reader, record, state, reuse, in) -> {
+        Object old = reuse ? data.getField(record, name, pos, state) : null;
+        data.setField(record, name, pos, value.read(reader, old, in), state);
+      });
+    }
+    for (Field rf : r.getFields()) {
+      if (w.getField(rf.name()) != null)
+        continue;
+      if (rf.defaultVal() == null)
+        throw new AvroTypeException("Found " + w.getFullName()
+                                    + ", expecting " + r.getFullName()
+                                    + ", missing required field " + rf.name());
+      Schema schema = rf.schema();
+      Object defaultValue = data.getDefaultValue(rf);
+      String name = rf.name();
+      int pos = rf.pos();
+      steps.add((reader, record, state, reuse, in) ->
+        data.setField(record, name, pos,
+                      data.deepCopy(schema, defaultValue), state));
+    }
+    result.steps = steps.toArray(new FieldStep[steps.size()]);
+    return result;
+  }
+
+  private static FieldStep skipStep(Schema schema) {
+    switch (schema.getType()) {
+    case NULL:
+      return (reader, record, state, reuse, in) -> in.readNull();
+    case BOOLEAN:
+      return (reader, record, state, reuse, in) -> in.readBoolean();
+    case INT:
+    case ENUM:
+      return (reader, record, state, reuse, in) -> in.readInt();
+    case LONG:
+      return (reader, record, state, reuse, in) -> in.readLong();
+    case FLOAT:
+      return (reader, record, state, reuse, in) -> in.readFloat();
+    case DOUBLE:
+      return (reader, record, state, reuse, in) -> in.readDouble();
+    case STRING:
+      return (reader, record, state, reuse, in) -> in.skipString();
+    case BYTES:
+      return (reader, record, state, reuse, in) -> in.skipBytes();
+    case FIXED:
+      int size = schema.getFixedSize();
+      return (reader, record, state, reuse, in) -> in.skipFixed(size);
+    default:
+      return (reader, record, state, reuse, in) ->
+        GenericDatumReader.skip(schema, in);
+    }
+  }
+
+  private class RecordReader implements CompiledReader {
+    private final Schema schema;
+    private FieldStep[] steps;
+
+    RecordReader(Schema schema) { this.schema = schema; }
+
+    @Override
+    public Object read(GenericDatumReader<?> reader, Object reuse, Decoder in)
+      throws IOException {
+      Object r = data.newRecord(reuse, schema);
+      Object state = data.getRecordState(r, schema);
+      boolean reused = reuse != null;
+      for (FieldStep step : steps)
+        step.read(reader, r, state, reused, in);
+      return r;
+    }
+  }
+
+  private static final class SchemaPair {
+    private final Schema writer;
+    private final Schema reader;
+
+    SchemaPair(Schema writer, Schema reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof SchemaPair)) return false;
+      SchemaPair that = (SchemaPair)o;
+      return writer == that.writer && reader == that.reader;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(writer)
+        + System.identityHashCode(reader);
+    }
+  }
+
+  /** The readers compiled for a {@link GenericData}, evicting the least
+   * recently used once full. */
+  static final class CompiledReaders {
+    private final Map<CacheKey,Object> readers =
+      new LinkedHashMap<CacheKey,Object>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<CacheKey,Object> e) {
+          return size() > MAX_CACHE_SIZE;
+        }
+      };
+
+    synchronized Object get(CacheKey key) { return readers.get(key); }
+
+    synchronized void put(CacheKey key, Object compiled) {
+      readers.put(key, compiled);
+    }
+  }
+
+  /** The reader last returned by a builder, and what it was compiled for. */
+  private static final class Compiled {
+    final CompiledReaders cache;
+    final Schema writer;
+    final Schema expected;
+    final CompiledReader reader;
+
+    Compiled(CompiledReaders cache, Schema writer, Schema expected,
+             CompiledReader reader) {
+      this.cache = cache;
+      this.writer = writer;
+      this.expected = expected;
+      this.reader = reader;
+    }
+  }
+
+  /** Compares its parts by identity. */
+  private static final class CacheKey {
+    private final Object[] parts;
+    private final int hash;
+
+    CacheKey(Object... parts) {
+      this.parts = parts;
+      int h = 0;
+      for (Object part : parts)
+        h = 31 * h + System.identityHashCode(part);
+      this.hash = h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof CacheKey)) return false;
+      Object[] other = ((CacheKey)o).parts;
+      for (int i = 0; i < parts.length; i++)
+        if (parts[i] != other[i])
+          return false;
+      return true;
+    }
+
+    @Override
+    public int hashCode() { return hash; }
+  }
+}
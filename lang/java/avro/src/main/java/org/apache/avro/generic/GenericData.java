@@ -32,6 +32,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.avro.AvroMissingFieldException;
 import org.apache.avro.AvroRuntimeException;
@@ -70,6 +71,12 @@ public class GenericData {
   public static final String STRING_PROP = "avro.java.string";
   protected static final String STRING_TYPE_STRING = "String";
 
+  /** Used to specify the maximum number of distinct values to share between
+   * the strings read for a schema.
+   * @see #setStringDictionary(Schema, int) */
+  public static final String STRING_DICTIONARY_PROP =
+    "avro.java.string.dictionary";
+
   private final ClassLoader classLoader;
 
   /** Set the Java type to be used when reading this schema.  Meaningful only
@@ -81,6 +88,15 @@ public class GenericData {
       s.addProp(GenericData.STRING_PROP, GenericData.STRING_TYPE_STRING);
   }
 
+  /** Share the values read for this schema, such as a field with a few
+   * distinct values, between the strings read for it, holding up to
+   * <i>maxSize</i> distinct values.  Meaningful only for string schemas and
+   * map schemas (for the keys).  Shared values must not be modified.
+   * @see #setStringDictionarySize(int) */
+  public static void setStringDictionary(Schema s, int maxSize) {
+    s.addProp(STRING_DICTIONARY_PROP, maxSize);
+  }
+
   /** Return the singleton instance. */
   public static GenericData get() { return INSTANCE; }
 
@@ -99,6 +115,25 @@ public class GenericData {
   /** Return the class loader that's used (by subclasses). */
   public ClassLoader getClassLoader() { return classLoader; }
 
+  private int stringDictionarySize;
+
+  /** Share the values read for each string schema that does not have a
+   * {@link #STRING_DICTIONARY_PROP}, holding up to <i>maxSize</i> distinct
+   * values per schema, or none if <i>maxSize</i> is zero, the default.
+   * Shared values must not be modified.  This should be set before reading
+   * with this data model.
+   * @see #setStringDictionary(Schema, int) */
+  public void setStringDictionarySize(int maxSize) {
+    if (maxSize < 0)
+      throw new IllegalArgumentException("Invalid dictionary size: " + maxSize);
+    this.stringDictionarySize = maxSize;
+  }
+
+  /** The number of distinct values shared between the strings read for each
+   * string schema without a {@link #STRING_DICTIONARY_PROP}, or zero.
+   * @see #setStringDictionarySize(int) */
+  public int getStringDictionarySize() { return stringDictionarySize; }
+
   private Map<String, Conversion<?>> conversions =
       new HashMap<>();
 
@@ -116,6 +151,8 @@ public class GenericData {
    * @param conversion a logical type Conversion.
    */
   public void addLogicalTypeConversion(Conversion<?> conversion) {
+    unionBranches = new UnionBranches();
+    compiledReaders = new FastReaderBuilder.CompiledReaders();
     conversions.put(conversion.getLogicalTypeName(), conversion);
     Class<?> type = conversion.getConvertedType();
     if (conversionsByClass.containsKey(type)) {
@@ -715,8 +752,23 @@ public class GenericData {
   }
 
   /** Return the index for a datum within a union.  Implemented with {@link
-   * Schema#getIndexNamed(String)} and {@link #getSchemaName(Object)}.*/
+   * Schema#getIndexNamed(String)} and {@link #getSchemaName(Object)}, which
+   * are only consulted once for each union and datum class when {@link
+   * #isUnionResolvedByClass(Object)}.*/
   public int resolveUnion(Schema union, Object datum) {
+    if (datum == null || !isUnionResolvedByClass(datum))
+      return resolveUnionByName(union, datum);
+    Map<Schema,Integer> branches = unionBranches.get(datum.getClass());
+    Integer i = branches.get(union);
+    if (i == null) {
+      i = resolveUnionByName(union, datum);
+      if (branches.size() < MAX_UNION_BRANCHES)
+        branches.put(union, i);
+    }
+    return i;
+  }
+
+  private int resolveUnionByName(Schema union, Object datum) {
     // if there is a logical type that works, use it first
     // this allows logical type concrete classes to overlap with supported ones
     // for example, a conversion could return a map
@@ -742,6 +794,33 @@ public class GenericData {
     throw new UnresolvedUnionException(union, datum);
   }
 
+  /** Whether the union branch of a datum is determined by its class alone,
+   * so that {@link #resolveUnion(Schema,Object)} may remember the branch
+   * chosen for each union and class.  True for all but records, enums and
+   * fixeds that hold their own schema, such as {@link GenericData.Record}.
+   * Subclasses that name the schema of a datum by its contents should
+   * override this. */
+  protected boolean isUnionResolvedByClass(Object datum) {
+    return !(datum instanceof GenericContainer);
+  }
+
+  /** The branch of each union chosen for datums of a class. */
+  private static class UnionBranches extends ClassValue<Map<Schema,Integer>> {
+    @Override
+    protected Map<Schema,Integer> computeValue(Class<?> c) {
+      return new ConcurrentHashMap<>();
+    }
+  }
+
+  // bounds the unions remembered for each class, e.g. as schemas evolve
+  private static final int MAX_UNION_BRANCHES = 1000;
+
+  private volatile UnionBranches unionBranches = new UnionBranches();
+
+  // readers compiled by FastReaderBuilder, which apply the conversions above
+  volatile FastReaderBuilder.CompiledReaders compiledReaders =
+    new FastReaderBuilder.CompiledReaders();
+
   /** Return the schema full name for a datum.  Called by {@link
    * #resolveUnion(Schema,Object)}. */
   protected String getSchemaName(Object datum) {
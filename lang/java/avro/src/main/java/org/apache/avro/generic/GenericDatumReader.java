@@ -34,8 +34,9 @@ import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.Decoder;
-import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.ResolverCache;
 import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.io.StringDictionary;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.util.WeakIdentityHashMap;
 
@@ -108,8 +109,9 @@ public class GenericDatumReader<D> implements DatumReader<D> {
 
   /** Gets a resolving decoder for use by this GenericDatumReader.
    *  Unstable API.
-   *  Currently uses a thread local cache to prevent constructing the
-   *  resolvers too often, because that is very expensive.
+   *  Decoders are cached per thread, and are constructed from resolvers
+   *  shared by all threads through {@link ResolverCache}, because generating
+   *  resolvers is very expensive.
    */
   protected final ResolvingDecoder getResolver(Schema actual, Schema expected)
     throws IOException {
@@ -126,8 +128,7 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
     resolver = cache.get(expected);
     if (resolver == null) {
-      resolver = DecoderFactory.get().resolvingDecoder(
-          Schema.applyAliases(actual, expected), expected, null);
+      resolver = ResolverCache.get().resolvingDecoder(actual, expected, null);
       cache.put(expected, resolver);
     }
 
@@ -256,6 +257,15 @@ public class GenericDatumReader<D> implements DatumReader<D> {
       LogicalType logicalType = expectedType.getLogicalType();
       Conversion<?> conversion = getData().getConversionFor(logicalType);
       Object array = newArray(old, (int) l, expected);
+      if (array instanceof PrimitivesArrays.PrimitiveArray
+          && ((PrimitivesArrays.PrimitiveArray)array).matches(expected)) {
+        PrimitivesArrays.PrimitiveArray<?> primitives =
+          (PrimitivesArrays.PrimitiveArray<?>)array;
+        do {
+          primitives.read(in, l);
+        } while ((l = in.arrayNext()) > 0);
+        return array;
+      }
       do {
         if (logicalType != null && conversion != null) {
           for (long i = 0; i < l; i++) {
@@ -390,17 +400,25 @@ public class GenericDatumReader<D> implements DatumReader<D> {
   }
 
   /** Called to create new array instances.  Subclasses may override to use a
-   * different array implementation.  By default, this returns a {@link
-   * GenericData.Array}.*/
+   * different array implementation.  By default, this returns one of the
+   * {@link PrimitivesArrays} for arrays of primitive values, and otherwise a
+   * {@link GenericData.Array}.*/
   @SuppressWarnings("unchecked")
   protected Object newArray(Object old, int size, Schema schema) {
-    if (old instanceof GenericArray) {
+    if (old instanceof PrimitivesArrays.PrimitiveArray) {
+      if (((PrimitivesArrays.PrimitiveArray)old).matches(schema)) {
+        ((GenericArray)old).reset();
+        return old;
+      }
+    } else if (old instanceof GenericArray) {
       ((GenericArray)old).reset();
       return old;
     } else if (old instanceof Collection) {
       ((Collection) old).clear();
       return old;
-    } else return new GenericData.Array(size, schema);
+    }
+    Object primitives = PrimitivesArrays.newArray(size, schema);
+    return primitives != null ? primitives : new GenericData.Array(size, schema);
   }
 
   /** Called to create new array instances.  Subclasses may override to use a
@@ -419,7 +437,19 @@ public class GenericDatumReader<D> implements DatumReader<D> {
    * #readString(Object,Decoder)}.*/
   protected Object readString(Object old, Schema expected,
                               Decoder in) throws IOException {
-    Class stringClass = getStringClass(expected);
+    Object strings = stringClassCache.get(expected);
+    if (strings == null)
+      strings = findStrings(expected);
+    Class stringClass;
+    if (strings instanceof SharedStrings) {
+      SharedStrings shared = (SharedStrings) strings;
+      StringDictionary dictionary = shared.getDictionary();
+      if (dictionary != null)
+        return in.readSharedString(dictionary);
+      stringClass = shared.stringClass;
+    } else {
+      stringClass = (Class) strings;
+    }
     if (stringClass == String.class)
       return in.readString();
     if (stringClass == CharSequence.class)
@@ -456,16 +486,92 @@ public class GenericDatumReader<D> implements DatumReader<D> {
     }
   }
 
-  private Map<Schema,Class> stringClassCache =
+  /** The {@link Class} of the strings read for each schema, or the {@link
+   * SharedStrings} of a schema with a dictionary, so that reading a string
+   * takes a single lookup either way. */
+  private Map<Schema,Object> stringClassCache =
     new IdentityHashMap<>();
 
+  private Object findStrings(Schema s) {
+    Class c = findStringClass(s);
+    stringClassCache.put(s, c);                   // for newStringDictionary
+    StringDictionary dictionary = newStringDictionary(s);
+    if (dictionary == null)
+      return c;
+    SharedStrings shared = new SharedStrings(this, s, c, dictionary);
+    stringClassCache.put(s, shared);
+    return shared;
+  }
+
   private Class getStringClass(Schema s) {
-    Class c = stringClassCache.get(s);
-    if (c == null) {
-      c = findStringClass(s);
-      stringClassCache.put(s, c);
+    Object strings = stringClassCache.get(s);
+    if (strings == null)
+      strings = findStrings(s);
+    return strings instanceof SharedStrings
+      ? ((SharedStrings) strings).stringClass : (Class) strings;
+  }
+
+  /** The number of distinct values to share between the strings read for a
+   * schema, from {@link GenericData#STRING_DICTIONARY_PROP} or {@link
+   * GenericData#getStringDictionarySize()}, or zero to share none. */
+  protected int getStringDictionarySize(Schema schema) {
+    Object size = schema.getObjectProp(GenericData.STRING_DICTIONARY_PROP);
+    if (size instanceof Number)
+      return ((Number) size).intValue();
+    if (size != null)
+      return Integer.parseInt(size.toString());
+    return getData().getStringDictionarySize();
+  }
+
+  /** Creates a dictionary that shares the values read for a string schema,
+   * or returns null to share none.  By default, a dictionary of {@link
+   * #getStringDictionarySize(Schema)} values is created, holding values of
+   * the class used for the schema.  Subclasses that change how strings are
+   * represented may override. */
+  @SuppressWarnings("unchecked")
+  protected StringDictionary newStringDictionary(Schema schema) {
+    int size = getStringDictionarySize(schema);
+    if (size <= 0)
+      return null;
+    Class stringClass = getStringClass(schema);
+    if (stringClass == CharSequence.class)
+      return new StringDictionary(size, s -> s);
+    if (stringClass == String.class)
+      return new StringDictionary(size, Utf8::toString);
+    return new StringDictionary(size,
+        s -> newInstanceFromString(stringClass, s.toString()));
+  }
+
+  /** The dictionaries of a string schema.  Dictionaries are not
+   * thread-safe, so each thread reading with this has its own, like its
+   * resolvers. */
+  private static final class SharedStrings {
+    private final GenericDatumReader<?> reader;
+    private final Schema schema;
+    private final Class stringClass;
+    private StringDictionary creatorDictionary;
+    private final ThreadLocal<StringDictionary> dictionaries;
+
+    SharedStrings(GenericDatumReader<?> reader, Schema schema,
+                  Class stringClass, StringDictionary dictionary) {
+      this.reader = reader;
+      this.schema = schema;
+      this.stringClass = stringClass;
+      this.dictionaries =
+        ThreadLocal.withInitial(() -> reader.newStringDictionary(schema));
+      if (Thread.currentThread() == reader.creator)
+        creatorDictionary = dictionary;
+      else
+        dictionaries.set(dictionary);
+    }
+
+    StringDictionary getDictionary() {
+      if (Thread.currentThread() != reader.creator)
+        return dictionaries.get();
+      if (creatorDictionary == null)
+        creatorDictionary = reader.newStringDictionary(schema);
+      return creatorDictionary;
     }
-    return c;
   }
 
   private final Map<Class,Constructor> stringCtorCache =
@@ -182,6 +182,16 @@ public class GenericDatumWriter<D> implements DatumWriter<D> {
    * representations.*/
   protected void writeArray(Schema schema, Object datum, Encoder out)
     throws IOException {
+    if (datum instanceof PrimitivesArrays.PrimitiveArray
+        && ((PrimitivesArrays.PrimitiveArray)datum).matches(schema)) {
+      PrimitivesArrays.PrimitiveArray<?> primitives =
+        (PrimitivesArrays.PrimitiveArray<?>)datum;
+      out.writeArrayStart();
+      out.setItemCount(primitives.size());
+      primitives.writeItems(out);
+      out.writeArrayEnd();
+      return;
+    }
     Schema element = schema.getElementType();
     long size = getArraySize(datum);
     long actualSize = 0;
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.Schema.Type;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.Encoder;
+
+/** {@link GenericArray} implementations that store elements of primitive
+ * schemas unboxed.
+ * <p/>
+ * {@link GenericDatumReader} creates these for arrays whose elements are
+ * ints, longs, floats, doubles or booleans without a logical type, and it and
+ * {@link GenericDatumWriter} read and write their elements without boxing.
+ * They are otherwise interchangeable with {@link GenericData.Array}: both are
+ * {@link java.util.List}s and compare equal when their elements do.
+ */
+public class PrimitivesArrays {
+  private PrimitivesArrays() {}
+
+  /** Returns a new array of the primitive elements of <i>schema</i>, or null
+   * if its elements are not an unannotated primitive type. */
+  public static GenericArray<?> newArray(int capacity, Schema schema) {
+    switch (elementType(schema)) {
+    case INT:     return new IntArray(capacity, schema);
+    case LONG:    return new LongArray(capacity, schema);
+    case FLOAT:   return new FloatArray(capacity, schema);
+    case DOUBLE:  return new DoubleArray(capacity, schema);
+    case BOOLEAN: return new BooleanArray(capacity, schema);
+    default:      return null;
+    }
+  }
+
+  /** The primitive type stored unboxed for <i>schema</i>, or
+   * {@link Type#NULL} if elements must be boxed. */
+  private static Type elementType(Schema schema) {
+    Schema element = schema.getElementType();
+    if (element.getLogicalType() != null)
+      return Type.NULL;
+    switch (element.getType()) {
+    case INT: case LONG: case FLOAT: case DOUBLE: case BOOLEAN:
+      return element.getType();
+    default:
+      return Type.NULL;
+    }
+  }
+
+  /** Base class for arrays of unboxed elements. */
+  abstract static class PrimitiveArray<T> extends AbstractList<T>
+    implements GenericArray<T>, Comparable<GenericArray<T>> {
+    private final Schema schema;
+    private final Type type;
+    protected int size;
+
+    PrimitiveArray(Schema schema, Type type) {
+      if (schema == null || !Type.ARRAY.equals(schema.getType()))
+        throw new AvroRuntimeException("Not an array schema: "+schema);
+      this.schema = schema;
+      this.type = type;
+    }
+
+    /** True if this stores the elements of <i>schema</i> unboxed. */
+    boolean matches(Schema schema) { return elementType(schema) == type; }
+
+    /** Append <i>count</i> elements read from <i>in</i>. */
+    abstract void read(Decoder in, long count) throws IOException;
+
+    /** Write this array's elements as items of an array to <i>out</i>. */
+    abstract void writeItems(Encoder out) throws IOException;
+
+    abstract int capacity();
+
+    abstract void resize(int capacity);
+
+    abstract Object elements();
+
+    @Override public Schema getSchema() { return schema; }
+    @Override public int size() { return size; }
+    @Override public void clear() { size = 0; }
+    @Override public void reset() { size = 0; }
+    @Override public void prune() {}
+    @Override public T peek() { return null; }
+
+    @Override
+    public int compareTo(GenericArray<T> that) {
+      return GenericData.get().compare(this, that, this.getSchema());
+    }
+
+    @Override
+    public void reverse() {
+      for (int left = 0, right = size - 1; left < right; left++, right--)
+        set(left, set(right, get(left)));
+    }
+
+    @Override
+    public T remove(int i) {
+      T result = get(i);
+      System.arraycopy(elements(), i+1, elements(), i, size - i - 1);
+      --size;
+      return result;
+    }
+
+    protected void checkIndex(int i) {
+      if (i >= size || i < 0)
+        throw new IndexOutOfBoundsException("Index " + i + " out of bounds.");
+    }
+
+    /** Make room for an element at <i>location</i>. */
+    protected void insertAt(int location) {
+      if (location > size || location < 0)
+        throw new IndexOutOfBoundsException("Index " + location + " out of bounds.");
+      ensureCapacity(size + 1);
+      System.arraycopy(elements(), location, elements(), location + 1,
+                       size - location);
+      size++;
+    }
+
+    protected void ensureCapacity(long needed) {
+      if (needed > capacity()) {
+        // Increase size by 1.5x + 1
+        long newSize = Math.max(needed, capacity() + (capacity() >> 1) + 1L);
+        resize((int)Math.min(newSize, Integer.MAX_VALUE - 8));
+      }
+    }
+  }
+
+  /** An array of unboxed ints. */
+  public static class IntArray extends PrimitiveArray<Integer> {
+    private int[] elements;
+
+    public IntArray(int capacity, Schema schema) {
+      super(schema, Type.INT);
+      elements = new int[capacity];
+    }
+
+    public int getInt(int i) { checkIndex(i); return elements[i]; }
+
+    public void addInt(int value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Integer get(int i) { return getInt(i); }
+
+    @Override public void add(int location, Integer o) {
+      insertAt(location);
+      elements[location] = o;
+    }
+
+    @Override public Integer set(int i, Integer o) {
+      checkIndex(i);
+      int response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override void read(Decoder in, long count) throws IOException {
+      ensureCapacity(size + count);
+      for (long i = 0; i < count; i++)
+        elements[size++] = in.readInt();
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeInt(elements[i]);
+      }
+    }
+
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) { elements = Arrays.copyOf(elements, capacity); }
+    @Override Object elements() { return elements; }
+  }
+
+  /** An array of unboxed longs. */
+  public static class LongArray extends PrimitiveArray<Long> {
+    private long[] elements;
+
+    public LongArray(int capacity, Schema schema) {
+      super(schema, Type.LONG);
+      elements = new long[capacity];
+    }
+
+    public long getLong(int i) { checkIndex(i); return elements[i]; }
+
+    public void addLong(long value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Long get(int i) { return getLong(i); }
+
+    @Override public void add(int location, Long o) {
+      insertAt(location);
+      elements[location] = o;
+    }
+
+    @Override public Long set(int i, Long o) {
+      checkIndex(i);
+      long response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override void read(Decoder in, long count) throws IOException {
+      ensureCapacity(size + count);
+      for (long i = 0; i < count; i++)
+        elements[size++] = in.readLong();
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeLong(elements[i]);
+      }
+    }
+
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) { elements = Arrays.copyOf(elements, capacity); }
+    @Override Object elements() { return elements; }
+  }
+
+  /** An array of unboxed floats. */
+  public static class FloatArray extends PrimitiveArray<Float> {
+    private float[] elements;
+
+    public FloatArray(int capacity, Schema schema) {
+      super(schema, Type.FLOAT);
+      elements = new float[capacity];
+    }
+
+    public float getFloat(int i) { checkIndex(i); return elements[i]; }
+
+    public void addFloat(float value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Float get(int i) { return getFloat(i); }
+
+    @Override public void add(int location, Float o) {
+      insertAt(location);
+      elements[location] = o;
+    }
+
+    @Override public Float set(int i, Float o) {
+      checkIndex(i);
+      float response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override void read(Decoder in, long count) throws IOException {
+      ensureCapacity(size + count);
+      for (long i = 0; i < count; i++)
+        elements[size++] = in.readFloat();
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeFloat(elements[i]);
+      }
+    }
+
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) { elements = Arrays.copyOf(elements, capacity); }
+    @Override Object elements() { return elements; }
+  }
+
+  /** An array of unboxed doubles. */
+  public static class DoubleArray extends PrimitiveArray<Double> {
+    private double[] elements;
+
+    public DoubleArray(int capacity, Schema schema) {
+      super(schema, Type.DOUBLE);
+      elements = new double[capacity];
+    }
+
+    public double getDouble(int i) { checkIndex(i); return elements[i]; }
+
+    public void addDouble(double value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Double get(int i) { return getDouble(i); }
+
+    @Override public void add(int location, Double o) {
+      insertAt(location);
+      elements[location] = o;
+    }
+
+    @Override public Double set(int i, Double o) {
+      checkIndex(i);
+      double response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override void read(Decoder in, long count) throws IOException {
+      ensureCapacity(size + count);
+      for (long i = 0; i < count; i++)
+        elements[size++] = in.readDouble();
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeDouble(elements[i]);
+      }
+    }
+
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) { elements = Arrays.copyOf(elements, capacity); }
+    @Override Object elements() { return elements; }
+  }
+
+  /** An array of unboxed booleans. */
+  public static class BooleanArray extends PrimitiveArray<Boolean> {
+    private boolean[] elements;
+
+    public BooleanArray(int capacity, Schema schema) {
+      super(schema, Type.BOOLEAN);
+      elements = new boolean[capacity];
+    }
+
+    public boolean getBoolean(int i) { checkIndex(i); return elements[i]; }
+
+    public void addBoolean(boolean value) {
+      ensureCapacity(size + 1);
+      elements[size++] = value;
+    }
+
+    @Override public Boolean get(int i) { return getBoolean(i); }
+
+    @Override public void add(int location, Boolean o) {
+      insertAt(location);
+      elements[location] = o;
+    }
+
+    @Override public Boolean set(int i, Boolean o) {
+      checkIndex(i);
+      boolean response = elements[i];
+      elements[i] = o;
+      return response;
+    }
+
+    @Override void read(Decoder in, long count) throws IOException {
+      ensureCapacity(size + count);
+      for (long i = 0; i < count; i++)
+        elements[size++] = in.readBoolean();
+    }
+
+    @Override void writeItems(Encoder out) throws IOException {
+      for (int i = 0; i < size; i++) {
+        out.startItem();
+        out.writeBoolean(elements[i]);
+      }
+    }
+
+    @Override int capacity() { return elements.length; }
+    @Override void resize(int capacity) { elements = Arrays.copyOf(elements, capacity); }
+    @Override Object elements() { return elements; }
+  }
+}
@@ -61,6 +61,9 @@ public class BinaryDecoder extends Decoder {
   private int minPos = 0;
   private int pos = 0;
   private int limit = 0;
+  // the buffer last allocated for a ByteBuffer source, reused by the next
+  // one; null while a detached source may still drain it
+  private byte[] byteBufferBuf = null;
 
   byte[] getBuf() { return buf; }
   int getPos() { return pos; }
@@ -98,6 +101,15 @@ public class BinaryDecoder extends Decoder {
     return this;
   }
 
+  BinaryDecoder configure(ByteBuffer data, int bufferSize) {
+    if (data.hasArray()) {
+      return configure(data.array(), data.arrayOffset() + data.position(),
+          data.remaining());
+    }
+    configureSource(bufferSize, new ByteBufferByteSource(data));
+    return this;
+  }
+
   /**
    * Initializes this decoder with a new ByteSource. Detaches the old source (if
    * it exists) from this Decoder. The old source's state no longer depends on
@@ -267,6 +279,31 @@ public class BinaryDecoder extends Decoder {
 
   @Override
   public Utf8 readString(Utf8 old) throws IOException {
+    int length = readStringLength();
+    Utf8 result = (old != null ? old : new Utf8());
+    result.setByteLength(length);
+    if (0 != length) {
+      doReadBytes(result.getBytes(), 0, length);
+    }
+    return result;
+  }
+
+  /** Looks the string up while it is in the buffer, if it is there. */
+  @Override
+  public Object readSharedString(StringDictionary dictionary) throws IOException {
+    int length = readStringLength();
+    if (length == 0 || length > limit - pos) {
+      Utf8 s = dictionary.scratch();
+      s.setByteLength(length);
+      doReadBytes(s.getBytes(), 0, length);
+      return dictionary.get(s.getBytes(), 0, length);
+    }
+    Object result = dictionary.get(buf, pos, length);
+    pos += length;
+    return result;
+  }
+
+  private int readStringLength() throws IOException {
     long length = readLong();
     if (length > MAX_ARRAY_SIZE) {
       throw new UnsupportedOperationException("Cannot read strings longer than " + MAX_ARRAY_SIZE + " bytes");
@@ -274,12 +311,7 @@ public class BinaryDecoder extends Decoder {
     if (length < 0L) {
       throw new AvroRuntimeException("Malformed data. Length is negative: " + length);
     }
-    Utf8 result = (old != null ? old : new Utf8());
-    result.setByteLength((int) length);
-    if (0L != length) {
-      doReadBytes(result.getBytes(), 0, (int) length);
-    }
-    return result;
+    return (int) length;
   }
 
   private final Utf8 scratchUtf8 = new Utf8();
@@ -890,6 +922,101 @@ public class BinaryDecoder extends Decoder {
     }
   }
 
+  /**
+   * A byte source over a ByteBuffer that is not backed by an accessible
+   * array, such as a direct or memory-mapped buffer. Bytes are copied from the
+   * buffer into the decoder's buffer in bulk, and large reads and skips go
+   * directly against the source buffer.
+   */
+  private static class ByteBufferByteSource extends ByteSource {
+    private final ByteBuffer data;
+    private BinaryDecoder decoder;
+
+    private ByteBufferByteSource(ByteBuffer data) {
+      super();
+      this.data = data.duplicate();
+    }
+
+    @Override
+    protected void attach(int bufferSize, BinaryDecoder decoder) {
+      // never allocate more than the source can fill, but leave room for
+      // readLong() and friends to read ahead
+      int size = Math.min(bufferSize, data.remaining() + 16);
+      this.decoder = decoder;
+      byte[] reuse = decoder.byteBufferBuf;
+      if (reuse != null && reuse.length >= size) {
+        decoder.buf = reuse;
+        decoder.pos = 0;
+        decoder.minPos = 0;
+        decoder.limit = 0;
+        this.ba = new BufferAccessor(decoder);
+      } else {
+        super.attach(size, decoder);
+        decoder.byteBufferBuf = decoder.buf;
+      }
+    }
+
+    @Override
+    protected void detach() {
+      super.detach();
+      if (ba.getPos() < ba.getLim())    // left for inputStream() to drain
+        decoder.byteBufferBuf = null;
+    }
+
+    @Override
+    protected void skipSourceBytes(long length) throws IOException {
+      if (trySkipBytes(length) < length) {
+        throw new EOFException();
+      }
+    }
+
+    @Override
+    protected long trySkipBytes(long length) throws IOException {
+      int skipped = (int) Math.min(length, data.remaining());
+      data.position(data.position() + skipped);
+      return skipped;
+    }
+
+    @Override
+    protected void readRaw(byte[] data, int off, int len) throws IOException {
+      if (this.data.remaining() < len) {
+        this.data.position(this.data.limit());
+        throw new EOFException();
+      }
+      this.data.get(data, off, len);
+    }
+
+    @Override
+    protected int tryReadRaw(byte[] data, int off, int len) throws IOException {
+      int read = Math.min(len, this.data.remaining());
+      this.data.get(data, off, read);
+      return read;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (ba.getLim() - ba.getPos() == 0) {
+        return data.hasRemaining() ? data.get() & 0xff : -1;
+      } else {
+        int position = ba.getPos();
+        int result = ba.getBuf()[position] & 0xff;
+        ba.setPos(position + 1);
+        return result;
+      }
+    }
+
+    @Override
+    public boolean isEof() {
+      return !data.hasRemaining();
+    }
+
+    @Override
+    public void close() throws IOException {
+      ba.setPos(ba.getLim());
+      data.position(data.limit());
+    }
+  }
+
   /**
    * This byte source is special. It will avoid copying data by using the
    * source's byte[] as a buffer in the decoder.
@@ -103,6 +103,18 @@ public abstract class Decoder {
    */
   public abstract String readString() throws IOException;
 
+  /**
+   * Reads a char-string written by {@link Encoder#writeString}, returning the
+   * value for it in <tt>dictionary</tt>.  By default, this reads the string
+   * into a {@link Utf8} and looks up its bytes.
+   * @throws AvroTypeException If this is a stateful reader and
+   * char-string is not the type of the next value to be read
+   */
+  public Object readSharedString(StringDictionary dictionary) throws IOException {
+    Utf8 s = readString(dictionary.scratch());
+    return dictionary.get(s.getBytes(), 0, s.getByteLength());
+  }
+
   /**
    * Discards a char-string written by {@link Encoder#writeString}.
    *  @throws AvroTypeException If this is a stateful reader and
@@ -19,6 +19,7 @@ package org.apache.avro.io;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.apache.avro.Schema;
 
@@ -234,6 +235,34 @@ public class DecoderFactory {
     return binaryDecoder(bytes, 0, bytes.length, reuse);
   }
 
+  /**
+   * Creates or reinitializes a {@link BinaryDecoder} with the remaining bytes
+   * of the ByteBuffer provided as the source of data. If <i>reuse</i> is
+   * provided, it will attempt to reinitialize <i>reuse</i> to the new buffer.
+   * <p/>
+   * Heap buffers are used directly as the decoder's buffer, as with
+   * {@link #binaryDecoder(byte[], int, int, BinaryDecoder)}. Direct and other
+   * buffers without an accessible array are copied into the decoder's buffer
+   * in bulk, up to {@link #getConfiguredBufferSize()} bytes at a time, and a
+   * reinitialized <i>reuse</i> keeps that buffer. The position of <i>data</i>
+   * is not modified.
+   *
+   * @param data The ByteBuffer to initialize to
+   * @param reuse The BinaryDecoder to attempt to reinitialize. if null a new
+   *          BinaryDecoder is created.
+   * @return A BinaryDecoder that uses <i>data</i> as its source of data. If
+   *         <i>reuse</i> is null, this will be a new instance. <i>reuse</i> may
+   *         be reinitialized if appropriate, otherwise a new instance is
+   *         returned. Clients must not assume that <i>reuse</i> is
+   *         reinitialized and returned.
+   */
+  public BinaryDecoder binaryDecoder(ByteBuffer data, BinaryDecoder reuse) {
+    if (null == reuse || !reuse.getClass().equals(BinaryDecoder.class)) {
+      reuse = new BinaryDecoder();
+    }
+    return reuse.configure(data, binaryDecoderBufferSize);
+  }
+
   /**
    * Creates a {@link JsonDecoder} using the InputStrim provided for reading
    * data that conforms to the Schema provided.
@@ -20,12 +20,9 @@ package org.apache.avro.io;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.io.Reader;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Stack;
 
@@ -35,35 +32,62 @@ import org.apache.avro.io.parsing.JsonGrammarGenerator;
 import org.apache.avro.io.parsing.Parser;
 import org.apache.avro.io.parsing.Symbol;
 import org.apache.avro.util.Utf8;
-import com.fasterxml.jackson.core.Base64Variant;
 import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonStreamContext;
 import com.fasterxml.jackson.core.JsonToken;
-import com.fasterxml.jackson.core.ObjectCodec;
-import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 
 /** A {@link Decoder} for Avro's JSON data encoding.
  * </p>
  * Construct using {@link DecoderFactory}.
  * </p>
+ * Record fields may appear in any order.  Fields that precede those expected
+ * before them are saved, and read when they are expected.  When reading a
+ * String, only the position of a large object or array is saved, and it is
+ * parsed again from the String when expected, without copying it.  Other
+ * values are buffered as tokens, as are all values read from an InputStream.
+ * Fields in the schema's order are read directly.
+ * </p>
  * JsonDecoder is not thread-safe.
  * */
 public class JsonDecoder extends ParsingDecoder
   implements Parser.ActionHandler {
   private JsonParser in;
+  private String text;                  // the input, unless reading a stream
+  private int inOffset;                 // added to in's offsets to index text
   private static JsonFactory jsonFactory = new JsonFactory();
   Stack<ReorderBuffer> reorderBuffers = new Stack<>();
   ReorderBuffer currentReorderBuffer;
 
   private static class ReorderBuffer {
-    public Map<String, List<JsonElement>> savedFields = new HashMap<>();
+    public Map<String, SavedValue> savedFields = new HashMap<>();
     public JsonParser origParser = null;
+    public int origOffset;
+  }
+
+  /** A field value that preceded the fields expected before it. */
+  private static class SavedValue {
+    public final int start;             // the range of text holding it
+    public final int end;
+    public final TokenBuffer tokens;    // or its tokens
+
+    public SavedValue(int start, int end) {
+      this.start = start;
+      this.end = end;
+      this.tokens = null;
+    }
+
+    public SavedValue(TokenBuffer tokens) {
+      this.start = this.end = -1;
+      this.tokens = tokens;
+    }
   }
 
   static final String CHARSET = "ISO-8859-1";
 
+  /** Saved values longer than this are parsed again rather than buffered. */
+  private static final int MAX_BUFFERED_CHARS = 4096;
+
   private JsonDecoder(Symbol root, InputStream in) throws IOException {
     super(root);
     configure(in);
@@ -108,6 +132,8 @@ public class JsonDecoder extends ParsingDecoder
     parser.reset();
     reorderBuffers.clear();
     currentReorderBuffer = null;
+    this.text = null;
+    this.inOffset = 0;
     this.in = jsonFactory.createJsonParser(in);
     this.in.nextToken();
     return this;
@@ -132,7 +158,9 @@ public class JsonDecoder extends ParsingDecoder
     parser.reset();
     reorderBuffers.clear();
     currentReorderBuffer = null;
-    this.in = new JsonFactory().createJsonParser(in);
+    this.text = in;
+    this.inOffset = 0;
+    this.in = jsonFactory.createParser(in);
     this.in.nextToken();
     return this;
   }
@@ -458,11 +486,20 @@ public class JsonDecoder extends ParsingDecoder
         Symbol.FieldAdjustAction fa = (Symbol.FieldAdjustAction) top;
         String name = fa.fname;
       if (currentReorderBuffer != null) {
-        List<JsonElement> node = currentReorderBuffer.savedFields.get(name);
-        if (node != null) {
-          currentReorderBuffer.savedFields.remove(name);
+        SavedValue saved = currentReorderBuffer.savedFields.remove(name);
+        if (saved != null) {
           currentReorderBuffer.origParser = in;
-          in = makeParser(node);
+          currentReorderBuffer.origOffset = inOffset;
+          if (saved.tokens != null) {
+            in = saved.tokens.asParser();
+            in.nextToken();
+          } else {
+            in = jsonFactory.createParser(
+                new RangeReader(text, saved.start, saved.end));
+            in.nextToken();
+            // the value starts the range, whatever offset the parser reports
+            inOffset = saved.start - (int) in.getTokenLocation().getCharOffset();
+          }
           return null;
         }
       }
@@ -476,14 +513,16 @@ public class JsonDecoder extends ParsingDecoder
             if (currentReorderBuffer == null) {
               currentReorderBuffer = new ReorderBuffer();
             }
-            currentReorderBuffer.savedFields.put(fn, getValueAsTree(in));
+            currentReorderBuffer.savedFields.put(fn, saveValue());
           }
         } while (in.getCurrentToken() == JsonToken.FIELD_NAME);
         throw new AvroTypeException("Expected field name not found: " + fa.fname);
       }
     } else if (top == Symbol.FIELD_END) {
       if (currentReorderBuffer != null && currentReorderBuffer.origParser != null) {
+        in.close();
         in = currentReorderBuffer.origParser;
+        inOffset = currentReorderBuffer.origOffset;
         currentReorderBuffer.origParser = null;
       }
     } else if (top == Symbol.RECORD_START) {
@@ -516,246 +555,70 @@ public class JsonDecoder extends ParsingDecoder
     return null;
   }
 
-  private static class JsonElement {
-    public final JsonToken token;
-    public final String value;
-    public JsonElement(JsonToken t, String value) {
-      this.token = t;
-      this.value = value;
-    }
-
-    public JsonElement(JsonToken t) {
-      this(t, null);
+  /** Saves the current value to be read when it is expected, and advances
+   * past it. */
+  private SavedValue saveValue() throws IOException {
+    JsonToken t = in.getCurrentToken();
+    TokenBuffer tokens = new TokenBuffer(in);
+    if (text == null
+        || (t != JsonToken.START_OBJECT && t != JsonToken.START_ARRAY)) {
+      tokens.copyCurrentStructure(in);
+      in.nextToken();
+      return new SavedValue(tokens);
     }
-  }
-
-  private static List<JsonElement> getValueAsTree(JsonParser in) throws IOException {
-    int level = 0;
-    List<JsonElement> result = new ArrayList<>();
-    do {
-      JsonToken t = in.getCurrentToken();
-      switch (t) {
-      case START_OBJECT:
-      case START_ARRAY:
-        level++;
-        result.add(new JsonElement(t));
-        break;
-      case END_OBJECT:
-      case END_ARRAY:
-        level--;
-        result.add(new JsonElement(t));
-        break;
-      case FIELD_NAME:
-      case VALUE_STRING:
-      case VALUE_NUMBER_INT:
-      case VALUE_NUMBER_FLOAT:
-      case VALUE_TRUE:
-      case VALUE_FALSE:
-      case VALUE_NULL:
-        result.add(new JsonElement(t, in.getText()));
-        break;
+    int start = inOffset + (int) in.getTokenLocation().getCharOffset();
+    int limit = start + MAX_BUFFERED_CHARS;
+    int depth = 0;
+    do {                                // buffer it while it's small
+      t = in.getCurrentToken();
+      if (t.isStructStart())
+        depth++;
+      else if (t.isStructEnd())
+        depth--;
+      if (tokens != null) {
+        tokens.copyCurrentEvent(in);
+        if (inOffset + in.getTokenLocation().getCharOffset() > limit)
+          tokens = null;
       }
       in.nextToken();
-    } while (level != 0);
-    result.add(new JsonElement(null));
-    return result;
-  }
-
-  private JsonParser makeParser(final List<JsonElement> elements) throws IOException {
-    return new JsonParser() {
-      int pos = 0;
-
-      @Override
-      public ObjectCodec getCodec() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void setCodec(ObjectCodec c) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void close() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken nextToken() throws IOException {
-        pos++;
-        return elements.get(pos).token;
-      }
-
-      @Override
-      public JsonParser skipChildren() throws IOException {
-        JsonToken tkn = elements.get(pos).token;
-        int level = (tkn == JsonToken.START_ARRAY || tkn == JsonToken.END_ARRAY) ? 1 : 0;
-        while (level > 0) {
-          switch(elements.get(++pos).token) {
-          case START_ARRAY:
-          case START_OBJECT:
-            level++;
-            break;
-          case END_ARRAY:
-          case END_OBJECT:
-            level--;
-            break;
-          }
-        }
-        return this;
-      }
-
-      @Override
-      public boolean isClosed() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public String getCurrentName() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonStreamContext getParsingContext() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonLocation getTokenLocation() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonLocation getCurrentLocation() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public String getText() throws IOException {
-        return elements.get(pos).value;
-      }
-
-      @Override
-      public char[] getTextCharacters() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getTextLength() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getTextOffset() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public Number getNumberValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public NumberType getNumberType() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getIntValue() throws IOException {
-        return Integer.parseInt(getText());
-      }
-
-      @Override
-      public long getLongValue() throws IOException {
-        return Long.parseLong(getText());
-      }
-
-      @Override
-      public BigInteger getBigIntegerValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public float getFloatValue() throws IOException {
-        return Float.parseFloat(getText());
-      }
-
-      @Override
-      public double getDoubleValue() throws IOException {
-        return Double.parseDouble(getText());
-      }
-
-      @Override
-      public BigDecimal getDecimalValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public byte[] getBinaryValue(Base64Variant b64variant)
-        throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken getCurrentToken() {
-        return elements.get(pos).token;
-      }
-
-      @Override
-      public Version version() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken nextValue() throws IOException {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public int getCurrentTokenId() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasCurrentToken() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasTokenId(int id) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public boolean hasToken(JsonToken t) {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public void clearCurrentToken() {
-        throw new UnsupportedOperationException();
-      }
-
-      @Override
-      public JsonToken getLastClearedToken() {
-        throw new UnsupportedOperationException();
-      }
+    } while (depth > 0);
+    if (tokens != null)
+      return new SavedValue(tokens);
+    int end = inOffset + (int) in.getTokenLocation().getCharOffset();
+    // exclude the separator before the next token
+    while (end > start && isSeparator(text.charAt(end - 1)))
+      end--;
+    return new SavedValue(start, end);
+  }
+
+  /** Reads a range of a String without copying it. */
+  private static class RangeReader extends Reader {
+    private final String text;
+    private final int end;
+    private int position;
+
+    RangeReader(String text, int start, int end) {
+      this.text = text;
+      this.position = start;
+      this.end = end;
+    }
 
-      @Override
-      public void overrideCurrentName(String name) {
-        throw new UnsupportedOperationException();
-      }
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (position >= end)
+        return -1;
+      int count = Math.min(length, end - position);
+      text.getChars(position, position + count, buffer, offset);
+      position += count;
+      return count;
+    }
 
-      @Override
-      public boolean hasTextCharacters() {
-        throw new UnsupportedOperationException();
-      }
+    @Override
+    public void close() {}
+  }
 
-      @Override
-      public String getValueAsString(String def) throws IOException {
-        throw new UnsupportedOperationException();
-      }
-    };
+  private static boolean isSeparator(char c) {
+    return c == ',' || c == ' ' || c == '\t' || c == '\n' || c == '\r';
   }
 
   private AvroTypeException error(String type) {
@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.SchemaParseException;
+
+/** A bounded cache of the resolvers used by {@link ResolvingDecoder}, shared
+ * by all threads.
+ * <p/>
+ * Resolvers are immutable, so a single resolver serves every decoder for a
+ * schema pair.  They are keyed by the complete JSON of the writer's and
+ * reader's schemas, including defaults and aliases, so equal schemas parsed
+ * separately share a resolver.  Keys are hashed by fingerprint, but compared
+ * in full, so schemas whose fingerprints collide do not share a resolver.
+ * The least recently used resolvers are evicted once the cache is full.
+ * <p/>
+ * The size of the shared instance defaults to {@value #DEFAULT_MAX_SIZE}, and
+ * may be set with the {@value #MAX_SIZE_PROPERTY} system property.
+ */
+public class ResolverCache {
+  public static final String MAX_SIZE_PROPERTY =
+    "org.apache.avro.io.resolver_cache_size";
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  private static final ResolverCache INSTANCE =
+    new ResolverCache(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+
+  /** Returns the cache shared by all readers. */
+  public static ResolverCache get() { return INSTANCE; }
+
+  private final int maxSize;
+  private final Map<Key,Object> resolvers;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  /** Construct a cache holding at most <i>maxSize</i> resolvers. */
+  public ResolverCache(int maxSize) {
+    if (maxSize < 1)
+      throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+    this.maxSize = maxSize;
+    this.resolvers = new LinkedHashMap<Key,Object>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key,Object> eldest) {
+        if (size() <= ResolverCache.this.maxSize)
+          return false;
+        evictions++;
+        return true;
+      }
+    };
+  }
+
+  /** Returns a resolver for data written with <i>writer</i> and read with
+   * <i>reader</i>, after applying the reader's aliases to the writer's
+   * schema.
+   * @see ResolvingDecoder#resolve(Schema, Schema) */
+  public Object getResolver(Schema writer, Schema reader) throws IOException {
+    Key key;
+    try {
+      key = new Key(writer.toString(), reader.toString());
+    } catch (SchemaParseException e) {
+      // a schema holding distinct records of the same name, as built by IDL
+      // for some recursive types, can't be written: resolve it uncached
+      return ResolvingDecoder.resolve(Schema.applyAliases(writer, reader),
+                                      reader);
+    }
+    synchronized (this) {
+      Object resolver = resolvers.get(key);
+      if (resolver != null) {
+        hits++;
+        return resolver;
+      }
+      misses++;
+    }
+    // generated outside the lock: racing threads may each generate it once
+    Object resolver =
+      ResolvingDecoder.resolve(Schema.applyAliases(writer, reader), reader);
+    synchronized (this) {
+      resolvers.put(key, resolver);
+    }
+    return resolver;
+  }
+
+  /** Returns a new {@link ResolvingDecoder} that uses a cached resolver.
+   * @see #getResolver(Schema, Schema) */
+  public ResolvingDecoder resolvingDecoder(Schema writer, Schema reader,
+                                           Decoder in) throws IOException {
+    return new ResolvingDecoder(getResolver(writer, reader), in);
+  }
+
+  /** The number of lookups that found a cached resolver. */
+  public synchronized long getHitCount() { return hits; }
+
+  /** The number of lookups that generated a resolver. */
+  public synchronized long getMissCount() { return misses; }
+
+  /** The number of resolvers evicted to bound the size of the cache. */
+  public synchronized long getEvictionCount() { return evictions; }
+
+  /** The number of resolvers currently cached. */
+  public synchronized int size() { return resolvers.size(); }
+
+  /** Discard all cached resolvers. */
+  public synchronized void clear() { resolvers.clear(); }
+
+  private static long fingerprint(String json) {
+    return SchemaNormalization.fingerprint64(
+        json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static final class Key {
+    private final String writer;
+    private final String reader;
+    private final int hash;
+
+    Key(String writer, String reader) {
+      this.writer = writer;
+      this.reader = reader;
+      this.hash = Long.hashCode(fingerprint(writer)) * 31
+        + Long.hashCode(fingerprint(reader));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) return false;
+      Key that = (Key)o;
+      return hash == that.hash
+        && writer.equals(that.writer) && reader.equals(that.reader);
+    }
+
+    @Override
+    public int hashCode() { return hash; }
+  }
+}
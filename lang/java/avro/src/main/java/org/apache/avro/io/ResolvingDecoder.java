@@ -57,7 +57,7 @@ public class ResolvingDecoder extends ValidatingDecoder {
    * @param in  The underlying decoder.
    * @throws IOException
    */
-  private ResolvingDecoder(Object resolver, Decoder in)
+  ResolvingDecoder(Object resolver, Decoder in)
     throws IOException {
     super((Symbol) resolver, in);
   }
@@ -226,6 +226,18 @@ public class ResolvingDecoder extends ValidatingDecoder {
     }
   }
 
+  @Override
+  public Object readSharedString(StringDictionary dictionary) throws IOException {
+    Symbol actual = parser.advance(Symbol.STRING);
+    if (actual == Symbol.BYTES) {
+      ByteBuffer bytes = in.readBytes(null);
+      return dictionary.get(bytes.array(), 0, bytes.limit());
+    } else {
+      assert actual == Symbol.STRING;
+      return in.readSharedString(dictionary);
+    }
+  }
+
   @Override
   public void skipString() throws IOException {
     Symbol actual = parser.advance(Symbol.STRING);
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.apache.avro.util.Utf8;
+
+/** A bounded dictionary of the strings read for a field, so that repeated
+ * values share a single instance.  Used with {@link
+ * Decoder#readSharedString(StringDictionary)}, which looks strings up by their
+ * encoded bytes, without copying them when they are already buffered.
+ * <p/>
+ * Values are created by a factory from a {@link Utf8}, so a dictionary may
+ * hold {@link Utf8}, {@link String} or other instances.  Since instances are
+ * shared, they must not be modified.  Once the dictionary holds its maximum
+ * number of values, further distinct values are created for each read.
+ * <p/>
+ * This class is not thread-safe.  {@link
+ * org.apache.avro.generic.GenericDatumReader} keeps a dictionary per schema
+ * for each thread that reads with it.
+ */
+public class StringDictionary {
+  private final int maxSize;
+  private final Function<? super Utf8, ?> factory;
+  private final Utf8 scratch = new Utf8();
+
+  private byte[][] keys = new byte[8][];
+  private int[] hashes = new int[8];
+  private Object[] values = new Object[8];
+  private int size;
+  private long hits;
+  private long misses;
+
+  /** Construct a dictionary holding at most <i>maxSize</i> values, created
+   * from each distinct string by <i>factory</i>. */
+  public StringDictionary(int maxSize, Function<? super Utf8, ?> factory) {
+    if (maxSize < 1)
+      throw new IllegalArgumentException("Invalid dictionary size: " + maxSize);
+    this.maxSize = maxSize;
+    this.factory = factory;
+  }
+
+  /** Returns the value for the UTF-8 bytes <i>bytes[start,start+length)</i>,
+   * creating it if it is not in this dictionary. */
+  public Object get(byte[] bytes, int start, int length) {
+    int hash = 1;
+    for (int i = start; i < start + length; i++)
+      hash = 31 * hash + bytes[i];
+    int mask = keys.length - 1;
+    int slot = mix(hash) & mask;
+    for (byte[] key; (key = keys[slot]) != null; slot = (slot + 1) & mask) {
+      if (hashes[slot] == hash && key.length == length
+          && equals(key, bytes, start)) {
+        hits++;
+        return values[slot];
+      }
+    }
+    misses++;
+    byte[] key = Arrays.copyOfRange(bytes, start, start + length);
+    Object value = factory.apply(new Utf8(key));
+    if (size < maxSize) {
+      keys[slot] = key;
+      hashes[slot] = hash;
+      values[slot] = value;
+      if (++size * 2 > keys.length)
+        grow();
+    }
+    return value;
+  }
+
+  /** A string that decoders may read into before calling {@link #get}. */
+  Utf8 scratch() { return scratch; }
+
+  /** The number of distinct values held. */
+  public int size() { return size; }
+
+  /** The number of reads that found a value in this dictionary. */
+  public long getHitCount() { return hits; }
+
+  /** The number of reads that created a value. */
+  public long getMissCount() { return misses; }
+
+  private static boolean equals(byte[] key, byte[] bytes, int start) {
+    for (int i = 0; i < key.length; i++)
+      if (key[i] != bytes[start + i])
+        return false;
+    return true;
+  }
+
+  private static int mix(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private void grow() {
+    byte[][] oldKeys = keys;
+    int[] oldHashes = hashes;
+    Object[] oldValues = values;
+    keys = new byte[oldKeys.length * 2][];
+    hashes = new int[keys.length];
+    values = new Object[keys.length];
+    int mask = keys.length - 1;
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] == null)
+        continue;
+      int slot = mix(oldHashes[i]) & mask;
+      while (keys[slot] != null)
+        slot = (slot + 1) & mask;
+      keys[slot] = oldKeys[i];
+      hashes[slot] = oldHashes[i];
+      values[slot] = oldValues[i];
+    }
+  }
+}
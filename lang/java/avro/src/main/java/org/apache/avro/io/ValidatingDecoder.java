@@ -113,6 +113,12 @@ public class ValidatingDecoder extends ParsingDecoder
     return in.readString();
   }
 
+  @Override
+  public Object readSharedString(StringDictionary dictionary) throws IOException {
+    parser.advance(Symbol.STRING);
+    return in.readSharedString(dictionary);
+  }
+
   @Override
   public void skipString() throws IOException {
     parser.advance(Symbol.STRING);
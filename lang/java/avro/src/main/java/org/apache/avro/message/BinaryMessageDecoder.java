@@ -26,8 +26,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link MessageDecoder} that reads a binary-encoded datum. This checks for
@@ -47,11 +45,14 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
 
+  /** Length of the header and 8-byte schema fingerprint. */
+  private static final int HEADER_LENGTH = 10;
+
   private static final ThreadLocal<byte[]> HEADER_BUFFER =
       new ThreadLocal<byte[]>() {
         @Override
         protected byte[] initialValue() {
-          return new byte[10];
+          return new byte[HEADER_LENGTH];
         }
       };
 
@@ -68,8 +69,13 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
   private final Schema readSchema;
   private final SchemaStore resolver;
 
-  private final Map<Long, RawMessageDecoder<D>> codecByFingerprint =
-      new ConcurrentHashMap<>();
+  /** The most decoders cached for schemas found in the {@link SchemaStore}. */
+  static final int MAX_RESOLVED_SCHEMAS = 1000;
+
+  private final FingerprintIndex<RawMessageDecoder<D>> codecByFingerprint =
+      new FingerprintIndex<>();
+  private final FingerprintIndex<RawMessageDecoder<D>> resolvedCodecs =
+      new FingerprintIndex<>();
 
   /**
    * Creates a new {@link BinaryMessageEncoder} that uses the given
@@ -134,11 +140,20 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
       return decoder;
     }
 
+    decoder = resolvedCodecs.get(fp);
+    if (decoder != null) {
+      return decoder;
+    }
+
     if (resolver != null) {
       Schema writeSchema = resolver.findByFingerprint(fp);
       if (writeSchema != null) {
-        addSchema(writeSchema);
-        return codecByFingerprint.get(fp);
+        if (resolvedCodecs.size() >= MAX_RESOLVED_SCHEMAS) {
+          resolvedCodecs.clear();
+        }
+        decoder = new RawMessageDecoder<>(model, writeSchema, readSchema);
+        resolvedCodecs.put(fp, decoder);
+        return decoder;
       }
     }
 
@@ -157,18 +172,57 @@ public class BinaryMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
       throw new IOException("Failed to read header and fingerprint bytes", e);
     }
 
-    if (BinaryMessageEncoder.V1_HEADER[0] != header[0] ||
-        BinaryMessageEncoder.V1_HEADER[1] != header[1]) {
-      throw new BadHeaderException(String.format(
-          "Unrecognized header bytes: 0x%02X 0x%02X",
-          header[0], header[1]));
-    }
+    checkHeader(header[0], header[1]);
 
     RawMessageDecoder<D> decoder = getDecoder(FP_BUFFER.get().getLong(2));
 
     return decoder.decode(stream, reuse);
   }
 
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) throws IOException {
+    int pos = encoded.position();
+    if (encoded.remaining() < HEADER_LENGTH) {
+      throw new BadHeaderException("Not enough header bytes");
+    }
+    checkHeader(encoded.get(pos), encoded.get(pos + 1));
+
+    long fp = 0;
+    for (int i = HEADER_LENGTH - 1; i >= 2; i--) {
+      fp = (fp << 8) | (encoded.get(pos + i) & 0xFF);
+    }
+    RawMessageDecoder<D> decoder = getDecoder(fp);
+
+    ByteBuffer payload = encoded.duplicate();
+    payload.position(pos + HEADER_LENGTH);
+    return decoder.decode(payload, reuse);
+  }
+
+  @Override
+  public D decode(byte[] encoded, D reuse) throws IOException {
+    if (encoded.length < HEADER_LENGTH) {
+      throw new BadHeaderException("Not enough header bytes");
+    }
+    checkHeader(encoded[0], encoded[1]);
+
+    long fp = 0;
+    for (int i = HEADER_LENGTH - 1; i >= 2; i--) {
+      fp = (fp << 8) | (encoded[i] & 0xFF);
+    }
+    RawMessageDecoder<D> decoder = getDecoder(fp);
+
+    return decoder.decode(encoded, HEADER_LENGTH,
+        encoded.length - HEADER_LENGTH, reuse);
+  }
+
+  private static void checkHeader(byte b0, byte b1) {
+    if (BinaryMessageEncoder.V1_HEADER[0] != b0 ||
+        BinaryMessageEncoder.V1_HEADER[1] != b1) {
+      throw new BadHeaderException(String.format(
+          "Unrecognized header bytes: 0x%02X 0x%02X", b0, b1));
+    }
+  }
+
   /**
    * Reads a buffer from a stream, making multiple read calls if necessary.
    *
@@ -88,6 +88,11 @@ public class BinaryMessageEncoder<D> implements MessageEncoder<D> {
     writeCodec.encode(datum, stream);
   }
 
+  @Override
+  public int encode(D datum, ByteBuffer buffer) throws IOException {
+    return writeCodec.encode(datum, buffer);
+  }
+
   /**
    * This is a RawDatumEncoder that adds the V1 header to the outgoing buffer.
    * BinaryDatumEncoder wraps this class to avoid confusion over what it does.
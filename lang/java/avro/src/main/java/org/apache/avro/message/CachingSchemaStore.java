@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.SchemaParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A bounded {@link SchemaStore} that loads unknown schemas asynchronously.
+ * <p>
+ * Schemas are cached by AVRO-CRC-64 fingerprint. Those not cached are
+ * requested from a {@link Loader}, such as a schema registry client, and
+ * concurrent requests for the same fingerprint share a single load.
+ * Fingerprints the loader does not know, or fails to load, are remembered
+ * for a retry interval, so that messages with an unknown schema do not each
+ * cause a load.  Loads that do not complete within a timeout are treated as
+ * failed.
+ * <p>
+ * The cache holds at most a maximum number of fingerprints, evicting those
+ * least recently used, and may also evict schemas that have not been used
+ * for some time.
+ * <p>
+ * This class is thread-safe.
+ */
+public class CachingSchemaStore implements SchemaStore {
+  private static final Logger LOG =
+      LoggerFactory.getLogger(CachingSchemaStore.class);
+
+  /** The default maximum number of cached fingerprints. */
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  /** The default interval before an unknown fingerprint is loaded again. */
+  public static final long DEFAULT_MISSING_RETRY_MILLIS = 60 * 1000;
+
+  /** The default time to wait for a schema to load. */
+  public static final long DEFAULT_LOAD_TIMEOUT_MILLIS = 30 * 1000;
+
+  /**
+   * Loads schemas by fingerprint for a {@link CachingSchemaStore}.
+   */
+  public interface Loader {
+    /**
+     * Starts loading the schema with an AVRO-CRC-64 fingerprint.
+     *
+     * @param fingerprint an AVRO-CRC-64 fingerprint long
+     * @return a future completed with the schema, or with null if no schema
+     *         has the fingerprint
+     */
+    CompletableFuture<Schema> load(long fingerprint);
+  }
+
+  private final Loader loader;
+  private final int maxSize;
+  private final long expireAfterAccessNanos;
+  private final long missingRetryNanos;
+  private final long loadTimeoutNanos;
+  private final LongSupplier ticker;
+
+  private final FingerprintIndex<Entry> entries = new FingerprintIndex<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder loads = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  /**
+   * Creates a store that caches up to {@link #DEFAULT_MAX_SIZE} fingerprints,
+   * retries unknown fingerprints after {@link #DEFAULT_MISSING_RETRY_MILLIS},
+   * and waits up to {@link #DEFAULT_LOAD_TIMEOUT_MILLIS} for a load.
+   *
+   * @param loader a {@link Loader} for schemas that are not cached
+   */
+  public CachingSchemaStore(Loader loader) {
+    this(loader, DEFAULT_MAX_SIZE, 0, DEFAULT_MISSING_RETRY_MILLIS,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Creates a store that waits up to {@link #DEFAULT_LOAD_TIMEOUT_MILLIS} for
+   * a load.
+   *
+   * @param loader a {@link Loader} for schemas that are not cached
+   * @param maxSize the maximum number of cached fingerprints
+   * @param expireAfterAccess the time after its last use that a schema is
+   *        evicted, or 0 to keep schemas until the cache is full
+   * @param missingRetry the time before an unknown fingerprint is loaded again
+   * @param unit the unit of {@code expireAfterAccess} and {@code missingRetry}
+   */
+  public CachingSchemaStore(Loader loader, int maxSize, long expireAfterAccess,
+                            long missingRetry, TimeUnit unit) {
+    this(loader, maxSize, unit.toNanos(expireAfterAccess),
+        unit.toNanos(missingRetry),
+        TimeUnit.MILLISECONDS.toNanos(DEFAULT_LOAD_TIMEOUT_MILLIS),
+        TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Creates a store.
+   *
+   * @param loader a {@link Loader} for schemas that are not cached
+   * @param maxSize the maximum number of cached fingerprints
+   * @param expireAfterAccess the time after its last use that a schema is
+   *        evicted, or 0 to keep schemas until the cache is full
+   * @param missingRetry the time before an unknown fingerprint is loaded again
+   * @param loadTimeout the time after which a load that has not completed is
+   *        treated as failed
+   * @param unit the unit of {@code expireAfterAccess}, {@code missingRetry}
+   *        and {@code loadTimeout}
+   */
+  public CachingSchemaStore(Loader loader, int maxSize, long expireAfterAccess,
+                            long missingRetry, long loadTimeout,
+                            TimeUnit unit) {
+    this(loader, maxSize, expireAfterAccess, missingRetry, loadTimeout, unit,
+        System::nanoTime);
+  }
+
+  CachingSchemaStore(Loader loader, int maxSize, long expireAfterAccess,
+                     long missingRetry, long loadTimeout, TimeUnit unit,
+                     LongSupplier ticker) {
+    if (loader == null)
+      throw new NullPointerException("Loader cannot be null");
+    if (maxSize < 1)
+      throw new IllegalArgumentException("Invalid cache size: " + maxSize);
+    if (loadTimeout <= 0)
+      throw new IllegalArgumentException("Invalid load timeout: "
+          + loadTimeout);
+    this.loader = loader;
+    this.maxSize = maxSize;
+    this.expireAfterAccessNanos = unit.toNanos(expireAfterAccess);
+    this.missingRetryNanos = unit.toNanos(missingRetry);
+    this.loadTimeoutNanos = unit.toNanos(loadTimeout);
+    this.ticker = ticker;
+  }
+
+  /**
+   * Adds a schema to this store that can be retrieved using its AVRO-CRC-64
+   * fingerprint. Added schemas may be evicted like loaded schemas.
+   *
+   * @param schema a {@link Schema}
+   */
+  public void addSchema(Schema schema) {
+    long fp = SchemaNormalization.parsingFingerprint64(schema);
+    long now = ticker.getAsLong();
+    Entry entry = new Entry(fp, now);
+    entry.complete(schema, now);
+    synchronized (this) {
+      entries.put(fp, entry);
+      evict(now);
+    }
+  }
+
+  /**
+   * Retrieves a schema by its AVRO-CRC-64 fingerprint, waiting up to the load
+   * timeout for it to load if it is not cached.
+   *
+   * @param fingerprint an AVRO-CRC-64 fingerprint long
+   * @return a Schema with the given fingerprint, or null if it is unknown or
+   *         did not load in time
+   */
+  @Override
+  public Schema findByFingerprint(long fingerprint) {
+    CompletableFuture<Schema> future = findByFingerprintAsync(fingerprint);
+    try {
+      return future.get(loadTimeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      LOG.warn("Timed out loading schema for fingerprint: " + fingerprint);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {              // entries are not failed
+      throw new AvroRuntimeException(e.getCause());
+    }
+  }
+
+  /**
+   * Retrieves a schema by its AVRO-CRC-64 fingerprint, loading it if it is not
+   * cached.
+   *
+   * @param fingerprint an AVRO-CRC-64 fingerprint long
+   * @return a future completed with the Schema with the given fingerprint, or
+   *         with null if it is unknown
+   */
+  public CompletableFuture<Schema> findByFingerprintAsync(long fingerprint) {
+    long now = ticker.getAsLong();
+    Entry entry = entries.get(fingerprint);
+    if (entry != null && !isExpired(entry, now)) {
+      hits.increment();
+      entry.accessed = now;
+      return entry.future;
+    }
+    return load(fingerprint, now);
+  }
+
+  /**
+   * Discards any cached schema for a fingerprint, or the memory that it is
+   * unknown.
+   *
+   * @param fingerprint an AVRO-CRC-64 fingerprint long
+   */
+  public void invalidate(long fingerprint) {
+    entries.remove(fingerprint);
+  }
+
+  /** The number of cached fingerprints, including those still loading and
+   * those that are unknown. */
+  public int size() { return entries.size(); }
+
+  /** The number of lookups satisfied by the cache. */
+  public long getHitCount() { return hits.sum(); }
+
+  /** The number of schemas requested from the loader. */
+  public long getLoadCount() { return loads.sum(); }
+
+  /** The number of fingerprints evicted to bound the size of the cache. */
+  public long getEvictionCount() { return evictions.sum(); }
+
+  private CompletableFuture<Schema> load(long fingerprint, long now) {
+    Entry entry;
+    synchronized (this) {
+      // another thread may have started loading it
+      entry = entries.get(fingerprint);
+      if (entry != null && !isExpired(entry, now)) {
+        hits.increment();
+        entry.accessed = now;
+        return entry.future;
+      }
+      entry = new Entry(fingerprint, now);
+      entries.put(fingerprint, entry);
+      loads.increment();
+      evict(now);
+    }
+
+    CompletableFuture<Schema> loading;
+    try {
+      loading = loader.load(fingerprint);
+      if (loading == null)
+        throw new NullPointerException("Loader returned no future");
+    } catch (RuntimeException e) {
+      loading = new CompletableFuture<>();
+      loading.completeExceptionally(e);
+    }
+    Entry loaded = entry;
+    loading.whenComplete((schema, error) -> {
+      Schema checked = null;
+      try {
+        checked = check(fingerprint, schema, error);
+      } finally {                                 // never leave it pending
+        loaded.complete(checked, ticker.getAsLong());
+      }
+    });
+    return entry.future;
+  }
+
+  /** Returns a loaded schema, or null if it failed to load or does not have
+   * the fingerprint. */
+  private static Schema check(long fingerprint, Schema schema,
+                              Throwable error) {
+    if (error != null) {
+      LOG.warn("Cannot load schema for fingerprint: " + fingerprint, error);
+      return null;
+    }
+    try {
+      if (schema != null &&
+          SchemaNormalization.parsingFingerprint64(schema) != fingerprint) {
+        LOG.warn("Loaded schema does not match fingerprint: " + fingerprint);
+        return null;
+      }
+    } catch (RuntimeException e) {
+      LOG.warn("Cannot load schema for fingerprint: " + fingerprint, e);
+      return null;
+    }
+    return schema;
+  }
+
+  /** Whether an entry should be loaded again.  A load that has not completed
+   * within the load timeout is completed as failed, so is retried like an
+   * unknown fingerprint. */
+  private boolean isExpired(Entry entry, long now) {
+    if (!entry.future.isDone()) {
+      if (now - entry.started < loadTimeoutNanos)
+        return false;
+      LOG.warn("Timed out loading schema for fingerprint: "
+          + entry.fingerprint);
+      entry.complete(null, now);
+    }
+    if (entry.future.getNow(null) == null)
+      return now - entry.completed >= missingRetryNanos;
+    return expireAfterAccessNanos > 0
+        && now - entry.accessed >= expireAfterAccessNanos;
+  }
+
+  /** Removes expired entries, then the least recently used, once the cache
+   * is over its maximum size. Called while synchronized. */
+  private void evict(long now) {
+    if (entries.size() <= maxSize)
+      return;
+    int removed = entries.removeIf((fp, entry) -> isExpired(entry, now));
+    int excess = entries.size() - (maxSize - maxSize / 10);
+    if (excess > 0) {
+      long[] accessed = new long[entries.size()];
+      int[] count = new int[1];
+      entries.forEach((fp, entry) -> {
+        if (entry.future.isDone())
+          accessed[count[0]++] = entry.accessed - now;
+      });
+      if (count[0] > 0) {
+        Arrays.sort(accessed, 0, count[0]);
+        long oldest = accessed[Math.min(excess, count[0]) - 1] + now;
+        removed += entries.removeIf((fp, entry) ->
+            entry.future.isDone() && entry.accessed - oldest <= 0);
+      }
+    }
+    evictions.add(removed);
+  }
+
+  private static final class Entry {
+    private final CompletableFuture<Schema> future = new CompletableFuture<>();
+    private final long fingerprint;
+    private final long started;
+    private volatile long accessed;
+    private volatile long completed;
+
+    Entry(long fingerprint, long now) {
+      this.fingerprint = fingerprint;
+      this.started = now;
+      this.accessed = now;
+    }
+
+    void complete(Schema schema, long now) {
+      if (future.isDone())                        // timed out
+        return;
+      completed = now;
+      future.complete(schema);
+    }
+  }
+
+  /**
+   * A {@link Loader} that finds schemas in the {@code .avsc} files of a
+   * directory.
+   * <p>
+   * The directory is searched again for each fingerprint that is not cached,
+   * so files can be added while it is in use. This stands in for a schema
+   * registry in tests and small deployments.
+   */
+  public static class DirectoryLoader implements Loader {
+    private final File directory;
+    private final Executor executor;
+
+    /**
+     * Creates a loader for a directory.
+     *
+     * @param directory a directory of {@code .avsc} schema files
+     * @param executor an {@link Executor} that reads the files
+     */
+    public DirectoryLoader(File directory, Executor executor) {
+      this.directory = directory;
+      this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<Schema> load(long fingerprint) {
+      return CompletableFuture.supplyAsync(() -> find(fingerprint), executor);
+    }
+
+    private Schema find(long fingerprint) {
+      File[] files = directory.listFiles((dir, name) -> name.endsWith(".avsc"));
+      if (files == null)
+        return null;
+      for (File file : files) {
+        try {
+          Schema schema = new Schema.Parser().parse(file);
+          if (SchemaNormalization.parsingFingerprint64(schema) == fingerprint)
+            return schema;
+        } catch (IOException | SchemaParseException e) {
+          LOG.warn("Skipping unreadable schema file: " + file, e);
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+/**
+ * A map from 64-bit schema fingerprints to values, without boxing keys.
+ * <p>
+ * Entries are kept in an open-addressing table of primitive longs. Lookups
+ * never lock or allocate: each change builds and publishes a new table, which
+ * suits maps that are read on every message and changed only when a new
+ * schema is seen.
+ * <p>
+ * This class is thread-safe.
+ */
+final class FingerprintIndex<V> {
+
+  /** Receives the entries of an index. */
+  interface Visitor<V> {
+    void visit(long fingerprint, V value);
+  }
+
+  /** Selects entries of an index. */
+  interface Filter<V> {
+    boolean test(long fingerprint, V value);
+  }
+
+  private static final Table EMPTY = new Table(8);
+
+  private volatile Table table = EMPTY;
+
+  /** Returns the value for <i>fingerprint</i>, or null. */
+  @SuppressWarnings("unchecked")
+  V get(long fingerprint) {
+    Table t = table;
+    int mask = t.keys.length - 1;
+    for (int i = slot(fingerprint, mask); ; i = (i + 1) & mask) {
+      Object value = t.values[i];
+      if (value == null)
+        return null;
+      if (t.keys[i] == fingerprint)
+        return (V) value;
+    }
+  }
+
+  /** Sets the value for <i>fingerprint</i>, and returns its previous value,
+   * or null. */
+  synchronized V put(long fingerprint, V value) {
+    if (value == null)
+      throw new NullPointerException("Null value for " + fingerprint);
+    V previous = get(fingerprint);
+    Table t = table;
+    int capacity = t.keys.length;
+    int size = previous == null ? t.size + 1 : t.size;
+    if (size * 2 > capacity)
+      capacity *= 2;
+    Table copy = new Table(capacity);
+    copy.insertAll(t, null);
+    copy.insert(fingerprint, value);
+    table = copy;
+    return previous;
+  }
+
+  /** Sets the value for <i>fingerprint</i> if it has none, and returns the
+   * value it had, or null. */
+  synchronized V putIfAbsent(long fingerprint, V value) {
+    V existing = get(fingerprint);
+    if (existing == null)
+      put(fingerprint, value);
+    return existing;
+  }
+
+  /** Removes the value for <i>fingerprint</i>, and returns it, or null. */
+  synchronized V remove(long fingerprint) {
+    V previous = get(fingerprint);
+    if (previous != null)
+      removeIf((fp, value) -> fp == fingerprint);
+    return previous;
+  }
+
+  /** Removes all entries accepted by <i>filter</i>, and returns the number
+   * removed. */
+  @SuppressWarnings("unchecked")
+  synchronized int removeIf(Filter<? super V> filter) {
+    Table t = table;
+    Filter<Object> f = (Filter<Object>) filter;
+    int capacity = t.keys.length;
+    Table copy = new Table(capacity);
+    copy.insertAll(t, f);
+    while (capacity > 8 && copy.size * 4 < capacity) {
+      capacity /= 2;
+    }
+    if (capacity != copy.keys.length) {
+      Table smaller = new Table(capacity);
+      smaller.insertAll(copy, null);
+      copy = smaller;
+    }
+    int removed = t.size - copy.size;
+    if (removed > 0)
+      table = copy;
+    return removed;
+  }
+
+  /** Removes all entries. */
+  synchronized void clear() {
+    table = EMPTY;
+  }
+
+  /** Calls <i>visitor</i> with each entry. */
+  @SuppressWarnings("unchecked")
+  void forEach(Visitor<? super V> visitor) {
+    Table t = table;
+    for (int i = 0; i < t.keys.length; i++) {
+      if (t.values[i] != null)
+        ((Visitor<Object>) visitor).visit(t.keys[i], t.values[i]);
+    }
+  }
+
+  /** The number of entries. */
+  int size() {
+    return table.size;
+  }
+
+  private static int slot(long fingerprint, int mask) {
+    long h = fingerprint * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32)) & mask;
+  }
+
+  /** An open-addressing table. Tables are not changed once published. */
+  private static final class Table {
+    private final long[] keys;
+    private final Object[] values;   // null marks an empty slot
+    private int size;
+
+    Table(int capacity) {
+      this.keys = new long[capacity];
+      this.values = new Object[capacity];
+    }
+
+    void insertAll(Table from, Filter<Object> exclude) {
+      for (int i = 0; i < from.keys.length; i++) {
+        Object value = from.values[i];
+        if (value != null
+            && (exclude == null || !exclude.test(from.keys[i], value))) {
+          insert(from.keys[i], value);
+        }
+      }
+    }
+
+    void insert(long fingerprint, Object value) {
+      int mask = keys.length - 1;
+      int i = slot(fingerprint, mask);
+      while (values[i] != null && keys[i] != fingerprint) {
+        i = (i + 1) & mask;
+      }
+      if (values[i] == null)
+        size++;
+      keys[i] = fingerprint;
+      values[i] = value;
+    }
+  }
+}
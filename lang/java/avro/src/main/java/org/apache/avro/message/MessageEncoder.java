@@ -47,4 +47,26 @@ public interface MessageEncoder<D> {
    */
   void encode(D datum, OutputStream stream) throws IOException;
 
+  /**
+   * Serialize a single datum into a ByteBuffer, starting at its position.
+   * <p>
+   * On return, the buffer's position is just after the serialized datum. To
+   * encode into a reusable byte array, wrap it once with
+   * {@link ByteBuffer#wrap(byte[])} and {@link ByteBuffer#clear() clear} the
+   * buffer before each call.
+   *
+   * @param datum a datum
+   * @param buffer a ByteBuffer to serialize the datum to
+   * @return the number of bytes written
+   * @throws java.nio.BufferOverflowException if the serialized datum does not
+   *         fit in the buffer's remaining bytes; the position is then unchanged
+   * @throws IOException
+   */
+  default int encode(D datum, ByteBuffer buffer) throws IOException {
+    ByteBuffer encoded = encode(datum);
+    int length = encoded.remaining();
+    buffer.put(encoded);
+    return length;
+  }
+
 }
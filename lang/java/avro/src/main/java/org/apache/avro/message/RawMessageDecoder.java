@@ -27,6 +27,7 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A {@link MessageDecoder} that deserializes from raw datum bytes.
@@ -46,6 +47,11 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
   private static final ThreadLocal<BinaryDecoder> DECODER =
       new ThreadLocal<>();
 
+  private static final ThreadLocal<BinaryDecoder> BUFFER_DECODER =
+      new ThreadLocal<>();
+
+  private static final byte[] EMPTY = new byte[0];
+
   private final Schema writeSchema;
   private final Schema readSchema;
   private final DatumReader<D> reader;
@@ -92,6 +98,39 @@ public class RawMessageDecoder<D> extends MessageDecoder.BaseDecoder<D> {
     BinaryDecoder decoder = DecoderFactory.get()
         .directBinaryDecoder(stream, DECODER.get());
     DECODER.set(decoder);
+    return read(decoder, reuse);
+  }
+
+  /**
+   * Deserialize a single datum from the remaining bytes of a buffer, reading
+   * heap and direct buffers in place. The buffer's position is not modified.
+   */
+  @Override
+  public D decode(ByteBuffer encoded, D reuse) {
+    return readBuffer(DecoderFactory.get()
+        .binaryDecoder(encoded, BUFFER_DECODER.get()), reuse);
+  }
+
+  @Override
+  public D decode(byte[] encoded, D reuse) {
+    return decode(encoded, 0, encoded.length, reuse);
+  }
+
+  D decode(byte[] encoded, int offset, int length, D reuse) {
+    return readBuffer(DecoderFactory.get()
+        .binaryDecoder(encoded, offset, length, BUFFER_DECODER.get()), reuse);
+  }
+
+  private D readBuffer(BinaryDecoder decoder, D reuse) {
+    try {
+      return read(decoder, reuse);
+    } finally {
+      // don't keep the caller's buffer reachable from this thread
+      BUFFER_DECODER.set(DecoderFactory.get().binaryDecoder(EMPTY, decoder));
+    }
+  }
+
+  private D read(BinaryDecoder decoder, D reuse) {
     try {
       return reader.read(reuse, decoder);
     } catch (IOException e) {
@@ -27,12 +27,17 @@ import org.apache.avro.io.EncoderFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
 /**
  * A {@link MessageEncoder} that encodes only a datum's bytes, without additional
  * information (such as a schema fingerprint).
  * <p>
+ * Encoders and buffers are reused by each thread, so encoding into a
+ * caller-provided buffer with {@link #encode(Object, ByteBuffer)} does not
+ * allocate.
+ * <p>
  * This class is thread-safe.
  */
 public class RawMessageEncoder<D> implements MessageEncoder<D> {
@@ -45,6 +50,14 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
         }
       };
 
+  private static final ThreadLocal<BufferTargetStream> TARGET =
+      new ThreadLocal<BufferTargetStream>() {
+        @Override
+        protected BufferTargetStream initialValue() {
+          return new BufferTargetStream();
+        }
+      };
+
   private static final ThreadLocal<BinaryEncoder> ENCODER =
       new ThreadLocal<>();
 
@@ -108,10 +121,44 @@ public class RawMessageEncoder<D> implements MessageEncoder<D> {
   @Override
   public void encode(D datum, OutputStream stream) throws IOException {
     BinaryEncoder encoder = EncoderFactory.get()
-        .directBinaryEncoder(stream, ENCODER.get());
-    ENCODER.set(encoder);
+        .binaryEncoder(stream, ENCODER.get());
+    // a failed write may leave bytes buffered in the encoder, which must not
+    // be flushed into the next stream, so it is only reused after success
+    ENCODER.set(null);
     writer.write(datum, encoder);
     encoder.flush();
+    ENCODER.set(encoder);
+  }
+
+  @Override
+  public int encode(D datum, ByteBuffer buffer) throws IOException {
+    int start = buffer.position();
+    BufferTargetStream target = TARGET.get();
+    target.buffer = buffer;
+    try {
+      encode(datum, target);
+    } catch (BufferOverflowException e) {
+      buffer.position(start);
+      throw e;
+    } finally {
+      target.buffer = null;
+    }
+    return buffer.position() - start;
+  }
+
+  /** An OutputStream that writes into the ByteBuffer it currently targets. */
+  private static class BufferTargetStream extends OutputStream {
+    private ByteBuffer buffer;
+
+    @Override
+    public void write(int b) {
+      buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buffer.put(b, off, len);
+    }
   }
 
   private static class BufferOutputStream extends ByteArrayOutputStream {
@@ -21,8 +21,6 @@ package org.apache.avro.message;
 
 import org.apache.avro.Schema;
 import org.apache.avro.SchemaNormalization;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Interface for classes that can provide avro schemas by fingerprint.
@@ -39,10 +37,13 @@ public interface SchemaStore {
   /**
    * A map-based cache of schemas by AVRO-CRC-64 fingerprint.
    * <p>
+   * Schemas are held until the cache is discarded. To bound the number held,
+   * or to load unknown schemas on demand, use {@link CachingSchemaStore}.
+   * <p>
    * This class is thread-safe.
    */
   class Cache implements SchemaStore {
-    private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+    private final FingerprintIndex<Schema> schemas = new FingerprintIndex<>();
 
     /**
      * Adds a schema to this cache that can be retrieved using its AVRO-CRC-64
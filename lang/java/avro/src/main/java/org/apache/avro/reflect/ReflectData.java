@@ -359,6 +359,13 @@ public class ReflectData extends SpecificData {
     ARRAY_CLASSES.put(boolean.class, boolean[].class);
   }
 
+  /** False for maps, which are written as arrays when their keys are not
+   * strings. */
+  @Override
+  protected boolean isUnionResolvedByClass(Object datum) {
+    return !(datum instanceof Map) && super.isUnionResolvedByClass(datum);
+  }
+
   /**
    * It returns false for non-string-maps because Avro writes out such maps
    * as an array of records. Even their JSON representation is an array.
@@ -32,8 +32,10 @@ import org.apache.avro.Schema.Field;
 import org.apache.avro.generic.IndexedRecord;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.ResolvingDecoder;
+import org.apache.avro.io.StringDictionary;
 import org.apache.avro.specific.SpecificData;
 import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.util.Utf8;
 
 /**
  * {@link org.apache.avro.io.DatumReader DatumReader} for existing classes via
@@ -232,6 +234,16 @@ public class ReflectDatumReader<T> extends SpecificDatumReader<T> {
   @Override
   protected Object createString(String value) { return value; }
 
+  @Override
+  protected StringDictionary newStringDictionary(Schema schema) {
+    if (findStringClass(schema) == CharSequence.class) {
+      // share Strings, as read above
+      int size = getStringDictionarySize(schema);
+      return size > 0 ? new StringDictionary(size, Utf8::toString) : null;
+    }
+    return super.newStringDictionary(schema);
+  }
+
   @Override
   protected Object readBytes(Object old, Schema s, Decoder in)
     throws IOException {
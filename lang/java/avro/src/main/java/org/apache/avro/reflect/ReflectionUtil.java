@@ -26,6 +26,9 @@ import org.apache.avro.AvroRuntimeException;
  * Use of Unsafe on Android is forbidden, as Android provides only a very
  * limited functionality for this class compared to the JDK version.
  *
+ * Where Unsafe is unavailable, or is disabled by setting the
+ * "avro.disable.unsafe" system property, fields are accessed with method
+ * handles, or failing that with reflection.
  */
 
 class ReflectionUtil {
@@ -51,6 +54,17 @@ class ReflectionUtil {
       }
     } catch (Throwable ignored) {
     }
+    if (access == null) {
+      // method handles don't need Unsafe, and are much faster than reflection
+      try {
+        FieldAccess handleAccess = load(
+            "org.apache.avro.reflect.FieldAccessHandle", FieldAccess.class);
+        if (validate(handleAccess)) {
+          access = handleAccess;
+        }
+      } catch (Throwable ignored) {
+      }
+    }
     if (access == null) {
       try {
         FieldAccess reflectAccess = load(
@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.specific;
+
+import java.io.IOException;
+
+import org.apache.avro.Conversion;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.FastReaderBuilder;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+
+/** A {@link SpecificDatumReader} that decodes binary data with readers
+ * compiled for its schema pair by {@link FastReaderBuilder}.  Data from other
+ * decoders, schema pairs that cannot be compiled, and models that use custom
+ * coders are read by the superclass.
+ */
+public class FastSpecificDatumReader<T> extends SpecificDatumReader<T> {
+  private final FastReaderBuilder builder = new SpecificReaderBuilder(this);
+
+  public FastSpecificDatumReader() {
+    this(null, null, SpecificData.get());
+  }
+
+  /** Construct for reading instances of a class. */
+  public FastSpecificDatumReader(Class<T> c) {
+    this(SpecificData.getForClass(c));
+    setSchema(getSpecificData().getSchema(c));
+  }
+
+  /** Construct where the writer's and reader's schemas are the same. */
+  public FastSpecificDatumReader(Schema schema) {
+    this(schema, schema, SpecificData.getForSchema(schema));
+  }
+
+  /** Construct given writer's and reader's schema. */
+  public FastSpecificDatumReader(Schema writer, Schema reader) {
+    this(writer, reader, SpecificData.getForSchema(reader));
+  }
+
+  /** Construct given writer's schema, reader's schema, and a {@link
+   * SpecificData}. */
+  public FastSpecificDatumReader(Schema writer, Schema reader,
+                                 SpecificData data) {
+    super(writer, reader, data);
+  }
+
+  /** Construct given a {@link SpecificData}. */
+  public FastSpecificDatumReader(SpecificData data) {
+    super(data);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T read(T reuse, Decoder in) throws IOException {
+    if (in instanceof BinaryDecoder && !getSpecificData().useCustomCoders()) {
+      FastReaderBuilder.CompiledReader reader =
+        builder.getCompiledReader(getSchema(), getExpected());
+      if (reader != null)
+        return (T)reader.read(this, reuse, in);
+    }
+    return super.read(reuse, in);
+  }
+
+  /** Applies the conversions of generated classes to their fields. */
+  private static class SpecificReaderBuilder extends FastReaderBuilder {
+    SpecificReaderBuilder(SpecificDatumReader<?> reader) { super(reader); }
+
+    @Override
+    protected Conversion<?> getFieldConversion(Schema record,
+                                               Schema.Field field) {
+      Object r = getData().newRecord(null, record);
+      if (r instanceof SpecificRecordBase)
+        return ((SpecificRecordBase)r).getConversion(field.pos());
+      return super.getFieldConversion(record, field);
+    }
+  }
+}
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.LinkedHashMap;
 import java.nio.ByteBuffer;
 import java.lang.reflect.Constructor;
@@ -55,20 +56,18 @@ public class SpecificData extends GenericData {
 
   private static final Class<?>[] NO_ARG = new Class[]{};
   private static final Class<?>[] SCHEMA_ARG = new Class[]{Schema.class};
-  private static final ClassValue<Constructor> CTOR_CACHE = new ClassValue<Constructor>() {
-    @Override
-    protected Constructor computeValue(Class<?> c) {
-      boolean useSchema = SchemaConstructable.class.isAssignableFrom(c);
-      try {
-        Constructor meth = c.getDeclaredConstructor(useSchema ? SCHEMA_ARG : NO_ARG);
-        meth.setAccessible(true);
-        return meth;
-      } catch (Exception e) {
-        throw new RuntimeException(e);
+  private static final ClassValue<InstanceFactory> FACTORY_CACHE =
+    new ClassValue<InstanceFactory>() {
+      @Override
+      protected InstanceFactory computeValue(Class<?> c) {
+        return new InstanceFactory();
       }
-    }
+    };
 
-  };
+  /** Holds the factory that creates instances of a class. */
+  private static final class InstanceFactory {
+    private volatile Function<Schema, ?> factory;
+  }
 
   public static final String CLASS_PROP = "java-class";
   public static final String KEY_CLASS_PROP = "java-key-class";
@@ -204,6 +203,16 @@ public class SpecificData extends GenericData {
     return datum instanceof Enum || super.isEnum(datum);
   }
 
+  /** Also true for generated records, enums and fixeds, whose schema is that
+   * of their class. */
+  @Override
+  protected boolean isUnionResolvedByClass(Object datum) {
+    if (datum instanceof SchemaConstructable)
+      return false;
+    return datum instanceof SpecificRecordBase || datum instanceof Enum
+      || datum instanceof SpecificFixed || super.isUnionResolvedByClass(datum);
+  }
+
   @Override
   public Object createEnum(String symbol, Schema schema) {
     Class c = getClass(schema);
@@ -434,20 +443,52 @@ public class SpecificData extends GenericData {
     }
   }
 
-  /** Create an instance of a class.  If the class implements {@link
-   * SchemaConstructable}, call a constructor with a {@link
-   * org.apache.avro.Schema} parameter, otherwise use a no-arg constructor. */
-  @SuppressWarnings("unchecked")
+  /** Create an instance of a class.  If a factory has been set for the class
+   * with {@link #setFactory(Class, Function)}, as generated classes do, call
+   * it.  Otherwise, if the class implements {@link SchemaConstructable}, call a
+   * constructor with a {@link org.apache.avro.Schema} parameter, or else use a
+   * no-arg constructor. */
   public static Object newInstance(Class c, Schema s) {
+    InstanceFactory holder = FACTORY_CACHE.get(c);
+    Function<Schema, ?> factory = holder.factory;
+    if (factory == null) {
+      factory = constructorFactory(c);
+      synchronized (holder) {
+        // don't replace a factory set while the class was initialized
+        if (holder.factory == null)
+          holder.factory = factory;
+      }
+    }
+    return factory.apply(s);
+  }
+
+  /** Set the factory that {@link #newInstance(Class, Schema)} calls to create
+   * instances of a class, rather than calling its constructor reflectively.
+   * Generated classes call this when they are initialized. */
+  public static <T> void setFactory(Class<T> c,
+                                    Function<Schema, ? extends T> factory) {
+    InstanceFactory holder = FACTORY_CACHE.get(c);
+    synchronized (holder) {
+      holder.factory = factory;
+    }
+  }
+
+  private static Function<Schema, ?> constructorFactory(Class<?> c) {
     boolean useSchema = SchemaConstructable.class.isAssignableFrom(c);
-    Object result;
+    Constructor<?> meth;
     try {
-      Constructor meth = (Constructor)CTOR_CACHE.get(c);
-      result = meth.newInstance(useSchema ? new Object[]{s} : (Object[])null);
+      meth = c.getDeclaredConstructor(useSchema ? SCHEMA_ARG : NO_ARG);
+      meth.setAccessible(true);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
-    return result;
+    return s -> {
+      try {
+        return meth.newInstance(useSchema ? new Object[]{s} : (Object[])null);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    };
   }
 
   @Override
@@ -18,6 +18,7 @@
 package org.apache.avro.util;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import org.apache.avro.AvroRuntimeException;
 import org.apache.avro.io.BinaryData;
@@ -25,7 +26,13 @@ import org.slf4j.LoggerFactory;
 
 /** A Utf8 string.  Unlike {@link String}, instances are mutable.  This is more
  * efficient than {@link String} when reading or writing a sequence of values,
- * as a single instance may be reused. */
+ * as a single instance may be reused.
+ * <p/>
+ * The hash code is cached, and strings of ASCII characters serve {@link
+ * #charAt(int)}, {@link #length()} and {@link #subSequence(int, int)} from
+ * their bytes, without decoding a {@link String}.  Like the cached String,
+ * these are cleared by {@link #setByteLength(int)} and {@link #set(String)},
+ * which should be called whenever the bytes change. */
 public class Utf8 implements Comparable<Utf8>, CharSequence {
   private static final String MAX_LENGTH_PROPERTY = "org.apache.avro.limits.string.maxLength";
   private static final int MAX_LENGTH;
@@ -45,16 +52,21 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     MAX_LENGTH = i;
   }
 
+  // whether bytes are all ASCII, so that each is a char
+  private static final byte ASCII_UNKNOWN = 0;
+  private static final byte ASCII = 1;
+  private static final byte NOT_ASCII = 2;
+
   private byte[] bytes = EMPTY;
   private int length;
   private String string;
+  private int hash;                               // 0 if not yet computed
+  private byte ascii = ASCII;
 
   public Utf8() {}
 
   public Utf8(String string) {
-    this.bytes = getBytesFor(string);
-    this.length = bytes.length;
-    this.string = string;
+    set(string);
   }
 
   public Utf8(Utf8 other) {
@@ -62,11 +74,14 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     this.bytes = new byte[other.length];
     System.arraycopy(other.bytes, 0, this.bytes, 0, this.length);
     this.string = other.string;
+    this.hash = other.hash;
+    this.ascii = other.ascii;
   }
 
   public Utf8(byte[] bytes) {
     this.bytes = bytes;
     this.length = bytes.length;
+    this.ascii = ASCII_UNKNOWN;
   }
 
   /** Return UTF-8 encoded bytes.
@@ -100,6 +115,8 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     }
     this.length = newLength;
     this.string = null;
+    this.hash = 0;
+    this.ascii = ASCII_UNKNOWN;
     return this;
   }
 
@@ -108,6 +125,9 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     this.bytes = getBytesFor(string);
     this.length = bytes.length;
     this.string = string;
+    this.hash = 0;
+    // only ASCII characters encode as a single byte
+    this.ascii = string.length() == bytes.length ? ASCII : NOT_ASCII;
     return this;
   }
 
@@ -115,7 +135,9 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
   public String toString() {
     if (this.length == 0) return "";
     if (this.string == null) {
-      this.string = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      this.string = isAscii()
+        ? new String(bytes, 0, length, StandardCharsets.ISO_8859_1)
+        : new String(bytes, 0, length, StandardCharsets.UTF_8);
     }
     return this.string;
   }
@@ -126,7 +148,11 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
     if (!(o instanceof Utf8)) return false;
     Utf8 that = (Utf8)o;
     if (!(this.length == that.length)) return false;
+    if (this.hash != 0 && that.hash != 0 && this.hash != that.hash)
+      return false;
     byte[] thatBytes = that.bytes;
+    if (bytes.length == length && thatBytes.length == length)
+      return Arrays.equals(bytes, thatBytes);     // an intrinsic on most JVMs
     for (int i = 0; i < this.length; i++)
       if (bytes[i] != thatBytes[i])
         return false;
@@ -135,10 +161,13 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
 
   @Override
   public int hashCode() {
-    int hash = 0;
-    for (int i = 0; i < this.length; i++)
-      hash = hash*31 + bytes[i];
-    return hash;
+    int h = hash;
+    if (h == 0) {
+      for (int i = 0; i < this.length; i++)
+        h = h*31 + bytes[i];
+      hash = h;
+    }
+    return h;
   }
 
   @Override
@@ -147,11 +176,40 @@ public class Utf8 implements Comparable<Utf8>, CharSequence {
                                    that.bytes, 0, that.length);
   }
 
+  /** Whether each byte is an ASCII character, computed once per content. */
+  private boolean isAscii() {
+    if (ascii == ASCII_UNKNOWN) {
+      ascii = ASCII;
+      for (int i = 0; i < length; i++) {
+        if (bytes[i] < 0) {
+          ascii = NOT_ASCII;
+          break;
+        }
+      }
+    }
+    return ascii == ASCII;
+  }
+
   // CharSequence implementation
-  @Override public char charAt(int index) { return toString().charAt(index); }
-  @Override public int length() { return toString().length(); }
+  @Override public char charAt(int index) {
+    if (!isAscii())
+      return toString().charAt(index);
+    if (index < 0 || index >= length)
+      throw new StringIndexOutOfBoundsException(index);
+    return (char) bytes[index];
+  }
+
+  @Override public int length() {
+    return isAscii() ? length : toString().length();
+  }
+
   @Override public CharSequence subSequence(int start, int end) {
-    return toString().subSequence(start, end);
+    if (!isAscii() || string != null)
+      return toString().subSequence(start, end);
+    if (start < 0 || end > length || start > end)
+      throw new StringIndexOutOfBoundsException(
+          "start " + start + ", end " + end + ", length " + length);
+    return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
   }
 
   /** Gets the UTF-8 bytes for a String */
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Function;
+
+/** Builds schemas whose JSON has the same 64-bit fingerprint as another's,
+ * for tests of caches keyed by fingerprint.
+ * <p/>
+ * The fingerprint is a CRC, so for inputs of one length it is affine: the
+ * change made by flipping a set of bits is the XOR of the changes made by
+ * flipping each.  A doc string is chosen by solving for the characters to
+ * change. */
+public class FingerprintCollisions {
+  private FingerprintCollisions() {}
+
+  public static long fingerprint(Schema schema) {
+    return SchemaNormalization.fingerprint64(
+        schema.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Returns a schema built by <i>withDoc</i>, whose JSON has the same
+   * fingerprint as that of <i>target</i>.  The target's JSON must be at least
+   * 100 characters longer than that built with an empty doc. */
+  public static Schema collide(Schema target, Function<String,Schema> withDoc) {
+    int length = target.toString().length()
+      - withDoc.apply("").toString().length();
+    if (length < 100)
+      throw new IllegalArgumentException("Target is too short: " + target);
+    char[] doc = new char[length];
+    Arrays.fill(doc, 'a');
+    long base = fingerprint(withDoc.apply(new String(doc)));
+
+    // reduce the change made by each flip to a basis, by highest bit
+    long[] basis = new long[64];
+    BitSet[] flips = new BitSet[64];
+    for (int i = 0; i < length; i++) {
+      doc[i] = 'c';
+      long change = fingerprint(withDoc.apply(new String(doc))) ^ base;
+      doc[i] = 'a';
+      BitSet flipped = new BitSet();
+      flipped.set(i);
+      for (int bit = 63; bit >= 0 && change != 0; bit--) {
+        if ((change >>> bit & 1) == 0)
+          continue;
+        if (basis[bit] == 0) {
+          basis[bit] = change;
+          flips[bit] = flipped;
+          break;
+        }
+        change ^= basis[bit];
+        flipped.xor(flips[bit]);
+      }
+    }
+
+    long wanted = fingerprint(target) ^ base;
+    BitSet flipped = new BitSet();
+    for (int bit = 63; bit >= 0; bit--) {
+      if ((wanted >>> bit & 1) == 0)
+        continue;
+      if (basis[bit] == 0)
+        throw new IllegalStateException("No collision found");
+      wanted ^= basis[bit];
+      flipped.xor(flips[bit]);
+    }
+    for (int i = flipped.nextSetBit(0); i >= 0; i = flipped.nextSetBit(i + 1))
+      doc[i] = 'c';
+    return withDoc.apply(new String(doc));
+  }
+
+  /** Returns a doc string of <i>length</i> characters. */
+  public static String doc(int length) {
+    char[] doc = new char[length];
+    Arrays.fill(doc, 'b');
+    return new String(doc);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestDataFileAsyncCompression {
+  private static final int COUNT = 3000;
+  private static final long SEED = 17;
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+      +"{\"name\":\"stringField\", \"type\":\"string\"},"
+      +"{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final CodecFactory codec;
+
+  public TestDataFileAsyncCompression(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(9) });
+    r.add(new Object[] { CodecFactory.zstandardCodec() });
+    r.add(new Object[] { CodecFactory.xzCodec(6) });
+    r.add(new Object[] { CodecFactory.bzip2Codec() });
+    return r;
+  }
+
+  @Test
+  public void testWriteAndSeek() throws IOException {
+    File file = new File(DIR.getRoot(), "async-" + codec + ".avro");
+    List<Object> data = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED))
+      data.add(datum);
+
+    long syncPoint;
+    int syncIndex = COUNT / 2;
+    try (DataFileWriter<Object> writer =
+           new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(512).setCompressionThreads(3);
+      writer.create(SCHEMA, file);
+      for (int i = 0; i < syncIndex; i++)
+        writer.append(data.get(i));
+      syncPoint = writer.sync();
+      for (int i = syncIndex; i < COUNT; i++)
+        writer.append(data.get(i));
+    }
+
+    try (DataFileReader<Object> reader =
+           new DataFileReader<>(file, new GenericDatumReader<>())) {
+      int i = 0;
+      for (Object datum : reader)
+        assertEquals(data.get(i++), datum);
+      assertEquals(COUNT, i);
+
+      reader.seek(syncPoint);
+      assertEquals(data.get(syncIndex), reader.next());
+    }
+  }
+
+  @Test
+  public void testCallerExecutor() throws IOException {
+    File file = new File(DIR.getRoot(), "executor-" + codec + ".avro");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      try (DataFileWriter<Object> writer =
+             new DataFileWriter<>(new GenericDatumWriter<>())) {
+        writer.setCodec(codec).setSyncInterval(256)
+          .setCompressionExecutor(executor, 1);
+        writer.create(SCHEMA, file);
+        for (Object datum : new RandomData(SCHEMA, COUNT, SEED))
+          writer.append(datum);
+      }
+      assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+
+    try (DataFileReader<Object> reader =
+           new DataFileReader<>(file, new GenericDatumReader<>())) {
+      int i = 0;
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        assertEquals(datum, reader.next());
+        i++;
+      }
+      assertEquals(COUNT, i);
+      assertFalse(reader.hasNext());
+    }
+  }
+}
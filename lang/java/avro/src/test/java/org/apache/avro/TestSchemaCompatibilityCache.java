@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro;
+
+import static org.apache.avro.SchemaCompatibility.checkReaderWriterCompatibility;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.SchemaCompatibility.SchemaCompatibilityType;
+import org.apache.avro.SchemaCompatibility.SchemaPairCompatibility;
+import org.apache.avro.TestSchemas.ReaderWriter;
+import org.junit.Test;
+
+public class TestSchemaCompatibilityCache {
+
+  private static Schema build(int i, boolean withDefault) {
+    SchemaBuilder.FieldAssembler<Schema> fields = SchemaBuilder.record("R")
+      .fields()
+      .name("inner").type().record("Inner").fields()
+        .requiredLong("id")
+        .optionalString("label")
+        .endRecord().noDefault();
+    if (withDefault)
+      fields = fields.name("f" + i).type().intType().intDefault(i);
+    else
+      fields = fields.name("f" + i).type().intType().noDefault();
+    return fields.endRecord();
+  }
+
+  @Test
+  public void testMatchesUncachedResults() {
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache();
+    for (int pass = 0; pass < 2; pass++) {
+      for (ReaderWriter rw
+             : TestSchemaCompatibility.COMPATIBLE_READER_WRITER_TEST_CASES) {
+        assertEquals(checkReaderWriterCompatibility(rw.getReader(),
+                                                    rw.getWriter()),
+                     cache.check(rw.getReader(), rw.getWriter()));
+        // the reverse is often incompatible
+        assertEquals(checkReaderWriterCompatibility(rw.getWriter(),
+                                                    rw.getReader()),
+                     cache.check(rw.getWriter(), rw.getReader()));
+      }
+    }
+    // every check in the second pass is cached
+    int cases = TestSchemaCompatibility.COMPATIBLE_READER_WRITER_TEST_CASES.size();
+    assertTrue(cache.getHitCount() >= 2 * cases);
+  }
+
+  @Test
+  public void testNestedRecordsChecked() {
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache();
+    List<Schema> versions = new ArrayList<>();
+    for (int i = 0; i < 20; i++)
+      versions.add(build(i, true));
+    Schema latest = build(20, true);
+
+    List<SchemaPairCompatibility> results = cache.checkReader(latest, versions);
+    assertEquals(versions.size(), results.size());
+    for (int i = 0; i < versions.size(); i++) {
+      assertEquals(versions.get(i), results.get(i).getWriter());
+      assertEquals(checkReaderWriterCompatibility(latest, versions.get(i)),
+                   results.get(i));
+    }
+    // one result for each version, and one for the record they share
+    assertEquals(versions.size() + 1, cache.size());
+    assertEquals(versions.size(), cache.getMissCount());
+
+    // a reader without a default can't read the older versions
+    Schema strict = build(20, false);
+    results = cache.checkWriter(strict, versions);
+    for (int i = 0; i < versions.size(); i++) {
+      assertEquals(versions.get(i), results.get(i).getReader());
+      assertEquals(checkReaderWriterCompatibility(versions.get(i), strict),
+                   results.get(i));
+    }
+    results = cache.checkReader(strict, versions);
+    for (SchemaPairCompatibility result : results)
+      assertEquals(SchemaCompatibilityType.INCOMPATIBLE, result.getType());
+  }
+
+  @Test
+  public void testRecursiveRecordsNotAssumed() {
+    // B is only compatible while A is assumed to be, and A isn't
+    Schema reader = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"A\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":{\"type\":\"record\",\"name\":\"B\","
+        + "\"fields\":[{\"name\":\"a\",\"type\":\"A\"}]}},"
+        + "{\"name\":\"x\",\"type\":\"int\"}]}");
+    Schema writer = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"A\",\"fields\":["
+        + "{\"name\":\"b\",\"type\":{\"type\":\"record\",\"name\":\"B\","
+        + "\"fields\":[{\"name\":\"a\",\"type\":\"A\"}]}}]}");
+    Schema readerB = reader.getField("b").schema();
+    Schema writerB = writer.getField("b").schema();
+
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache();
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+                 cache.check(reader, writer).getType());
+    assertEquals(checkReaderWriterCompatibility(readerB, writerB),
+                 cache.check(readerB, writerB));
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+                 cache.check(readerB, writerB).getType());
+
+    // but compatible recursive records are
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+                 cache.check(writer, writer).getType());
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+                 cache.check(writerB, writerB).getType());
+  }
+
+  @Test
+  public void testEviction() {
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache(2);
+    Schema latest = build(10, true);
+    for (int i = 0; i < 3; i++)
+      cache.check(latest, build(i, true));
+    assertEquals(2, cache.size());
+    assertEquals(2, cache.getEvictionCount());
+    cache.clear();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testCollidingFingerprintsNotShared() {
+    Schema reader = SchemaBuilder.record("R").fields()
+      .requiredInt("a").endRecord();
+    Schema ints = SchemaBuilder.record("R").doc(FingerprintCollisions.doc(200))
+      .fields().requiredInt("a").endRecord();
+    Schema strings = FingerprintCollisions.collide(ints, doc ->
+        SchemaBuilder.record("R").doc(doc).fields().requiredString("a")
+          .endRecord());
+    assertEquals(FingerprintCollisions.fingerprint(ints),
+                 FingerprintCollisions.fingerprint(strings));
+
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache();
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+                 cache.check(reader, ints).getType());
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+                 cache.check(reader, strings).getType());
+  }
+
+  @Test
+  public void testFieldAliasesChecked() {
+    Schema reader = SchemaBuilder.record("R").fields()
+      .requiredInt("b").endRecord();
+    Schema writer = SchemaBuilder.record("R").fields()
+      .requiredInt("a").endRecord();
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache();
+    assertEquals(SchemaCompatibilityType.INCOMPATIBLE,
+                 cache.check(reader, writer).getType());
+    reader.getField("b").addAlias("a");
+    assertEquals(SchemaCompatibilityType.COMPATIBLE,
+                 cache.check(reader, writer).getType());
+  }
+
+  @Test
+  public void testUnwritableSchemaNotCached() {
+    // distinct records with the same name can't be written as JSON
+    Schema first = Schema.createRecord("A", null, null, false);
+    first.setFields(Arrays.asList(
+        new Schema.Field("x", Schema.create(Schema.Type.INT), null, null)));
+    Schema second = Schema.createRecord("A", null, null, false);
+    second.setFields(Arrays.asList(
+        new Schema.Field("y", Schema.create(Schema.Type.INT), null, null)));
+    Schema schema = Schema.createRecord("R", null, null, false);
+    schema.setFields(Arrays.asList(
+        new Schema.Field("first", first, null, null),
+        new Schema.Field("second", second, null, null)));
+
+    SchemaCompatibilityCache cache = new SchemaCompatibilityCache();
+    assertEquals(checkReaderWriterCompatibility(schema, schema),
+                 cache.check(schema, schema));
+    assertEquals(0, cache.size());
+  }
+}
@@ -17,7 +17,11 @@
  */
 package org.apache.avro;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedReader;
@@ -25,6 +29,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Formatter;
 import java.util.List;
 import java.util.Locale;
@@ -90,6 +95,81 @@ public class TestSchemaNormalization {
     }
   }
 
+  @RunWith(Parameterized.class)
+  public static class TestStreamingFingerprint {
+    String input, expectedOutput;
+    public TestStreamingFingerprint(String i, String o) { input=i; expectedOutput=o; }
+
+    @Parameters public static List<Object[]> cases() throws IOException
+    { return CaseFinder.find(data(),"fingerprint", new ArrayList<>()); }
+
+    @Test public void testFingerprintBeforeCanonicalization() throws Exception {
+      // fingerprints are computed without the canonical form string
+      Schema s = Schema.parse(input);
+      assertEqHex(Long.parseLong(expectedOutput),
+                  SchemaNormalization.parsingFingerprint64(s));
+      byte[] md5 = SchemaNormalization.parsingFingerprint("MD5", s);
+      byte[] sha = SchemaNormalization.parsingFingerprint("SHA-256", s);
+      byte[] form = SchemaNormalization.toParsingForm(s)
+        .getBytes(StandardCharsets.UTF_8);
+      assertArrayEquals(SchemaNormalization.fingerprint("MD5", form), md5);
+      assertArrayEquals(SchemaNormalization.fingerprint("SHA-256", form), sha);
+      assertArrayEquals(SchemaNormalization.fingerprint("SHA-1", form),
+                        SchemaNormalization.parsingFingerprint("SHA-1", s));
+    }
+  }
+
+  public static class TestCachedFingerprint {
+    @Test public void testNonAsciiNames() throws Exception {
+      // unpaired surrogates are encoded as '?', like String.getBytes
+      for (String name : new String[] { "caf\u00e9", "\u20ac", "\ud83d\ude00",
+                                        "a\ud83db", "\ude00", "z\ud83d" }) {
+        String json = "{\"type\":\"record\",\"name\":\"R\",\"fields\":"
+          + "[{\"name\":\"" + name + "\",\"type\":\"int\"}]}";
+        Schema s = new Schema.Parser().setValidate(false).parse(json);
+        long fp = SchemaNormalization.parsingFingerprint64(s);
+        byte[] md5 = SchemaNormalization.parsingFingerprint("MD5", s);
+        byte[] form = SchemaNormalization.toParsingForm(s)
+          .getBytes(StandardCharsets.UTF_8);
+        assertEqHex(SchemaNormalization.fingerprint64(form), fp);
+        assertArrayEquals(SchemaNormalization.fingerprint("MD5", form), md5);
+      }
+    }
+
+    @Test public void testMemoized() throws Exception {
+      Schema s = Schema.createFixed("F", null, "ns", 4);
+      String form = SchemaNormalization.toParsingForm(s);
+      assertSame(form, SchemaNormalization.toParsingForm(s));
+
+      // callers can't change the memoized fingerprint
+      byte[] md5 = SchemaNormalization.parsingFingerprint("MD5", s);
+      md5[0]++;
+      assertFalse(Arrays.equals(md5,
+                                SchemaNormalization.parsingFingerprint("MD5", s)));
+
+      long fp = SchemaNormalization.parsingFingerprint64(s);
+      s.addProp("p", "v");
+      assertNull(s.parsingForm);
+      assertNull(s.parsingFingerprint64);
+      assertNull(s.parsingMD5);
+      assertEquals(form, SchemaNormalization.toParsingForm(s));
+      assertEquals(fp, SchemaNormalization.parsingFingerprint64(s));
+    }
+
+    @Test public void testProtocolMD5() throws Exception {
+      Protocol p = Protocol.parse("{\"protocol\":\"P\",\"namespace\":\"n\","
+        + "\"doc\":\"\u00fcber\",\"types\":[],\"messages\":{}}");
+      byte[] md5 = p.getMD5();
+      assertSame(md5, p.getMD5());
+      assertArrayEquals(SchemaNormalization.fingerprint("MD5",
+          p.toString().getBytes(StandardCharsets.UTF_8)), md5);
+      p.addProp("p", "v");
+      assertArrayEquals(SchemaNormalization.fingerprint("MD5",
+          p.toString().getBytes(StandardCharsets.UTF_8)), p.getMD5());
+      assertFalse(Arrays.equals(md5, p.getMD5()));
+    }
+  }
+
   private static String DATA_FILE =
     (System.getProperty("share.dir", "../../../share")
      + "/test/data/schema-tests.txt");
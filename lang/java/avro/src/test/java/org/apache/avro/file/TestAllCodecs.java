@@ -117,6 +117,32 @@ public class TestAllCodecs {
     Assert.assertEquals(decompressedBuffer, inputByteBuffer);
   }
 
+  @Test
+  public void testCodecReuseBuffers() throws IOException {
+    Codec codecInstance = CodecFactory.fromString(codec).createInstance();
+
+    ByteBuffer compressed = ByteBuffer.allocate(16);
+    ByteBuffer decompressed = ByteBuffer.allocate(16);
+    for (int inputSize : new int[] { 100_000, 10, 500_000, 0, 1000 }) {
+      byte[] input = generateTestData(inputSize);
+      ByteBuffer inputByteBuffer = ByteBuffer.wrap(input);
+
+      ByteBuffer reusable = compressed;
+      compressed = codecInstance.compress(inputByteBuffer, compressed);
+      if (!codec.equals("null") && !codec.equals("snappy")
+          && reusable.capacity() >= compressed.limit())
+        Assert.assertSame(reusable, compressed);
+
+      reusable = decompressed;
+      decompressed = codecInstance.decompress(compressed, decompressed);
+      if (!codec.equals("null") && reusable.capacity() >= inputSize)
+        Assert.assertSame(reusable, decompressed);
+
+      inputByteBuffer.rewind();
+      Assert.assertEquals(inputByteBuffer, decompressed);
+    }
+  }
+
   // Generate some test data that will compress easily
   public static byte[] generateTestData(int inputSize) {
     byte[] arr = new byte[inputSize];
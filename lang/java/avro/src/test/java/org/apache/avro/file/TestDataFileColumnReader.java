@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Schema;
+import org.apache.avro.file.ColumnBatch.BytesColumn;
+import org.apache.avro.file.ColumnBatch.DoubleColumn;
+import org.apache.avro.file.ColumnBatch.LongColumn;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericEnumSymbol;
+import org.apache.avro.generic.GenericFixed;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.RandomData;
+import org.apache.avro.util.Utf8;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestDataFileColumnReader {
+  private static final int COUNT = 2000;
+  private static final long SEED = 42;
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+      +"{\"name\":\"i\", \"type\":\"int\"},"
+      +"{\"name\":\"l\", \"type\":\"long\"},"
+      +"{\"name\":\"b\", \"type\":\"boolean\"},"
+      +"{\"name\":\"e\", \"type\":{\"type\":\"enum\",\"name\":\"E\","
+      +  "\"symbols\":[\"X\",\"Y\",\"Z\"]}},"
+      +"{\"name\":\"f\", \"type\":\"float\"},"
+      +"{\"name\":\"d\", \"type\":\"double\"},"
+      +"{\"name\":\"s\", \"type\":\"string\"},"
+      +"{\"name\":\"by\", \"type\":\"bytes\"},"
+      +"{\"name\":\"fx\", \"type\":{\"type\":\"fixed\",\"name\":\"F\",\"size\":3}},"
+      +"{\"name\":\"a\", \"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      +"{\"name\":\"os\", \"type\":[\"null\",\"string\"]},"
+      +"{\"name\":\"ol\", \"type\":[\"long\",\"null\"]},"
+      +"{\"name\":\"r\", \"type\":{\"type\":\"record\",\"name\":\"R\","
+      +  "\"fields\":[{\"name\":\"x\",\"type\":[\"int\",\"string\"]}]}}]}");
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private File writeFile(CodecFactory codec) throws IOException {
+    File file = new File(DIR.getRoot(), "test-" + codec + ".avro");
+    try (DataFileWriter<Object> writer =
+           new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(1000);
+      writer.create(SCHEMA, file);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED))
+        writer.append(datum);
+    }
+    return file;
+  }
+
+  private static List<GenericRecord> readRecords(File file) throws IOException {
+    List<GenericRecord> records = new ArrayList<>();
+    try (DataFileReader<GenericRecord> reader =
+           new DataFileReader<>(file, new GenericDatumReader<>())) {
+      for (GenericRecord record : reader)
+        records.add(record);
+    }
+    return records;
+  }
+
+  @Test
+  public void testSelectedFields() throws IOException {
+    for (CodecFactory codec : new CodecFactory[] {
+        CodecFactory.nullCodec(), CodecFactory.deflateCodec(6) }) {
+      File file = writeFile(codec);
+      List<GenericRecord> expected = readRecords(file);
+      String[] fields = { "os", "i", "l", "b", "e", "f", "d", "s", "by", "fx",
+                          "ol" };
+      int row = 0;
+      int batches = 0;
+      try (DataFileColumnReader reader =
+             new DataFileColumnReader(file, fields)) {
+        assertEquals(fields.length, reader.getFields().size());
+        ColumnBatch batch = null;
+        while (reader.hasNext()) {
+          ColumnBatch next = reader.next(batch);
+          if (batch != null)
+            assertSame(batch, next);
+          batch = next;
+          batches++;
+          assertEquals(fields.length, batch.getColumnCount());
+          for (int i = 0; i < batch.size(); i++)
+            check(expected.get(row++), batch, i);
+        }
+      }
+      assertEquals(COUNT, row);
+      assertTrue("Expected many blocks", batches > 1);
+    }
+  }
+
+  private static void check(GenericRecord record, ColumnBatch batch, int i) {
+    LongColumn ints = (LongColumn)batch.getColumn("i");
+    assertFalse(ints.isNullable());
+    assertFalse(ints.isNull(i));
+    assertEquals((long)(Integer)record.get("i"), ints.get(i));
+    assertEquals(record.get("l"), ((LongColumn)batch.getColumn("l")).get(i));
+    assertEquals((Boolean)record.get("b") ? 1 : 0,
+                 ((LongColumn)batch.getColumn("b")).get(i));
+    assertEquals(SCHEMA.getField("e").schema().getEnumOrdinal(
+        ((GenericEnumSymbol)record.get("e")).toString()),
+                 ((LongColumn)batch.getColumn("e")).get(i));
+    assertEquals((Float)record.get("f"),
+                 ((DoubleColumn)batch.getColumn("f")).get(i), 0);
+    assertEquals((Double)record.get("d"),
+                 ((DoubleColumn)batch.getColumn("d")).get(i), 0);
+
+    BytesColumn strings = (BytesColumn)batch.getColumn("s");
+    assertEquals(record.get("s").toString(), strings.getString(i));
+    assertEquals(record.get("s"), strings.getUtf8(i, new Utf8()));
+    ByteBuffer bytes = (ByteBuffer)record.get("by");
+    assertEquals(bytes, ByteBuffer.wrap(
+        ((BytesColumn)batch.getColumn("by")).getBytes(i)));
+    assertArrayEquals(((GenericFixed)record.get("fx")).bytes(),
+                      ((BytesColumn)batch.getColumn("fx")).getBytes(i));
+
+    BytesColumn optionalStrings = (BytesColumn)batch.getColumn("os");
+    assertSame(optionalStrings, batch.getColumn(0));
+    assertTrue(optionalStrings.isNullable());
+    if (record.get("os") == null) {
+      assertTrue(optionalStrings.isNull(i));
+      assertEquals(0, optionalStrings.getLength(i));
+    } else {
+      assertFalse(optionalStrings.isNull(i));
+      assertEquals(record.get("os").toString(), optionalStrings.getString(i));
+    }
+    LongColumn optionalLongs = (LongColumn)batch.getColumn("ol");
+    assertEquals(record.get("ol") == null, optionalLongs.isNull(i));
+    if (record.get("ol") != null)
+      assertEquals(record.get("ol"), optionalLongs.get(i));
+  }
+
+  @Test
+  public void testAllFields() throws IOException {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\": \"record\", \"name\": \"P\", \"fields\": ["
+        +"{\"name\":\"id\", \"type\":\"long\"},"
+        +"{\"name\":\"name\", \"type\":[\"null\",\"string\"]}]}");
+    File file = new File(DIR.getRoot(), "all.avro");
+    try (DataFileWriter<Object> writer =
+           new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.create(schema, file);
+      for (long i = 0; i < 100; i++) {
+        GenericData.Record record = new GenericData.Record(schema);
+        record.put("id", i);
+        record.put("name", i % 3 == 0 ? null : "n" + i);
+        writer.append(record);
+      }
+    }
+    try (DataFileColumnReader reader =
+           new DataFileColumnReader(new FileInputStream(file))) {
+      ColumnBatch batch = reader.next();
+      assertFalse(reader.hasNext());
+      assertEquals(100, batch.size());
+      assertEquals(2, batch.getColumnCount());
+      LongColumn ids = (LongColumn)batch.getColumn(0);
+      BytesColumn names = (BytesColumn)batch.getColumn(1);
+      for (int i = 0; i < 100; i++) {
+        assertEquals(i, ids.getValues()[i]);
+        assertEquals(i % 3 == 0, names.isNull(i));
+        assertEquals(i % 3 == 0, (names.getNulls()[i / 64] & (1L << i)) != 0);
+        if (i % 3 != 0)
+          assertEquals("n" + i, names.getString(i));
+      }
+      assertNull(ids.getNulls());
+    }
+  }
+
+  @Test(expected=AvroRuntimeException.class)
+  public void testUnsupportedField() throws IOException {
+    new DataFileColumnReader(writeFile(CodecFactory.nullCodec()), "i", "a");
+  }
+
+  @Test(expected=AvroRuntimeException.class)
+  public void testUnknownField() throws IOException {
+    new DataFileColumnReader(writeFile(CodecFactory.nullCodec()), "nope");
+  }
+
+  @Test(expected=IOException.class)
+  public void testBlockCountBeyondBlock() throws IOException {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+        +"{\"name\":\"l\", \"type\":\"long\"}]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<Object> writer =
+           new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.create(schema, out);
+    }
+    byte[] header = out.toByteArray();
+    // a single byte claiming to hold a billion records
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    encoder.writeLong(1L << 30);
+    encoder.writeLong(1);
+    encoder.writeFixed(new byte[1]);
+    encoder.writeFixed(Arrays.copyOfRange(header, header.length - 16,
+                                          header.length));
+    encoder.flush();
+    try (DataFileColumnReader reader = new DataFileColumnReader(
+             new ByteArrayInputStream(out.toByteArray()))) {
+      reader.next();
+    }
+  }
+}
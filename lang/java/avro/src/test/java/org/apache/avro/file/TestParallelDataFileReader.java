@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestParallelDataFileReader {
+  private static final int COUNT = 5000;
+  private static final long SEED = 42;
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+      +"{\"name\":\"stringField\", \"type\":\"string\"},"
+      +"{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final CodecFactory codec;
+
+  public TestParallelDataFileReader(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(6) });
+    r.add(new Object[] { CodecFactory.zstandardCodec() });
+    r.add(new Object[] { CodecFactory.xzCodec(1) });
+    return r;
+  }
+
+  private File writeFile() throws IOException {
+    File file = new File(DIR.getRoot(), "test-" + codec + ".avro");
+    try (DataFileWriter<Object> writer =
+           new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(1000);
+      writer.create(SCHEMA, file);
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED))
+        writer.append(datum);
+    }
+    return file;
+  }
+
+  @Test
+  public void testReadInOrder() throws IOException {
+    File file = writeFile();
+    List<Object> expected = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED))
+      expected.add(datum);
+
+    try (ParallelDataFileReader<Object> reader = new ParallelDataFileReader<>(
+           file, GenericDatumReader::new, 4)) {
+      assertEquals(SCHEMA, reader.getSchema());
+      int i = 0;
+      for (Object datum : reader)
+        assertEquals(expected.get(i++), datum);
+      assertEquals(COUNT, i);
+      assertFalse(reader.hasNext());
+    }
+  }
+
+  @Test
+  public void testSharedExecutor() throws IOException {
+    File file = writeFile();
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      int count = 0;
+      try (ParallelDataFileReader<GenericData.Record> reader =
+             new ParallelDataFileReader<>(new FileInputStream(file),
+                                          GenericDatumReader::new,
+                                          executor, 1)) {
+        while (reader.hasNext()) {
+          reader.next();
+          count++;
+        }
+      }
+      assertEquals(COUNT, count);
+      assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
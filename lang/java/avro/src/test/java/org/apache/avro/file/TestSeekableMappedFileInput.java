@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.file;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.util.RandomData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+@RunWith(Parameterized.class)
+public class TestSeekableMappedFileInput {
+  private static final int COUNT = 2000;
+  private static final long SEED = 7;
+  private static final Schema SCHEMA = new Schema.Parser().parse(
+      "{\"type\": \"record\", \"name\": \"Test\", \"fields\": ["
+      +"{\"name\":\"stringField\", \"type\":\"string\"},"
+      +"{\"name\":\"longField\", \"type\":\"long\"}]}");
+
+  @Rule
+  public TemporaryFolder DIR = new TemporaryFolder();
+
+  private final CodecFactory codec;
+
+  public TestSeekableMappedFileInput(CodecFactory codec) {
+    this.codec = codec;
+  }
+
+  @Parameters
+  public static List<Object[]> codecs() {
+    List<Object[]> r = new ArrayList<>();
+    r.add(new Object[] { CodecFactory.nullCodec() });
+    r.add(new Object[] { CodecFactory.deflateCodec(1) });
+    r.add(new Object[] { CodecFactory.snappyCodec() });
+    r.add(new Object[] { CodecFactory.zstandardCodec() });
+    return r;
+  }
+
+  private File writeFile(List<Long> syncs) throws IOException {
+    File file = new File(DIR.getRoot(), "mapped-" + codec + ".avro");
+    try (DataFileWriter<Object> writer =
+           new DataFileWriter<>(new GenericDatumWriter<>())) {
+      writer.setCodec(codec).setSyncInterval(700);
+      writer.create(SCHEMA, file);
+      int i = 0;
+      for (Object datum : new RandomData(SCHEMA, COUNT, SEED)) {
+        if (i++ % 100 == 0)
+          syncs.add(writer.sync());
+        writer.append(datum);
+      }
+    }
+    return file;
+  }
+
+  @Test
+  public void testReadAndSeek() throws IOException {
+    List<Long> syncs = new ArrayList<>();
+    File file = writeFile(syncs);
+    List<Object> expected = new ArrayList<>();
+    for (Object datum : new RandomData(SCHEMA, COUNT, SEED))
+      expected.add(datum);
+
+    // a small chunk size, so that some blocks span chunks
+    for (long chunkSize : new long[] { 4096, SeekableMappedFileInput.MAX_CHUNK_SIZE }) {
+      try (DataFileReader<Object> reader = new DataFileReader<>(
+             new SeekableMappedFileInput(file, chunkSize),
+             new GenericDatumReader<>())) {
+        int i = 0;
+        for (Object datum : reader)
+          assertEquals(expected.get(i++), datum);
+        assertEquals(COUNT, i);
+
+        for (int s = syncs.size() - 1; s >= 0; s--) {
+          reader.seek(syncs.get(s));
+          assertEquals(expected.get(s * 100), reader.next());
+        }
+
+        reader.sync(0);
+        assertTrue(reader.hasNext());
+        assertEquals(expected.get(0), reader.next());
+      }
+    }
+  }
+
+  @Test
+  public void testReadsMatchFile() throws IOException {
+    File file = writeFile(new ArrayList<>());
+    byte[] bytes = Files.readAllBytes(file.toPath());
+    try (SeekableMappedFileInput in = new SeekableMappedFileInput(file, 1000)) {
+      assertEquals(bytes.length, in.length());
+      byte[] read = new byte[bytes.length];
+      int off = 0, n;
+      while ((n = in.read(read, off, Math.min(333, read.length - off))) > 0)
+        off += n;
+      assertArrayEquals(bytes, read);
+      assertEquals(-1, in.read());
+
+      in.seek(998);
+      assertEquals(bytes[998] & 0xff, in.read());
+      ByteBuffer spanning = in.slice(990, 20);
+      ByteBuffer within = in.slice(1000, 20);
+      assertFalse(within.hasArray());
+      for (int i = 0; i < 20; i++) {
+        assertEquals(bytes[990 + i], spanning.get(i));
+        assertEquals(bytes[1000 + i], within.get(i));
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.RandomData;
+import org.junit.Test;
+
+public class TestFastGenericDatumReader {
+  private static final int COUNT = 200;
+
+  private static final Schema WRITER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"Event\",\"fields\":["
+      + "{\"name\":\"id\",\"type\":\"int\"},"
+      + "{\"name\":\"name\",\"type\":\"string\"},"
+      + "{\"name\":\"dropped\",\"type\":{\"type\":\"map\",\"values\":\"long\"}},"
+      + "{\"name\":\"size\",\"type\":\"long\"},"
+      + "{\"name\":\"ratio\",\"type\":\"float\"},"
+      + "{\"name\":\"payload\",\"type\":\"bytes\"},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\","
+      +   "\"symbols\":[\"A\",\"B\",\"C\"]}},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":4}},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"string\"}},"
+      + "{\"name\":\"maybe\",\"type\":[\"null\",\"int\",\"string\"]},"
+      + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\","
+      +   "\"fields\":[{\"name\":\"flag\",\"type\":\"boolean\"},"
+      +   "{\"name\":\"value\",\"type\":\"double\"}]}},"
+      + "{\"name\":\"count\",\"type\":\"int\"}]}");
+
+  private static final Schema READER = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"Event\",\"fields\":["
+      + "{\"name\":\"count\",\"type\":[\"null\",\"double\"]},"
+      + "{\"name\":\"id\",\"type\":\"long\"},"
+      + "{\"name\":\"label\",\"type\":\"string\",\"aliases\":[\"name\"]},"
+      + "{\"name\":\"size\",\"type\":\"double\"},"
+      + "{\"name\":\"ratio\",\"type\":\"double\"},"
+      + "{\"name\":\"payload\",\"type\":{\"type\":\"string\","
+      +   "\"avro.java.string\":\"String\"}},"
+      + "{\"name\":\"kind\",\"type\":{\"type\":\"enum\",\"name\":\"Kind\","
+      +   "\"symbols\":[\"C\",\"B\",\"A\",\"D\"]}},"
+      + "{\"name\":\"hash\",\"type\":{\"type\":\"fixed\",\"name\":\"Hash\",\"size\":4}},"
+      + "{\"name\":\"tags\",\"type\":{\"type\":\"array\",\"items\":\"bytes\"}},"
+      + "{\"name\":\"maybe\",\"type\":[\"null\",\"string\",\"long\"]},"
+      + "{\"name\":\"inner\",\"type\":{\"type\":\"record\",\"name\":\"Inner\","
+      +   "\"fields\":[{\"name\":\"value\",\"type\":\"double\"},"
+      +   "{\"name\":\"note\",\"type\":\"string\",\"default\":\"none\"}]}},"
+      + "{\"name\":\"extra\",\"type\":{\"type\":\"array\",\"items\":\"int\"},"
+      +   "\"default\":[1,2]}]}");
+
+  private static final Schema LIST = new Schema.Parser().parse(
+      "{\"type\":\"record\",\"name\":\"Node\",\"fields\":["
+      + "{\"name\":\"value\",\"type\":\"int\"},"
+      + "{\"name\":\"next\",\"type\":[\"null\",\"Node\"]}]}");
+
+  private static byte[] encode(Schema schema, Iterable<Object> data)
+    throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(schema);
+    for (Object datum : data)
+      writer.write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static List<Object> decode(DatumReader<Object> reader, byte[] bytes,
+                                     int count, boolean reuse)
+    throws IOException {
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, null);
+    List<Object> result = new ArrayList<>();
+    Object datum = null;
+    for (int i = 0; i < count; i++) {
+      datum = reader.read(reuse ? datum : null, decoder);
+      result.add(reuse ? GenericData.get().deepCopy(
+          ((GenericContainer)datum).getSchema(), datum) : datum);
+    }
+    return result;
+  }
+
+  private static void checkMatchesInterpreter(Schema writer, Schema reader,
+                                              Iterable<Object> data)
+    throws IOException {
+    FastGenericDatumReader<Object> fast =
+      new FastGenericDatumReader<>(writer, reader);
+    assertNotNull("Should compile",
+                  new FastReaderBuilder(fast).getCompiledReader(writer, reader));
+    byte[] bytes = encode(writer, data);
+    for (boolean reuse : new boolean[] { false, true }) {
+      assertEquals(
+          decode(new GenericDatumReader<>(writer, reader), bytes, COUNT, reuse),
+          decode(fast, bytes, COUNT, reuse));
+    }
+  }
+
+  @Test
+  public void testSameSchema() throws IOException {
+    checkMatchesInterpreter(WRITER, WRITER, new RandomData(WRITER, COUNT, 1));
+  }
+
+  @Test
+  public void testResolution() throws IOException {
+    checkMatchesInterpreter(WRITER, READER, new RandomData(WRITER, COUNT, 2));
+  }
+
+  @Test
+  public void testRecursiveSchema() throws IOException {
+    List<Object> data = new ArrayList<>();
+    GenericData.Record next = null;
+    for (int i = 0; i < COUNT; i++) {
+      GenericData.Record node = new GenericData.Record(LIST);
+      node.put("value", i);
+      node.put("next", i % 10 == 0 ? null : next);
+      data.add(node);
+      next = node;
+    }
+    checkMatchesInterpreter(LIST, LIST, data);
+  }
+
+  @Test
+  public void testUnsupportedFallsBack() throws IOException {
+    Schema reader = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"Event\",\"fields\":["
+        + "{\"name\":\"id\",\"type\":\"int\"},"
+        + "{\"name\":\"missing\",\"type\":\"int\"}]}");
+    FastGenericDatumReader<Object> fast =
+      new FastGenericDatumReader<>(WRITER, reader);
+    assertNull(new FastReaderBuilder(fast).getCompiledReader(WRITER, reader));
+
+    byte[] bytes = encode(WRITER, new RandomData(WRITER, 1, 3));
+    try {
+      fast.read(null, DecoderFactory.get().binaryDecoder(bytes, null));
+      fail("Should fail to resolve missing field");
+    } catch (AvroTypeException e) {
+      // expected, from the interpreter
+    }
+  }
+
+  @Test
+  public void testConversionAddedAfterRead() throws IOException {
+    Schema uuid = LogicalTypes.uuid().addToSchema(
+        Schema.create(Schema.Type.STRING));
+    UUID value = UUID.randomUUID();
+    byte[] bytes = encode(uuid, Collections.singletonList(value.toString()));
+    GenericData data = new GenericData();
+    FastGenericDatumReader<Object> fast =
+      new FastGenericDatumReader<>(uuid, uuid, data);
+    assertEquals(value.toString(), decode(fast, bytes, 1, false).get(0)
+                 .toString());
+
+    // readers compiled before the conversion was added are not reused
+    data.addLogicalTypeConversion(new Conversions.UUIDConversion());
+    assertEquals(value, decode(fast, bytes, 1, false).get(0));
+    assertEquals(value, decode(new FastGenericDatumReader<>(uuid, uuid, data),
+                               bytes, 1, false).get(0));
+  }
+}
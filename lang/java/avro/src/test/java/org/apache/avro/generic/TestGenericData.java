@@ -31,6 +31,9 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.Conversion;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
 import org.apache.avro.Schema;
 import org.apache.avro.Schema.Field;
 import org.apache.avro.Schema.Type;
@@ -717,4 +720,76 @@ public class TestGenericData {
     assertNull( list.peek() );
   }
 
+
+  @Test
+  public void testResolveUnionByClass() {
+    Schema a = SchemaBuilder.record("A").fields().requiredInt("x").endRecord();
+    Schema b = SchemaBuilder.record("B").fields().requiredInt("x").endRecord();
+    Schema union = Schema.createUnion(Schema.create(Type.NULL),
+        Schema.create(Type.STRING), Schema.create(Type.INT), a, b);
+    GenericData data = new GenericData();
+    // records of one class are resolved by their own schema each time
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, data.resolveUnion(union, null));
+      assertEquals(1, data.resolveUnion(union, "s"));
+      assertEquals(1, data.resolveUnion(union, new Utf8("s")));
+      assertEquals(2, data.resolveUnion(union, i));
+      assertEquals(3, data.resolveUnion(union, new GenericData.Record(a)));
+      assertEquals(4, data.resolveUnion(union, new GenericData.Record(b)));
+    }
+    // a union with other branches
+    Schema other = Schema.createUnion(Schema.create(Type.INT),
+        Schema.create(Type.STRING));
+    assertEquals(1, data.resolveUnion(other, "s"));
+    try {
+      data.resolveUnion(other, 1L);
+      fail("Should not resolve a long");
+    } catch (AvroRuntimeException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testResolveUnionByContents() {
+    Schema union = Schema.createUnion(Schema.create(Type.STRING),
+        Schema.create(Type.INT));
+    GenericData data = new GenericData() {
+      @Override
+      protected String getSchemaName(Object datum) {
+        // numeric strings are written as ints
+        if (datum instanceof String && ((String)datum).matches("[0-9]+"))
+          return Type.INT.getName();
+        return super.getSchemaName(datum);
+      }
+      @Override
+      protected boolean isUnionResolvedByClass(Object datum) {
+        return !(datum instanceof String);
+      }
+    };
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, data.resolveUnion(union, "s"));
+      assertEquals(1, data.resolveUnion(union, "1"));
+    }
+  }
+
+  @Test
+  public void testResolveUnionWithAddedConversion() {
+    Schema timestamp = LogicalTypes.timestampMillis()
+      .addToSchema(Schema.create(Type.LONG));
+    Schema union = Schema.createUnion(Schema.create(Type.STRING), timestamp);
+    GenericData data = new GenericData();
+    assertEquals(0, data.resolveUnion(union, new Utf8("1")));
+    // Utf8 timestamps are now written as longs
+    data.addLogicalTypeConversion(new Conversion<Utf8>() {
+      @Override
+      public Class<Utf8> getConvertedType() { return Utf8.class; }
+      @Override
+      public String getLogicalTypeName() { return "timestamp-millis"; }
+      @Override
+      public Long toLong(Utf8 value, Schema schema, LogicalType type) {
+        return Long.parseLong(value.toString());
+      }
+    });
+    assertEquals(1, data.resolveUnion(union, new Utf8("1")));
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.Test;
+
+public class TestPrimitivesArrays {
+  private static final Schema LONGS =
+    Schema.createArray(Schema.create(Schema.Type.LONG));
+  private static final Schema INTS =
+    Schema.createArray(Schema.create(Schema.Type.INT));
+  private static final Schema DOUBLES =
+    Schema.createArray(Schema.create(Schema.Type.DOUBLE));
+
+  private static byte[] write(Schema schema, Object datum) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(schema).write(datum, encoder);
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static Object read(DatumReader<Object> reader, Object reuse,
+                             byte[] bytes) throws IOException {
+    return reader.read(reuse,
+                       DecoderFactory.get().binaryDecoder(bytes, null));
+  }
+
+  @Test
+  public void testListOperations() {
+    PrimitivesArrays.LongArray array = new PrimitivesArrays.LongArray(1, LONGS);
+    for (long i = 0; i < 5; i++)
+      array.addLong(i);
+    array.add(0, -1L);
+    assertEquals(Long.valueOf(2), array.remove(3));
+    assertEquals(Long.valueOf(4), array.set(4, 9L));
+    assertEquals(Arrays.asList(-1L, 0L, 1L, 3L, 9L), array);
+    array.reverse();
+    assertEquals(Arrays.asList(9L, 3L, 1L, 0L, -1L), array);
+    assertEquals(new GenericData.Array<>(LONGS, array), array);
+    assertEquals(new GenericData.Array<>(LONGS, array).hashCode(),
+                 array.hashCode());
+    assertEquals(0, array.compareTo(new GenericData.Array<>(LONGS, array)));
+    assertNull(array.peek());
+    array.reset();
+    assertEquals(0, array.size());
+  }
+
+  @Test
+  public void testNewArray() {
+    assertTrue(PrimitivesArrays.newArray(0, DOUBLES)
+               instanceof PrimitivesArrays.DoubleArray);
+    Schema dates = Schema.createArray(
+        LogicalTypes.date().addToSchema(Schema.create(Schema.Type.INT)));
+    assertNull(PrimitivesArrays.newArray(0, dates));
+    assertNull(PrimitivesArrays.newArray(0,
+        Schema.createArray(Schema.create(Schema.Type.STRING))));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testReadWriteUnboxed() throws IOException {
+    List<Double> doubles = Arrays.asList(1.5, -2.0, 3.25);
+    byte[] bytes = write(DOUBLES, doubles);
+
+    GenericDatumReader<Object> reader = new GenericDatumReader<>(DOUBLES);
+    Object read = read(reader, null, bytes);
+    assertTrue(read instanceof PrimitivesArrays.DoubleArray);
+    assertEquals(doubles, read);
+    assertSame(read, read(reader, read, bytes));
+    assertEquals(doubles, read);
+
+    // round trip through the unboxed writer
+    assertEquals(doubles, read(reader, null, write(DOUBLES, read)));
+
+    // and through the compiled reader
+    assertEquals(doubles,
+                 read(new FastGenericDatumReader<>(DOUBLES), null, bytes));
+  }
+
+  @Test
+  public void testPromotion() throws IOException {
+    PrimitivesArrays.IntArray ints = new PrimitivesArrays.IntArray(0, INTS);
+    ints.addInt(1);
+    ints.addInt(-7);
+    byte[] bytes = write(INTS, ints);
+
+    Object read = read(new GenericDatumReader<>(INTS, LONGS), null, bytes);
+    assertTrue(read instanceof PrimitivesArrays.LongArray);
+    assertEquals(Arrays.asList(1L, -7L), read);
+    assertEquals(Arrays.asList(1L, -7L),
+                 read(new FastGenericDatumReader<>(INTS, LONGS), null, bytes));
+
+    // a reused array of the wrong element type is replaced
+    Object reread = read(new GenericDatumReader<>(INTS), read, bytes);
+    assertTrue(reread instanceof PrimitivesArrays.IntArray);
+    assertEquals(ints, reread);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.generic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestStringDictionaries {
+  private static final Schema WRITER = SchemaBuilder.record("Event").fields()
+    .requiredString("country")
+    .requiredString("id")
+    .name("tags").type().map().values().intType().noDefault()
+    .endRecord();
+
+  /** The writer's schema, with dictionaries for the country and tag keys. */
+  private static Schema reader(boolean strings) {
+    Schema country = Schema.create(Schema.Type.STRING);
+    GenericData.setStringDictionary(country, 4);
+    Schema tags = Schema.createMap(Schema.create(Schema.Type.INT));
+    GenericData.setStringDictionary(tags, 4);
+    if (strings) {
+      GenericData.setStringType(country, GenericData.StringType.String);
+      GenericData.setStringType(tags, GenericData.StringType.String);
+    }
+    return SchemaBuilder.record("Event").fields()
+      .name("country").type(country).noDefault()
+      .requiredString("id")
+      .name("tags").type(tags).noDefault()
+      .endRecord();
+  }
+
+  private static byte[] write(int count) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    GenericDatumWriter<Object> writer = new GenericDatumWriter<>(WRITER);
+    for (int i = 0; i < count; i++) {
+      GenericData.Record record = new GenericData.Record(WRITER);
+      record.put("country", i % 2 == 0 ? "US" : "FR");
+      record.put("id", "id" + i);
+      record.put("tags", Collections.singletonMap("t", i));
+      writer.write(record, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+
+  private static GenericRecord[] read(GenericDatumReader<GenericRecord> reader,
+                                      int count, boolean reuse)
+    throws IOException {
+    BinaryDecoder in = DecoderFactory.get().binaryDecoder(write(count), null);
+    GenericRecord[] records = new GenericRecord[count];
+    GenericRecord record = null;
+    for (int i = 0; i < count; i++) {
+      record = reader.read(reuse ? record : null, in);
+      assertEquals(i % 2 == 0 ? "US" : "FR", record.get("country").toString());
+      assertEquals("id" + i, record.get("id").toString());
+      records[i] = record;
+    }
+    return records;
+  }
+
+  private static Object key(GenericRecord record) {
+    return ((Map<?,?>) record.get("tags")).keySet().iterator().next();
+  }
+
+  @Test
+  public void testSharedValues() throws IOException {
+    for (boolean strings : new boolean[] { false, true }) {
+      Schema schema = reader(strings);
+      for (GenericDatumReader<GenericRecord> reader : Arrays.asList(
+               new GenericDatumReader<GenericRecord>(schema),
+               new GenericDatumReader<GenericRecord>(WRITER, schema),
+               new FastGenericDatumReader<GenericRecord>(WRITER, schema))) {
+        GenericRecord[] records = read(reader, 4, false);
+        assertSame(records[0].get("country"), records[2].get("country"));
+        assertSame(key(records[0]), key(records[3]));
+        assertTrue(strings ? key(records[0]) instanceof String
+                           : key(records[0]) instanceof Utf8);
+        // fields without a dictionary are not shared
+        assertNotSame(records[0].get("id"), records[2].get("id"));
+      }
+    }
+  }
+
+  @Test
+  public void testReusedRecords() throws IOException {
+    // shared values are not overwritten when records are reused
+    GenericRecord[] records =
+      read(new GenericDatumReader<>(reader(false)), 4, true);
+    assertEquals(new Utf8("FR"), records[3].get("country"));
+    GenericRecord[] more =
+      read(new GenericDatumReader<>(reader(false)), 1, false);
+    assertEquals(new Utf8("US"), more[0].get("country"));
+  }
+
+  @Test
+  public void testDataModelSetting() throws IOException {
+    GenericData data = new GenericData();
+    data.setStringDictionarySize(10);
+    GenericRecord[] records = read(
+        new GenericDatumReader<>(WRITER, WRITER, data), 3, false);
+    assertSame(records[0].get("country"), records[2].get("country"));
+    assertSame(records[0].get("id").getClass(), Utf8.class);
+    assertSame(key(records[0]), key(records[1]));
+  }
+
+  @Test
+  public void testConcurrentReads() throws Exception {
+    // each thread reads distinct values of its own, which grow its
+    // dictionaries as other threads read
+    Schema country = Schema.create(Schema.Type.STRING);
+    GenericData.setStringDictionary(country, 1 << 20);
+    Schema schema = SchemaBuilder.record("Event").fields()
+      .name("country").type(country).noDefault()
+      .requiredString("id")
+      .name("tags").type().map().values().intType().noDefault()
+      .endRecord();
+    final GenericDatumReader<GenericRecord> reader =
+      new GenericDatumReader<>(WRITER, schema);
+    final int threads = 8;
+    final int count = 20000;
+    final CyclicBarrier start = new CyclicBarrier(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        final String prefix = "t" + t + "-";
+        results.add(executor.submit(() -> {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          BinaryEncoder encoder =
+            EncoderFactory.get().binaryEncoder(out, null);
+          GenericDatumWriter<Object> writer = new GenericDatumWriter<>(WRITER);
+          for (int i = 0; i < count; i++) {
+            GenericData.Record record = new GenericData.Record(WRITER);
+            record.put("country", prefix + i);
+            record.put("id", prefix + i);
+            record.put("tags", Collections.emptyMap());
+            writer.write(record, encoder);
+          }
+          encoder.flush();
+          BinaryDecoder in =
+            DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+          start.await();
+          for (int i = 0; i < count; i++) {
+            GenericRecord record = reader.read(null, in);
+            assertEquals(prefix + i, record.get("country").toString());
+            assertEquals(prefix + i, record.get("id").toString());
+          }
+          return null;
+        }));
+      }
+      for (Future<?> result : results)
+        result.get();
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
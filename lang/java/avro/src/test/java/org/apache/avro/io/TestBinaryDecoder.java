@@ -229,6 +229,62 @@ public class TestBinaryDecoder {
     }
   }
 
+  @Test
+  public void testDecodeFromByteBuffers() throws IOException {
+    GenericDatumReader<Object> reader = new GenericDatumReader<>();
+    reader.setSchema(schema);
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length + 20);
+    direct.position(10);
+    direct.put(data);
+    direct.position(10);
+    direct.limit(10 + data.length);
+    ByteBuffer heap = ByteBuffer.wrap(data).asReadOnlyBuffer();
+
+    Decoder fromDirect = factory.binaryDecoder(direct, null);
+    Decoder fromReadOnly = factory.binaryDecoder(heap, null);
+    BinaryDecoder reinit = factory.binaryDecoder(data, null);
+    reinit = factory.binaryDecoder(direct, reinit);
+
+    for (Object datum : records) {
+      Assert.assertEquals(
+          "direct ByteBuffer based BinaryDecoder result does not match",
+          datum, reader.read(null, fromDirect));
+      Assert.assertEquals(
+          "read-only ByteBuffer based BinaryDecoder result does not match",
+          datum, reader.read(null, fromReadOnly));
+      Assert.assertEquals(
+          "ByteBuffer initialized BinaryDecoder result does not match",
+          datum, reader.read(null, reinit));
+    }
+    Assert.assertTrue(((BinaryDecoder) fromDirect).isEnd());
+    Assert.assertEquals(10, direct.position());
+  }
+
+  @Test
+  public void testDirectByteBufferReusesBuffer() throws IOException {
+    ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+    direct.put(data);
+    direct.flip();
+
+    BinaryDecoder first = factory.binaryDecoder(direct, null);
+    byte[] buf = first.getBuf();
+    while (!first.isEnd())
+      first.skipFixed(1);
+    BinaryDecoder again = factory.binaryDecoder(direct, first);
+    Assert.assertSame(buf, again.getBuf());
+    again = factory.binaryDecoder(new byte[0], again);
+    again = factory.binaryDecoder(direct, again);
+    Assert.assertSame(buf, again.getBuf());
+
+    // bytes left for a detached source's stream are not overwritten
+    Assert.assertFalse(again.isEnd());
+    InputStream rest = again.inputStream();
+    again = factory.binaryDecoder(direct, again);
+    Assert.assertNotSame(buf, again.getBuf());
+    validateInputStreamReads(rest, new ByteArrayInputStream(data));
+  }
+
   @Test
   public void testInputStreamProxy() throws IOException {
     Decoder d = newDecoder(data);
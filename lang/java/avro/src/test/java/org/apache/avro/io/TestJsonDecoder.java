@@ -17,9 +17,16 @@
  */
 package org.apache.avro.io;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -75,4 +82,85 @@ public class TestJsonDecoder {
     Assert.assertEquals(200, in.readLong());
     in.skipArray();
   }
+
+  @Test public void testReorderNestedFields() throws Exception {
+    Schema schema = Schema.parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      +"{\"name\":\"i\",\"type\":\"int\"},"
+      +"{\"name\":\"s\",\"type\":[\"null\",\"string\"]},"
+      +"{\"name\":\"r\",\"type\":{\"type\":\"record\",\"name\":\"N\","
+      +"\"fields\":[{\"name\":\"d\",\"type\":\"double\"},"
+      +"{\"name\":\"b\",\"type\":\"bytes\"}]}},"
+      +"{\"name\":\"m\",\"type\":{\"type\":\"map\",\"values\":\"long\"}}]}");
+    DatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
+
+    // nested fields out of order within a field that is itself buffered
+    String data = "{\"m\":{\"k\":5} , \"r\":{\"b\":\"\\u00ff\",\"d\":2},\n"
+      +"\"s\":{\"string\":\"x\"},\"i\":1.0}";
+    checkReorderNestedFields(reader.read(null,
+        DecoderFactory.get().jsonDecoder(schema, data)));
+    checkReorderNestedFields(reader.read(null,
+        DecoderFactory.get().jsonDecoder(schema,
+            new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))));
+  }
+
+  private static void checkReorderNestedFields(GenericRecord r) {
+    Assert.assertEquals(1, r.get("i"));
+    Assert.assertEquals("x", r.get("s").toString());
+    GenericRecord nested = (GenericRecord) r.get("r");
+    Assert.assertEquals(2.0, nested.get("d"));
+    Assert.assertEquals(ByteBuffer.wrap(new byte[] {(byte) 0xff}),
+                        nested.get("b"));
+    Assert.assertEquals(5L, ((Map<?,?>) r.get("m"))
+                        .get(new Utf8("k")));
+  }
+
+  @Test public void testReorderLargeFields() throws Exception {
+    Schema schema = Schema.parse(
+      "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+      +"{\"name\":\"i\",\"type\":\"int\"},"
+      +"{\"name\":\"o\",\"type\":{\"type\":\"record\",\"name\":\"O\","
+      +"\"fields\":[{\"name\":\"s\",\"type\":\"string\"},"
+      +"{\"name\":\"a\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}},"
+      +"{\"name\":\"v\",\"type\":{\"type\":\"array\",\"items\":\"string\"}}]}");
+    DatumReader<GenericRecord> reader = new GenericDatumReader<>(schema);
+
+    // values too long to buffer, whose strings hold escaped quotes, brackets
+    // and separators, each followed by separators before the next field
+    int count = 1000;
+    String data = "{\"v\":" + array("v", count) + " ,\n"
+      // a large field out of order within a large field out of order
+      +"\"o\":{\"a\":" + array("a", count) + "\n, \"s\":\"\\\"}\"}\t,\r\n"
+      +"\"i\":1}";
+    Assert.assertTrue(data.length() > 2 * 4096);
+
+    checkReorderLargeFields(reader.read(null,
+        DecoderFactory.get().jsonDecoder(schema, data)), count);
+    checkReorderLargeFields(reader.read(null,
+        DecoderFactory.get().jsonDecoder(schema,
+            new ByteArrayInputStream(data.getBytes(StandardCharsets.UTF_8)))),
+        count);
+  }
+
+  private static String array(String prefix, int count) {
+    StringBuilder array = new StringBuilder("[");
+    for (int i = 0; i < count; i++)
+      array.append(i == 0 ? "" : ", ")
+        .append("\"" + prefix + "\\\"}],{\\\\" + i + "\"");
+    return array.append("]").toString();
+  }
+
+  private static void checkReorderLargeFields(GenericRecord r, int count) {
+    Assert.assertEquals(1, r.get("i"));
+    GenericRecord o = (GenericRecord) r.get("o");
+    Assert.assertEquals("\"}", o.get("s").toString());
+    checkArray("v", count, (List<?>) r.get("v"));
+    checkArray("a", count, (List<?>) o.get("a"));
+  }
+
+  private static void checkArray(String prefix, int count, List<?> array) {
+    Assert.assertEquals(count, array.size());
+    for (int i = 0; i < count; i++)
+      Assert.assertEquals(prefix + "\"}],{\\" + i, array.get(i).toString());
+  }
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.avro.FingerprintCollisions;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.junit.Test;
+
+public class TestResolverCache {
+  private static final String WRITER =
+    "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+    + "{\"name\":\"a\",\"type\":\"int\"}]}";
+  private static final String READER =
+    "{\"type\":\"record\",\"name\":\"R\",\"fields\":["
+    + "{\"name\":\"a\",\"type\":\"long\"},"
+    + "{\"name\":\"b\",\"type\":\"string\",\"default\":\"%s\"}]}";
+
+  private static Schema parse(String json) {
+    return new Schema.Parser().parse(json);
+  }
+
+  @Test
+  public void testSharedBetweenEqualSchemas() throws IOException {
+    ResolverCache cache = new ResolverCache(10);
+    Object first = cache.getResolver(parse(WRITER),
+                                     parse(String.format(READER, "x")));
+    Object second = cache.getResolver(parse(WRITER),
+                                      parse(String.format(READER, "x")));
+    assertSame(first, second);
+    assertEquals(1, cache.getMissCount());
+    assertEquals(1, cache.getHitCount());
+
+    // a different default must resolve differently
+    Object third = cache.getResolver(parse(WRITER),
+                                     parse(String.format(READER, "y")));
+    assertNotSame(first, third);
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() throws IOException {
+    ResolverCache cache = new ResolverCache(2);
+    Schema writer = parse(WRITER);
+    Schema x = parse(String.format(READER, "x"));
+    Schema y = parse(String.format(READER, "y"));
+    Schema z = parse(String.format(READER, "z"));
+    Object resolverX = cache.getResolver(writer, x);
+    cache.getResolver(writer, y);
+    assertSame(resolverX, cache.getResolver(writer, x));
+    cache.getResolver(writer, z);                 // evicts y
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(2, cache.size());
+    assertSame(resolverX, cache.getResolver(writer, x));
+    cache.getResolver(writer, y);
+    assertEquals(4, cache.getMissCount());
+    assertEquals(2, cache.getEvictionCount());
+  }
+
+  @Test
+  public void testResolvingDecoder() throws IOException {
+    Schema writer = parse(WRITER);
+    Schema reader = parse(String.format(READER, "x"));
+    GenericData.Record record = new GenericData.Record(writer);
+    record.put("a", 7);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Encoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    new GenericDatumWriter<>(writer).write(record, encoder);
+    encoder.flush();
+
+    ResolvingDecoder in = new ResolverCache(1).resolvingDecoder(writer, reader,
+        DecoderFactory.get().binaryDecoder(out.toByteArray(), null));
+    Schema.Field[] order = in.readFieldOrder();
+    assertEquals("a", order[0].name());
+    assertEquals(7L, in.readLong());
+    assertEquals("b", order[1].name());
+    assertEquals("x", in.readString());
+  }
+
+  @Test
+  public void testCollidingFingerprintsNotShared() throws IOException {
+    Schema reader = SchemaBuilder.record("R").fields()
+      .requiredLong("a").endRecord();
+    Schema longs = SchemaBuilder.record("R").doc(FingerprintCollisions.doc(200))
+      .fields().requiredLong("a").endRecord();
+    Schema ints = FingerprintCollisions.collide(longs, doc ->
+        SchemaBuilder.record("R").doc(doc).fields().requiredInt("a")
+          .endRecord());
+    assertEquals(FingerprintCollisions.fingerprint(longs),
+                 FingerprintCollisions.fingerprint(ints));
+
+    ResolverCache cache = new ResolverCache(10);
+    assertNotSame(cache.getResolver(longs, reader),
+                  cache.getResolver(ints, reader));
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testUnwritableSchemaNotCached() throws IOException {
+    // distinct records with the same name can't be written as JSON
+    Schema first = Schema.createRecord("A", null, null, false);
+    first.setFields(Arrays.asList(
+        new Schema.Field("x", Schema.create(Schema.Type.INT), null, null)));
+    Schema second = Schema.createRecord("A", null, null, false);
+    second.setFields(Arrays.asList(
+        new Schema.Field("y", Schema.create(Schema.Type.INT), null, null)));
+    Schema schema = Schema.createRecord("R", null, null, false);
+    schema.setFields(Arrays.asList(
+        new Schema.Field("first", first, null, null),
+        new Schema.Field("second", second, null, null)));
+
+    ResolverCache cache = new ResolverCache(10);
+    assertNotSame(cache.getResolver(schema, schema),
+                  cache.getResolver(schema, schema));
+    assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.avro.Schema;
+import org.apache.avro.util.Utf8;
+import org.junit.Test;
+
+public class TestStringDictionary {
+  private static final String[] VALUES = { "", "US", "FR", "caf\u00e9", "US" };
+
+  private static byte[] encode() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    for (String value : VALUES)
+      e.writeString(value);
+    e.flush();
+    return out.toByteArray();
+  }
+
+  private static void check(Decoder in) throws IOException {
+    StringDictionary dictionary = new StringDictionary(10, s -> s);
+    Object[] read = new Object[VALUES.length];
+    for (int i = 0; i < VALUES.length; i++) {
+      read[i] = in.readSharedString(dictionary);
+      assertEquals(new Utf8(VALUES[i]), read[i]);
+    }
+    assertSame(read[1], read[4]);
+    assertEquals(4, dictionary.size());
+    assertEquals(1, dictionary.getHitCount());
+  }
+
+  @Test
+  public void testDecoders() throws IOException {
+    byte[] bytes = encode();
+    DecoderFactory factory = DecoderFactory.get();
+    check(factory.binaryDecoder(bytes, null));
+    check(factory.binaryDecoder(new ByteArrayInputStream(bytes), null));
+    check(factory.directBinaryDecoder(new ByteArrayInputStream(bytes), null));
+  }
+
+  @Test
+  public void testResolvingDecoder() throws IOException {
+    // bytes are promoted to strings
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+    e.writeBytes("US".getBytes(StandardCharsets.UTF_8));
+    e.writeString("US");
+    e.flush();
+    DecoderFactory factory = DecoderFactory.get();
+    BinaryDecoder in = factory.binaryDecoder(out.toByteArray(), null);
+    Schema string = Schema.create(Schema.Type.STRING);
+    StringDictionary dictionary = new StringDictionary(10, Utf8::toString);
+    Object promoted = factory.resolvingDecoder(
+        Schema.create(Schema.Type.BYTES), string, in).readSharedString(dictionary);
+    assertEquals("US", promoted);
+    assertSame(promoted, factory.resolvingDecoder(string, string, in)
+               .readSharedString(dictionary));
+  }
+
+  @Test
+  public void testBounded() {
+    StringDictionary dictionary = new StringDictionary(20, Utf8::toString);
+    for (int i = 0; i < 100; i++) {
+      byte[] bytes = ("v" + i).getBytes();
+      assertEquals("v" + i, dictionary.get(bytes, 0, bytes.length));
+    }
+    assertEquals(20, dictionary.size());
+
+    byte[] bytes = "xv5x".getBytes();
+    Object v5 = dictionary.get(bytes, 1, 2);
+    assertSame(v5, dictionary.get("v5".getBytes(), 0, 2));
+    // values beyond the bound are not shared
+    Object v50 = dictionary.get("v50".getBytes(), 0, 3);
+    assertNotSame(v50, dictionary.get("v50".getBytes(), 0, 3));
+    assertEquals(20, dictionary.size());
+  }
+}
@@ -19,6 +19,7 @@
 
 package org.apache.avro.message;
 
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.*;
 
@@ -76,6 +77,96 @@ public class TestBinaryMessageEncoding {
     Assert.assertEquals("Record should be identical after round-trip", V2_RECORDS.get(0), copy);
   }
 
+  @Test
+  public void testDirectByteBufferRoundTrip() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    for (Record record : V2_RECORDS) {
+      ByteBuffer heap = encoder.encode(record);
+      ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining() + 3);
+      direct.put(new byte[] { 1, 2, 3 });
+      direct.put(heap.duplicate());
+      direct.flip();
+      direct.position(3);
+
+      Assert.assertEquals("Record should be identical after round-trip",
+          record, decoder.decode(direct));
+      Assert.assertEquals("Buffer position should not change", 3, direct.position());
+      Assert.assertEquals("Record should be identical after round-trip",
+          record, decoder.decode(direct.asReadOnlyBuffer()));
+    }
+  }
+
+  @Test
+  public void testByteArrayRoundTrip() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    for (Record record : V2_RECORDS) {
+      ByteBuffer buffer = encoder.encode(record);
+      byte[] bytes = new byte[buffer.remaining()];
+      buffer.get(bytes);
+      Assert.assertEquals("Record should be identical after round-trip",
+          record, decoder.decode(bytes));
+    }
+  }
+
+  @Test(expected = BadHeaderException.class)
+  public void testShortDirectBuffer() throws Exception {
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer direct = ByteBuffer.allocateDirect(4);
+    direct.put(BinaryMessageEncoder.V1_HEADER);
+    direct.flip();
+    decoder.decode(direct);
+  }
+
+  @Test
+  public void testEncodeIntoBuffer() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    MessageDecoder<Record> decoder = new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2);
+
+    byte[] bytes = new byte[256];
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    for (Record record : V2_RECORDS) {
+      buffer.clear();
+      int length = encoder.encode(record, buffer);
+      Assert.assertEquals(length, buffer.position());
+      Assert.assertEquals(encoder.encode(record),
+          ByteBuffer.wrap(bytes, 0, length));
+      buffer.flip();
+      Assert.assertEquals(record, decoder.decode(buffer));
+    }
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(64);
+    direct.position(3);
+    int length = encoder.encode(V2_RECORDS.get(1), direct);
+    Assert.assertEquals(3 + length, direct.position());
+    direct.flip();
+    direct.position(3);
+    Assert.assertEquals(V2_RECORDS.get(1), decoder.decode(direct));
+  }
+
+  @Test
+  public void testEncodeIntoShortBuffer() throws Exception {
+    MessageEncoder<Record> encoder = new BinaryMessageEncoder<>(GenericData.get(), SCHEMA_V2);
+    ByteBuffer buffer = ByteBuffer.allocate(12);
+    buffer.position(1);
+    try {
+      encoder.encode(V2_RECORDS.get(0), buffer);
+      Assert.fail("Should not fit in the buffer");
+    } catch (BufferOverflowException e) {
+      Assert.assertEquals("Position should be unchanged", 1, buffer.position());
+    }
+
+    // a failed encoding must not leak into the next one
+    ByteBuffer large = ByteBuffer.allocate(64);
+    int length = encoder.encode(V2_RECORDS.get(2), large);
+    large.flip();
+    Assert.assertEquals(length, large.remaining());
+    Assert.assertEquals(encoder.encode(V2_RECORDS.get(2)), large);
+  }
+
   @Test
   public void testSchemaEvolution() throws Exception {
     List<ByteBuffer> buffers = new ArrayList<>();
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaNormalization;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericData.Record;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCachingSchemaStore {
+  private static final Schema SCHEMA_V1 = SchemaBuilder.record("TestRecord")
+      .fields()
+      .requiredInt("id")
+      .endRecord();
+  private static final Schema SCHEMA_V2 = SchemaBuilder.record("TestRecord")
+      .fields()
+      .requiredLong("id")
+      .optionalString("msg")
+      .endRecord();
+  private static final long FP_V1 =
+      SchemaNormalization.parsingFingerprint64(SCHEMA_V1);
+  private static final long FP_V2 =
+      SchemaNormalization.parsingFingerprint64(SCHEMA_V2);
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  /** A loader whose loads are completed by the test. */
+  private static class ManualLoader implements CachingSchemaStore.Loader {
+    final AtomicInteger loads = new AtomicInteger();
+    CompletableFuture<Schema> pending;
+
+    @Override
+    public CompletableFuture<Schema> load(long fingerprint) {
+      loads.incrementAndGet();
+      pending = new CompletableFuture<>();
+      return pending;
+    }
+  }
+
+  private static class ManualTicker {
+    long now = 0;
+  }
+
+  @Test
+  public void testConcurrentMissesShareOneLoad() {
+    ManualLoader loader = new ManualLoader();
+    CachingSchemaStore store = new CachingSchemaStore(loader);
+    CompletableFuture<Schema> first = store.findByFingerprintAsync(FP_V1);
+    CompletableFuture<Schema> second = store.findByFingerprintAsync(FP_V1);
+    Assert.assertFalse(first.isDone());
+    Assert.assertEquals(1, loader.loads.get());
+
+    loader.pending.complete(SCHEMA_V1);
+    Assert.assertEquals(SCHEMA_V1, first.join());
+    Assert.assertEquals(SCHEMA_V1, second.join());
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+    Assert.assertEquals(1, store.getLoadCount());
+    Assert.assertEquals(2, store.getHitCount());
+  }
+
+  @Test
+  public void testMissingFingerprintsAreRetried() {
+    ManualLoader loader = new ManualLoader();
+    ManualTicker ticker = new ManualTicker();
+    CachingSchemaStore store = new CachingSchemaStore(loader, 10, 0, 100, 1000,
+        TimeUnit.NANOSECONDS, () -> ticker.now);
+
+    CompletableFuture<Schema> missing = store.findByFingerprintAsync(FP_V1);
+    loader.pending.complete(null);
+    Assert.assertNull(missing.join());
+    ticker.now = 99;
+    Assert.assertNull(store.findByFingerprint(FP_V1));
+    Assert.assertEquals(1, loader.loads.get());
+
+    ticker.now = 100;
+    CompletableFuture<Schema> retried = store.findByFingerprintAsync(FP_V1);
+    Assert.assertEquals(2, loader.loads.get());
+    loader.pending.complete(SCHEMA_V1);
+    Assert.assertEquals(SCHEMA_V1, retried.join());
+  }
+
+  @Test
+  public void testStalledLoadsTimeOut() {
+    ManualLoader loader = new ManualLoader();
+    ManualTicker ticker = new ManualTicker();
+    CachingSchemaStore store = new CachingSchemaStore(loader, 10, 0, 100,
+        TimeUnit.MILLISECONDS.toNanos(50), TimeUnit.NANOSECONDS,
+        () -> ticker.now);
+
+    CompletableFuture<Schema> stalled = store.findByFingerprintAsync(FP_V1);
+    // the synchronous lookup waits no longer than the load timeout
+    Assert.assertNull(store.findByFingerprint(FP_V1));
+    Assert.assertFalse(stalled.isDone());
+
+    // once timed out, the load fails and is retried like a missing schema
+    ticker.now = TimeUnit.MILLISECONDS.toNanos(50);
+    Assert.assertNull(store.findByFingerprintAsync(FP_V1).join());
+    Assert.assertNull(stalled.join());
+    Assert.assertEquals(1, loader.loads.get());
+    ticker.now += 100;
+    CompletableFuture<Schema> retried = store.findByFingerprintAsync(FP_V1);
+    Assert.assertEquals(2, loader.loads.get());
+    loader.pending.complete(SCHEMA_V1);
+    Assert.assertEquals(SCHEMA_V1, retried.join());
+  }
+
+  @Test
+  public void testLoaderWithoutFutureIsMissing() {
+    AtomicInteger loads = new AtomicInteger();
+    CachingSchemaStore store = new CachingSchemaStore(fp -> {
+      loads.incrementAndGet();
+      return null;
+    });
+    Assert.assertNull(store.findByFingerprint(FP_V1));
+    Assert.assertNull(store.findByFingerprintAsync(FP_V1).join());
+    Assert.assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void testFailedAndMismatchedLoadsAreMissing() {
+    ManualLoader loader = new ManualLoader();
+    CachingSchemaStore store = new CachingSchemaStore(loader);
+    CompletableFuture<Schema> failed = store.findByFingerprintAsync(FP_V1);
+    loader.pending.completeExceptionally(new IOException("unavailable"));
+    Assert.assertNull(failed.join());
+
+    CompletableFuture<Schema> wrong = store.findByFingerprintAsync(FP_V2);
+    loader.pending.complete(SCHEMA_V1);
+    Assert.assertNull(wrong.join());
+  }
+
+  @Test
+  public void testExpireAfterAccess() {
+    ManualLoader loader = new ManualLoader();
+    ManualTicker ticker = new ManualTicker();
+    CachingSchemaStore store = new CachingSchemaStore(loader, 10, 10, 10, 1000,
+        TimeUnit.NANOSECONDS, () -> ticker.now);
+    store.addSchema(SCHEMA_V1);
+    ticker.now = 9;
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+    ticker.now = 18;
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+    Assert.assertEquals(0, loader.loads.get());
+
+    ticker.now = 28;
+    store.findByFingerprintAsync(FP_V1);
+    Assert.assertEquals(1, loader.loads.get());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEviction() {
+    ManualLoader loader = new ManualLoader();
+    ManualTicker ticker = new ManualTicker();
+    CachingSchemaStore store = new CachingSchemaStore(loader, 2, 0, 1000, 1000,
+        TimeUnit.NANOSECONDS, () -> ticker.now);
+    store.addSchema(SCHEMA_V1);
+    ticker.now = 1;
+    store.addSchema(SCHEMA_V2);
+    ticker.now = 2;
+    store.findByFingerprint(FP_V1);
+
+    ticker.now = 3;
+    store.findByFingerprintAsync(42L);            // evicts V2
+    Assert.assertEquals(1, store.getEvictionCount());
+    Assert.assertEquals(2, store.size());
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+    Assert.assertEquals(1, loader.loads.get());
+    store.findByFingerprintAsync(FP_V2);
+    Assert.assertEquals(2, loader.loads.get());
+  }
+
+  @Test
+  public void testDirectoryLoader() throws Exception {
+    File dir = temp.newFolder();
+    try (Writer writer = new FileWriter(new File(dir, "v1.avsc"))) {
+      writer.write(SCHEMA_V1.toString());
+    }
+    try (Writer writer = new FileWriter(new File(dir, "broken.avsc"))) {
+      writer.write("{ not a schema");
+    }
+    CachingSchemaStore store = new CachingSchemaStore(
+        new CachingSchemaStore.DirectoryLoader(dir, Runnable::run));
+    Assert.assertEquals(SCHEMA_V1, store.findByFingerprint(FP_V1));
+    Assert.assertNull(store.findByFingerprint(FP_V2));
+
+    // decode a message written with a schema found in the directory
+    BinaryMessageDecoder<Record> decoder =
+        new BinaryMessageDecoder<>(GenericData.get(), SCHEMA_V2, store);
+    Record read = decoder.decode(
+        new BinaryMessageEncoder<Record>(GenericData.get(), SCHEMA_V1)
+            .encode(new GenericRecordBuilder(SCHEMA_V1).set("id", 5).build()));
+    Assert.assertEquals(5L, read.get("id"));
+    Assert.assertNull(read.get("msg"));
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.avro.message;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFingerprintIndex {
+  @Test
+  public void testAgainstHashMap() {
+    FingerprintIndex<String> index = new FingerprintIndex<>();
+    Map<Long, String> expected = new HashMap<>();
+    Random random = new Random(19781210);
+    for (int i = 0; i < 2000; i++) {
+      // include colliding small keys and zero
+      long fp = i % 3 == 0 ? random.nextInt(64) : random.nextLong();
+      String value = "v" + i;
+      Assert.assertEquals(expected.put(fp, value), index.put(fp, value));
+      if (i % 5 == 0) {
+        long removed = random.nextInt(64);
+        Assert.assertEquals(expected.remove(removed), index.remove(removed));
+      }
+    }
+    Assert.assertEquals(expected.size(), index.size());
+    for (Map.Entry<Long, String> entry : expected.entrySet()) {
+      Assert.assertEquals(entry.getValue(), index.get(entry.getKey()));
+    }
+    Map<Long, String> visited = new HashMap<>();
+    index.forEach(visited::put);
+    Assert.assertEquals(expected, visited);
+  }
+
+  @Test
+  public void testRemoveIfAndPutIfAbsent() {
+    FingerprintIndex<Integer> index = new FingerprintIndex<>();
+    for (int i = 0; i < 100; i++) {
+      Assert.assertNull(index.putIfAbsent(i, i));
+    }
+    Assert.assertEquals(Integer.valueOf(7), index.putIfAbsent(7, 70));
+    Assert.assertEquals(90, index.removeIf((fp, value) -> value >= 10));
+    Assert.assertEquals(10, index.size());
+    Assert.assertNull(index.get(50));
+    Assert.assertEquals(Integer.valueOf(7), index.get(7));
+    index.clear();
+    Assert.assertEquals(0, index.size());
+    Assert.assertNull(index.get(7));
+  }
+}
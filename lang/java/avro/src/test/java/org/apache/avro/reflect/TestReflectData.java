@@ -19,9 +19,12 @@
 package org.apache.avro.reflect;
 
 import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.avro.Schema;
 import org.junit.Test;
@@ -48,4 +51,21 @@ public class TestReflectData {
     assertThat("ReflectData cache should release references",
         classData.bySchema.size(), lessThan(numSchemas));
   }
+
+  @Test
+  public void testResolveUnionOfMaps() {
+    ReflectData data = new ReflectData();
+    Map<String, Integer> stringKeys = new HashMap<>();
+    stringKeys.put("a", 1);
+    Map<Integer, Integer> intKeys = new HashMap<>();
+    intKeys.put(1, 1);
+    Schema union = Schema.createUnion(Schema.create(Schema.Type.NULL),
+        Schema.createMap(Schema.create(Schema.Type.INT)),
+        Schema.createArray(Schema.create(Schema.Type.INT)));
+    // maps of the same class are written as arrays when their keys aren't strings
+    for (int i = 0; i < 3; i++) {
+      assertEquals(1, data.resolveUnion(union, stringKeys));
+      assertEquals(2, data.resolveUnion(union, intKeys));
+    }
+  }
 }
@@ -489,7 +489,8 @@ public class TestReflectLogicalTypes {
       // only one FieldAccess can be set per JVM
       System.setProperty("avro.disable.unsafe", "true");
       Assume.assumeTrue(
-          ReflectionUtil.getFieldAccess() instanceof FieldAccessReflect);
+          ReflectionUtil.getFieldAccess() instanceof FieldAccessReflect
+          || ReflectionUtil.getFieldAccess() instanceof FieldAccessHandle);
 
       Schema uuidSchema = SchemaBuilder.record(RecordWithUUID.class.getName())
           .fields().requiredString("uuid").endRecord();
@@ -17,9 +17,18 @@
  */
 package org.apache.avro.reflect;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.Field;
 
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
 import org.junit.Test;
 
 public class TestReflectionUtil {
@@ -34,6 +43,55 @@ public class TestReflectionUtil {
     ClassLoader cl = new NoUnsafe();
     Class<?> testerClass = cl.loadClass(Tester.class.getName());
     testerClass.getDeclaredMethod("checkUnsafe").invoke(testerClass.newInstance());
+    testerClass.getDeclaredMethod("checkHandles").invoke(testerClass.newInstance());
+  }
+
+  @Test
+  public void testHandleAccessors() throws Exception {
+    FieldAccess access = new FieldAccessHandle();
+    Primitives in = new Primitives();
+    in.b = true; in.by = -3; in.c = '\u00e9'; in.s = -300; in.i = 1 << 20;
+    in.l = -1L << 40; in.f = 1.5f; in.d = -2.25; in.o = "foo";
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(bytes, null);
+    Field[] fields = Primitives.class.getDeclaredFields();
+    for (Field field : fields) {
+      FieldAccessor accessor = access.getAccessor(field);
+      if (accessor.supportsIO())
+        accessor.write(in, encoder);
+    }
+    encoder.flush();
+
+    Primitives out = new Primitives();
+    Decoder decoder = DecoderFactory.get().binaryDecoder(bytes.toByteArray(), null);
+    for (Field field : fields) {
+      FieldAccessor accessor = access.getAccessor(field);
+      if (accessor.supportsIO())
+        accessor.read(out, decoder);
+      else
+        accessor.set(out, accessor.get(in));
+      assertEquals(field.getName(), accessor.get(in), accessor.get(out));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testHandleAccessorWrongType() throws Exception {
+    FieldAccess access = new FieldAccessHandle();
+    access.getAccessor(Primitives.class.getDeclaredField("o"))
+      .set(new Primitives(), 1);
+  }
+
+  private static final class Primitives {
+    private boolean b;
+    private byte by;
+    private char c;
+    private short s;
+    private int i;
+    private long l;
+    private float f;
+    private double d;
+    private String o;
   }
 
   public static final class Tester {
@@ -42,6 +100,10 @@ public class TestReflectionUtil {
       ReflectionUtil.getFieldAccess();
     }
 
+    public void checkHandles() {
+      assertTrue(ReflectionUtil.getFieldAccess() instanceof FieldAccessHandle);
+    }
+
   }
 
   private static final class NoUnsafe extends ClassLoader {
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.specific;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.LocalDate;
+import org.joda.time.LocalTime;
+import org.junit.Test;
+
+public class TestFastSpecificDatumReader {
+
+  @Test
+  public void testRecordWithLogicalTypes() throws IOException {
+    TestRecordWithLogicalTypes record = new TestRecordWithLogicalTypes(
+        true, 34, 35L, 3.14F, 3019.34, "s",
+        LocalDate.now(),
+        LocalTime.now(),
+        DateTime.now().withZone(DateTimeZone.UTC),
+        new BigDecimal(123.45f).setScale(2, RoundingMode.HALF_DOWN));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    SpecificDatumWriter<TestRecordWithLogicalTypes> writer =
+      new SpecificDatumWriter<>(TestRecordWithLogicalTypes.class);
+    writer.write(record, encoder);
+    writer.write(record, encoder);
+    encoder.flush();
+
+    FastSpecificDatumReader<TestRecordWithLogicalTypes> reader =
+      new FastSpecificDatumReader<>(TestRecordWithLogicalTypes.class);
+    BinaryDecoder decoder =
+      DecoderFactory.get().binaryDecoder(out.toByteArray(), null);
+    TestRecordWithLogicalTypes first = reader.read(null, decoder);
+    assertEquals(record, first);
+    assertEquals(record, reader.read(first, decoder));
+  }
+}
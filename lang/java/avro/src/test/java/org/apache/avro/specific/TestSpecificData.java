@@ -125,6 +125,29 @@ public class TestSpecificData {
 
   }
 
+  public static class FactoryRecord extends TestRecord {
+    static int created;
+    static {
+      SpecificData.setFactory(FactoryRecord.class, schema -> {
+        created++;
+        return new FactoryRecord();
+      });
+    }
+  }
+
+  @Test
+  public void testNewInstance() {
+    assertTrue(SpecificData.newInstance(TestRecord.class, null)
+               instanceof TestRecord);
+
+    // the factory is set once the class is initialized
+    new FactoryRecord();
+    int created = FactoryRecord.created;
+    Object instance = SpecificData.newInstance(FactoryRecord.class, null);
+    assertTrue(instance instanceof FactoryRecord);
+    assertEquals(created + 1, FactoryRecord.created);
+  }
+
   @Test
   public void testSpecificRecordBase() {
     final TestRecord record = new TestRecord();
@@ -19,6 +19,8 @@ package org.apache.avro.util;
 
 import static junit.framework.Assert.assertSame;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 
 import java.nio.charset.StandardCharsets;
 
@@ -46,4 +48,70 @@ public class TestUtf8 {
     assertEquals(4, u.getByteLength());
     assertSame(content, u.getBytes());
   }
+
+  @Test public void testHashCodeRecomputedWhenChanged() {
+    Utf8 u = new Utf8("abc");
+    assertEquals(new Utf8("abc").hashCode(), u.hashCode());
+    u.setByteLength(2);
+    assertEquals(new Utf8("ab").hashCode(), u.hashCode());
+    u.getBytes()[1] = 'x';
+    u.setByteLength(2);
+    assertEquals(new Utf8("ax").hashCode(), u.hashCode());
+    u.set("xyz");
+    assertEquals(new Utf8("xyz").hashCode(), u.hashCode());
+    assertEquals(u.hashCode(), new Utf8(u).hashCode());
+  }
+
+  @Test public void testEquals() {
+    Utf8 u = new Utf8("abc");
+    Utf8 longer = new Utf8("abcd").setByteLength(3);
+    assertEquals(u, longer);
+    assertEquals(longer, u);
+    u.hashCode();
+    longer.hashCode();
+    assertEquals(u, longer);
+    assertNotEquals(u, new Utf8("abd"));
+    assertNotEquals(u, new Utf8("ab"));
+    longer.getBytes()[2] = 'd';
+    longer.setByteLength(3);
+    assertNotEquals(u, longer);
+  }
+
+  @Test public void testCharSequence() {
+    checkCharSequence("");
+    checkCharSequence("ascii");
+    checkCharSequence("caf\u00e9");
+    checkCharSequence("\ud83d\ude00 smile");
+  }
+
+  private static void checkCharSequence(String s) {
+    for (Utf8 u : new Utf8[] { new Utf8(s),
+                               new Utf8(s.getBytes(StandardCharsets.UTF_8)),
+                               new Utf8().set(s) }) {
+      assertEquals(s.length(), u.length());
+      for (int i = 0; i < s.length(); i++)
+        assertEquals(s.charAt(i), u.charAt(i));
+      for (int start = 0; start <= s.length(); start++)
+        for (int end = start; end <= s.length(); end++)
+          assertEquals(s.subSequence(start, end).toString(),
+                       u.subSequence(start, end).toString());
+      assertEquals(s, u.toString());
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testCharAtOutOfBounds() {
+    new Utf8("abcd").setByteLength(2).charAt(2);
+  }
+
+  @Test public void testAsciiChangedToNonAscii() {
+    Utf8 u = new Utf8("abc");
+    assertEquals('b', u.charAt(1));
+    byte[] bytes = "\u00e9".getBytes(StandardCharsets.UTF_8);
+    u.setByteLength(bytes.length);
+    System.arraycopy(bytes, 0, u.getBytes(), 0, bytes.length);
+    assertEquals(1, u.length());
+    assertEquals('\u00e9', u.charAt(0));
+    assertFalse(u.equals(new Utf8("ab")));
+  }
 }
@@ -40,6 +40,8 @@ import org.apache.avro.ipc.Responder;
 import org.apache.avro.ipc.Transceiver;
 import org.apache.avro.ipc.generic.GenericRequestor;
 import org.apache.avro.ipc.generic.GenericResponder;
+import org.apache.avro.ipc.stats.ConcurrentStatsPlugin;
+import org.apache.avro.ipc.stats.ConcurrentStatsPlugin.MessageSnapshot;
 import org.apache.avro.ipc.stats.StatsPlugin;
 import org.apache.avro.ipc.stats.StatsServlet;
 import org.junit.Test;
@@ -144,6 +146,33 @@ public class TestStatsPluginAndServlet {
 
   }
 
+  @Test
+  public void testConcurrentPlugin() throws Exception {
+    Responder r = new TestResponder(protocol);
+    ConcurrentStatsPlugin statsPlugin = new ConcurrentStatsPlugin();
+    r.addRPCPlugin(statsPlugin);
+    Transceiver t = new LocalTransceiver(r);
+    for (int i = 0; i < 10; ++i) {
+      makeRequest(t);
+    }
+    RPCContext active = makeContext();
+    statsPlugin.serverReceiveRequest(active);
+
+    MessageSnapshot snapshot = statsPlugin.getSnapshot().get(0);
+    assertEquals(message, snapshot.getMessage());
+    assertEquals(11, snapshot.getCalls());
+    assertEquals(10, snapshot.getLatency().getCount());
+    assertEquals(2.0, snapshot.getSendPayloads().getMean(), 0);
+
+    StatsServlet servlet = new StatsServlet(statsPlugin);
+    StringWriter w = new StringWriter();
+    servlet.writeStats(w);
+    String o = w.toString();
+    assertTrue(o.contains("m (11 calls)"));
+    assertTrue(o.contains("p99.9: "));
+    assertTrue(o.contains("<li>m: "));            // in flight
+  }
+
   private RPCContext makeContext() {
     RPCContext context = new RPCContext();
     context.setMessage(message);
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.netty4;
+
+import java.util.concurrent.TimeUnit;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+/** Creates event loops and picks the channel classes that run on them.
+ * <p/>
+ * The native epoll transport is used where it is available, unless the
+ * system property <tt>org.apache.avro.ipc.netty4.use_epoll</tt> is false.
+ * It is an optional dependency, so its classes may be absent.
+ */
+public final class NettyEventLoops {
+  static final boolean USE_EPOLL = Boolean.parseBoolean(
+      System.getProperty("org.apache.avro.ipc.netty4.use_epoll", "true"));
+
+  private static final boolean EPOLL = USE_EPOLL && epollAvailable();
+
+  private NettyEventLoops() {}
+
+  private static boolean epollAvailable() {
+    try {
+      return Epoll.isAvailable();
+    } catch (LinkageError e) {                    // not on the classpath
+      return false;
+    }
+  }
+
+  /** Returns a group of <i>threads</i> daemon event loops, or of twice as
+   * many as processors when <i>threads</i> is zero. */
+  public static EventLoopGroup newGroup(int threads, String name) {
+    DefaultThreadFactory factory = new DefaultThreadFactory(name, true);
+    if (EPOLL)
+      return new EpollEventLoopGroup(threads, factory);
+    return new NioEventLoopGroup(threads, factory);
+  }
+
+  static Class<? extends ServerChannel> serverChannelClass(EventLoopGroup g) {
+    return EPOLL && g instanceof EpollEventLoopGroup
+      ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+  }
+
+  static Class<? extends SocketChannel> channelClass(EventLoopGroup g) {
+    return EPOLL && g instanceof EpollEventLoopGroup
+      ? EpollSocketChannel.class : NioSocketChannel.class;
+  }
+
+  /** Starts shutting down a group, without a quiet period. */
+  static void shutdown(EventExecutorGroup group) {
+    group.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+  }
+}
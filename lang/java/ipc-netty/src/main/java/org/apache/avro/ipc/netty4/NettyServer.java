@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.netty4;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.ipc.Responder;
+import org.apache.avro.ipc.Server;
+import org.apache.avro.ipc.Transceiver;
+import org.apache.avro.ipc.netty.NettyTransportCodec.NettyDataPack;
+import org.apache.avro.ipc.netty4.NettyTransportCodec.NettyFrameDecoder;
+import org.apache.avro.ipc.netty4.NettyTransportCodec.NettyFrameEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/**
+ * A Netty 4 based {@link Server}, which may be used with either Netty
+ * transceiver.
+ * <p/>
+ * Buffers are taken from Netty's pooled allocator, and the native epoll
+ * transport is used where available (see {@link NettyEventLoops}).  Responses
+ * to the requests read together from a connection are flushed together.
+ */
+public class NettyServer implements Server {
+  private static final Logger LOG = LoggerFactory.getLogger(NettyServer.class);
+
+  private static final NettyFrameEncoder ENCODER = new NettyFrameEncoder();
+
+  private final Responder responder;
+  private final Channel serverChannel;
+  private final ChannelGroup allChannels =
+    new DefaultChannelGroup("avro-netty4-server", GlobalEventExecutor.INSTANCE);
+  private final EventLoopGroup bossGroup;
+  private final EventLoopGroup workerGroup;
+  private final boolean ownsGroups;
+  private final CountDownLatch closed = new CountDownLatch(1);
+
+  /** Construct a server with the default number of worker event loops,
+   * twice the number of processors. */
+  public NettyServer(Responder responder, InetSocketAddress addr)
+    throws IOException {
+    this(responder, addr, 0);
+  }
+
+  /** Construct a server with <i>workerThreads</i> worker event loops, which
+   * are shut down when this server is closed. */
+  public NettyServer(Responder responder, InetSocketAddress addr,
+                     int workerThreads) throws IOException {
+    this(responder, addr,
+         NettyEventLoops.newGroup(1, "avro-netty4-server-boss"),
+         NettyEventLoops.newGroup(workerThreads, "avro-netty4-server-worker"),
+         null, true);
+  }
+
+  /**
+   * Construct a server on caller-supplied event loops, which are not shut
+   * down when this server is closed.
+   * @param executorGroup if not null, requests are responded to on this
+   *                      group rather than on the worker event loops.  Use
+   *                      this when your responder does long, non-cpu bound
+   *                      processing.
+   */
+  public NettyServer(Responder responder, InetSocketAddress addr,
+                     EventLoopGroup bossGroup, EventLoopGroup workerGroup,
+                     EventExecutorGroup executorGroup) throws IOException {
+    this(responder, addr, bossGroup, workerGroup, executorGroup, false);
+  }
+
+  private NettyServer(Responder responder, InetSocketAddress addr,
+                      EventLoopGroup bossGroup, EventLoopGroup workerGroup,
+                      final EventExecutorGroup executorGroup,
+                      boolean ownsGroups) throws IOException {
+    this.responder = responder;
+    this.bossGroup = bossGroup;
+    this.workerGroup = workerGroup;
+    this.ownsGroups = ownsGroups;
+    ServerBootstrap bootstrap = new ServerBootstrap()
+      .group(bossGroup, workerGroup)
+      .channel(NettyEventLoops.serverChannelClass(bossGroup))
+      .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+      .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+      .childOption(ChannelOption.TCP_NODELAY, true)
+      .childHandler(new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) {
+          allChannels.add(ch);
+          ChannelPipeline p = ch.pipeline();
+          p.addLast("frameDecoder", new NettyFrameDecoder(false));
+          p.addLast("frameEncoder", ENCODER);
+          p.addLast(executorGroup, "handler", new NettyServerAvroHandler());
+        }
+      });
+    ChannelFuture bound = bootstrap.bind(addr).awaitUninterruptibly();
+    if (!bound.isSuccess()) {
+      shutdown();
+      throw new IOException("Error binding to " + addr, bound.cause());
+    }
+    serverChannel = bound.channel();
+    allChannels.add(serverChannel);
+  }
+
+  @Override
+  public void start() {
+    // No-op.
+  }
+
+  @Override
+  public void close() {
+    allChannels.close().awaitUninterruptibly();
+    shutdown();
+    closed.countDown();
+  }
+
+  private void shutdown() {
+    if (ownsGroups) {
+      NettyEventLoops.shutdown(bossGroup);
+      NettyEventLoops.shutdown(workerGroup);
+    }
+  }
+
+  @Override
+  public int getPort() {
+    return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    closed.await();
+  }
+
+  /**
+   * @return The number of clients currently connected to this server.
+   */
+  public int getNumActiveConnections() {
+    // allChannels also contains the server channel, so exclude that from the
+    // count.
+    return allChannels.size() - 1;
+  }
+
+  /**
+   * Avro server handler for a connection.  Holds the handshake state of the
+   * connection for {@link Responder#respond(List, Transceiver)}.
+   */
+  class NettyServerAvroHandler
+    extends SimpleChannelInboundHandler<NettyDataPack> {
+
+    private final Connection connection = new Connection();
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+      connection.remoteName = String.valueOf(ctx.channel().remoteAddress());
+      LOG.info("Connection from {}", connection.remoteName);
+      super.channelActive(ctx);
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx,
+                                NettyDataPack dataPack) {
+      try {
+        List<ByteBuffer> res = responder.respond(dataPack.getDatas(),
+                                                 connection);
+        // response will be null for oneway messages.
+        if (res != null)
+          ctx.write(new NettyDataPack(dataPack.getSerial(), res),
+                    ctx.voidPromise());
+      } catch (IOException ex) {
+        LOG.warn("unexpected error", ex);
+      } finally {
+        NettyTransportCodec.release(dataPack);    // the request was read
+      }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+      ctx.flush();
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      LOG.warn("Unexpected exception from downstream.", cause);
+      ctx.close();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      LOG.info("Connection to {} disconnected.", connection.remoteName);
+      super.channelInactive(ctx);
+    }
+  }
+
+  /** The handshake state of a connection. */
+  private static class Connection extends Transceiver {
+    private volatile String remoteName;
+    private volatile Protocol remote;
+
+    @Override
+    public String getRemoteName() { return remoteName; }
+
+    @Override
+    public List<ByteBuffer> readBuffers() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeBuffers(List<ByteBuffer> buffers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public boolean isConnected() { return remote != null; }
+
+    @Override public void setRemote(Protocol remote) {
+      this.remote = remote;
+    }
+
+    @Override public Protocol getRemote() {
+      return remote;
+    }
+  }
+}
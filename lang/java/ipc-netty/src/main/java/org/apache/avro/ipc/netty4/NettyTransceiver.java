@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.netty4;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.ipc.CallFuture;
+import org.apache.avro.ipc.Callback;
+import org.apache.avro.ipc.Transceiver;
+import org.apache.avro.ipc.netty.NettyTransportCodec.NettyDataPack;
+import org.apache.avro.ipc.netty4.NettyTransportCodec.NettyFrameDecoder;
+import org.apache.avro.ipc.netty4.NettyTransportCodec.NettyFrameEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+
+/**
+ * A Netty 4 based {@link Transceiver}, which may be used with either Netty
+ * server.
+ * <p/>
+ * Requests are written without waiting for earlier responses.  Responses are
+ * read on an event loop, which also runs the callbacks passed to {@link
+ * #transceive(List, Callback)}, so callbacks should not block.  If the
+ * connection is lost it is reopened by the next request.
+ */
+public class NettyTransceiver extends Transceiver {
+  /** If not specified, the default connection timeout will be used (60 sec). */
+  public static final long DEFAULT_CONNECTION_TIMEOUT_MILLIS = 60 * 1000L;
+
+  private static final Logger LOG =
+    LoggerFactory.getLogger(NettyTransceiver.class);
+
+  private static final NettyFrameEncoder ENCODER = new NettyFrameEncoder();
+
+  private final AtomicInteger serialGenerator = new AtomicInteger(0);
+  private final Map<Integer, Pending> requests = new ConcurrentHashMap<>();
+
+  private final InetSocketAddress remoteAddr;
+  private final EventLoopGroup group;
+  private final boolean ownsGroup;
+  private final Bootstrap bootstrap;
+
+  private volatile Channel channel;
+  private volatile Protocol remote;
+  private volatile boolean closed;
+
+  /**
+   * Creates a NettyTransceiver, and attempts to connect to the given address.
+   * {@link #DEFAULT_CONNECTION_TIMEOUT_MILLIS} is used for the connection
+   * timeout.
+   * @param addr the address to connect to.
+   * @throws IOException if an error occurs connecting to the given address.
+   */
+  public NettyTransceiver(InetSocketAddress addr) throws IOException {
+    this(addr, DEFAULT_CONNECTION_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Creates a NettyTransceiver on its own event loop, and attempts to connect
+   * to the given address.
+   * @param addr the address to connect to.
+   * @param connectTimeoutMillis maximum amount of time to wait for connection
+   * establishment in milliseconds.
+   * @throws IOException if an error occurs connecting to the given address.
+   */
+  public NettyTransceiver(InetSocketAddress addr, long connectTimeoutMillis)
+    throws IOException {
+    this(addr, NettyEventLoops.newGroup(1, "avro-netty4-transceiver"),
+         connectTimeoutMillis, true);
+  }
+
+  /**
+   * Creates a NettyTransceiver on a caller-supplied group of event loops,
+   * which may be shared by many transceivers and is not shut down when this
+   * is closed, and attempts to connect to the given address.
+   * @param addr the address to connect to.
+   * @param group the event loops to read and write on.
+   * @param connectTimeoutMillis maximum amount of time to wait for connection
+   * establishment in milliseconds.
+   * @throws IOException if an error occurs connecting to the given address.
+   */
+  public NettyTransceiver(InetSocketAddress addr, EventLoopGroup group,
+                          long connectTimeoutMillis) throws IOException {
+    this(addr, group, connectTimeoutMillis, false);
+  }
+
+  private NettyTransceiver(InetSocketAddress addr, EventLoopGroup group,
+                           long connectTimeoutMillis, boolean ownsGroup)
+    throws IOException {
+    this.remoteAddr = addr;
+    this.group = group;
+    this.ownsGroup = ownsGroup;
+    this.bootstrap = new Bootstrap()
+      .group(group)
+      .channel(NettyEventLoops.channelClass(group))
+      .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+      .option(ChannelOption.TCP_NODELAY, true)
+      .option(ChannelOption.SO_KEEPALIVE, true)
+      .option(ChannelOption.CONNECT_TIMEOUT_MILLIS,
+              (int) Math.min(connectTimeoutMillis, Integer.MAX_VALUE))
+      .handler(new ChannelInitializer<Channel>() {
+        @Override
+        protected void initChannel(Channel ch) {
+          ch.pipeline()
+            .addLast("frameDecoder", new NettyFrameDecoder())
+            .addLast("frameEncoder", ENCODER)
+            .addLast("handler", new NettyClientAvroHandler());
+        }
+      });
+    try {
+      getChannel();
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  /** Returns the channel, first connecting if it is not open. */
+  private Channel getChannel() throws IOException {
+    Channel c = channel;
+    if (c != null && c.isActive())
+      return c;
+    synchronized (this) {
+      if (closed)
+        throw new ClosedChannelException();
+      if (channel == null || !channel.isActive()) {
+        LOG.debug("Connecting to " + remoteAddr);
+        remote = null;                            // handshake again
+        ChannelFuture connected =
+          bootstrap.connect(remoteAddr).awaitUninterruptibly();
+        if (!connected.isSuccess())
+          throw new IOException("Error connecting to " + remoteAddr,
+                                connected.cause());
+        channel = connected.channel();
+      }
+      return channel;
+    }
+  }
+
+  /**
+   * Netty channels are thread-safe, so there is no need to acquire locks.
+   * This method is a no-op.
+   */
+  @Override
+  public void lockChannel() {}
+
+  /**
+   * Netty channels are thread-safe, so there is no need to acquire locks.
+   * This method is a no-op.
+   */
+  @Override
+  public void unlockChannel() {}
+
+  @Override
+  public String getRemoteName() throws IOException {
+    return getChannel().remoteAddress().toString();
+  }
+
+  /** The number of requests awaiting a response. */
+  public int getPendingCount() { return requests.size(); }
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    CallFuture<List<ByteBuffer>> future = new CallFuture<>();
+    transceive(request, future);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted awaiting response", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException)e.getCause();
+      throw new IOException(e.getCause());
+    }
+  }
+
+  @Override
+  public void transceive(List<ByteBuffer> request,
+                         final Callback<List<ByteBuffer>> callback)
+    throws IOException {
+    final int serial = serialGenerator.incrementAndGet();
+    Channel c = getChannel();
+    requests.put(serial, new Pending(c, callback));
+    c.writeAndFlush(new NettyDataPack(serial, request))
+      .addListener((ChannelFutureListener) future -> {
+        if (!future.isSuccess() && requests.remove(serial) != null)
+          callback.handleError(
+              new IOException("Error writing buffers", future.cause()));
+      });
+  }
+
+  @Override
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    ChannelFuture written = getChannel().writeAndFlush(
+        new NettyDataPack(serialGenerator.incrementAndGet(), buffers));
+    try {
+      written.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while writing Netty data pack", e);
+    }
+    if (!written.isSuccess())
+      throw new IOException("Error writing buffers", written.cause());
+  }
+
+  @Override
+  public List<ByteBuffer> readBuffers() throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override public boolean isConnected() { return remote != null; }
+
+  @Override public void setRemote(Protocol remote) {
+    this.remote = remote;
+  }
+
+  @Override public Protocol getRemote() {
+    return remote;
+  }
+
+  /**
+   * Closes this transceiver and disconnects from the remote peer.  Requests
+   * awaiting a response fail with an IOException.
+   */
+  @Override
+  public void close() {
+    Channel c;
+    synchronized (this) {
+      if (closed)
+        return;
+      closed = true;
+      c = channel;
+    }
+    if (c != null && !c.eventLoop().inEventLoop())
+      c.close().awaitUninterruptibly();
+    else if (c != null)
+      c.close();
+    failPending(null, new IOException(getClass().getSimpleName() + " closed"));
+    if (ownsGroup)
+      NettyEventLoops.shutdown(group);
+  }
+
+  /** Fails the requests written to a channel, or to any if it is null. */
+  private void failPending(Channel channel, IOException error) {
+    for (Map.Entry<Integer, Pending> e : requests.entrySet()) {
+      Pending pending = e.getValue();
+      if ((channel == null || pending.channel == channel)
+          && requests.remove(e.getKey(), pending))
+        pending.callback.handleError(error);
+    }
+  }
+
+  /** A request awaiting its response, and the channel it was written to. */
+  private static class Pending {
+    final Channel channel;
+    final Callback<List<ByteBuffer>> callback;
+
+    Pending(Channel channel, Callback<List<ByteBuffer>> callback) {
+      this.channel = channel;
+      this.callback = callback;
+    }
+  }
+
+  /** Completes requests as their responses are read. */
+  private class NettyClientAvroHandler
+    extends SimpleChannelInboundHandler<NettyDataPack> {
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx,
+                                NettyDataPack dataPack) {
+      Pending pending = requests.remove(dataPack.getSerial());
+      if (pending == null) {
+        LOG.warn("Response to unknown request: " + dataPack.getSerial());
+        return;
+      }
+      pending.callback.handleResult(dataPack.getDatas());
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      LOG.debug("Remote peer " + remoteAddr + " closed connection.");
+      // a reconnected channel's requests are not affected
+      failPending(ctx.channel(),
+                  new IOException("Connection to " + remoteAddr + " closed"));
+      super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+      LOG.debug("Disconnecting from " + remoteAddr, cause);
+      ctx.close();
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.netty4;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.ipc.netty.NettyTransportCodec.NettyDataPack;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+
+/** Encodes and decodes {@link NettyDataPack}s with the framing of the Netty
+ * 3 transport, so that either may be used with the other. */
+public class NettyTransportCodec {
+  /** Buffers at least this large are written without copying. */
+  static final int WRAP_THRESHOLD = 4096;
+
+  /**
+   * Protocol encoder which converts a NettyDataPack to a composite buffer.
+   * Headers and small buffers are copied into pooled buffers, while larger
+   * buffers are wrapped.
+   */
+  @ChannelHandler.Sharable
+  public static class NettyFrameEncoder
+    extends MessageToMessageEncoder<NettyDataPack> {
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, NettyDataPack dataPack,
+                          List<Object> out) {
+      List<ByteBuffer> datas = dataPack.getDatas();
+      CompositeByteBuf frame =
+        ctx.alloc().compositeBuffer(2 * datas.size() + 1);
+      ByteBuf run = ctx.alloc().ioBuffer(8 + runSize(datas, 0));
+      try {
+        run.writeInt(dataPack.getSerial());
+        run.writeInt(datas.size());
+        for (int i = 0; i < datas.size(); i++) {
+          ByteBuffer data = datas.get(i);
+          run.writeInt(data.remaining());
+          if (data.remaining() < WRAP_THRESHOLD) {
+            run.writeBytes(data.duplicate());
+          } else {
+            frame.addComponent(run);
+            run = null;
+            frame.addComponent(Unpooled.wrappedBuffer(data));
+            run = ctx.alloc().ioBuffer(runSize(datas, i + 1));
+          }
+        }
+        if (run.isReadable()) {
+          frame.addComponent(run);
+        } else {
+          run.release();
+        }
+        run = null;
+        frame.writerIndex(frame.capacity());
+        out.add(frame);
+      } catch (RuntimeException e) {
+        if (run != null)
+          run.release();
+        frame.release();
+        throw e;
+      }
+    }
+
+    /** The bytes copied for buffers from start through the next large one. */
+    private static int runSize(List<ByteBuffer> datas, int start) {
+      int size = 0;
+      for (int i = start; i < datas.size(); i++) {
+        int length = datas.get(i).remaining();
+        size += 4;
+        if (length >= WRAP_THRESHOLD)
+          break;
+        size += length;
+      }
+      return size;
+    }
+  }
+
+  /** The largest total length of the buffers in a frame, set with the same
+   * system property as the socket transports' limit. */
+  static final int MAX_FRAME_LENGTH =
+    Integer.getInteger("org.apache.avro.ipc.max_frame_length",
+                       64 * 1024 * 1024);
+
+  /**
+   * Protocol decoder which converts Netty's ByteBuf to a NettyDataPack.  By
+   * default its buffers are copied to the heap, so that they may be used
+   * after the data pack is handled.  Otherwise they are retained slices of
+   * the bytes read, which the handler must release once it is done with
+   * them.
+   */
+  public static class NettyFrameDecoder extends ByteToMessageDecoder {
+    private static final long SIZEOF_REF = 8L; // mem usage of 64-bit pointer
+
+    private final long maxMem = Runtime.getRuntime().maxMemory();
+    private final boolean copy;
+    private NettyDataPack dataPack;
+    private int listSize;
+    private int frameLength;
+
+    /** Construct a decoder that copies buffers to the heap. */
+    public NettyFrameDecoder() {
+      this(true);
+    }
+
+    NettyFrameDecoder(boolean copy) {
+      this.copy = copy;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in,
+                          List<Object> out) {
+      if (dataPack == null) {
+        if (in.readableBytes() < 8)
+          return;
+        int serial = in.readInt();
+        int listSize = in.readInt();
+        // Sanity check to reduce likelihood of invalid requests being honored.
+        // Only allow 10% of available memory to go towards this list.
+        if (listSize < 0 || listSize * SIZEOF_REF > 0.1 * maxMem) {
+          ctx.close();
+          throw new AvroRuntimeException("Excessively large list allocation " +
+              "request detected: " + listSize + " items! Connection closed.");
+        }
+        this.listSize = listSize;
+        this.frameLength = 0;
+        dataPack = copy
+          ? new NettyDataPack(serial, new ArrayList<>(listSize))
+          : new RetainedDataPack(serial, listSize);
+      } else {
+        if (in.readableBytes() < 4)
+          return;
+        int length = in.getInt(in.readerIndex());
+        if (length < 0 || length > MAX_FRAME_LENGTH - frameLength) {
+          ctx.close();
+          throw new AvroRuntimeException("Invalid buffer length: " + length);
+        }
+        if (length > in.readableBytes() - 4)
+          return;
+        in.skipBytes(4);
+        frameLength += length;
+        if (copy) {
+          ByteBuffer bb = ByteBuffer.allocate(length);
+          in.readBytes(bb);
+          bb.flip();
+          dataPack.getDatas().add(bb);
+        } else {
+          ((RetainedDataPack)dataPack).add(in.readRetainedSlice(length));
+        }
+      }
+      if (dataPack.getDatas().size() == listSize) {
+        out.add(dataPack);
+        dataPack = null;
+      }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) {
+      release(dataPack);                          // a partly read frame
+      dataPack = null;
+    }
+  }
+
+  /** Releases the bytes held by a data pack read by a decoder that does not
+   * copy them.  Other data packs are ignored. */
+  static void release(NettyDataPack dataPack) {
+    if (dataPack instanceof RetainedDataPack)
+      ((RetainedDataPack)dataPack).release();
+  }
+
+  /** A data pack whose buffers are views of retained slices. */
+  private static class RetainedDataPack extends NettyDataPack {
+    private final List<ByteBuf> slices = new ArrayList<>();
+
+    RetainedDataPack(int serial, int listSize) {
+      super(serial, new ArrayList<>(listSize));
+    }
+
+    void add(ByteBuf slice) {
+      slices.add(slice);
+      getDatas().add(slice.nioBuffer());
+    }
+
+    void release() {
+      for (ByteBuf slice : slices)
+        slice.release();
+      slices.clear();
+    }
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.netty4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.ipc.netty.NettyTransportCodec.NettyDataPack;
+import org.apache.avro.ipc.netty4.NettyTransportCodec.NettyFrameDecoder;
+import org.apache.avro.ipc.netty4.NettyTransportCodec.NettyFrameEncoder;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+
+public class TestNettyTransportCodec {
+  private static List<ByteBuffer> buffers(int... sizes) {
+    Random random = new Random(42);
+    List<ByteBuffer> buffers = new ArrayList<>();
+    for (int size : sizes) {
+      byte[] bytes = new byte[size];
+      random.nextBytes(bytes);
+      buffers.add(ByteBuffer.wrap(bytes));
+    }
+    return buffers;
+  }
+
+  /** The frame as written by the Netty 3 transport. */
+  private static ByteBuffer frame(int serial, List<ByteBuffer> buffers) {
+    int size = 8;
+    for (ByteBuffer buffer : buffers)
+      size += 4 + buffer.remaining();
+    ByteBuffer frame = ByteBuffer.allocate(size);
+    frame.putInt(serial).putInt(buffers.size());
+    for (ByteBuffer buffer : buffers)
+      frame.putInt(buffer.remaining()).put(buffer.duplicate());
+    frame.flip();
+    return frame;
+  }
+
+  @Test
+  public void testEncode() {
+    List<ByteBuffer> buffers = buffers(0, 10, 8192, 3,
+        NettyTransportCodec.WRAP_THRESHOLD, 1);
+    EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameEncoder());
+    channel.writeOutbound(new NettyDataPack(42, buffers));
+    ByteBuf encoded = (ByteBuf) channel.readOutbound();
+    try {
+      assertEquals(frame(42, buffers), encoded.nioBuffer());
+    } finally {
+      encoded.release();
+    }
+    assertEquals(0, buffers.get(2).position());   // not consumed
+  }
+
+  @Test
+  public void testDecodeFragments() {
+    List<ByteBuffer> buffers = buffers(5, 0, 10000, 7);
+    ByteBuffer frame = frame(7, buffers);
+    EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameDecoder());
+    while (frame.remaining() > 1) {               // a byte at a time
+      ByteBuffer one = frame.duplicate();
+      one.limit(one.position() + 1);
+      frame.position(frame.position() + 1);
+      channel.writeInbound(Unpooled.wrappedBuffer(one));
+      assertNull(channel.readInbound());
+    }
+    channel.writeInbound(Unpooled.wrappedBuffer(frame));
+    NettyDataPack decoded = (NettyDataPack) channel.readInbound();
+    assertEquals(7, decoded.getSerial());
+    assertEquals(buffers, decoded.getDatas());
+  }
+
+  @Test
+  public void testDecodeMany() {
+    List<ByteBuffer> first = buffers(1, 2);
+    List<ByteBuffer> second = buffers();
+    EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameDecoder());
+    channel.writeInbound(Unpooled.wrappedBuffer(frame(1, first),
+                                                frame(2, second)));
+    assertEquals(first, ((NettyDataPack) channel.readInbound()).getDatas());
+    assertEquals(second, ((NettyDataPack) channel.readInbound()).getDatas());
+    assertNull(channel.readInbound());
+  }
+
+  @Test
+  public void testDecodeRetained() {
+    List<ByteBuffer> buffers = buffers(5, 0, 10000);
+    ByteBuf frame = Unpooled.copiedBuffer(frame(3, buffers));
+    EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameDecoder(false));
+    channel.writeInbound(frame);
+    NettyDataPack decoded = (NettyDataPack) channel.readInbound();
+    assertEquals(buffers, decoded.getDatas());
+    assertEquals(buffers.size(), frame.refCnt()); // held by each slice
+    NettyTransportCodec.release(decoded);
+    assertEquals(0, frame.refCnt());
+  }
+
+  @Test(expected=DecoderException.class)
+  public void testDecodeOversized() {
+    ByteBuf frame = Unpooled.buffer(12);
+    frame.writeInt(1).writeInt(1).writeInt(Integer.MAX_VALUE - 2);
+    EmbeddedChannel channel = new EmbeddedChannel(new NettyFrameDecoder());
+    try {
+      channel.writeInbound(frame);
+    } finally {
+      assertFalse(channel.isOpen());
+    }
+  }
+}
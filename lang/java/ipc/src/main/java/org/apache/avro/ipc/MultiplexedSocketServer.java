@@ -0,0 +1,208 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.avro.Protocol;
+
+/** A socket-based server for {@link MultiplexedSocketTransceiver} clients.
+ * <p/>
+ * Requests read from each connection are responded to on an executor, so
+ * that the requests pipelined by a client are handled concurrently, and each
+ * response is written as soon as it is ready, tagged with the serial number
+ * of its request.
+ */
+public class MultiplexedSocketServer extends Thread implements Server {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(MultiplexedSocketServer.class);
+
+  private final Responder responder;
+  private final ServerSocketChannel channel;
+  private final ThreadGroup group;
+  private final ExecutorService executor;
+  private final boolean ownsExecutor;
+
+  /** Construct a server that responds on a pool of daemon threads, which is
+   * shut down when this server is closed. */
+  public MultiplexedSocketServer(Responder responder, SocketAddress addr)
+    throws IOException {
+    this(responder, addr, Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "MultiplexedSocketServer responder");
+      t.setDaemon(true);
+      return t;
+    }), true);
+  }
+
+  /** Construct a server that responds on a caller-supplied executor, which
+   * is not shut down when this server is closed. */
+  public MultiplexedSocketServer(Responder responder, SocketAddress addr,
+                                 ExecutorService executor)
+    throws IOException {
+    this(responder, addr, executor, false);
+  }
+
+  private MultiplexedSocketServer(Responder responder, SocketAddress addr,
+                                  ExecutorService executor,
+                                  boolean ownsExecutor) throws IOException {
+    String name = "MultiplexedSocketServer on "+addr;
+    this.responder = responder;
+    this.group = new ThreadGroup(name);
+    this.executor = executor;
+    this.ownsExecutor = ownsExecutor;
+    this.channel = ServerSocketChannel.open();
+    channel.socket().bind(addr);
+    setName(name);
+    setDaemon(true);
+  }
+
+  @Override
+  public int getPort() { return channel.socket().getLocalPort(); }
+
+  @Override
+  public void run() {
+    LOG.info("starting "+channel.socket().getInetAddress());
+    try {
+      while (true) {
+        try {
+          new Connection(channel.accept());
+        } catch (ClosedChannelException e) {
+          return;
+        } catch (IOException e) {
+          LOG.warn("unexpected error", e);
+          throw new RuntimeException(e);
+        }
+      }
+    } finally {
+      LOG.info("stopping "+channel.socket().getInetAddress());
+      try {
+        channel.close();
+      } catch (IOException e) {
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.warn("error closing", e);
+    }
+    group.interrupt();
+    if (ownsExecutor)
+      executor.shutdownNow();
+  }
+
+  /** A client connection.  Holds the handshake state of the connection for
+   * {@link Responder#respond(List, Transceiver)}. */
+  private class Connection extends Transceiver implements Runnable {
+    private final SocketChannel channel;
+    private final String remoteName;
+    private final Object writeLock = new Object();
+    private volatile Protocol remote;
+
+    Connection(SocketChannel channel) throws IOException {
+      this.channel = channel;
+      this.channel.socket().setTcpNoDelay(true);
+      this.remoteName = channel.socket().getRemoteSocketAddress().toString();
+      Thread thread = new Thread(group, this);
+      thread.setName("Connection to "+remoteName);
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    @Override
+    public void run() {
+      ByteBuffer header = ByteBuffer.allocate(8);
+      try {
+        while (true) {
+          SerialFrames.Frame frame = SerialFrames.read(channel, header);
+          executor.execute(() -> respond(frame));
+        }
+      } catch (ClosedChannelException | RejectedExecutionException e) {
+        // closed by the client or the server
+      } catch (IOException e) {
+        LOG.warn("unexpected error", e);
+      } finally {
+        close();
+      }
+    }
+
+    private void respond(SerialFrames.Frame frame) {
+      try {
+        List<ByteBuffer> response = responder.respond(frame.buffers, this);
+        if (response == null)                     // one-way message
+          return;
+        ByteBuffer[] buffers = SerialFrames.encode(frame.serial, response);
+        synchronized (writeLock) {
+          SerialFrames.write(channel, buffers);
+        }
+      } catch (ClosedChannelException e) {
+        // the connection was closed while responding
+      } catch (IOException e) {
+        LOG.warn("unexpected error", e);
+        close();
+      }
+    }
+
+    @Override
+    public String getRemoteName() { return remoteName; }
+
+    @Override
+    public List<ByteBuffer> readBuffers() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeBuffers(List<ByteBuffer> buffers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public boolean isConnected() { return remote != null; }
+
+    @Override public void setRemote(Protocol remote) {
+      this.remote = remote;
+    }
+
+    @Override public Protocol getRemote() {
+      return remote;
+    }
+
+    @Override
+    public void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("error closing", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.avro.Protocol;
+
+/** A socket-based {@link Transceiver} that sends many requests over a single
+ * connection without waiting for their responses.
+ * <p/>
+ * Each request is tagged with a serial number, and its response may arrive
+ * in any order.  Requests are written by one daemon thread, so that an
+ * interrupted caller cannot close the shared channel, and responses are read
+ * by another, which also runs the callbacks passed to {@link
+ * #transceive(List, Callback)}.  Callbacks should thus not block.
+ * <p/>
+ * This uses the framing of the Netty transport, and may be used with {@link
+ * MultiplexedSocketServer} or a Netty server.
+ */
+public class MultiplexedSocketTransceiver extends Transceiver {
+  private static final Logger LOG
+    = LoggerFactory.getLogger(MultiplexedSocketTransceiver.class);
+
+  private final SocketChannel channel;
+  private final String remoteName;
+  private final AtomicInteger serials = new AtomicInteger();
+  private final Map<Integer,Callback<List<ByteBuffer>>> requests =
+    new ConcurrentHashMap<>();
+  private final ExecutorService writer;
+  private final Thread reader;
+
+  private volatile Protocol remote;
+  private volatile boolean closed;
+
+  public MultiplexedSocketTransceiver(SocketAddress address)
+    throws IOException {
+    this(SocketChannel.open(address));
+  }
+
+  public MultiplexedSocketTransceiver(SocketChannel channel)
+    throws IOException {
+    this.channel = channel;
+    this.channel.socket().setTcpNoDelay(true);
+    this.remoteName = channel.socket().getRemoteSocketAddress().toString();
+    this.writer = Executors.newSingleThreadExecutor(r -> {
+      Thread thread =
+        new Thread(r, "MultiplexedSocketTransceiver writer to " + remoteName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.reader = new Thread(this::readResponses,
+                             "MultiplexedSocketTransceiver to " + remoteName);
+    reader.setDaemon(true);
+    reader.start();
+    LOG.info("open to "+remoteName);
+  }
+
+  @Override
+  public String getRemoteName() { return remoteName; }
+
+  /** The number of requests awaiting a response. */
+  public int getPendingCount() { return requests.size(); }
+
+  /** Does nothing, since requests need not hold the channel. */
+  @Override
+  public void lockChannel() {}
+
+  /** Does nothing, since requests need not hold the channel. */
+  @Override
+  public void unlockChannel() {}
+
+  @Override
+  public List<ByteBuffer> transceive(List<ByteBuffer> request)
+    throws IOException {
+    CallFuture<List<ByteBuffer>> future = new CallFuture<>();
+    transceive(request, future);
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted awaiting response", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException)e.getCause();
+      throw new IOException(e.getCause());
+    }
+  }
+
+  @Override
+  public void transceive(List<ByteBuffer> request,
+                         Callback<List<ByteBuffer>> callback)
+    throws IOException {
+    int serial = serials.incrementAndGet();
+    requests.put(serial, callback);
+    try {
+      write(serial, request);
+    } catch (IOException e) {
+      requests.remove(serial);
+      throw e;
+    }
+    if (closed && requests.remove(serial) != null)   // raced with close
+      throw new ClosedChannelException();
+  }
+
+  /** Unsupported, since responses are read by {@link #transceive(List,
+   * Callback)}. */
+  @Override
+  public List<ByteBuffer> readBuffers() throws IOException {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void writeBuffers(List<ByteBuffer> buffers) throws IOException {
+    if (buffers == null) return;                  // no data to write
+    write(serials.incrementAndGet(), buffers);
+  }
+
+  /** Writes a frame from the writer thread and awaits it.  The wait is not
+   * interruptible, since an interrupt during a write to the channel would
+   * close it for every caller. */
+  private void write(int serial, List<ByteBuffer> buffers) throws IOException {
+    if (closed)
+      throw new ClosedChannelException();
+    ByteBuffer[] frame = SerialFrames.encode(serial, buffers);
+    Future<?> written;
+    try {
+      written = writer.submit(() -> {
+        SerialFrames.write(channel, frame);
+        return null;
+      });
+    } catch (RejectedExecutionException e) {          // closed
+      throw new ClosedChannelException();
+    }
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          written.get();
+          return;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException)
+            throw (IOException)e.getCause();
+          throw new IOException(e.getCause());
+        }
+      }
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+  private void readResponses() {
+    ByteBuffer header = ByteBuffer.allocate(8);
+    IOException error = new ClosedChannelException();
+    try {
+      while (true) {
+        SerialFrames.Frame frame = SerialFrames.read(channel, header);
+        Callback<List<ByteBuffer>> callback = requests.remove(frame.serial);
+        if (callback == null) {
+          LOG.warn("Response to unknown request: " + frame.serial);
+          continue;
+        }
+        try {
+          callback.handleResult(frame.buffers);
+        } catch (RuntimeException e) {
+          LOG.warn("Error handling response", e);
+        }
+      }
+    } catch (IOException e) {
+      if (!closed)
+        error = e;
+    } catch (RuntimeException | Error e) {
+      error = new IOException("Error reading responses", e);
+      throw e;
+    } finally {
+      if (!closed)
+        LOG.warn("connection to " + remoteName + " failed", error);
+      closed = true;
+      writer.shutdown();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        LOG.debug("error closing " + remoteName, e);
+      }
+      failPending(error);
+    }
+  }
+
+  private void failPending(IOException error) {
+    for (Integer serial : new ArrayList<>(requests.keySet())) {
+      Callback<List<ByteBuffer>> callback = requests.remove(serial);
+      if (callback != null)
+        callback.handleError(error);
+    }
+  }
+
+  @Override public boolean isConnected() { return remote != null; }
+
+  @Override public void setRemote(Protocol remote) {
+    this.remote = remote;
+  }
+
+  @Override public Protocol getRemote() {
+    return remote;
+  }
+
+  /** Closes the connection.  Requests awaiting a response fail with a
+   * {@link ClosedChannelException}. */
+  @Override public void close() throws IOException {
+    if (closed)
+      return;
+    closed = true;
+    LOG.info("closing to "+remoteName);
+    writer.shutdown();
+    channel.close();
+    if (Thread.currentThread() == reader)         // closed by a callback
+      return;
+    try {
+      reader.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -18,9 +18,12 @@
 
 package org.apache.avro.ipc;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.List;
@@ -35,11 +38,11 @@ import org.apache.avro.Protocol;
 import org.apache.avro.Schema;
 import org.apache.avro.Protocol.Message;
 import org.apache.avro.util.ByteBufferInputStream;
-import org.apache.avro.util.ByteBufferOutputStream;
 import org.apache.avro.util.Utf8;
 import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.BinaryEncoder;
 import org.apache.avro.io.Decoder;
 import org.apache.avro.io.Encoder;
@@ -47,7 +50,10 @@ import org.apache.avro.io.EncoderFactory;
 import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.avro.specific.SpecificDatumWriter;
 
-/** Base class for the server side of a protocol interaction. */
+/** Base class for the server side of a protocol interaction.
+ * <p/>
+ * Each thread reuses its decoder, encoder and output buffer across calls,
+ * and the messages named by each remote protocol are resolved once. */
 public abstract class Responder {
   private static final Logger LOG = LoggerFactory.getLogger(Responder.class);
 
@@ -61,9 +67,23 @@ public abstract class Responder {
   private static final ThreadLocal<Protocol> REMOTE =
     new ThreadLocal<>();
 
+  private static final ThreadLocal<Buffers> BUFFERS =
+    ThreadLocal.withInitial(Buffers::new);
+
+  /** Output buffers larger than this are not kept for the next call. */
+  private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+  private static final byte[] EMPTY = new byte[0];
+
   private final Map<MD5,Protocol> protocols
     = new ConcurrentHashMap<>();
 
+  /** The messages of each remote protocol, by name.  Remote protocols are
+   * the instances held by {@link #protocols}, so are compared by identity.
+   * Replaced when a protocol is added. */
+  private volatile Map<Protocol,Map<Utf8,Dispatch>> dispatch =
+    new IdentityHashMap<>();
+
   private final Protocol local;
   private final MD5 localHash;
   protected final List<RPCPlugin> rpcMetaPlugins;
@@ -104,34 +124,48 @@ public abstract class Responder {
    * track handshake status of connection. */
   public List<ByteBuffer> respond(List<ByteBuffer> buffers,
                                   Transceiver connection) throws IOException {
-    Decoder in = DecoderFactory.get().binaryDecoder(
-        new ByteBufferInputStream(buffers), null);
-    ByteBufferOutputStream bbo = new ByteBufferOutputStream();
-    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, null);
+    Buffers reuse = BUFFERS.get();
+    if (reuse.inUse)                              // called by a responder
+      reuse = new Buffers();
+    reuse.inUse = true;
+    try {
+      return respond(buffers, connection, reuse);
+    } finally {
+      reuse.release();
+    }
+  }
+
+  private List<ByteBuffer> respond(List<ByteBuffer> buffers,
+                                   Transceiver connection, Buffers reuse)
+    throws IOException {
+    BinaryDecoder in = buffers.size() == 1
+      ? DecoderFactory.get().binaryDecoder(buffers.get(0), reuse.decoder)
+      : DecoderFactory.get().binaryDecoder(
+          new ByteBufferInputStream(buffers), reuse.decoder);
+    reuse.decoder = in;
+    Output bbo = reuse.output;
+    BinaryEncoder out = EncoderFactory.get().binaryEncoder(bbo, reuse.encoder);
+    reuse.encoder = null;                         // reused after success
     Exception error = null;
     RPCContext context = new RPCContext();
-    List<ByteBuffer> payload = null;
-    List<ByteBuffer> handshake = null;
+    int handshakeEnd = -1;
     boolean wasConnected = connection != null && connection.isConnected();
     try {
       Protocol remote = handshake(in, out, connection);
       out.flush();
       if (remote == null)                        // handshake failed
-        return bbo.getBufferList();
-      handshake = bbo.getBufferList();
+        return bbo.copy(0, bbo.size());
+      handshakeEnd = bbo.size();
 
       // read request using remote protocol specification
       context.setRequestCallMeta(META_READER.read(null, in));
-      String messageName = in.readString(null).toString();
-      if (messageName.equals(""))                 // a handshake ping
-        return handshake;
-      Message rm = remote.getMessages().get(messageName);
-      if (rm == null)
-        throw new AvroRuntimeException("No such remote message: "+messageName);
-      Message m = getLocal().getMessages().get(messageName);
-      if (m == null)
-        throw new AvroRuntimeException("No message named "+messageName
-                                       +" in "+getLocal());
+      Utf8 messageName = in.readString(reuse.messageName);
+      reuse.messageName = messageName;
+      if (messageName.getByteLength() == 0)       // a handshake ping
+        return bbo.copy(0, handshakeEnd);
+      Dispatch d = dispatch(remote, messageName);
+      Message rm = d.remote;
+      Message m = d.local;
 
       Object request = readRequest(rm.getRequest(), m.getRequest(), in);
 
@@ -173,16 +207,16 @@ public abstract class Responder {
     } catch (Exception e) {                       // system error
       LOG.warn("system error", e);
       context.setError(e);
-      bbo = new ByteBufferOutputStream();
+      if (handshakeEnd < 0)
+        handshakeEnd = 0;
+      bbo.truncate(handshakeEnd);
       out = EncoderFactory.get().binaryEncoder(bbo, null);
       out.writeBoolean(true);
       writeError(Protocol.SYSTEM_ERRORS, new Utf8(e.toString()), out);
-      if (null == handshake) {
-        handshake = new ByteBufferOutputStream().getBufferList();
-      }
     }
     out.flush();
-    payload = bbo.getBufferList();
+    int payloadEnd = bbo.size();
+    List<ByteBuffer> payload = bbo.copy(handshakeEnd, payloadEnd);
 
     // Grab meta-data from plugins
     context.setResponsePayload(payload);
@@ -191,11 +225,100 @@ public abstract class Responder {
     }
     META_WRITER.write(context.responseCallMeta(), out);
     out.flush();
-    // Prepend handshake and append payload
-    bbo.prepend(handshake);
-    bbo.append(payload);
+    reuse.encoder = out;
+
+    // Handshake and meta-data, followed by the payload
+    List<ByteBuffer> result = new ArrayList<>(2);
+    byte[] head = new byte[handshakeEnd + bbo.size() - payloadEnd];
+    bbo.copyTo(0, handshakeEnd, head, 0);
+    bbo.copyTo(payloadEnd, bbo.size(), head, handshakeEnd);
+    result.add(ByteBuffer.wrap(head));
+    result.addAll(payload);
+    return result;
+  }
 
-    return bbo.getBufferList();
+  /** Resolves a message sent by a remote protocol. */
+  private Dispatch dispatch(Protocol remote, Utf8 messageName) {
+    Map<Utf8,Dispatch> messages = dispatch.get(remote);
+    if (messages == null) {
+      synchronized (this) {
+        messages = dispatch.get(remote);
+        if (messages == null) {
+          Map<Protocol,Map<Utf8,Dispatch>> copy =
+            new IdentityHashMap<>(dispatch);
+          messages = new ConcurrentHashMap<>();
+          copy.put(remote, messages);
+          dispatch = copy;
+        }
+      }
+    }
+    Dispatch d = messages.get(messageName);
+    if (d == null) {
+      String name = messageName.toString();
+      Message rm = remote.getMessages().get(name);
+      if (rm == null)
+        throw new AvroRuntimeException("No such remote message: "+name);
+      Message m = getLocal().getMessages().get(name);
+      if (m == null)
+        throw new AvroRuntimeException("No message named "+name
+                                       +" in "+getLocal());
+      d = new Dispatch(rm, m);
+      messages.put(new Utf8(messageName), d);
+    }
+    return d;
+  }
+
+  /** A message sent by a remote protocol and the local message that
+   * handles it. */
+  private static final class Dispatch {
+    final Message remote;
+    final Message local;
+
+    Dispatch(Message remote, Message local) {
+      this.remote = remote;
+      this.local = local;
+    }
+  }
+
+  /** The decoder, encoder and output buffer reused by a thread. */
+  private static final class Buffers {
+    boolean inUse;
+    BinaryDecoder decoder;
+    BinaryEncoder encoder;
+    Utf8 messageName;
+    Output output = new Output();
+
+    void release() {
+      inUse = false;
+      if (decoder != null)                        // drop the request
+        decoder = DecoderFactory.get().binaryDecoder(EMPTY, decoder);
+      if (output.capacity() > MAX_RETAINED_BUFFER)
+        output = new Output();
+      else
+        output.reset();
+    }
+  }
+
+  /** An output buffer whose contents are copied out. */
+  private static final class Output extends ByteArrayOutputStream {
+    Output() { super(1024); }
+
+    int capacity() { return buf.length; }
+
+    void truncate(int size) { count = size; }
+
+    void copyTo(int start, int end, byte[] dest, int offset) {
+      System.arraycopy(buf, start, dest, offset, end - start);
+    }
+
+    /** Returns a copy of part of the buffer, as a modifiable list. */
+    List<ByteBuffer> copy(int start, int end) {
+      byte[] bytes = new byte[end - start];
+      copyTo(start, end, bytes, 0);
+      List<ByteBuffer> result = new ArrayList<>(1);
+      result.add(ByteBuffer.wrap(bytes));
+      return result;
+    }
   }
 
   private SpecificDatumWriter<HandshakeResponse> handshakeWriter =
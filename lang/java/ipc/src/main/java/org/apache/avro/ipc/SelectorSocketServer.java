@@ -0,0 +1,452 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.apache.avro.Protocol;
+
+/** A socket-based server that handles many connections with a few threads,
+ * for {@link MultiplexedSocketTransceiver} clients.
+ * <p/>
+ * Connections are accepted by one thread and divided among a small number
+ * of selector threads, which read and write frames without blocking.  Each
+ * request read is responded to on an executor, so that neither slow
+ * responders nor idle connections hold a thread, and each response is
+ * written as soon as it is ready, tagged with the serial number of its
+ * request.  The handshake state of each connection is kept with the
+ * connection rather than with a thread.
+ * <p/>
+ * By default requests are responded to on a bounded pool of daemon threads.
+ * When its queue is full the selector thread that read a request responds
+ * to it, which stops reading from its connections until it is done.
+ * <p/>
+ * A connection that sends an invalid frame, or whose handling fails, is
+ * closed without affecting others on its selector thread.
+ */
+public class SelectorSocketServer implements Server {
+  private static final Logger LOG =
+    LoggerFactory.getLogger(SelectorSocketServer.class);
+
+  private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+  private final Responder responder;
+  private final ServerSocketChannel channel;
+  private final SelectorLoop[] loops;
+  private final Executor executor;
+  private final ExecutorService ownedExecutor;
+  private final Thread acceptor;
+  private volatile boolean closed;
+
+  /** Construct a server with a selector thread for every two processors,
+   * responding on a pool of twice as many threads as processors. */
+  public SelectorSocketServer(Responder responder, SocketAddress addr)
+    throws IOException {
+    this(responder, addr,
+         Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+         2 * Runtime.getRuntime().availableProcessors());
+  }
+
+  /** Construct a server with <i>selectors</i> selector threads, responding on
+   * a pool of <i>workers</i> threads that is shut down when this server is
+   * closed. */
+  public SelectorSocketServer(Responder responder, SocketAddress addr,
+                              int selectors, int workers) throws IOException {
+    this(responder, addr, selectors, newExecutor(workers), true);
+  }
+
+  /** Construct a server with <i>selectors</i> selector threads, responding on
+   * a caller-supplied executor that is not shut down when this server is
+   * closed. */
+  public SelectorSocketServer(Responder responder, SocketAddress addr,
+                              int selectors, Executor executor)
+    throws IOException {
+    this(responder, addr, selectors, executor, false);
+  }
+
+  private SelectorSocketServer(Responder responder, SocketAddress addr,
+                               int selectors, Executor executor,
+                               boolean ownsExecutor) throws IOException {
+    if (selectors < 1)
+      throw new IllegalArgumentException("Invalid selector count: "+selectors);
+    this.responder = responder;
+    this.executor = executor;
+    this.ownedExecutor = ownsExecutor ? (ExecutorService)executor : null;
+    this.channel = ServerSocketChannel.open();
+    channel.socket().bind(addr);
+    String name = "SelectorSocketServer on "+addr;
+    this.loops = new SelectorLoop[selectors];
+    for (int i = 0; i < selectors; i++)
+      loops[i] = new SelectorLoop(name + " selector " + i);
+    this.acceptor = new Thread(this::accept, name);
+    acceptor.setDaemon(true);
+  }
+
+  private static ExecutorService newExecutor(int workers) {
+    if (workers < 1)
+      throw new IllegalArgumentException("Invalid worker count: "+workers);
+    return new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(1024 * workers), r -> {
+          Thread t = new Thread(r, "SelectorSocketServer responder");
+          t.setDaemon(true);
+          return t;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  @Override
+  public int getPort() { return channel.socket().getLocalPort(); }
+
+  @Override
+  public void start() {
+    for (SelectorLoop loop : loops)
+      loop.thread.start();
+    acceptor.start();
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      channel.close();
+    } catch (IOException e) {
+      LOG.warn("error closing", e);
+    }
+    for (SelectorLoop loop : loops)
+      loop.selector.wakeup();
+    if (ownedExecutor != null)
+      ownedExecutor.shutdownNow();
+  }
+
+  @Override
+  public void join() throws InterruptedException {
+    acceptor.join();
+    for (SelectorLoop loop : loops)
+      loop.thread.join();
+  }
+
+  private void accept() {
+    LOG.info("starting "+channel.socket().getInetAddress());
+    int next = 0;
+    try {
+      while (true) {
+        SocketChannel client = channel.accept();
+        try {
+          client.configureBlocking(false);
+          client.socket().setTcpNoDelay(true);
+          loops[next].register(client);
+          next = (next + 1) % loops.length;
+        } catch (IOException e) {
+          LOG.warn("error accepting", e);
+          client.close();
+        }
+      }
+    } catch (ClosedChannelException e) {
+      // closed by close()
+    } catch (IOException e) {
+      LOG.warn("unexpected error", e);
+    } finally {
+      LOG.info("stopping "+channel.socket().getInetAddress());
+      close();
+    }
+  }
+
+  /** A thread that reads from and writes to a set of connections. */
+  private class SelectorLoop implements Runnable {
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    SelectorLoop(String name) throws IOException {
+      this.selector = Selector.open();
+      this.thread = new Thread(this, name);
+      thread.setDaemon(true);
+    }
+
+    /** Runs a task on this thread. */
+    void execute(Runnable task) {
+      tasks.add(task);
+      selector.wakeup();
+    }
+
+    void register(SocketChannel client) {
+      execute(() -> {
+        try {
+          Connection connection = new Connection(this, client);
+          connection.key = client.register(selector, SelectionKey.OP_READ,
+                                           connection);
+        } catch (IOException e) {
+          LOG.warn("error registering", e);
+          closeQuietly(client);
+        }
+      });
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!closed) {
+          selector.select();
+          for (Runnable task; (task = tasks.poll()) != null;) {
+            try {
+              task.run();
+            } catch (RuntimeException e) {
+              LOG.warn("unexpected error", e);
+            }
+          }
+          Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+          while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Connection connection = (Connection)key.attachment();
+            try {
+              if (key.isReadable())
+                connection.read(readBuffer);
+              if (key.isValid() && key.isWritable())
+                connection.flush();
+            } catch (IOException e) {
+              LOG.debug("closing " + connection.getRemoteName(), e);
+              connection.close();
+            } catch (RuntimeException e) {
+              LOG.warn("closing " + connection.getRemoteName(), e);
+              connection.close();
+            }
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        LOG.error("selector failed, closing its connections", e);
+      } finally {
+        for (SelectionKey key : selector.keys())
+          closeQuietly(key.channel());
+        closeQuietly(selector);
+      }
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      LOG.debug("error closing", e);
+    }
+  }
+
+  /** A client connection.  Holds the state of the frame being read, the
+   * responses not yet written, and the handshake state of the connection for
+   * {@link Responder#respond(List, Transceiver)}. */
+  private class Connection extends Transceiver {
+    private final SelectorLoop loop;
+    private final SocketChannel channel;
+    private final String remoteName;
+    private SelectionKey key;
+
+    // the frame being read, accessed only by the selector thread
+    private final ByteBuffer header = ByteBuffer.allocate(8);
+    private ByteBuffer body;
+    private int bodyLength;
+    private int serial;
+    private int count;
+    private int frameLength;
+    private List<ByteBuffer> buffers;
+
+    // responses not yet written, guarded by itself
+    private final Queue<ByteBuffer[]> pending = new ArrayDeque<>();
+
+    private volatile Protocol remote;
+
+    Connection(SelectorLoop loop, SocketChannel channel) {
+      this.loop = loop;
+      this.channel = channel;
+      this.remoteName = channel.socket().getRemoteSocketAddress().toString();
+      header.limit(8);
+    }
+
+    /** Reads what is available, and dispatches each complete request. */
+    void read(ByteBuffer in) throws IOException {
+      in.clear();
+      if (channel.read(in) < 0)
+        throw new ClosedChannelException();
+      in.flip();
+      while (in.hasRemaining()) {
+        if (body == null) {
+          transfer(in, header);
+          if (header.hasRemaining())
+            return;
+          header.flip();
+          if (buffers == null) {                  // frame header
+            serial = header.getInt();
+            count = SerialFrames.checkCount(header.getInt());
+            buffers = new ArrayList<>(SerialFrames.initialCapacity(count));
+            frameLength = 0;
+          } else {                                // buffer length
+            int length = SerialFrames.checkLength(header.getInt(), frameLength);
+            frameLength += length;
+            // grown as bytes arrive, not allocated at the length claimed
+            body = ByteBuffer.allocate(Math.min(length, READ_BUFFER_SIZE));
+            bodyLength = length;
+          }
+          header.clear().limit(4);
+        } else {
+          if (!body.hasRemaining())
+            body = grow(body, bodyLength);
+          transfer(in, body);
+        }
+        if (body != null && body.position() == bodyLength) {
+          body.flip();
+          buffers.add(body);
+          body = null;
+        }
+        if (buffers != null && body == null && buffers.size() == count) {
+          dispatch(serial, buffers);
+          buffers = null;
+          header.clear().limit(8);
+        }
+      }
+    }
+
+    /** Returns a buffer twice the size of a full one, up to <i>max</i>. */
+    private ByteBuffer grow(ByteBuffer full, int max) {
+      ByteBuffer grown =
+        ByteBuffer.allocate((int)Math.min(max, 2L * full.capacity()));
+      full.flip();
+      grown.put(full);
+      return grown;
+    }
+
+    private void transfer(ByteBuffer from, ByteBuffer to) {
+      int n = Math.min(from.remaining(), to.remaining());
+      int limit = from.limit();
+      from.limit(from.position() + n);
+      to.put(from);
+      from.limit(limit);
+    }
+
+    private void dispatch(int serial, List<ByteBuffer> request) {
+      try {
+        executor.execute(() -> respond(serial, request));
+      } catch (RejectedExecutionException e) {
+        if (!closed)
+          LOG.warn("request rejected", e);
+        close();
+      }
+    }
+
+    private void respond(int serial, List<ByteBuffer> request) {
+      try {
+        List<ByteBuffer> response = responder.respond(request, this);
+        if (response != null)                     // not a one-way message
+          write(SerialFrames.encode(serial, response));
+      } catch (IOException e) {
+        LOG.warn("unexpected error", e);
+        close();
+      }
+    }
+
+    /** Writes a response, or as much of it as the socket accepts, leaving the
+     * rest for the selector thread. */
+    private void write(ByteBuffer[] frame) throws IOException {
+      synchronized (pending) {
+        if (!pending.isEmpty()) {
+          pending.add(frame);
+          return;
+        }
+        channel.write(frame);
+        if (isWritten(frame))
+          return;
+        pending.add(frame);
+      }
+      loop.execute(() -> {
+        if (key.isValid())
+          key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+      });
+    }
+
+    /** Writes pending responses.  Called by the selector thread. */
+    void flush() throws IOException {
+      synchronized (pending) {
+        for (ByteBuffer[] frame; (frame = pending.peek()) != null;) {
+          channel.write(frame);
+          if (!isWritten(frame))
+            return;
+          pending.remove();
+        }
+        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+      }
+    }
+
+    private boolean isWritten(ByteBuffer[] frame) {
+      for (ByteBuffer buffer : frame)
+        if (buffer.hasRemaining())
+          return false;
+      return true;
+    }
+
+    @Override
+    public String getRemoteName() { return remoteName; }
+
+    @Override
+    public List<ByteBuffer> readBuffers() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeBuffers(List<ByteBuffer> buffers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public boolean isConnected() { return remote != null; }
+
+    @Override public void setRemote(Protocol remote) {
+      this.remote = remote;
+    }
+
+    @Override public Protocol getRemote() {
+      return remote;
+    }
+
+    @Override
+    public void close() {
+      if (key != null)
+        key.cancel();
+      closeQuietly(channel);
+    }
+  }
+}
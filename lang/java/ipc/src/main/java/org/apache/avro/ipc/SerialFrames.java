@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Reads and writes frames that carry a list of buffers tagged with a serial
+ * number, so that responses can be matched to requests.  A frame is the
+ * serial and the number of buffers, followed by the length and bytes of each
+ * buffer, all as big-endian ints.  This is the framing of the Netty
+ * transport.
+ * <p/>
+ * Frames longer than {@link #MAX_FRAME_LENGTH} bytes are rejected before
+ * they are read, which may be set with the {@value #MAX_FRAME_LENGTH_PROPERTY}
+ * system property.
+ */
+final class SerialFrames {
+  /** The largest number of buffers accepted in a frame. */
+  static final int MAX_BUFFERS = 1 << 20;
+
+  static final String MAX_FRAME_LENGTH_PROPERTY =
+    "org.apache.avro.ipc.max_frame_length";
+
+  /** The largest total length of the buffers in a frame. */
+  static final int MAX_FRAME_LENGTH =
+    Integer.getInteger(MAX_FRAME_LENGTH_PROPERTY, 64 * 1024 * 1024);
+
+  private SerialFrames() {}
+
+  /** A frame read from a channel. */
+  static final class Frame {
+    final int serial;
+    final List<ByteBuffer> buffers;
+
+    Frame(int serial, List<ByteBuffer> buffers) {
+      this.serial = serial;
+      this.buffers = buffers;
+    }
+  }
+
+  /** Returns the buffers to write for a frame.  The buffers passed are
+   * duplicated, so their positions are not changed. */
+  static ByteBuffer[] encode(int serial, List<ByteBuffer> buffers) {
+    ByteBuffer[] frame = new ByteBuffer[1 + 2 * buffers.size()];
+    ByteBuffer headers = ByteBuffer.allocate(8 + 4 * buffers.size());
+    headers.putInt(serial).putInt(buffers.size());
+    for (ByteBuffer buffer : buffers)
+      headers.putInt(buffer.remaining());
+    headers.flip();
+    frame[0] = slice(headers, 8);
+    int i = 1;
+    for (ByteBuffer buffer : buffers) {
+      frame[i++] = slice(headers, 4);
+      frame[i++] = buffer.duplicate();
+    }
+    return frame;
+  }
+
+  private static ByteBuffer slice(ByteBuffer headers, int length) {
+    ByteBuffer slice = headers.slice();
+    slice.limit(length);
+    headers.position(headers.position() + length);
+    return slice;
+  }
+
+  /** Reads a frame from a blocking channel.
+   * @throws ClosedChannelException if the channel is at its end. */
+  static Frame read(ReadableByteChannel channel, ByteBuffer header)
+    throws IOException {
+    header.clear().limit(8);
+    readFully(channel, header);
+    header.flip();
+    int serial = header.getInt();
+    int count = checkCount(header.getInt());
+    List<ByteBuffer> buffers = new ArrayList<>(initialCapacity(count));
+    int frameLength = 0;
+    for (int i = 0; i < count; i++) {
+      header.clear().limit(4);
+      readFully(channel, header);
+      header.flip();
+      int length = checkLength(header.getInt(), frameLength);
+      frameLength += length;
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      readFully(channel, buffer);
+      buffer.flip();
+      buffers.add(buffer);
+    }
+    return new Frame(serial, buffers);
+  }
+
+  /** Writes all of a frame to a blocking channel. */
+  static void write(GatheringByteChannel channel, ByteBuffer[] frame)
+    throws IOException {
+    for (int i = 0; i < frame.length;) {
+      if (frame[i].hasRemaining())
+        channel.write(frame, i, frame.length - i);
+      else
+        i++;
+    }
+  }
+
+  static int checkCount(int count) throws IOException {
+    if (count < 0 || count > MAX_BUFFERS)
+      throw new IOException("Invalid buffer count: " + count);
+    return count;
+  }
+
+  /** Checks the length of a buffer, following <i>frameLength</i> bytes of
+   * earlier buffers in its frame. */
+  static int checkLength(int length, int frameLength) throws IOException {
+    if (length < 0)
+      throw new IOException("Invalid buffer length: " + length);
+    if (length > MAX_FRAME_LENGTH - frameLength)
+      throw new IOException("Frame longer than " + MAX_FRAME_LENGTH
+                            + " bytes");
+    return length;
+  }
+
+  /** The capacity of a list for a frame's buffers, which does not trust the
+   * count in the frame to allocate. */
+  static int initialCapacity(int count) {
+    return Math.min(count, 16);
+  }
+
+  private static void readFully(ReadableByteChannel channel, ByteBuffer buffer)
+    throws IOException {
+    while (buffer.hasRemaining())
+      if (channel.read(buffer) < 0)
+        throw new ClosedChannelException();
+  }
+}
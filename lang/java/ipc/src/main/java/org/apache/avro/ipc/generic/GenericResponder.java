@@ -19,6 +19,8 @@
 package org.apache.avro.ipc.generic;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.avro.AvroRemoteException;
 import org.apache.avro.Protocol;
@@ -32,10 +34,20 @@ import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DatumWriter;
 import org.apache.avro.ipc.Responder;
 
-/** {@link Responder} implementation for generic Java data. */
+/** {@link Responder} implementation for generic Java data.
+ * <p/>
+ * The readers and writers returned by {@link #getDatumReader(Schema, Schema)}
+ * and {@link #getDatumWriter(Schema)} are kept for later calls with the same
+ * schemas on the same thread.  Each thread gets its own, so they need not be
+ * thread-safe. */
 public abstract class GenericResponder extends Responder {
   private GenericData data;
 
+  private final ThreadLocal<Map<Schema,Map<Schema,DatumReader<Object>>>>
+    readers = ThreadLocal.withInitial(HashMap::new);
+  private final ThreadLocal<Map<Schema,DatumWriter<Object>>> writers =
+    ThreadLocal.withInitial(HashMap::new);
+
   public GenericResponder(Protocol local) {
     this(local, GenericData.get());
 
@@ -56,16 +68,37 @@ public abstract class GenericResponder extends Responder {
     return new GenericDatumReader<>(actual, expected, data);
   }
 
+  private DatumReader<Object> reader(Schema actual, Schema expected) {
+    Map<Schema,DatumReader<Object>> byExpected =
+      readers.get().computeIfAbsent(actual, s -> new HashMap<>());
+    DatumReader<Object> reader = byExpected.get(expected);
+    if (reader == null) {
+      reader = getDatumReader(actual, expected);
+      byExpected.put(expected, reader);
+    }
+    return reader;
+  }
+
+  private DatumWriter<Object> writer(Schema schema) {
+    Map<Schema,DatumWriter<Object>> writers = this.writers.get();
+    DatumWriter<Object> writer = writers.get(schema);
+    if (writer == null) {
+      writer = getDatumWriter(schema);
+      writers.put(schema, writer);
+    }
+    return writer;
+  }
+
   @Override
   public Object readRequest(Schema actual, Schema expected, Decoder in)
     throws IOException {
-    return getDatumReader(actual, expected).read(null, in);
+    return reader(actual, expected).read(null, in);
   }
 
   @Override
   public void writeResponse(Schema schema, Object response, Encoder out)
     throws IOException {
-    getDatumWriter(schema).write(response, out);
+    writer(schema).write(response, out);
   }
 
   @Override
@@ -73,7 +106,7 @@ public abstract class GenericResponder extends Responder {
                          Encoder out) throws IOException {
     if (error instanceof AvroRemoteException)
       error = ((AvroRemoteException)error).getValue();
-    getDatumWriter(schema).write(error, out);
+    writer(schema).write(error, out);
   }
 
 }
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.stats;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.ipc.RPCContext;
+import org.apache.avro.ipc.RPCPlugin;
+import org.apache.avro.ipc.stats.Stopwatch.Ticks;
+
+/**
+ * Collects count, latency and payload statistics about RPC calls, like
+ * {@link StatsPlugin}, but without locking, so that it may be used at high
+ * call rates.  Counts are {@link LongAdder}s and distributions are {@link
+ * LogLinearHistogram}s, whose quantiles show tail latency.  Can be added to a
+ * Requestor (client) or Responder (server), and displayed by {@link
+ * StatsServlet}.
+ * <p/>
+ * Latencies are measured in nanoseconds and payloads in bytes.
+ */
+public class ConcurrentStatsPlugin extends RPCPlugin {
+  /** Per-method statistics. */
+  private final ConcurrentMap<Message, MessageStats> messages =
+    new ConcurrentHashMap<>();
+
+  /** Start times of RPCs in flight. */
+  final ConcurrentMap<RPCContext, Long> activeRpcs = new ConcurrentHashMap<>();
+
+  final Ticks ticks;
+  private final int precision;
+
+  /** How long I've been alive */
+  public final Date startupTime = new Date();
+
+  /** Construct a plugin with default (system) ticks and histogram
+   * precision. */
+  public ConcurrentStatsPlugin() {
+    this(Stopwatch.SYSTEM_TICKS, LogLinearHistogram.DEFAULT_PRECISION);
+  }
+
+  /** Construct a plugin whose histograms have the given precision.
+   * @see LogLinearHistogram#LogLinearHistogram(int) */
+  public ConcurrentStatsPlugin(int precision) {
+    this(Stopwatch.SYSTEM_TICKS, precision);
+  }
+
+  ConcurrentStatsPlugin(Ticks ticks, int precision) {
+    this.ticks = ticks;
+    this.precision = LogLinearHistogram.checkPrecision(precision);
+  }
+
+  /** Statistics of a message, updated as calls are made. */
+  private final class MessageStats {
+    final Message message;
+    final LongAdder calls = new LongAdder();
+    final LogLinearHistogram latency = new LogLinearHistogram(precision);
+    final LogLinearHistogram sendPayloads = new LogLinearHistogram(precision);
+    final LogLinearHistogram receivePayloads =
+      new LogLinearHistogram(precision);
+
+    MessageStats(Message message) {
+      this.message = message;
+    }
+  }
+
+  /** An immutable copy of the statistics of a message. */
+  public static final class MessageSnapshot {
+    private final Message message;
+    private final long calls;
+    private final LogLinearHistogram.Snapshot latency;
+    private final LogLinearHistogram.Snapshot sendPayloads;
+    private final LogLinearHistogram.Snapshot receivePayloads;
+
+    MessageSnapshot(MessageStats stats) {
+      this.message = stats.message;
+      this.latency = stats.latency.getSnapshot();
+      this.sendPayloads = stats.sendPayloads.getSnapshot();
+      this.receivePayloads = stats.receivePayloads.getSnapshot();
+      this.calls = stats.calls.sum();
+    }
+
+    /** Returns the message. */
+    public Message getMessage() { return message; }
+
+    /** Returns the number of calls started, including those in flight. */
+    public long getCalls() { return calls; }
+
+    /** Returns the latencies of completed calls, in nanoseconds. */
+    public LogLinearHistogram.Snapshot getLatency() { return latency; }
+
+    /** Returns the sizes of payloads sent, in bytes. */
+    public LogLinearHistogram.Snapshot getSendPayloads() {
+      return sendPayloads;
+    }
+
+    /** Returns the sizes of payloads received, in bytes. */
+    public LogLinearHistogram.Snapshot getReceivePayloads() {
+      return receivePayloads;
+    }
+  }
+
+  /** Returns a copy of the statistics of each message called so far. */
+  public List<MessageSnapshot> getSnapshot() {
+    List<MessageSnapshot> snapshot = new ArrayList<>(messages.size());
+    for (MessageStats stats : messages.values())
+      snapshot.add(new MessageSnapshot(stats));
+    snapshot.sort((a, b) -> a.getMessage().getName()
+                  .compareTo(b.getMessage().getName()));
+    return snapshot;
+  }
+
+  private MessageStats stats(RPCContext context) {
+    Message message = context.getMessage();
+    if (message == null) throw new IllegalArgumentException();
+    MessageStats stats = messages.get(message);
+    return stats != null ? stats
+      : messages.computeIfAbsent(message, MessageStats::new);
+  }
+
+  /** Adds the size of an RPC payload, if it is known. */
+  private static void addPayload(LogLinearHistogram payloads,
+                                 List<ByteBuffer> payload) {
+    if (payload == null)
+      return;
+    long size = 0;
+    for (ByteBuffer bb : payload)
+      size += bb.remaining();
+    payloads.add(size);
+  }
+
+  private MessageStats start(RPCContext context) {
+    activeRpcs.put(context, ticks.ticks());
+    MessageStats stats = stats(context);
+    stats.calls.increment();
+    return stats;
+  }
+
+  private MessageStats finish(RPCContext context) {
+    MessageStats stats = stats(context);
+    Long start = activeRpcs.remove(context);
+    if (start != null)
+      stats.latency.add(ticks.ticks() - start);
+    return stats;
+  }
+
+  @Override
+  public void serverReceiveRequest(RPCContext context) {
+    addPayload(start(context).receivePayloads, context.getRequestPayload());
+  }
+
+  @Override
+  public void serverSendResponse(RPCContext context) {
+    addPayload(finish(context).sendPayloads, context.getResponsePayload());
+  }
+
+  @Override
+  public void clientSendRequest(RPCContext context) {
+    addPayload(start(context).sendPayloads, context.getRequestPayload());
+  }
+
+  @Override
+  public void clientReceiveResponse(RPCContext context) {
+    addPayload(finish(context).receivePayloads, context.getResponsePayload());
+  }
+}
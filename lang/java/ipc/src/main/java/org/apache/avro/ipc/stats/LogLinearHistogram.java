@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.stats;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative longs that may be added to by many threads
+ * without locking.
+ * <p/>
+ * Values less than 2<sup>p</sup> are counted exactly.  Larger values are
+ * counted in buckets that divide each power of two into 2<sup>p</sup> equal
+ * parts, so a bucket's width is at most 2<sup>-p</sup> of its values, and
+ * quantiles are reported within half that relative error.  Each bucket is a
+ * {@link LongAdder}, created when first used.
+ * <p/>
+ * Histograms with the same precision may be merged through their {@link
+ * Snapshot}s.
+ */
+public class LogLinearHistogram {
+  /** The default precision: quantiles are within 1/64 of their value. */
+  public static final int DEFAULT_PRECISION = 5;
+
+  private final int precision;
+  private final AtomicReferenceArray<LongAdder> buckets;
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator min = new LongAccumulator(Math::min,
+                                                          Long.MAX_VALUE);
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  public LogLinearHistogram() {
+    this(DEFAULT_PRECISION);
+  }
+
+  /** Construct a histogram that divides each power of two into
+   * 2<sup>precision</sup> buckets, where precision is from 1 to 10. */
+  public LogLinearHistogram(int precision) {
+    this.precision = checkPrecision(precision);
+    this.buckets = new AtomicReferenceArray<>(bucketCount(precision));
+  }
+
+  /** Returns the precision of this histogram. */
+  public int getPrecision() { return precision; }
+
+  /** Adds a value.  Negative values are counted as zero. */
+  public void add(long value) {
+    if (value < 0)
+      value = 0;
+    // count last, so that a snapshot's min and max cover what it counts
+    sum.add(value);
+    min.accumulate(value);
+    max.accumulate(value);
+    int index = bucketIndex(precision, value);
+    LongAdder bucket = buckets.get(index);
+    if (bucket == null) {
+      buckets.compareAndSet(index, null, new LongAdder());
+      bucket = buckets.get(index);
+    }
+    bucket.increment();
+  }
+
+  /** Returns a copy of the current counts.  Values added while this runs may
+   * or may not be included. */
+  public Snapshot getSnapshot() {
+    long[] counts = new long[buckets.length()];
+    for (int i = 0; i < counts.length; i++) {
+      LongAdder bucket = buckets.get(i);
+      if (bucket != null)
+        counts[i] = bucket.sum();
+    }
+    return new Snapshot(precision, counts, sum.sum(), min.get(), max.get());
+  }
+
+  static int checkPrecision(int precision) {
+    if (precision < 1 || precision > 10)
+      throw new IllegalArgumentException("Invalid precision: " + precision);
+    return precision;
+  }
+
+  static int bucketCount(int precision) {
+    return (64 - precision) << precision;
+  }
+
+  static int bucketIndex(int precision, long value) {
+    int subBuckets = 1 << precision;
+    if (value < subBuckets)
+      return (int) value;
+    int shift = 63 - Long.numberOfLeadingZeros(value) - precision;
+    return ((shift + 1) << precision) + (int) (value >>> shift) - subBuckets;
+  }
+
+  static long bucketLowerBound(int precision, int index) {
+    int subBuckets = 1 << precision;
+    if (index < subBuckets)
+      return index;
+    int shift = (index >>> precision) - 1;
+    return (long) (subBuckets + (index & (subBuckets - 1))) << shift;
+  }
+
+  static long bucketWidth(int precision, int index) {
+    return index < (1 << precision) ? 1 : 1L << ((index >>> precision) - 1);
+  }
+
+  /** An immutable copy of a histogram's counts. */
+  public static final class Snapshot {
+    private final int precision;
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    Snapshot(int precision, long[] counts, long sum, long min, long max) {
+      this.precision = precision;
+      this.counts = counts;
+      long count = 0;
+      for (long c : counts)
+        count += c;
+      this.count = count;
+      this.sum = sum;
+      this.min = count == 0 ? 0 : min;
+      this.max = max;
+    }
+
+    /** Returns the number of values added. */
+    public long getCount() { return count; }
+
+    /** Returns the sum of the values added. */
+    public long getSum() { return sum; }
+
+    /** Returns the smallest value added, or zero if none were. */
+    public long getMin() { return min; }
+
+    /** Returns the largest value added, or zero if none were. */
+    public long getMax() { return max; }
+
+    /** Returns the mean of the values added, or zero if none were. */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /** Returns an estimate of the value at a quantile, from 0 to 1, or zero
+     * if no values were added.  For example, 0.99 returns the 99th
+     * percentile. */
+    public long getValueAtQuantile(double quantile) {
+      if (quantile < 0 || quantile > 1)
+        throw new IllegalArgumentException("Invalid quantile: " + quantile);
+      if (count == 0)
+        return 0;
+      long rank = Math.max(1, (long) Math.ceil(quantile * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          long middle = bucketLowerBound(precision, i)
+            + (bucketWidth(precision, i) - 1) / 2;
+          return Math.max(min, Math.min(max, middle));
+        }
+      }
+      return max;
+    }
+
+    /** Returns a snapshot holding the values of both this and another. */
+    public Snapshot merge(Snapshot other) {
+      if (other.precision != precision)
+        throw new IllegalArgumentException("Cannot merge precision "
+                                           + other.precision + " with "
+                                           + precision);
+      long[] merged = Arrays.copyOf(counts, counts.length);
+      for (int i = 0; i < merged.length; i++)
+        merged[i] += other.counts[i];
+      return new Snapshot(precision, merged, sum + other.sum,
+                          Math.min(count == 0 ? Long.MAX_VALUE : min,
+                                   other.count == 0 ? Long.MAX_VALUE
+                                   : other.min),
+                          Math.max(max, other.max));
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + ", mean=" + getMean()
+        + ", p50=" + getValueAtQuantile(0.5)
+        + ", p99=" + getValueAtQuantile(0.99)
+        + ", p999=" + getValueAtQuantile(0.999) + ", max=" + max;
+    }
+  }
+}
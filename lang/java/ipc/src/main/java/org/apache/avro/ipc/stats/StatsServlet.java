@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.Map.Entry;
 
@@ -41,23 +42,38 @@ import org.apache.velocity.exception.ResourceNotFoundException;
 
 import org.apache.avro.Protocol.Message;
 import org.apache.avro.ipc.RPCContext;
+import org.apache.avro.ipc.stats.ConcurrentStatsPlugin.MessageSnapshot;
 
 /**
- * Exposes information provided by a StatsPlugin as
- * a web page.
+ * Exposes information provided by a StatsPlugin or a
+ * ConcurrentStatsPlugin as a web page.
  *
  * This class follows the same synchronization conventions
  * as StatsPlugin, to avoid requiring StatsPlugin to serve
- * a copy of the data.
+ * a copy of the data.  A ConcurrentStatsPlugin is instead
+ * shown from a snapshot, with quantiles of each distribution.
  */
 public class StatsServlet extends HttpServlet {
   private final StatsPlugin statsPlugin;
+  private final ConcurrentStatsPlugin concurrentPlugin;
   private VelocityEngine velocityEngine;
   private static final SimpleDateFormat FORMATTER =
     new SimpleDateFormat("dd-MMM-yyyy HH:mm:ss");
 
   public StatsServlet(StatsPlugin statsPlugin) throws UnavailableException {
+    this(statsPlugin, null);
+  }
+
+  public StatsServlet(ConcurrentStatsPlugin statsPlugin)
+    throws UnavailableException {
+    this(null, statsPlugin);
+  }
+
+  private StatsServlet(StatsPlugin statsPlugin,
+                       ConcurrentStatsPlugin concurrentPlugin)
+    throws UnavailableException {
     this.statsPlugin = statsPlugin;
+    this.concurrentPlugin = concurrentPlugin;
     this.velocityEngine = new VelocityEngine();
 
     // These two properties tell Velocity to use its own classpath-based loader
@@ -134,26 +150,41 @@ public class StatsServlet extends HttpServlet {
     ArrayList<RenderableMessage> messages =
       new ArrayList<>();
 
-    for (Entry<RPCContext, Stopwatch> rpc :
-         this.statsPlugin.activeRpcs.entrySet()) {
-      rpcs.add(renderActiveRpc(rpc.getKey(), rpc.getValue()));
-    }
+    Date startupTime;
+    if (concurrentPlugin != null) {
+      long now = concurrentPlugin.ticks.ticks();
+      for (Entry<RPCContext, Long> rpc :
+           concurrentPlugin.activeRpcs.entrySet()) {
+        rpcs.add(rpc.getKey().getMessage().getName() + ": " +
+            formatMillis(StatsPlugin.nanosToMillis(now - rpc.getValue())));
+      }
+      for (MessageSnapshot m : concurrentPlugin.getSnapshot()) {
+        messages.add(renderSnapshot(m));
+      }
+      startupTime = concurrentPlugin.startupTime;
+    } else {
+      for (Entry<RPCContext, Stopwatch> rpc :
+           this.statsPlugin.activeRpcs.entrySet()) {
+        rpcs.add(renderActiveRpc(rpc.getKey(), rpc.getValue()));
+      }
 
-    // Get set of all seen messages
-    Set<Message> keys = null;
-    synchronized(this.statsPlugin.methodTimings) {
-       keys = this.statsPlugin.methodTimings.keySet();
+      // Get set of all seen messages
+      Set<Message> keys = null;
+      synchronized(this.statsPlugin.methodTimings) {
+         keys = this.statsPlugin.methodTimings.keySet();
 
-      for (Message m: keys) {
-        messages.add(renderMethod(m));
+        for (Message m: keys) {
+          messages.add(renderMethod(m));
+        }
       }
+      startupTime = statsPlugin.startupTime;
     }
 
     context.put("inFlightRpcs", rpcs);
     context.put("messages", messages);
 
     context.put("currTime", FORMATTER.format(new Date()));
-    context.put("startupTime", FORMATTER.format(statsPlugin.startupTime));
+    context.put("startupTime", FORMATTER.format(startupTime));
 
     Template t;
     try {
@@ -264,6 +295,39 @@ public class StatsServlet extends HttpServlet {
     return out;
   }
 
+  private RenderableMessage renderSnapshot(MessageSnapshot message) {
+    RenderableMessage out = new RenderableMessage(message.getMessage().getName());
+    out.numCalls = (int) Math.min(message.getCalls(), Integer.MAX_VALUE);
+    out.charts.add(renderQuantiles("Latency", "ms", 1e-6,
+                                   message.getLatency()));
+    out.charts.add(renderQuantiles("Send Payload", "B", 1,
+                                   message.getSendPayloads()));
+    out.charts.add(renderQuantiles("Receive Payload", "B", 1,
+                                   message.getReceivePayloads()));
+    return out;
+  }
+
+  /* Fills in the attributes of a chart of quantiles for velocity, with values
+   * multiplied by scale. */
+  private HashMap<String, String> renderQuantiles(String title, String units,
+      double scale, LogLinearHistogram.Snapshot hist) {
+    HashMap<String, String> chart = new HashMap<>();
+    chart.put("type", "quantiles");
+    chart.put("title", title);
+    chart.put("units", units);
+    chart.put("numCalls", Long.toString(hist.getCount()));
+    chart.put("avg", formatScaled(hist.getMean(), scale));
+    chart.put("p50", formatScaled(hist.getValueAtQuantile(0.5), scale));
+    chart.put("p99", formatScaled(hist.getValueAtQuantile(0.99), scale));
+    chart.put("p999", formatScaled(hist.getValueAtQuantile(0.999), scale));
+    chart.put("max", formatScaled(hist.getMax(), scale));
+    return chart;
+  }
+
+  private static String formatScaled(double value, double scale) {
+    return String.format(Locale.ROOT, "%.3f", value * scale);
+  }
+
   private CharSequence formatMillis(float millis) {
     return String.format("%.0fms", millis);
   }
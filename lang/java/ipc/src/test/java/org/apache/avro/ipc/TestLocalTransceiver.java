@@ -18,14 +18,28 @@
 package org.apache.avro.ipc;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.avro.AvroRemoteException;
 import org.apache.avro.Protocol;
 import org.apache.avro.Protocol.Message;
+import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DatumReader;
+import org.apache.avro.io.Decoder;
 import org.apache.avro.ipc.generic.GenericRequestor;
 import org.apache.avro.ipc.generic.GenericResponder;
 import org.apache.avro.util.Utf8;
@@ -64,4 +78,114 @@ public class TestLocalTransceiver {
       assertEquals(new Utf8("there"), r.request("m", params));
   }
 
+  @Test
+  public void testSplitRequest() throws IOException {
+    // pass each byte of the request in its own buffer
+    Transceiver t = new LocalTransceiver(new TestResponder(protocol)) {
+      @Override
+      public List<ByteBuffer> transceive(List<ByteBuffer> request)
+        throws IOException {
+        List<ByteBuffer> split = new ArrayList<>();
+        for (ByteBuffer buffer : request)
+          while (buffer.hasRemaining())
+            split.add(ByteBuffer.wrap(new byte[] { buffer.get() }));
+        return super.transceive(split);
+      }
+    };
+    GenericRecord params = new GenericData.Record(protocol.getMessages().get(
+        "m").getRequest());
+    params.put("x", new Utf8("hello"));
+    GenericRequestor r = new GenericRequestor(protocol, t);
+
+    for(int x = 0; x < 5; x++)
+      assertEquals(new Utf8("there"), r.request("m", params));
+  }
+
+  @Test
+  public void testNestedRpc() throws IOException {
+    // a responder that calls another on the same thread
+    final GenericRequestor inner =
+      new GenericRequestor(protocol,
+                           new LocalTransceiver(new TestResponder(protocol)));
+    Transceiver t = new LocalTransceiver(new GenericResponder(protocol) {
+        @Override
+        public Object respond(Message message, Object request)
+          throws Exception {
+          Object response = inner.request("m", request);
+          char[] padding = new char[2 << 20];       // larger than is kept
+          Arrays.fill(padding, '.');
+          return new Utf8(response + new String(padding));
+        }
+      });
+    GenericRecord params = new GenericData.Record(protocol.getMessages().get(
+        "m").getRequest());
+    params.put("x", new Utf8("hello"));
+    GenericRequestor r = new GenericRequestor(protocol, t);
+
+    for(int x = 0; x < 3; x++) {
+      String response = r.request("m", params).toString();
+      assertEquals((2 << 20) + 5, response.length());
+      assertEquals("there.", response.substring(0, 6));
+    }
+  }
+
+  @Test
+  public void testConcurrentRpc() throws Exception {
+    // strings shared through a dictionary, read by one responder
+    Protocol shared = Protocol.parse("{\"protocol\": \"Shared\", "
+      + "\"messages\": { \"m\": {"
+      + "   \"request\": [{\"name\": \"x\", \"type\": {\"type\": \"string\","
+      + "     \"avro.java.string\": \"String\","
+      + "     \"avro.java.string.dictionary\": 4}}], "
+      + "   \"response\": \"string\"} } }");
+    GenericResponder responder = new GenericResponder(shared) {
+        @Override
+        protected DatumReader<Object> getDatumReader(Schema actual,
+                                                     Schema expected) {
+          // each reader is only used by the thread it was created for
+          Thread owner = Thread.currentThread();
+          return new GenericDatumReader<Object>(actual, expected) {
+            @Override
+            public Object read(Object reuse, Decoder in) throws IOException {
+              assertSame(owner, Thread.currentThread());
+              return super.read(reuse, in);
+            }
+          };
+        }
+
+        @Override
+        public Object respond(Message message, Object request) {
+          return new Utf8(((GenericRecord) request).get("x") + "!");
+        }
+      };
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int id = t;
+        results.add(executor.submit(() -> {
+          GenericRequestor r =
+            new GenericRequestor(shared, new LocalTransceiver(responder));
+          GenericRecord params = new GenericData.Record(
+              shared.getMessages().get("m").getRequest());
+          start.await();
+          for (int i = 0; i < 200; i++) {
+            String x = "s" + ((id + i) % 6);
+            params.put("x", x);
+            assertEquals(new Utf8(x + "!"), r.request("m", params));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> result : results)
+        result.get(30, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
 }
@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.AvroRemoteException;
+import org.apache.avro.Protocol;
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.generic.GenericResponder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMultiplexedSocketTransceiver {
+  private static final Protocol PROTOCOL = Protocol.parse(
+      "{\"protocol\": \"Delay\", \"messages\": { \"delay\": {"
+      + " \"request\": [{\"name\": \"millis\", \"type\": \"int\"}],"
+      + " \"response\": \"int\"} } }");
+
+  private Server server;
+  private MultiplexedSocketTransceiver transceiver;
+  private GenericRequestor requestor;
+
+  @Before
+  public void start() throws IOException {
+    server = new MultiplexedSocketServer(new GenericResponder(PROTOCOL) {
+      @Override
+      public Object respond(Message message, Object request) throws Exception {
+        int millis = (Integer)((GenericRecord)request).get("millis");
+        Thread.sleep(millis);
+        return millis;
+      }
+    }, new InetSocketAddress(0));
+    server.start();
+    transceiver = new MultiplexedSocketTransceiver(
+        new InetSocketAddress(server.getPort()));
+    requestor = new GenericRequestor(PROTOCOL, transceiver);
+  }
+
+  @After
+  public void stop() throws IOException {
+    transceiver.close();
+    server.close();
+  }
+
+  private GenericRecord delay(int millis) {
+    GenericRecord params = new GenericData.Record(
+        PROTOCOL.getMessages().get("delay").getRequest());
+    params.put("millis", millis);
+    return params;
+  }
+
+  @Test
+  public void testOutOfOrderResponses() throws Exception {
+    assertEquals(0, requestor.request("delay", delay(0)));   // handshake
+    CallFuture<Integer> slow = new CallFuture<>();
+    CallFuture<Integer> fast = new CallFuture<>();
+    requestor.request("delay", delay(500), slow);
+    requestor.request("delay", delay(0), fast);
+    assertEquals(0, (int)fast.get(5, TimeUnit.SECONDS));
+    assertFalse("Expected the slow response later", slow.isDone());
+    assertEquals(500, (int)slow.get(5, TimeUnit.SECONDS));
+    assertEquals(0, transceiver.getPendingCount());
+  }
+
+  @Test
+  public void testConcurrentCallers() throws Exception {
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int millis = t % 3;
+        results.add(executor.submit(() -> {
+          start.await();
+          for (int i = 0; i < 50; i++)
+            assertEquals(millis, requestor.request("delay", delay(millis)));
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> result : results)
+        result.get(30, TimeUnit.SECONDS);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testInterruptedCallerLeavesChannelOpen() throws Exception {
+    assertEquals(0, requestor.request("delay", delay(0)));   // handshake
+    Thread.currentThread().interrupt();
+    try {
+      requestor.request("delay", delay(0));
+      fail("Expected an interrupted wait");
+    } catch (AvroRemoteException e) {
+      // the wait for a response is interrupted, once the request is written
+      assertTrue(e.getCause() instanceof InterruptedException);
+    }
+    assertEquals(0, requestor.request("delay", delay(0)));
+  }
+
+  @Test
+  public void testCallbackErrorFailsPending() throws Exception {
+    assertEquals(0, requestor.request("delay", delay(0)));   // handshake
+    CallFuture<Integer> pending = new CallFuture<>();
+    requestor.request("delay", delay(2000), pending);
+    // bypass the requestor, which catches errors thrown by callbacks
+    transceiver.transceive(Collections.singletonList(ByteBuffer.allocate(0)),
+                           new Callback<List<ByteBuffer>>() {
+      @Override
+      public void handleResult(List<ByteBuffer> result) {
+        throw new Error("thrown by callback");
+      }
+
+      @Override
+      public void handleError(Throwable error) {}
+    });
+    pending.await(5, TimeUnit.SECONDS);
+    assertTrue(pending.getError() instanceof IOException);
+  }
+
+  @Test
+  public void testCloseFailsPending() throws Exception {
+    assertEquals(0, requestor.request("delay", delay(0)));   // handshake
+    CallFuture<Integer> pending = new CallFuture<>();
+    requestor.request("delay", delay(2000), pending);
+    transceiver.close();
+    pending.await(5, TimeUnit.SECONDS);
+    assertTrue(pending.getError() instanceof IOException);
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Protocol;
+import org.apache.avro.Protocol.Message;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.ipc.generic.GenericRequestor;
+import org.apache.avro.ipc.generic.GenericResponder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSelectorSocketServer {
+  private static final Protocol PROTOCOL = Protocol.parse(
+      "{\"protocol\": \"Echo\", \"messages\": { \"echo\": {"
+      + " \"request\": [{\"name\": \"data\", \"type\": \"bytes\"}],"
+      + " \"response\": \"bytes\"} } }");
+
+  private Server server;
+
+  @Before
+  public void start() throws IOException {
+    server = new SelectorSocketServer(new GenericResponder(PROTOCOL) {
+      @Override
+      public Object respond(Message message, Object request) {
+        return ((GenericRecord)request).get("data");
+      }
+    }, new InetSocketAddress(0), 1, 2);
+    server.start();
+  }
+
+  @After
+  public void stop() {
+    server.close();
+  }
+
+  private static GenericRecord echo(ByteBuffer data) {
+    GenericRecord params = new GenericData.Record(
+        PROTOCOL.getMessages().get("echo").getRequest());
+    params.put("data", data);
+    return params;
+  }
+
+  @Test
+  public void testManyConnections() throws Exception {
+    List<Transceiver> clients = new ArrayList<>();
+    try {
+      List<GenericRequestor> requestors = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        Transceiver client = new MultiplexedSocketTransceiver(
+            new InetSocketAddress(server.getPort()));
+        clients.add(client);
+        requestors.add(new GenericRequestor(PROTOCOL, client));
+      }
+      List<CallFuture<ByteBuffer>> futures = new ArrayList<>();
+      for (int round = 0; round < 3; round++) {
+        for (int i = 0; i < requestors.size(); i++) {
+          ByteBuffer data = ByteBuffer.wrap(new byte[] { (byte)i });
+          if (round == 0) {                       // handshake
+            assertEquals(data, requestors.get(i).request("echo", echo(data)));
+          } else {
+            CallFuture<ByteBuffer> future = new CallFuture<>();
+            requestors.get(i).request("echo", echo(data), future);
+            futures.add(future);
+          }
+        }
+      }
+      for (int i = 0; i < futures.size(); i++)
+        assertEquals(ByteBuffer.wrap(new byte[] { (byte)(i % 100) }),
+                     futures.get(i).get(10, TimeUnit.SECONDS));
+    } finally {
+      for (Transceiver client : clients)
+        client.close();
+    }
+  }
+
+  @Test
+  public void testLargeMessages() throws Exception {
+    byte[] bytes = new byte[1 << 20];
+    new Random(42).nextBytes(bytes);
+    try (Transceiver client = new MultiplexedSocketTransceiver(
+             new InetSocketAddress(server.getPort()))) {
+      GenericRequestor requestor = new GenericRequestor(PROTOCOL, client);
+      for (int i = 0; i < 3; i++)
+        assertEquals(ByteBuffer.wrap(bytes),
+                     requestor.request("echo", echo(ByteBuffer.wrap(bytes))));
+    }
+  }
+
+  /** Writes each frame a byte at a time. */
+  private static class FragmentingTransceiver extends Transceiver {
+    private final SocketChannel channel;
+    private int serial;
+    private Protocol remote;
+
+    FragmentingTransceiver(int port) throws IOException {
+      this.channel = SocketChannel.open(new InetSocketAddress(port));
+    }
+
+    @Override
+    public List<ByteBuffer> transceive(List<ByteBuffer> request)
+      throws IOException {
+      for (ByteBuffer buffer : SerialFrames.encode(++serial, request)) {
+        while (buffer.hasRemaining()) {
+          ByteBuffer one = buffer.duplicate();
+          one.limit(one.position() + 1);
+          channel.write(one);
+          buffer.position(buffer.position() + 1);
+        }
+      }
+      SerialFrames.Frame response =
+        SerialFrames.read(channel, ByteBuffer.allocate(8));
+      assertEquals(serial, response.serial);
+      return response.buffers;
+    }
+
+    @Override
+    public String getRemoteName() { return "fragmenting"; }
+
+    @Override
+    public List<ByteBuffer> readBuffers() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void writeBuffers(List<ByteBuffer> buffers) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override public boolean isConnected() { return remote != null; }
+
+    @Override public void setRemote(Protocol remote) { this.remote = remote; }
+
+    @Override public Protocol getRemote() { return remote; }
+
+    @Override
+    public void close() throws IOException { channel.close(); }
+  }
+
+  @Test
+  public void testFragmentedRequests() throws Exception {
+    try (Transceiver client = new FragmentingTransceiver(server.getPort())) {
+      GenericRequestor requestor = new GenericRequestor(PROTOCOL, client);
+      for (int i = 0; i < 3; i++) {
+        ByteBuffer data = ByteBuffer.wrap(new byte[i]);
+        assertEquals(data, requestor.request("echo", echo(data)));
+      }
+    }
+  }
+
+  @Test
+  public void testOversizedFrameClosesOnlyItsConnection() throws Exception {
+    try (Transceiver client = new MultiplexedSocketTransceiver(
+             new InetSocketAddress(server.getPort()));
+         Socket bad = new Socket("localhost", server.getPort())) {
+      GenericRequestor requestor = new GenericRequestor(PROTOCOL, client);
+      ByteBuffer data = ByteBuffer.wrap(new byte[] { 1 });
+      assertEquals(data, requestor.request("echo", echo(data)));
+
+      ByteBuffer header = ByteBuffer.allocate(12);
+      header.putInt(1).putInt(1).putInt(Integer.MAX_VALUE);
+      bad.getOutputStream().write(header.array());
+      bad.setSoTimeout(10000);
+      assertEquals(-1, bad.getInputStream().read());
+
+      // other connections on the same selector thread are still served
+      assertEquals(data, requestor.request("echo", echo(data)));
+    }
+  }
+}
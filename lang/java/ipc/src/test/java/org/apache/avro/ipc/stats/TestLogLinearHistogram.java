@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.ipc.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.avro.ipc.stats.LogLinearHistogram.Snapshot;
+import org.junit.Test;
+
+public class TestLogLinearHistogram {
+
+  @Test
+  public void testBuckets() {
+    for (int p = 1; p <= 10; p++) {
+      int count = LogLinearHistogram.bucketCount(p);
+      assertEquals(count - 1, LogLinearHistogram.bucketIndex(p, Long.MAX_VALUE));
+      long expected = 0;
+      for (int i = 0; i < count; i++) {
+        long lower = LogLinearHistogram.bucketLowerBound(p, i);
+        assertEquals(expected, lower);
+        assertEquals(i, LogLinearHistogram.bucketIndex(p, lower));
+        long width = LogLinearHistogram.bucketWidth(p, i);
+        assertEquals(i, LogLinearHistogram.bucketIndex(p, lower + width - 1));
+        assertTrue(width == 1 || width <= lower >> p);
+        expected = lower + width;
+      }
+      assertEquals(Long.MIN_VALUE, expected);     // wrapped past MAX_VALUE
+    }
+  }
+
+  @Test
+  public void testExactSmallValues() {
+    LogLinearHistogram h = new LogLinearHistogram();
+    for (int i = 1; i <= 20; i++)
+      h.add(i);
+    Snapshot s = h.getSnapshot();
+    assertEquals(20, s.getCount());
+    assertEquals(210, s.getSum());
+    assertEquals(10.5, s.getMean(), 0);
+    assertEquals(1, s.getMin());
+    assertEquals(20, s.getMax());
+    assertEquals(1, s.getValueAtQuantile(0));
+    assertEquals(10, s.getValueAtQuantile(0.5));
+    assertEquals(20, s.getValueAtQuantile(0.99));
+    assertEquals(20, s.getValueAtQuantile(1));
+  }
+
+  @Test
+  public void testRelativeError() {
+    Random random = new Random(42);
+    List<Long> values = new ArrayList<>();
+    LogLinearHistogram h = new LogLinearHistogram();
+    for (int i = 0; i < 100000; i++) {
+      long value = (long) Math.exp(random.nextDouble() * 30);
+      values.add(value);
+      h.add(value);
+    }
+    values.sort(null);
+    Snapshot s = h.getSnapshot();
+    for (double q : new double[] { 0.01, 0.5, 0.9, 0.99, 0.999 }) {
+      long exact = values.get((int) Math.ceil(q * values.size()) - 1);
+      long estimate = s.getValueAtQuantile(q);
+      assertTrue(q + ": " + estimate + " vs " + exact,
+                 Math.abs(estimate - exact) <= exact / 64.0 + 1);
+    }
+  }
+
+  @Test
+  public void testMerge() {
+    LogLinearHistogram a = new LogLinearHistogram();
+    LogLinearHistogram b = new LogLinearHistogram();
+    LogLinearHistogram empty = new LogLinearHistogram();
+    for (int i = 0; i < 1000; i++) {
+      a.add(1000 + i);
+      b.add(1000000 + i);
+    }
+    Snapshot merged = a.getSnapshot().merge(b.getSnapshot())
+      .merge(empty.getSnapshot());
+    assertEquals(2000, merged.getCount());
+    assertEquals(1000, merged.getMin());
+    assertEquals(1000999, merged.getMax());
+    assertEquals(1000, empty.getSnapshot().merge(a.getSnapshot()).getMin());
+    assertTrue(merged.getValueAtQuantile(0.25) < 2000);
+    assertTrue(merged.getValueAtQuantile(0.75) > 1000000);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMergePrecisionMismatch() {
+    new LogLinearHistogram(5).getSnapshot()
+      .merge(new LogLinearHistogram(6).getSnapshot());
+  }
+
+  @Test
+  public void testConcurrentAdds() throws Exception {
+    LogLinearHistogram h = new LogLinearHistogram();
+    Thread[] threads = new Thread[4];
+    for (int t = 0; t < threads.length; t++) {
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 100000; i++)
+          h.add(i);
+      });
+      threads[t].start();
+    }
+    for (Thread thread : threads)
+      thread.join();
+    Snapshot s = h.getSnapshot();
+    assertEquals(400000, s.getCount());
+    assertEquals(4L * (99999L * 100000 / 2), s.getSum());
+    assertEquals(99999, s.getMax());
+  }
+}
@@ -0,0 +1,331 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.util.Utf8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Reads and writes primitive values directly with a {@link BinaryDecoder}
+ * and {@link BinaryEncoder}, without a datum reader or writer.  Mirrors the
+ * <code>-basic</code> batch of <code>Perf</code>. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BasicBenchmark {
+
+  /** The kinds of value read and written, with Perf's option for each. */
+  public enum Kind {
+    /** -i: ints of 1 to 5 bytes. */
+    INT {
+      @Override Object generate(Random r, int count) {
+        int[] data = new int[count];
+        for (int i = 0; i < count; i += 4) {
+          data[i] = r.nextInt(50);
+          data[i+1] = r.nextInt(5000);
+          data[i+2] = r.nextInt(500000);
+          data[i+3] = r.nextInt(150000000);
+        }
+        return data;
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (int value : (int[]) source)
+          e.writeInt(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readInt());
+      }
+    },
+    /** -ls: the same data as INT, as longs. */
+    SMALL_LONG {
+      @Override Object generate(Random r, int count) {
+        return INT.generate(r, count);
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (int value : (int[]) source)
+          e.writeLong(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readLong());
+      }
+    },
+    /** -l: longs of 1 to 10 bytes. */
+    LONG {
+      @Override Object generate(Random r, int count) {
+        long[] data = new long[count];
+        for (int i = 0; i < count; i += 4) {
+          data[i] = r.nextLong() % 0x7FL;
+          data[i+1] = r.nextLong() % 0x1FFFFFL;
+          data[i+2] = r.nextLong() % 0x3FFFFFFFFL;
+          data[i+3] = r.nextLong() % 0x1FFFFFFFFFFFFL;
+        }
+        for (int i = count - 16; i < count; i++)
+          data[i] = r.nextLong();
+        return data;
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (long value : (long[]) source)
+          e.writeLong(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readLong());
+      }
+    },
+    /** -f */
+    FLOAT {
+      @Override Object generate(Random r, int count) {
+        return floats(r, count);
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (float value : (float[]) source)
+          e.writeFloat(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readFloat());
+      }
+    },
+    /** -d */
+    DOUBLE {
+      @Override Object generate(Random r, int count) {
+        double[] data = new double[count];
+        for (int i = 0; i < count; i++)
+          data[i] = r.nextDouble();
+        return data;
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (double value : (double[]) source)
+          e.writeDouble(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readDouble());
+      }
+    },
+    /** -b */
+    BOOLEAN {
+      @Override Object generate(Random r, int count) {
+        boolean[] data = new boolean[count];
+        for (int i = 0; i < count; i++)
+          data[i] = r.nextBoolean();
+        return data;
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (boolean value : (boolean[]) source)
+          e.writeBoolean(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readBoolean());
+      }
+    },
+    /** -by: byte strings of up to 70 bytes. */
+    BYTES {
+      @Override Object generate(Random r, int count) {
+        byte[][] data = new byte[count][];
+        for (int i = 0; i < count; i++) {
+          data[i] = new byte[r.nextInt(70)];
+          r.nextBytes(data[i]);
+        }
+        return data;
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (byte[] value : (byte[][]) source)
+          e.writeBytes(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(70);
+        for (int i = 0; i < count; i++)
+          bh.consume(bb = d.readBytes(bb));
+      }
+    },
+    /** -s: strings of up to 70 characters. */
+    STRING {
+      @Override Object generate(Random r, int count) {
+        String[] data = new String[count];
+        for (int i = 0; i < count; i++)
+          data[i] = PerfData.randomString(r);
+        return data;
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        for (String value : (String[]) source)
+          e.writeString(value);
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        Utf8 utf = new Utf8();
+        for (int i = 0; i < count; i++)
+          bh.consume(d.readString(utf).toString());
+      }
+    },
+    /** -a: an array of records of four floats, inside an array. */
+    ARRAY {
+      @Override Object generate(Random r, int count) {
+        return floats(r, count);
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        float[] data = (float[]) source;
+        e.writeArrayStart();
+        e.setItemCount(1);
+        e.startItem();
+        e.writeArrayStart();
+        e.setItemCount(data.length / 4);
+        for (int i = 0; i < data.length; i += 4) {
+          e.startItem();
+          e.writeFloat(data[i]);
+          e.writeFloat(data[i+1]);
+          e.writeFloat(data[i+2]);
+          e.writeFloat(data[i+3]);
+        }
+        e.writeArrayEnd();
+        e.writeArrayEnd();
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        d.readArrayStart();
+        for (long i = d.readArrayStart(); i != 0; i = d.arrayNext()) {
+          for (long j = 0; j < i; j++) {
+            bh.consume(d.readFloat());
+            bh.consume(d.readFloat());
+            bh.consume(d.readFloat());
+            bh.consume(d.readFloat());
+          }
+        }
+        d.arrayNext();
+      }
+    },
+    /** -m: a map of records of four floats. */
+    MAP {
+      @Override Object generate(Random r, int count) {
+        return floats(r, count);
+      }
+      @Override void write(Object source, Encoder e) throws IOException {
+        float[] data = (float[]) source;
+        Utf8 foo = new Utf8("foo");
+        e.writeMapStart();
+        e.setItemCount(data.length / 4);
+        for (int i = 0; i < data.length; i += 4) {
+          e.startItem();
+          e.writeString(foo);
+          e.writeFloat(data[i]);
+          e.writeFloat(data[i+1]);
+          e.writeFloat(data[i+2]);
+          e.writeFloat(data[i+3]);
+        }
+        e.writeMapEnd();
+      }
+      @Override void read(Decoder d, int count, Blackhole bh)
+        throws IOException {
+        Utf8 key = new Utf8();
+        for (long i = d.readMapStart(); i != 0; i = d.mapNext()) {
+          for (long j = 0; j < i; j++) {
+            bh.consume(key = d.readString(key));
+            bh.consume(d.readFloat());
+            bh.consume(d.readFloat());
+            bh.consume(d.readFloat());
+            bh.consume(d.readFloat());
+          }
+        }
+      }
+    };
+
+    abstract Object generate(Random r, int count);
+    abstract void write(Object source, Encoder e) throws IOException;
+    abstract void read(Decoder d, int count, Blackhole bh) throws IOException;
+
+    private static float[] floats(Random r, int count) {
+      float[] data = new float[count];
+      for (int i = 0; i < count; i++)
+        data[i] = r.nextFloat();
+      return data;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Data {
+    @Param
+    public Kind kind;
+
+    Object source;
+    byte[] encoded;
+    ByteArrayOutputStream out;
+    BinaryEncoder encoder;
+    BinaryDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+      source = kind.generate(PerfData.newRandom(), PerfData.COUNT);
+      out = new ByteArrayOutputStream();
+      encoder = EncoderFactory.get().binaryEncoder(out, null);
+      kind.write(source, encoder);
+      encoder.flush();
+      encoded = out.toByteArray();
+    }
+  }
+
+  @Benchmark
+  public void read(Data data, Blackhole bh) throws IOException {
+    data.decoder = DecoderFactory.get().binaryDecoder(data.encoded,
+                                                      data.decoder);
+    data.kind.read(data.decoder, PerfData.COUNT, bh);
+  }
+
+  @Benchmark
+  public void write(Data data) throws IOException {
+    data.out.reset();
+    data.encoder = EncoderFactory.get().binaryEncoder(data.out, data.encoder);
+    data.kind.write(data.source, data.encoder);
+    data.encoder.flush();
+  }
+}
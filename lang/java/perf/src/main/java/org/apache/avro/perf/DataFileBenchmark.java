@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Writes and reads container files of generic records with each codec. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(DataFileBenchmark.RECORDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataFileBenchmark {
+  /** Enough records for several blocks per file. */
+  static final int RECORDS = 100 * PerfData.COUNT;
+
+  @State(Scope.Thread)
+  public static class Data {
+    @Param({"null", "deflate", "snappy", "bzip2", "xz", "zstandard"})
+    public String codec;
+
+    Schema schema;
+    GenericRecord[] records;
+    File written;
+    File toRead;
+
+    @Setup
+    public void setup() throws IOException {
+      schema = PerfData.parse(PerfData.NESTED_RECORD_SCHEMA);
+      records = PerfData.genericRecords(schema, RECORDS);
+      written = File.createTempFile("avro-perf-write", ".avro");
+      toRead = File.createTempFile("avro-perf-read", ".avro");
+      write(this, toRead);
+    }
+
+    @TearDown
+    public void tearDown() {
+      written.delete();
+      toRead.delete();
+    }
+  }
+
+  private static void write(Data data, File file) throws IOException {
+    try (DataFileWriter<GenericRecord> writer =
+         new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(data.schema))) {
+      writer.setCodec(CodecFactory.fromString(data.codec));
+      writer.create(data.schema, file);
+      for (GenericRecord record : data.records)
+        writer.append(record);
+    }
+  }
+
+  @Benchmark
+  public void write(Data data) throws IOException {
+    write(data, data.written);
+  }
+
+  @Benchmark
+  public void read(Data data, Blackhole bh) throws IOException {
+    try (DataFileReader<GenericRecord> reader =
+         new DataFileReader<>(data.toRead, new GenericDatumReader<>())) {
+      GenericRecord reuse = null;
+      while (reader.hasNext())
+        bh.consume(reuse = reader.next(reuse));
+    }
+  }
+}
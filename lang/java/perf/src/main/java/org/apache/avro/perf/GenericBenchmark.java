@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.FastGenericDatumReader;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Reads and writes generic records with {@link GenericDatumReader},
+ * {@link FastGenericDatumReader} and {@link GenericDatumWriter}.  Mirrors the
+ * <code>-generic</code> and <code>-generic-onetime</code> batches of
+ * <code>Perf</code>. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GenericBenchmark {
+
+  /** The writer's and reader's schemas, with Perf's option for each. */
+  public enum Schemas {
+    /** -G */
+    RECORD(PerfData.RECORD_SCHEMA, PerfData.RECORD_SCHEMA),
+    /** -Gs */
+    STRINGS(PerfData.STRINGS_SCHEMA, PerfData.STRINGS_SCHEMA),
+    /** -Gn */
+    NESTED(PerfData.NESTED_RECORD_SCHEMA, PerfData.NESTED_RECORD_SCHEMA),
+    /** -Gd */
+    DEFAULT(PerfData.RECORD_SCHEMA, PerfData.RECORD_SCHEMA_WITH_DEFAULT),
+    /** -Go */
+    OUT_OF_ORDER(PerfData.RECORD_SCHEMA,
+                 PerfData.RECORD_SCHEMA_WITH_OUT_OF_ORDER),
+    /** -Gp */
+    PROMOTION(PerfData.RECORD_SCHEMA, PerfData.RECORD_SCHEMA_WITH_PROMOTION);
+
+    private final String writer;
+    private final String reader;
+
+    Schemas(String writer, String reader) {
+      this.writer = writer;
+      this.reader = reader;
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ReadState {
+    @Param
+    public Schemas schemas;
+
+    /** Whether to use the compiled {@link FastGenericDatumReader}. */
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    Schema writer;
+    Schema reader;
+    GenericDatumReader<Object> datumReader;
+    byte[] encoded;
+    BinaryDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+      writer = PerfData.parse(schemas.writer);
+      reader = PerfData.parse(schemas.reader);
+      datumReader = newReader();
+      encoded = PerfData.encode(new GenericDatumWriter<>(writer),
+                                PerfData.genericRecords(writer, PerfData.COUNT));
+    }
+
+    GenericDatumReader<Object> newReader() {
+      return compiled
+        ? new FastGenericDatumReader<>(writer, reader)
+        : new GenericDatumReader<>(writer, reader);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class WriteState {
+    @Param({"RECORD", "STRINGS", "NESTED"})
+    public Schemas schemas;
+
+    GenericDatumWriter<Object> writer;
+    GenericRecord[] records;
+    ByteArrayOutputStream out;
+    BinaryEncoder encoder;
+
+    @Setup
+    public void setup() {
+      Schema schema = PerfData.parse(schemas.writer);
+      writer = new GenericDatumWriter<>(schema);
+      records = PerfData.genericRecords(schema, PerfData.COUNT);
+      out = new ByteArrayOutputStream();
+    }
+  }
+
+  @Benchmark
+  public void read(ReadState state, Blackhole bh) throws IOException {
+    state.decoder =
+      DecoderFactory.get().binaryDecoder(state.encoded, state.decoder);
+    for (int i = 0; i < PerfData.COUNT; i++)
+      bh.consume(state.datumReader.read(null, state.decoder));
+  }
+
+  /** -Got: a new reader for every datum. */
+  @Benchmark
+  public void readOneTimeReader(ReadState state, Blackhole bh)
+    throws IOException {
+    state.decoder =
+      DecoderFactory.get().binaryDecoder(state.encoded, state.decoder);
+    for (int i = 0; i < PerfData.COUNT; i++)
+      bh.consume(state.newReader().read(null, state.decoder));
+  }
+
+  @Benchmark
+  public void write(WriteState state) throws IOException {
+    state.out.reset();
+    state.encoder =
+      EncoderFactory.get().binaryEncoder(state.out, state.encoder);
+    for (GenericRecord record : state.records)
+      state.writer.write(record, state.encoder);
+    state.encoder.flush();
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.JsonDecoder;
+import org.apache.avro.io.JsonEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Decodes generic records from JSON with {@link JsonDecoder}, with fields
+ * either in schema order or in reverse order. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonDecoderBenchmark {
+
+  @State(Scope.Thread)
+  public static class Data {
+    /** Whether the JSON fields are in the reverse of the schema's order. */
+    @Param({"false", "true"})
+    public boolean outOfOrder;
+
+    Schema schema;
+    GenericDatumReader<GenericRecord> reader;
+    String json;
+
+    @Setup
+    public void setup() throws IOException {
+      schema = PerfData.parse(PerfData.NESTED_RECORD_SCHEMA);
+      reader = new GenericDatumReader<>(schema);
+      Schema written = outOfOrder ? reversed(schema) : schema;
+      GenericRecord[] records = PerfData.genericRecords(written, PerfData.COUNT);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      JsonEncoder encoder = EncoderFactory.get().jsonEncoder(written, out);
+      GenericDatumWriter<GenericRecord> writer =
+        new GenericDatumWriter<>(written);
+      for (GenericRecord record : records)
+        writer.write(record, encoder);
+      encoder.flush();
+      json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  /** The same record, with its fields in the reverse order. */
+  private static Schema reversed(Schema schema) {
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field f : schema.getFields())
+      fields.add(new Schema.Field(f, f.schema()));
+    Collections.reverse(fields);
+    return Schema.createRecord(schema.getName(), schema.getDoc(),
+                               schema.getNamespace(), false, fields);
+  }
+
+  @Benchmark
+  public void decode(Data data, Blackhole bh) throws IOException {
+    JsonDecoder decoder = DecoderFactory.get().jsonDecoder(data.schema,
+                                                           data.json);
+    GenericRecord reuse = null;
+    for (int i = 0; i < PerfData.COUNT; i++)
+      bh.consume(reuse = data.reader.read(reuse, decoder));
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Encodes and decodes single-object messages with
+ * {@link BinaryMessageEncoder} and {@link BinaryMessageDecoder}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageEncodingBenchmark {
+
+  @State(Scope.Thread)
+  public static class Data {
+    GenericRecord[] records;
+    BinaryMessageEncoder<GenericRecord> encoder;
+    BinaryMessageEncoder<GenericRecord> sharedBufferEncoder;
+    BinaryMessageDecoder<GenericRecord> decoder;
+    ByteBuffer[] messages;
+    ByteBuffer buffer;
+    GenericRecord reuse;
+
+    @Setup
+    public void setup() throws IOException {
+      Schema schema = PerfData.parse(PerfData.RECORD_SCHEMA);
+      records = PerfData.genericRecords(schema, PerfData.COUNT);
+      encoder = new BinaryMessageEncoder<>(GenericData.get(), schema);
+      sharedBufferEncoder =
+        new BinaryMessageEncoder<>(GenericData.get(), schema, false);
+      decoder = new BinaryMessageDecoder<>(GenericData.get(), schema);
+      messages = new ByteBuffer[records.length];
+      for (int i = 0; i < records.length; i++)
+        messages[i] = encoder.encode(records[i]);
+      buffer = ByteBuffer.allocate(1024);
+    }
+  }
+
+  /** Each message in a new buffer. */
+  @Benchmark
+  public void encode(Data data, Blackhole bh) throws IOException {
+    for (GenericRecord record : data.records)
+      bh.consume(data.encoder.encode(record));
+  }
+
+  /** Each message in a thread-local buffer that is not copied. */
+  @Benchmark
+  public void encodeWithoutCopy(Data data, Blackhole bh) throws IOException {
+    for (GenericRecord record : data.records)
+      bh.consume(data.sharedBufferEncoder.encode(record));
+  }
+
+  /** Each message into the same caller-provided buffer. */
+  @Benchmark
+  public void encodeIntoBuffer(Data data, Blackhole bh) throws IOException {
+    for (GenericRecord record : data.records) {
+      data.buffer.clear();
+      bh.consume(data.encoder.encode(record, data.buffer));
+    }
+  }
+
+  @Benchmark
+  public void decode(Data data, Blackhole bh) throws IOException {
+    for (ByteBuffer message : data.messages)
+      bh.consume(data.decoder.decode(message.duplicate()));
+  }
+
+  @Benchmark
+  public void decodeWithReuse(Data data, Blackhole bh) throws IOException {
+    for (ByteBuffer message : data.messages)
+      bh.consume(data.reuse = data.decoder.decode(message.duplicate(),
+                                                  data.reuse));
+  }
+}
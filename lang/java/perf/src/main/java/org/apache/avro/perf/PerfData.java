@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DatumWriter;
+import org.apache.avro.io.EncoderFactory;
+
+/** Schemas and data shared by the benchmarks.  These are the same as those
+ * used by the <code>Perf</code> test driver, so results are comparable. */
+final class PerfData {
+  private PerfData() {}
+
+  /** The number of data read or written by each benchmark invocation. */
+  static final int COUNT = 1000;
+
+  /** A fixed seed, so every run uses the same data. */
+  private static final long SEED = 19781210;
+
+  static Random newRandom() {
+    return new Random(SEED);
+  }
+
+  static final String RECORD_SCHEMA =
+    "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+    + "{ \"name\": \"f1\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f2\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f3\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f4\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f5\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f6\", \"type\": \"int\" }\n"
+    + "] }";
+
+  static final String RECORD_SCHEMA_WITH_DEFAULT =
+    "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+    + "{ \"name\": \"f1\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f2\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f3\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f4\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f5\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f6\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f7\", \"type\": \"string\", "
+      + "\"default\": \"undefined\" },\n"
+    + "{ \"name\": \"f8\", \"type\": \"string\","
+      + "\"default\": \"undefined\" }\n"
+    + "] }";
+
+  static final String RECORD_SCHEMA_WITH_OUT_OF_ORDER =
+    "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+    + "{ \"name\": \"f1\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f3\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f5\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f2\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f4\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f6\", \"type\": \"int\" }\n"
+    + "] }";
+
+  static final String RECORD_SCHEMA_WITH_PROMOTION =
+    "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+    + "{ \"name\": \"f1\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f2\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f3\", \"type\": \"double\" },\n"
+    + "{ \"name\": \"f4\", \"type\": \"long\" },\n"
+    + "{ \"name\": \"f5\", \"type\": \"long\" },\n"
+    + "{ \"name\": \"f6\", \"type\": \"long\" }\n"
+    + "] }";
+
+  static final String NESTED_RECORD_SCHEMA =
+    "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+    + "{ \"name\": \"f1\", \"type\": \n" +
+        "{ \"type\": \"record\", \"name\": \"D\", \"fields\": [\n" +
+          "{\"name\": \"dbl\", \"type\": \"double\" }]\n" +
+        "} },\n"
+    + "{ \"name\": \"f2\", \"type\": \"D\" },\n"
+    + "{ \"name\": \"f3\", \"type\": \"D\" },\n"
+    + "{ \"name\": \"f4\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f5\", \"type\": \"int\" },\n"
+    + "{ \"name\": \"f6\", \"type\": \"int\" }\n"
+    + "] }";
+
+  static final String STRINGS_SCHEMA =
+    "{ \"type\": \"record\", \"name\": \"R\", \"fields\": [\n"
+    + "{ \"name\": \"f1\", \"type\": \"string\" },\n"
+    + "{ \"name\": \"f2\", \"type\": \"string\" },\n"
+    + "{ \"name\": \"f3\", \"type\": \"string\" }\n"
+    + "] }";
+
+  static Schema parse(String json) {
+    return new Schema.Parser().parse(json);
+  }
+
+  static String randomString(Random r) {
+    char[] data = new char[r.nextInt(70)];
+    for (int j = 0; j < data.length; j++) {
+      data[j] = (char)('a' + r.nextInt('z'-'a'));
+    }
+    return new String(data);
+  }
+
+  /** Generate records of {@link #RECORD_SCHEMA}, {@link #STRINGS_SCHEMA} or
+   * {@link #NESTED_RECORD_SCHEMA}. */
+  static GenericRecord[] genericRecords(Schema schema, int count) {
+    Random r = newRandom();
+    GenericRecord[] records = new GenericRecord[count];
+    for (int i = 0; i < count; i++) {
+      GenericRecord rec = new GenericData.Record(schema);
+      for (Schema.Field f : schema.getFields()) {
+        rec.put(f.pos(), randomValue(f.schema(), r));
+      }
+      records[i] = rec;
+    }
+    return records;
+  }
+
+  private static Object randomValue(Schema schema, Random r) {
+    switch (schema.getType()) {
+    case DOUBLE: return r.nextDouble();
+    case INT:    return r.nextInt();
+    case STRING: return randomString(r);
+    case RECORD:
+      GenericRecord inner = new GenericData.Record(schema);
+      inner.put(0, randomValue(schema.getFields().get(0).schema(), r));
+      return inner;
+    default:
+      throw new IllegalArgumentException("Unsupported: " + schema);
+    }
+  }
+
+  /** Write data, one after another, as binary. */
+  static <T> byte[] encode(DatumWriter<T> writer, T[] data)
+    throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+    for (T datum : data) {
+      writer.write(datum, encoder);
+    }
+    encoder.flush();
+    return out.toByteArray();
+  }
+}
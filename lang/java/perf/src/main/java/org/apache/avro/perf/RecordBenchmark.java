@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.io.ResolvingDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Reads and writes records field by field through the validating and
+ * resolving decoders, without a datum reader or writer.  Mirrors the
+ * <code>-record</code> batch of <code>Perf</code>. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordBenchmark {
+
+  /** How records are read, with Perf's option for each. */
+  public enum Reading {
+    /** -R: directly from the binary decoder. */
+    PLAIN(null),
+    /** -Rv: through a validating decoder. */
+    VALIDATING(null),
+    /** -Rr: through a resolving decoder with identical schemas. */
+    RESOLVING(PerfData.RECORD_SCHEMA),
+    /** -Rd: resolving, with two reader fields filled by defaults. */
+    DEFAULT(PerfData.RECORD_SCHEMA_WITH_DEFAULT),
+    /** -Ro: resolving, with the reader's fields in a different order. */
+    OUT_OF_ORDER(PerfData.RECORD_SCHEMA_WITH_OUT_OF_ORDER),
+    /** -Rp: resolving, with ints promoted to longs. */
+    PROMOTION(PerfData.RECORD_SCHEMA_WITH_PROMOTION);
+
+    private final String readerSchema;
+
+    Reading(String readerSchema) {
+      this.readerSchema = readerSchema;
+    }
+  }
+
+  private static class Rec {
+    final double f1, f2, f3;
+    final int f4, f5, f6;
+
+    Rec(Random r) {
+      f1 = r.nextDouble();
+      f2 = r.nextDouble();
+      f3 = r.nextDouble();
+      f4 = r.nextInt();
+      f5 = r.nextInt();
+      f6 = r.nextInt();
+    }
+  }
+
+  private static Rec[] records() {
+    Random r = PerfData.newRandom();
+    Rec[] records = new Rec[PerfData.COUNT];
+    for (int i = 0; i < records.length; i++)
+      records[i] = new Rec(r);
+    return records;
+  }
+
+  private static void write(Rec[] records, Encoder e) throws IOException {
+    for (Rec r : records) {
+      e.writeDouble(r.f1);
+      e.writeDouble(r.f2);
+      e.writeDouble(r.f3);
+      e.writeInt(r.f4);
+      e.writeInt(r.f5);
+      e.writeInt(r.f6);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ReadState {
+    @Param
+    public Reading reading;
+
+    Schema writer;
+    Schema reader;
+    byte[] encoded;
+    BinaryDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+      writer = PerfData.parse(PerfData.RECORD_SCHEMA);
+      if (reading.readerSchema != null)
+        reader = PerfData.parse(reading.readerSchema);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      BinaryEncoder e = EncoderFactory.get().binaryEncoder(out, null);
+      write(records(), e);
+      e.flush();
+      encoded = out.toByteArray();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class WriteState {
+    /** -Rv when true, -R otherwise. */
+    @Param({"false", "true"})
+    public boolean validating;
+
+    Schema schema;
+    Rec[] records;
+    ByteArrayOutputStream out;
+    BinaryEncoder encoder;
+
+    @Setup
+    public void setup() {
+      schema = PerfData.parse(PerfData.RECORD_SCHEMA);
+      records = records();
+      out = new ByteArrayOutputStream();
+    }
+  }
+
+  @Benchmark
+  public void read(ReadState state, Blackhole bh) throws IOException {
+    state.decoder =
+      DecoderFactory.get().binaryDecoder(state.encoded, state.decoder);
+    switch (state.reading) {
+    case PLAIN:
+      readInOrder(state.decoder, bh);
+      break;
+    case VALIDATING:
+      readInOrder(DecoderFactory.get()
+                  .validatingDecoder(state.writer, state.decoder), bh);
+      break;
+    default:
+      readResolved(DecoderFactory.get()
+                   .resolvingDecoder(state.writer, state.reader, state.decoder),
+                   bh);
+    }
+  }
+
+  private static void readInOrder(Decoder d, Blackhole bh) throws IOException {
+    for (int i = 0; i < PerfData.COUNT; i++) {
+      bh.consume(d.readDouble());
+      bh.consume(d.readDouble());
+      bh.consume(d.readDouble());
+      bh.consume(d.readInt());
+      bh.consume(d.readInt());
+      bh.consume(d.readInt());
+    }
+  }
+
+  private static void readResolved(ResolvingDecoder r, Blackhole bh)
+    throws IOException {
+    Schema.Field[] ff = r.readFieldOrder();
+    for (int i = 0; i < PerfData.COUNT; i++) {
+      for (Schema.Field f : ff) {
+        switch (f.schema().getType()) {
+        case DOUBLE: bh.consume(r.readDouble()); break;
+        case INT:    bh.consume(r.readInt()); break;
+        case LONG:   bh.consume(r.readLong()); break;
+        case STRING: bh.consume(r.readString(null)); break;
+        default: throw new IllegalStateException("Unexpected field: " + f);
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void write(WriteState state) throws IOException {
+    state.out.reset();
+    state.encoder =
+      EncoderFactory.get().binaryEncoder(state.out, state.encoder);
+    Encoder e = state.validating
+      ? EncoderFactory.get().validatingEncoder(state.schema, state.encoder)
+      : state.encoder;
+    write(state.records, e);
+    e.flush();
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.reflect.ReflectData;
+import org.apache.avro.reflect.ReflectDatumReader;
+import org.apache.avro.reflect.ReflectDatumWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Reads and writes Java objects with {@link ReflectDatumReader} and
+ * {@link ReflectDatumWriter}.  Mirrors the <code>-reflect</code> batch of
+ * <code>Perf</code>. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectBenchmark {
+
+  /** The kinds of object read and written, with Perf's option for each. */
+  public enum Kind {
+    /** -REFr */
+    RECORD(Rec.class) {
+      @Override Object generate(Random r) { return new Rec(r); }
+    },
+    /** -REFbr */
+    BIG_RECORD(BigRec.class) {
+      @Override Object generate(Random r) { return new BigRec(r); }
+    },
+    /** -REFia */
+    INT_ARRAY(int[].class) {
+      @Override Object generate(Random r) {
+        int[] result = new int[smallArraySize(r)];
+        for (int i = 0; i < result.length; i++)
+          result[i] = r.nextInt();
+        return result;
+      }
+    },
+    /** -REFla */
+    LONG_ARRAY(long[].class) {
+      @Override Object generate(Random r) {
+        long[] result = new long[smallArraySize(r)];
+        for (int i = 0; i < result.length; i++)
+          result[i] = r.nextLong();
+        return result;
+      }
+    },
+    /** -REFfa */
+    FLOAT_ARRAY(float[].class) {
+      @Override Object generate(Random r) {
+        return floats(r, smallArraySize(r));
+      }
+    },
+    /** -REFda */
+    DOUBLE_ARRAY(double[].class) {
+      @Override Object generate(Random r) {
+        double[] result = new double[smallArraySize(r)];
+        for (int i = 0; i < result.length; i++)
+          result[i] = r.nextDouble();
+        return result;
+      }
+    },
+    /** -REFnf */
+    NESTED_FLOAT_ARRAY(FloatFoo.class) {
+      @Override Object generate(Random r) {
+        FloatFoo foo = new FloatFoo();
+        foo.floatBar = floats(r, smallArraySize(r));
+        return foo;
+      }
+    },
+    /** -REFno */
+    NESTED_OBJECT_ARRAY(Foo.class) {
+      @Override Object generate(Random r) {
+        Foo foo = new Foo();
+        foo.bar = new Vals[smallArraySize(r)];
+        for (int i = 0; i < foo.bar.length; i++)
+          foo.bar[i] = new Vals(r);
+        return foo;
+      }
+    };
+
+    private final Class<?> type;
+
+    Kind(Class<?> type) {
+      this.type = type;
+    }
+
+    abstract Object generate(Random r);
+
+    // average of 8, between 1 and 15
+    private static int smallArraySize(Random r) {
+      return r.nextInt(15) + 1;
+    }
+
+    private static float[] floats(Random r, int size) {
+      float[] result = new float[size];
+      for (int i = 0; i < result.length; i++)
+        result[i] = r.nextFloat();
+      return result;
+    }
+  }
+
+  public static class Rec {
+    double f1;
+    double f2;
+    double f3;
+    int f4;
+    int f5;
+    int f6;
+
+    public Rec() {}
+
+    Rec(Random r) {
+      f1 = r.nextDouble();
+      f2 = r.nextDouble();
+      f3 = r.nextDouble();
+      f4 = r.nextInt();
+      f5 = r.nextInt();
+      f6 = r.nextInt();
+    }
+  }
+
+  public static class BigRec {
+    double d1;
+    double d11;
+    float f2;
+    float f22;
+    int f3;
+    int f33;
+    long f4;
+    long f44;
+    byte f5;
+    byte f55;
+    short f6;
+    short f66;
+
+    public BigRec() {}
+
+    BigRec(Random r) {
+      d1 = r.nextDouble();
+      d11 = r.nextDouble();
+      f2 = r.nextFloat();
+      f22 = r.nextFloat();
+      f3 = r.nextInt();
+      f33 = r.nextInt();
+      f4 = r.nextLong();
+      f44 = r.nextLong();
+      f5 = (byte) r.nextInt();
+      f55 = (byte) r.nextInt();
+      f6 = (short) r.nextInt();
+      f66 = (short) r.nextInt();
+    }
+  }
+
+  public static class FloatFoo {
+    float[] floatBar;
+  }
+
+  public static class Foo {
+    Vals[] bar;
+  }
+
+  public static class Vals {
+    float f1;
+    float f2;
+    float f3;
+    float f4;
+
+    public Vals() {}
+
+    Vals(Random r) {
+      f1 = r.nextFloat();
+      f2 = r.nextFloat();
+      f3 = r.nextFloat();
+      f4 = r.nextFloat();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class Data {
+    @Param
+    public Kind kind;
+
+    ReflectDatumReader<Object> reader;
+    ReflectDatumWriter<Object> writer;
+    Object[] data;
+    byte[] encoded;
+    ByteArrayOutputStream out;
+    BinaryEncoder encoder;
+    BinaryDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+      Schema schema = ReflectData.get().getSchema(kind.type);
+      reader = new ReflectDatumReader<>(schema);
+      writer = new ReflectDatumWriter<>(schema);
+      Random r = PerfData.newRandom();
+      data = new Object[PerfData.COUNT];
+      for (int i = 0; i < data.length; i++)
+        data[i] = kind.generate(r);
+      encoded = PerfData.encode(writer, data);
+      out = new ByteArrayOutputStream();
+    }
+  }
+
+  @Benchmark
+  public void read(Data data, Blackhole bh) throws IOException {
+    data.decoder = DecoderFactory.get().binaryDecoder(data.encoded,
+                                                      data.decoder);
+    for (int i = 0; i < PerfData.COUNT; i++)
+      bh.consume(data.reader.read(null, data.decoder));
+  }
+
+  @Benchmark
+  public void write(Data data) throws IOException {
+    data.out.reset();
+    data.encoder = EncoderFactory.get().binaryEncoder(data.out, data.encoder);
+    for (Object datum : data.data)
+      data.writer.write(datum, data.encoder);
+    data.encoder.flush();
+  }
+}
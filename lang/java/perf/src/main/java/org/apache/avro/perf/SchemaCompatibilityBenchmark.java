@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.SchemaCompatibility;
+import org.apache.avro.SchemaCompatibilityCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Checks reader and writer schemas for compatibility with
+ * {@link SchemaCompatibility}, and a new schema against its previous versions
+ * with and without a {@link SchemaCompatibilityCache}. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SchemaCompatibilityBenchmark {
+  static final int VERSIONS = 100;
+
+  @State(Scope.Thread)
+  public static class Data {
+    /** The number of groups of fields in the schemas. */
+    @Param({"10", "100"})
+    public int size;
+
+    Schema writer;
+    Schema sameAsWriter;
+    Schema evolved;
+    Schema incompatible;
+    List<Schema> versions;
+    SchemaCompatibilityCache cache;
+
+    @Setup
+    public void setup() {
+      writer = schema(size, false, false);
+      sameAsWriter = schema(size, false, false);
+      evolved = schema(size, true, false);
+      incompatible = schema(size, false, true);
+      versions = new ArrayList<>();
+      for (int v = 0; v < VERSIONS; v++)
+        versions.add(version(schema(size, false, false), v));
+      cache = new SchemaCompatibilityCache();
+    }
+  }
+
+  /** Adds a field with a default to a copy of <i>schema</i>. */
+  static Schema version(Schema schema, int v) {
+    List<Schema.Field> fields = new ArrayList<>();
+    for (Schema.Field f : schema.getFields())
+      fields.add(new Schema.Field(f, f.schema()));
+    fields.add(new Schema.Field("v" + v, Schema.create(Schema.Type.INT),
+                                null, v));
+    return Schema.createRecord(schema.getName(), null, schema.getNamespace(),
+                               false, fields);
+  }
+
+  /** A record with <i>size</i> groups of fields of various types.  When
+   * <i>evolved</i>, ints are promoted to longs and new fields with defaults
+   * are added.  When <i>incompatible</i>, the last field changes type. */
+  static Schema schema(int size, boolean evolved, boolean incompatible) {
+    SchemaBuilder.FieldAssembler<Schema> fields =
+      SchemaBuilder.record("Outer").namespace("org.apache.avro.perf").fields();
+    for (int i = 0; i < size; i++) {
+      fields = evolved
+        ? fields.name("i" + i).type().longType().noDefault()
+        : fields.name("i" + i).type().intType().noDefault();
+      fields = fields
+        .name("s" + i).type().optional().stringType()
+        .name("e" + i).type().enumeration("E" + i)
+          .symbols("A", "B", "C").noDefault()
+        .name("a" + i).type().array().items().doubleType().noDefault()
+        .name("m" + i).type().map().values().bytesType().noDefault()
+        .name("r" + i).type().record("Inner" + i).fields()
+          .requiredLong("x").requiredFloat("y")
+          .endRecord().noDefault();
+      if (evolved)
+        fields = fields.name("n" + i).type().stringType().stringDefault("n");
+    }
+    fields = incompatible
+      ? fields.name("last").type().booleanType().noDefault()
+      : fields.name("last").type().intType().noDefault();
+    return fields.endRecord();
+  }
+
+  @Benchmark
+  public SchemaCompatibility.SchemaPairCompatibility same(Data data) {
+    return SchemaCompatibility.checkReaderWriterCompatibility(
+        data.sameAsWriter, data.writer);
+  }
+
+  @Benchmark
+  public SchemaCompatibility.SchemaPairCompatibility evolved(Data data) {
+    return SchemaCompatibility.checkReaderWriterCompatibility(
+        data.evolved, data.writer);
+  }
+
+  @Benchmark
+  public SchemaCompatibility.SchemaPairCompatibility incompatible(Data data) {
+    return SchemaCompatibility.checkReaderWriterCompatibility(
+        data.incompatible, data.writer);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VERSIONS)
+  public List<SchemaCompatibility.SchemaPairCompatibility> versions(
+      Data data) {
+    List<SchemaCompatibility.SchemaPairCompatibility> results =
+      new ArrayList<>();
+    for (Schema version : data.versions)
+      results.add(SchemaCompatibility.checkReaderWriterCompatibility(
+          data.evolved, version));
+    return results;
+  }
+
+  /** Checks the versions with a new cache, which only shares the results of
+   * the records nested in each version. */
+  @Benchmark
+  @OperationsPerInvocation(VERSIONS)
+  public List<SchemaCompatibility.SchemaPairCompatibility> versionsNewCache(
+      Data data) {
+    return new SchemaCompatibilityCache().checkReader(data.evolved,
+                                                      data.versions);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(VERSIONS)
+  public List<SchemaCompatibility.SchemaPairCompatibility> versionsCached(
+      Data data) {
+    return data.cache.checkReader(data.evolved, data.versions);
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.avro.perf;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.FooBarSpecificRecord;
+import org.apache.avro.TypeEnum;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.FastSpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Reads and writes generated specific records.  Mirrors the
+ * <code>-Sf</code> test of <code>Perf</code>. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(PerfData.COUNT)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecificBenchmark {
+
+  @State(Scope.Thread)
+  public static class Data {
+    /** Whether to read with the compiled {@link FastSpecificDatumReader}. */
+    @Param({"false", "true"})
+    public boolean compiled;
+
+    SpecificDatumReader<FooBarSpecificRecord> reader;
+    SpecificDatumWriter<FooBarSpecificRecord> writer;
+    FooBarSpecificRecord[] records;
+    FooBarSpecificRecord reuse;
+    byte[] encoded;
+    ByteArrayOutputStream out;
+    BinaryEncoder encoder;
+    BinaryDecoder decoder;
+
+    @Setup
+    public void setup() throws IOException {
+      reader = compiled
+        ? new FastSpecificDatumReader<>(FooBarSpecificRecord.class)
+        : new SpecificDatumReader<>(FooBarSpecificRecord.class);
+      writer = new SpecificDatumWriter<>(FooBarSpecificRecord.class);
+      Random r = PerfData.newRandom();
+      records = new FooBarSpecificRecord[PerfData.COUNT];
+      for (int i = 0; i < records.length; i++)
+        records[i] = newRecord(r);
+      reuse = newRecord(r);
+      encoded = PerfData.encode(writer, records);
+      out = new ByteArrayOutputStream();
+    }
+  }
+
+  private static FooBarSpecificRecord newRecord(Random r) {
+    TypeEnum[] typeEnums = TypeEnum.values();
+    List<Integer> relatedIds = new ArrayList<>(10);
+    for (int i = 0; i < 10; i++)
+      relatedIds.add(r.nextInt());
+    String[] nicknames = { PerfData.randomString(r), PerfData.randomString(r) };
+    return FooBarSpecificRecord.newBuilder()
+      .setId(r.nextInt())
+      .setName(PerfData.randomString(r))
+      .setNicknames(new ArrayList<>(Arrays.asList(nicknames)))
+      .setTypeEnum(typeEnums[r.nextInt(typeEnums.length)])
+      .setRelatedids(relatedIds)
+      .build();
+  }
+
+  @Benchmark
+  public void read(Data data, Blackhole bh) throws IOException {
+    data.decoder = DecoderFactory.get().binaryDecoder(data.encoded,
+                                                      data.decoder);
+    for (int i = 0; i < PerfData.COUNT; i++)
+      bh.consume(data.reader.read(data.reuse, data.decoder));
+  }
+
+  @Benchmark
+  public void write(Data data) throws IOException {
+    data.out.reset();
+    data.encoder = EncoderFactory.get().binaryEncoder(data.out, data.encoder);
+    for (FooBarSpecificRecord record : data.records)
+      data.writer.write(record, data.encoder);
+    data.encoder.flush();
+  }
+}
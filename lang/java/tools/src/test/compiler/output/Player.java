@@ -21,6 +21,11 @@ public class Player extends org.apache.avro.specific.SpecificRecordBase implemen
 
   private static SpecificData MODEL$ = new SpecificData();
 
+  static {
+    SpecificData.setFactory(Player.class,
+        schema -> new Player());
+  }
+
   private static final BinaryMessageEncoder<Player> ENCODER =
       new BinaryMessageEncoder<Player>(MODEL$, SCHEMA$);
 